@@ -0,0 +1,66 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmarks;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures iterating the edges of the BaseGraph, either for every node (like the routing algorithms do) or using the
+ * AllEdgesIterator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BaseGraphBenchmark {
+    private EdgeExplorer explorer;
+
+    @Setup(Level.Trial)
+    public void setUp(GraphHopperState state) {
+        explorer = state.hopper.getBaseGraph().createEdgeExplorer();
+    }
+
+    @Benchmark
+    public double iterateAdjacentEdges(GraphHopperState state) {
+        BaseGraph graph = state.hopper.getBaseGraph();
+        double sum = 0;
+        for (int node = 0; node < graph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+                sum += iter.getDistance() + iter.getAdjNode();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double iterateAllEdges(GraphHopperState state) {
+        AllEdgesIterator iter = state.hopper.getBaseGraph().getAllEdges();
+        double sum = 0;
+        while (iter.next())
+            sum += iter.getDistance() + iter.getBaseNode() + iter.getAdjNode();
+        return sum;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmarks;
+
+import com.graphhopper.routing.weighting.TurnCostProvider;
+import com.graphhopper.routing.weighting.custom.CustomModelParser;
+import com.graphhopper.routing.weighting.custom.CustomWeighting;
+import com.graphhopper.util.CustomModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.graphhopper.json.Statement.*;
+import static com.graphhopper.json.Statement.Op.LIMIT;
+import static com.graphhopper.json.Statement.Op.MULTIPLY;
+
+/**
+ * Measures the creation of a CustomWeighting. The compiled classes are cached by CustomModelParser, so the 'compile'
+ * benchmark uses a different model for every invocation while 'cached' always uses the same one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CustomModelBenchmark {
+    private long counter;
+
+    @Benchmark
+    public CustomWeighting compile(GraphHopperState state) {
+        return CustomModelParser.createWeighting(state.hopper.getEncodingManager(), TurnCostProvider.NO_TURN_COST_PROVIDER,
+                createCustomModel(0.5 + (counter++ % 1_000_000) * 1e-7));
+    }
+
+    @Benchmark
+    public CustomWeighting cached(GraphHopperState state) {
+        return CustomModelParser.createWeighting(state.hopper.getEncodingManager(), TurnCostProvider.NO_TURN_COST_PROVIDER,
+                createCustomModel(0.5));
+    }
+
+    private static CustomModel createCustomModel(double primaryFactor) {
+        return new CustomModel().
+                addToPriority(If("!car_access", MULTIPLY, "0")).
+                addToPriority(If("road_class == PRIMARY", MULTIPLY, String.valueOf(primaryFactor))).
+                addToPriority(ElseIf("road_class == RESIDENTIAL", MULTIPLY, "0.8")).
+                addToSpeed(If("true", LIMIT, "car_average_speed")).
+                addToSpeed(If("max_speed < 50", LIMIT, "max_speed * 0.9"));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmarks;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.LMProfile;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+
+/**
+ * The GraphHopper instance shared by the benchmarks. The OSM file is imported and the CH and LM preparations are run
+ * once, later runs load the graph from the graph folder.
+ */
+@State(Scope.Benchmark)
+public class GraphHopperState {
+    public static final String PROFILE = "car";
+    static final int POINT_COUNT = 1000;
+
+    /**
+     * The path is relative to the benchmarks folder, use e.g. -p osmFile=/path/to/file.pbf to run the benchmarks
+     * on another map.
+     */
+    @Param("../core/files/andorra.osm.pbf")
+    public String osmFile;
+
+    @Param("target/benchmark-gh")
+    public String graphFolder;
+
+    public GraphHopper hopper;
+    /**
+     * Random points within the bounds of the graph, which are the same for all benchmark runs
+     */
+    public GHPoint[] points;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        hopper = new GraphHopper();
+        hopper.setOSMFile(osmFile);
+        hopper.setGraphHopperLocation(graphFolder);
+        hopper.setEncodedValuesString("car_access, car_average_speed, road_class, max_speed");
+        hopper.setProfiles(TestProfiles.accessAndSpeed(PROFILE, "car"));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(PROFILE));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(PROFILE));
+        hopper.importOrLoad();
+
+        BBox bounds = hopper.getBaseGraph().getBounds();
+        Random rnd = new Random(123);
+        points = new GHPoint[POINT_COUNT];
+        for (int i = 0; i < POINT_COUNT; i++)
+            points[i] = new GHPoint(bounds.minLat + rnd.nextDouble() * (bounds.maxLat - bounds.minLat),
+                    bounds.minLon + rnd.nextDouble() * (bounds.maxLon - bounds.minLon));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        hopper.close();
+    }
+}
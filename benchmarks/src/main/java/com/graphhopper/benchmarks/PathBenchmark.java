@@ -0,0 +1,103 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmarks;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.DijkstraBidirectionRef;
+import com.graphhopper.routing.InstructionsFromEdges;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.InstructionList;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Translation;
+import com.graphhopper.util.details.PathDetail;
+import com.graphhopper.util.details.PathDetailsBuilderFactory;
+import com.graphhopper.util.details.PathDetailsFromEdges;
+import com.graphhopper.util.shapes.GHPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the instructions and path details of paths that were calculated beforehand.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PathBenchmark {
+    private static final int PATH_COUNT = 100;
+    private static final List<String> PATH_DETAILS = List.of("street_name", "road_class", "max_speed", "average_speed", "distance", "time");
+    private final List<Path> paths = new ArrayList<>();
+    private Weighting weighting;
+    private Translation translation;
+    private PathDetailsBuilderFactory pathDetailsBuilderFactory;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp(GraphHopperState state) {
+        GraphHopper hopper = state.hopper;
+        weighting = hopper.createWeighting(hopper.getProfile(GraphHopperState.PROFILE), new PMap());
+        translation = hopper.getTranslationMap().getWithFallBack(Locale.US);
+        pathDetailsBuilderFactory = hopper.getPathDetailsBuilderFactory();
+        for (int i = 0; paths.size() < PATH_COUNT && i < GraphHopperState.POINT_COUNT - 1; i += 2) {
+            int from = snap(state, state.points[i]);
+            int to = snap(state, state.points[i + 1]);
+            if (from < 0 || to < 0)
+                continue;
+            Path path = new DijkstraBidirectionRef(hopper.getBaseGraph(), weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+            if (path.isFound() && path.getEdgeCount() > 0)
+                paths.add(path);
+        }
+        if (paths.isEmpty())
+            throw new IllegalStateException("Could not find any paths between the random points");
+    }
+
+    private static int snap(GraphHopperState state, GHPoint point) {
+        Snap snap = state.hopper.getLocationIndex().findClosest(point.lat, point.lon, EdgeFilter.ALL_EDGES);
+        return snap.isValid() ? snap.getClosestNode() : -1;
+    }
+
+    @Benchmark
+    public InstructionList instructions(GraphHopperState state) {
+        Path path = nextPath();
+        return InstructionsFromEdges.calcInstructions(path, state.hopper.getBaseGraph(), weighting, state.hopper.getEncodingManager(), translation);
+    }
+
+    @Benchmark
+    public Map<String, List<PathDetail>> pathDetails(GraphHopperState state) {
+        Path path = nextPath();
+        return PathDetailsFromEdges.calcDetails(path, state.hopper.getEncodingManager(), weighting, PATH_DETAILS,
+                pathDetailsBuilderFactory, 0, state.hopper.getBaseGraph());
+    }
+
+    private Path nextPath() {
+        Path path = paths.get(index);
+        index = (index + 1) % paths.size();
+        return path;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of route responses to JSON like the /route endpoint does it, with and without encoded points
+ * and with and without building the intermediate ObjectNode tree.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseSerializationBenchmark {
+    private static final int RESPONSE_COUNT = 100;
+    private static final List<String> PATH_DETAILS = List.of("street_name", "road_class", "max_speed", "distance", "time");
+
+    @Param({"true", "false"})
+    public boolean pointsEncoded;
+
+    private final List<GHResponse> responses = new ArrayList<>();
+    private final ObjectMapper objectMapper = Jackson.newObjectMapper();
+    private final ResponsePathSerializer.Info info = new ResponsePathSerializer.Info(List.of("GraphHopper", "OpenStreetMap contributors"), 0, "");
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp(GraphHopperState state) {
+        for (int i = 0; responses.size() < RESPONSE_COUNT && i < GraphHopperState.POINT_COUNT - 1; i += 2) {
+            GHResponse response = state.hopper.route(new GHRequest(state.points[i], state.points[i + 1]).
+                    setProfile(GraphHopperState.PROFILE).setPathDetails(PATH_DETAILS));
+            if (!response.hasErrors())
+                responses.add(response);
+        }
+        if (responses.isEmpty())
+            throw new IllegalStateException("Could not find any routes between the random points");
+    }
+
+    @Benchmark
+    public String serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(ResponsePathSerializer.jsonObject(nextResponse(), info, true, true, false, pointsEncoded, 1e5));
+    }
+
+    @Benchmark
+    public String serializeStreaming() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(ResponsePathSerializer.jsonStreaming(nextResponse(), info, true, true, false, pointsEncoded, 1e5));
+    }
+
+    private GHResponse nextResponse() {
+        GHResponse response = responses.get(index);
+        index = (index + 1) % responses.size();
+        return response;
+    }
+}
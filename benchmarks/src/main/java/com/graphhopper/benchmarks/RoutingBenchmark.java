@@ -0,0 +1,56 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmarks;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.util.Parameters;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures complete route requests between random points (including snapping and path extraction), using CH, LM or
+ * flexible routing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RoutingBenchmark {
+    @Param({"ch", "lm", "flex"})
+    public String mode;
+
+    @Param({"false", "true"})
+    public boolean instructions;
+
+    private int index;
+
+    @Benchmark
+    public GHResponse route(GraphHopperState state) {
+        GHRequest request = new GHRequest(state.points[index], state.points[index + 1]).setProfile(GraphHopperState.PROFILE);
+        index = (index + 2) % (GraphHopperState.POINT_COUNT - 1);
+        request.putHint(Parameters.CH.DISABLE, !mode.equals("ch"));
+        request.putHint(Parameters.Landmark.DISABLE, !mode.equals("lm"));
+        request.putHint(Parameters.Routing.INSTRUCTIONS, instructions);
+        request.putHint(Parameters.Routing.CALC_POINTS, instructions);
+        return state.hopper.route(request);
+    }
+}
@@ -26,12 +26,18 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.graphhopper.config.CHProfile;
 import com.graphhopper.config.LMProfile;
 import com.graphhopper.config.Profile;
+import com.graphhopper.isochrone.algorithm.PhastShortestPathTree;
 import com.graphhopper.jackson.Jackson;
 import com.graphhopper.reader.dem.*;
+import com.graphhopper.reader.osm.OSMChangeFile;
+import com.graphhopper.reader.osm.OSMChangeResult;
+import com.graphhopper.reader.osm.OSMNodeIdStorage;
 import com.graphhopper.reader.osm.OSMReader;
 import com.graphhopper.reader.osm.RestrictionTagParser;
 import com.graphhopper.routing.*;
 import com.graphhopper.routing.ch.CHPreparationHandler;
+import com.graphhopper.routing.ch.CustomizableCH;
+import com.graphhopper.routing.ch.ManyToManyCH;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.lm.LMConfig;
@@ -57,6 +63,7 @@ import com.graphhopper.util.*;
 import com.graphhopper.util.Parameters.Landmark;
 import com.graphhopper.util.Parameters.Routing;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
+import com.graphhopper.util.shapes.GHPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -68,9 +75,12 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static com.graphhopper.util.GHUtility.readCountries;
@@ -105,9 +115,16 @@ public class GraphHopper {
     private DAType dataAccessDefaultType = DAType.RAM_STORE;
     private final LinkedHashMap<String, String> dataAccessConfig = new LinkedHashMap<>();
     private boolean sortGraph = true;
+    private boolean adjacencyArray = false;
+    private boolean compactGeometry = false;
+    private boolean osmNodeIds = false;
+    private OSMNodeIdStorage osmNodeIdStorage;
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private boolean allowWrites = true;
+    private boolean verifyArchive = false;
+    // the archive the graph was loaded from, see GraphArchive
+    private GraphArchive archive;
     private boolean fullyLoaded = false;
     private final OSMReaderConfig osmReaderConfig = new OSMReaderConfig();
     // for routing
@@ -129,8 +146,12 @@ public class GraphHopper {
     // preparation handlers
     private final LMPreparationHandler lmPreparationHandler = new LMPreparationHandler();
     private final CHPreparationHandler chPreparationHandler = new CHPreparationHandler();
-    private Map<String, RoutingCHGraph> chGraphs = Collections.emptyMap();
-    private Map<String, LandmarkStorage> landmarks = Collections.emptyMap();
+    // this is replaced, but never modified, when the preparations are updated while requests are processed
+    private volatile RoutingGraphs routingGraphs = new RoutingGraphs(Collections.emptyMap(), Collections.emptyMap(), null);
+    private int cchCacheSize = 10;
+    private final Map<String, int[]> chNodesByLevel = new ConcurrentHashMap<>();
+    private volatile Map<String, LandmarkStorage> landmarks = Collections.emptyMap();
+    private TrafficSpeedUpdater trafficSpeedUpdater;
 
     // for data reader
     private String osmFile;
@@ -366,6 +387,41 @@ public class GraphHopper {
         return this;
     }
 
+    /**
+     * Enables an adjacency array for the frozen graph, which speeds up the iteration of the edges of a node. It
+     * replaces the linked lists of adjacent edges, so a graph created with this option can only be loaded with it.
+     */
+    public GraphHopper setAdjacencyArray(boolean adjacencyArray) {
+        this.adjacencyArray = adjacencyArray;
+        return this;
+    }
+
+    /**
+     * Stores the OSM node ids of the tower nodes, which needs 8 bytes per node. They are required to add created ways
+     * and to change the geometry of modified ways with {@link #applyOSMChanges}. This only applies to new imports.
+     */
+    public GraphHopper setOSMNodeIds(boolean osmNodeIds) {
+        this.osmNodeIds = osmNodeIds;
+        return this;
+    }
+
+    /**
+     * @return the OSM node ids of the tower nodes or null if they are not stored, see {@link #setOSMNodeIds}
+     */
+    public OSMNodeIdStorage getOSMNodeIdStorage() {
+        return osmNodeIdStorage;
+    }
+
+    /**
+     * Stores the pillar nodes of the way geometries as variable-length coordinate differences, which reduces the
+     * size of the geometry storage by about half without elevation and by about a third with elevation. This only
+     * applies to new imports, loaded graphs keep their format.
+     */
+    public GraphHopper setCompactGeometry(boolean compactGeometry) {
+        this.compactGeometry = compactGeometry;
+        return this;
+    }
+
     /**
      * The underlying graph used in algorithms.
      *
@@ -392,7 +448,26 @@ public class GraphHopper {
      * or import.
      */
     public Map<String, RoutingCHGraph> getCHGraphs() {
-        return chGraphs;
+        return routingGraphs.chGraphs;
+    }
+
+    /**
+     * @return a mapping between profile names and according customizable CH preparations. The CH graphs of these
+     * profiles are also contained in {@link #getCHGraphs()}. The map will be empty before loading or import.
+     */
+    public Map<String, CustomizableCH> getCCHGraphs() {
+        return routingGraphs.cchGraphs;
+    }
+
+    /**
+     * @return the nodes of the CH graph of the given profile in descending level order as used by
+     * {@link PhastShortestPathTree}. The order is computed on first access and cached afterwards.
+     */
+    public int[] getCHNodesByLevel(String profileName) {
+        RoutingCHGraph chGraph = routingGraphs.chGraphs.get(profileName);
+        if (chGraph == null)
+            throw new IllegalArgumentException("There is no CH preparation for profile '" + profileName + "'");
+        return chNodesByLevel.computeIfAbsent(profileName, p -> PhastShortestPathTree.sortNodesByLevel(chGraph));
     }
 
     /**
@@ -515,6 +590,10 @@ public class GraphHopper {
         }
 
         sortGraph = ghConfig.getBool("graph.sort", sortGraph);
+        adjacencyArray = ghConfig.getBool("graph.adjacency_array", adjacencyArray);
+        verifyArchive = ghConfig.getBool("graph.archive.verify", verifyArchive);
+        compactGeometry = ghConfig.getBool("graph.compact_geometry", compactGeometry);
+        osmNodeIds = ghConfig.getBool("graph.osm_node_ids", osmNodeIds);
         if (ghConfig.getBool("max_speed_calculator.enabled", false))
             maxSpeedCalculator = new MaxSpeedCalculator(MaxSpeedCalculator.createLegalDefaultSpeeds());
 
@@ -554,6 +633,7 @@ public class GraphHopper {
         osmReaderConfig.setElevationSmoothingRamerMax(ghConfig.getInt("graph.elevation.edge_smoothing.ramer.max_elevation", osmReaderConfig.getElevationSmoothingRamerMax()));
         osmReaderConfig.setLongEdgeSamplingDistance(ghConfig.getDouble("graph.elevation.long_edge_sampling_distance", osmReaderConfig.getLongEdgeSamplingDistance()));
         osmReaderConfig.setElevationMaxWayPointDistance(ghConfig.getDouble("graph.elevation.way_point_max_distance", osmReaderConfig.getElevationMaxWayPointDistance()));
+        osmReaderConfig.setSortedElevationLookup(ghConfig.getBool("graph.elevation.sorted_lookup", osmReaderConfig.isSortedElevationLookup()));
         routerConfig.setElevationWayPointMaxDistance(ghConfig.getDouble("graph.elevation.way_point_max_distance", routerConfig.getElevationWayPointMaxDistance()));
         ElevationProvider elevationProvider = createElevationProvider(ghConfig);
         setElevationProvider(elevationProvider);
@@ -586,6 +666,8 @@ public class GraphHopper {
         osmReaderConfig.setPreferredLanguage(ghConfig.getString("datareader.preferred_language", osmReaderConfig.getPreferredLanguage()));
         osmReaderConfig.setMaxWayPointDistance(ghConfig.getDouble(Routing.INIT_WAY_POINT_MAX_DISTANCE, osmReaderConfig.getMaxWayPointDistance()));
         osmReaderConfig.setWorkerThreads(ghConfig.getInt("datareader.worker_threads", osmReaderConfig.getWorkerThreads()));
+        osmReaderConfig.setEdgeThreads(ghConfig.getInt("datareader.edge_threads", osmReaderConfig.getEdgeThreads()));
+        osmReaderConfig.setSinglePass(ghConfig.getBool("datareader.single_pass", osmReaderConfig.isSinglePass()));
 
         // index
         preciseIndexResolution = ghConfig.getInt("index.high_resolution", preciseIndexResolution);
@@ -609,6 +691,12 @@ public class GraphHopper {
             throw new IllegalArgumentException("Default value for active landmarks " + activeLandmarkCount
                     + " should be less or equal to landmark count of " + lmPreparationHandler.getLandmarks());
         routerConfig.setActiveLandmarkCount(activeLandmarkCount);
+        if (ghConfig.getBool("routing.workspace_pool", false))
+            routerConfig.setWorkspacePool(new RoutingWorkspacePool());
+        int snapCacheSize = ghConfig.getInt("routing.snap_cache_size", 0);
+        if (snapCacheSize > 0)
+            routerConfig.setSnapCache(new SnapCache(snapCacheSize));
+        cchCacheSize = ghConfig.getInt("routing.ch.customization_cache_size", cchCacheSize);
 
         calcChecksums = ghConfig.getBool("graph.calc_checksums", false);
 
@@ -757,6 +845,9 @@ public class GraphHopper {
                     .setDAType(elevationDAType);
             if (!baseURL.isEmpty())
                 provider.setBaseURL(baseURL);
+            int cacheSize = ghConfig.getInt("graph.elevation.cache_size", 0);
+            if (cacheSize > 0)
+                provider.setTileCache(new HeightTileCache(cacheSize));
         }
         return elevationProvider;
     }
@@ -828,6 +919,8 @@ public class GraphHopper {
                 .set3D(hasElevation())
                 .withTurnCosts(encodingManager.needsTurnCostsSupport())
                 .setSegmentSize(defaultSegmentSize)
+                .withAdjacencyArray(adjacencyArray)
+                .withCompactGeometry(compactGeometry)
                 .build();
         properties = new StorableProperties(directory);
         checkProfilesConsistency();
@@ -924,8 +1017,11 @@ public class GraphHopper {
         if (hasElevation())
             interpolateBridgesTunnelsAndFerries();
 
-        if (sortGraph)
-            sortGraphAlongHilbertCurve(baseGraph);
+        if (sortGraph) {
+            IntArrayList newNodesByOldNodes = sortGraphAlongHilbertCurve(baseGraph);
+            if (osmNodeIdStorage != null)
+                osmNodeIdStorage.relabelNodes(baseGraph.getNodes(), newNodesByOldNodes::get);
+        }
     }
 
     protected void importOSM() {
@@ -933,15 +1029,7 @@ public class GraphHopper {
             throw new IllegalStateException("Couldn't load from existing folder: " + ghLocation
                     + " but also cannot use file for DataReader as it wasn't specified!");
 
-        List<CustomArea> customAreas = readCountries();
-        if (isEmpty(customAreasDirectory)) {
-            logger.info("No custom areas are used, custom_areas.directory not given");
-        } else {
-            logger.info("Creating custom area index, reading custom areas from: '" + customAreasDirectory + "'");
-            customAreas.addAll(readCustomAreas());
-        }
-
-        AreaIndex<CustomArea> areaIndex = new AreaIndex<>(customAreas);
+        AreaIndex<CustomArea> areaIndex = createAreaIndex();
         if (countryRuleFactory == null || countryRuleFactory.getCountryToRuleMap().isEmpty()) {
             logger.info("No country rules available");
         } else {
@@ -956,6 +1044,10 @@ public class GraphHopper {
         logger.info("using " + getBaseGraphString() + ", memory:" + getMemInfo());
 
         createBaseGraphAndProperties();
+        if (osmNodeIds) {
+            osmNodeIdStorage = new OSMNodeIdStorage(baseGraph.getDirectory()).create(1000);
+            reader.setOSMNodeIdStorage(osmNodeIdStorage);
+        }
 
         try {
             reader.readGraph();
@@ -968,6 +1060,258 @@ public class GraphHopper {
             properties.put("datareader.data.date", f.format(reader.getDataDate()));
     }
 
+    private AreaIndex<CustomArea> createAreaIndex() {
+        List<CustomArea> customAreas = readCountries();
+        if (isEmpty(customAreasDirectory)) {
+            logger.info("No custom areas are used, custom_areas.directory not given");
+        } else {
+            logger.info("Creating custom area index, reading custom areas from: '" + customAreasDirectory + "'");
+            customAreas.addAll(readCustomAreas());
+        }
+        return new AreaIndex<>(customAreas);
+    }
+
+    /**
+     * Applies an OSM change file (.osc or .osc.gz) to the graph that was imported or loaded before, which is much
+     * faster than a new import. The edges of modified OSM ways are parsed again and the edges of deleted ways become
+     * inaccessible. If the OSM node ids are stored, see {@link #setOSMNodeIds}, created ways are added and the
+     * geometry of modified ways and tower nodes is changed as well, see {@link OSMReader#applyChanges} for the changes
+     * that cannot be applied this way.
+     * <p>
+     * Afterwards only the preparations that are affected are updated: the subnetworks are determined again and CH
+     * preparations are done again for the profiles whose weights changed, and customizable CHs are customized again.
+     * LM preparations are only done again if a weight decreased, because otherwise the landmark weights are still
+     * valid lower bounds. When edges were added all of them, including the metric-independent part of the
+     * customizable CHs and the location index, are created again, because they depend on the edges of the graph.
+     * <p>
+     * This requires the osm_way_id encoded value and must not be called while routing requests are processed. It does
+     * not run concurrently with {@link #updateTrafficSpeeds}.
+     */
+    public synchronized OSMChangeResult applyOSMChanges(File changeFile) {
+        if (!fullyLoaded)
+            throw new IllegalStateException("Do a successful call to load or importOrLoad before applying OSM changes");
+        if (!encodingManager.hasEncodedValue(OSMWayID.KEY))
+            throw new IllegalStateException("Applying OSM changes requires the encoded value " + OSMWayID.KEY);
+        if (maxSpeedCalculator != null)
+            throw new IllegalStateException("Applying OSM changes is not supported when the max_speed_calculator is used");
+        ensureWriteAccess();
+        OSMChangeFile changes;
+        try {
+            changes = OSMChangeFile.read(changeFile);
+        } catch (IOException ex) {
+            throw new RuntimeException("Cannot read file " + changeFile, ex);
+        }
+        OSMReader reader = new OSMReader(baseGraph.getBaseGraph(), osmParsers, osmReaderConfig).
+                setAreaIndex(createAreaIndex()).
+                setElevationProvider(eleProvider).
+                setOSMNodeIdStorage(osmNodeIdStorage).
+                setCountryRuleFactory(countryRuleFactory);
+        List<IntEncodedValueImpl> relationEncodedValues = Stream.of(BikeNetwork.KEY, MtbNetwork.KEY, FootNetwork.KEY)
+                .filter(encodingManager::hasEncodedValue).map(this::getKeptEncodedValue).toList();
+        OSMChangeResult result = reader.applyChanges(changes, encodingManager.getIntEncodedValue(OSMWayID.KEY), relationEncodedValues);
+        // the edges of deleted ways lose their OSM way id, so the mapping from way ids to edges has to be built again
+        trafficSpeedUpdater = null;
+
+        // the subnetworks and the urban density are not determined by the tag parsers, so we keep their previous values
+        List<IntEncodedValueImpl> keptEncodedValues = new ArrayList<>();
+        for (String profile : profilesByName.keySet())
+            keptEncodedValues.add(getKeptEncodedValue(Subnetwork.key(profile)));
+        if (encodingManager.hasEncodedValue(UrbanDensity.KEY))
+            keptEncodedValues.add(getKeptEncodedValue(UrbanDensity.KEY));
+        if (encodingManager.hasEncodedValue(TrafficSpeed.KEY))
+            keptEncodedValues.add(getKeptEncodedValue(TrafficSpeed.KEY));
+        if (encodingManager.hasEncodedValue(TrafficSpeed.BUFFER_KEY))
+            keptEncodedValues.add(getKeptEncodedValue(TrafficSpeed.BUFFER_KEY));
+        List<Profile> profiles = new ArrayList<>(profilesByName.values());
+        List<Weighting> weightings = profiles.stream().map(p -> createWeighting(p, new PMap(), true)).toList();
+        Set<String> changedProfiles = new HashSet<>();
+        Set<String> decreasedProfiles = new HashSet<>();
+        double[] previousWeights = new double[2 * profiles.size()];
+        for (int i = 0; i < result.getChangedEdgeCount(); i++) {
+            EdgeIteratorState edge = baseGraph.getEdgeIteratorState(result.getChangedEdge(i), Integer.MIN_VALUE);
+            IntsRef previousFlags = result.getPreviousFlags(i);
+            IntsRef flags = edge.getFlags();
+            IntsRefEdgeIntAccess previousAccess = new IntsRefEdgeIntAccess(previousFlags);
+            IntsRefEdgeIntAccess access = new IntsRefEdgeIntAccess(flags);
+            for (IntEncodedValueImpl enc : keptEncodedValues)
+                enc.copy(edge.getEdge(), previousAccess, edge.getEdge(), access);
+            edge.setFlags(previousFlags);
+            for (int p = 0; p < profiles.size(); p++) {
+                previousWeights[2 * p] = weightings.get(p).calcEdgeWeight(edge, false);
+                previousWeights[2 * p + 1] = weightings.get(p).calcEdgeWeight(edge, true);
+            }
+            edge.setFlags(flags);
+            for (int p = 0; p < profiles.size(); p++) {
+                double weight = weightings.get(p).calcEdgeWeight(edge, false);
+                double reverseWeight = weightings.get(p).calcEdgeWeight(edge, true);
+                if (weight != previousWeights[2 * p] || reverseWeight != previousWeights[2 * p + 1])
+                    changedProfiles.add(profiles.get(p).getName());
+                if (weight < previousWeights[2 * p] || reverseWeight < previousWeights[2 * p + 1])
+                    decreasedProfiles.add(profiles.get(p).getName());
+            }
+        }
+        boolean edgesAdded = result.getAddedEdges() > 0;
+        if (edgesAdded) {
+            // the new edges are not among the changed edges, but all preparations need to include them anyway
+            changedProfiles.addAll(profilesByName.keySet());
+            decreasedProfiles.addAll(profilesByName.keySet());
+        }
+        logger.info("Profiles with changed weights: {}, profiles with decreased weights: {}", changedProfiles, decreasedProfiles);
+        updateSubnetworks(changedProfiles);
+        if (edgesAdded) {
+            baseGraph.getDirectory().remove("location_index");
+            locationIndex = null;
+            initLocationIndex();
+        }
+        if (chPreparationHandler.isEnabled())
+            updateCH(changedProfiles, result.getChangedEdgeCount() > 0, edgesAdded);
+        if (lmPreparationHandler.isEnabled())
+            updateLM(decreasedProfiles);
+        properties.put("datareader.update.date", createFormatter().format(new Date()));
+        flush();
+        // the cached snaps might refer to edges that were removed or are no longer accessible
+        clearSnapCache();
+        return result;
+    }
+
+    private IntEncodedValueImpl getKeptEncodedValue(String key) {
+        EncodedValue ev = encodingManager.getEncodedValue(key, EncodedValue.class);
+        if (ev instanceof IntEncodedValueImpl intEnc)
+            return intEnc;
+        throw new IllegalStateException("Cannot keep the values of " + key + " when applying OSM changes, because "
+                + ev.getClass().getSimpleName() + " does not store them in the edge flags");
+    }
+
+    /**
+     * Applies live traffic speeds, e.g. {@code hopper.updateTrafficSpeeds(u -> u.clear().setWaySpeed(wayId, 20, 20))}.
+     * The speeds are stored in the traffic_speed encoded value, which must be used by the custom models of the
+     * profiles, e.g. with "limit_to": "traffic_speed". A speed of 0 closes an edge, and lower priorities for slow
+     * traffic can be expressed in the custom model as well, e.g. with "if": "traffic_speed < 20".
+     * <p>
+     * This can be called while routing requests are processed and does not block them. The speeds are written into a
+     * second buffer that is not used for routing, starting from the current speeds. Then all customizable CHs are
+     * customized again along their fixed contraction order for the speeds of this buffer. Finally the new CH graphs
+     * and the buffer are published together, so requests either use the previous or the new speeds and CH graphs.
+     * The next update writes into the previous buffer again, so it must not run before the requests that use the
+     * previous speeds are finished.
+     * <p>
+     * CH preparations that are not customizable are not updated, because their shortcuts depend on the weights. LM
+     * preparations are not updated either. They remain valid as long as the traffic speeds only increase the weights
+     * compared to the time of the preparation.
+     */
+    public synchronized void updateTrafficSpeeds(Consumer<TrafficSpeedUpdater> update) {
+        if (!fullyLoaded)
+            throw new IllegalStateException("Do a successful call to load or importOrLoad before updating traffic speeds");
+        ensureWriteAccess();
+        if (trafficSpeedUpdater == null)
+            trafficSpeedUpdater = new TrafficSpeedUpdater(baseGraph.getBaseGraph(), encodingManager);
+        if (!encodingManager.hasEncodedValue(TrafficSpeed.BUFFER_KEY))
+            throw new IllegalStateException("Traffic speeds require the encoded value " + TrafficSpeed.BUFFER_KEY
+                    + ", which is missing in graphs that were imported by older versions. Import the graph again.");
+        RoutingGraphs graphs = routingGraphs;
+        DecimalEncodedValue previousEnc = graphs.trafficSpeedEnc == null
+                ? encodingManager.getDecimalEncodedValue(TrafficSpeed.KEY) : graphs.trafficSpeedEnc;
+        DecimalEncodedValue trafficSpeedEnc = encodingManager.getDecimalEncodedValue(
+                previousEnc.getName().equals(TrafficSpeed.KEY) ? TrafficSpeed.BUFFER_KEY : TrafficSpeed.KEY);
+        StopWatch sw = StopWatch.started();
+        int updatedEdges = trafficSpeedUpdater.getUpdatedEdges();
+        trafficSpeedUpdater.startUpdate(previousEnc, trafficSpeedEnc);
+        update.accept(trafficSpeedUpdater);
+        float updateTime = sw.stop().getSeconds();
+        sw = StopWatch.started();
+        customizeCCHAgain(trafficSpeedEnc);
+        properties.put("graph.traffic_speed.active", trafficSpeedEnc.getName());
+        // the cached snaps might refer to edges that are closed now or were skipped because they were closed before
+        clearSnapCache();
+        logger.info("Updated traffic speeds of {} edges in {}s, customized {} CCH graphs in {}s",
+                nf(trafficSpeedUpdater.getUpdatedEdges() - updatedEdges), updateTime, graphs.cchGraphs.size(), sw.stop().getSeconds());
+    }
+
+    private void updateSubnetworks(Set<String> changedProfiles) {
+        List<Profile> profiles = profilesByName.values().stream().filter(p -> changedProfiles.contains(p.getName())).toList();
+        if (profiles.isEmpty())
+            return;
+        PrepareRoutingSubnetworks preparation = new PrepareRoutingSubnetworks(baseGraph.getBaseGraph(), buildSubnetworkRemovalJobs(profiles));
+        preparation.setMinNetworkSize(minNetworkSize);
+        preparation.setThreads(subnetworksThreads);
+        preparation.doWork();
+    }
+
+    private void updateCH(Set<String> changedProfiles, boolean edgesChanged, boolean edgesAdded) {
+        List<CHProfile> chProfiles = chPreparationHandler.getCHProfiles().stream()
+                .filter(p -> !p.isCustomizable() && changedProfiles.contains(p.getProfile())).toList();
+        for (CHProfile profile : chProfiles) {
+            // removing the storage also closes it. we must not close the CH graph, because this would close the base graph
+            chNodesByLevel.remove(profile.getProfile());
+            baseGraph.getDirectory().remove("nodes_ch_" + profile.getProfile());
+            baseGraph.getDirectory().remove("shortcuts_" + profile.getProfile());
+        }
+        RoutingGraphs graphs = routingGraphs;
+        Map<String, RoutingCHGraph> newCHGraphs = new LinkedHashMap<>(graphs.chGraphs);
+        prepareCH(false, createCHConfigs(chProfiles)).forEach((profile, res) ->
+                newCHGraphs.put(profile, RoutingCHGraphImpl.fromGraph(baseGraph.getBaseGraph(), res.getCHStorage(), res.getCHConfig())));
+        routingGraphs = new RoutingGraphs(newCHGraphs, graphs.cchGraphs, graphs.trafficSpeedEnc);
+
+        if (edgesAdded) {
+            // the contraction order of the customizable CHs does not include the new edges
+            List<String> cchProfiles = new ArrayList<>(graphs.cchGraphs.keySet());
+            for (String profile : cchProfiles) {
+                chNodesByLevel.remove(profile);
+                baseGraph.getDirectory().remove("nodes_cch_" + profile);
+                baseGraph.getDirectory().remove("arcs_cch_" + profile);
+            }
+            customizeCCH(prepareCCH(cchProfiles), graphs.trafficSpeedEnc);
+        } else if (edgesChanged)
+            // the customized graphs can be based on custom models that use any of the encoded values, so we have to
+            // replace all of them, even if the weights of the profile did not change
+            customizeCCHAgain(graphs.trafficSpeedEnc);
+    }
+
+    /**
+     * Customizes all customizable CHs for the current edge weights. The metric-independent storages are kept, but we
+     * create new CustomizableCH instances to drop the graphs that were cached for the previous weights.
+     */
+    private void customizeCCHAgain(DecimalEncodedValue trafficSpeedEnc) {
+        Map<String, CCHStorage> storages = new LinkedHashMap<>();
+        routingGraphs.cchGraphs.forEach((profile, cch) -> storages.put(profile, cch.getStorage()));
+        customizeCCH(storages, trafficSpeedEnc);
+    }
+
+    /**
+     * Customizes the given customizable CHs for the weights that use the given traffic speeds. The new graphs and the
+     * traffic speeds replace the previous ones together, and only when all customizations are done.
+     */
+    private void customizeCCH(Map<String, CCHStorage> storages, DecimalEncodedValue trafficSpeedEnc) {
+        RoutingGraphs graphs = routingGraphs;
+        Map<String, RoutingCHGraph> newCHGraphs = new LinkedHashMap<>(graphs.chGraphs);
+        Map<String, CustomizableCH> newCCHGraphs = new LinkedHashMap<>(graphs.cchGraphs);
+        WeightingFactory weightingFactory = createWeightingFactory(trafficSpeedEnc);
+        for (Map.Entry<String, CCHStorage> e : storages.entrySet()) {
+            CustomizableCH cch = new CustomizableCH(baseGraph.getBaseGraph(), e.getValue(), cchCacheSize);
+            Weighting weighting = weightingFactory.createWeighting(profilesByName.get(e.getKey()), new PMap(), false);
+            newCCHGraphs.put(e.getKey(), cch);
+            newCHGraphs.put(e.getKey(), cch.customize(CHConfig.nodeBased(e.getKey(), weighting)));
+        }
+        routingGraphs = new RoutingGraphs(newCHGraphs, newCCHGraphs, trafficSpeedEnc);
+    }
+
+    private void updateLM(Set<String> decreasedProfiles) {
+        List<LMConfig> lmConfigs = createLMConfigs(lmPreparationHandler.getLMProfiles()).stream()
+                .filter(c -> decreasedProfiles.contains(c.getName())).toList();
+        for (LMConfig lmConfig : lmConfigs) {
+            baseGraph.getDirectory().remove("landmarks_" + lmConfig.getName());
+            baseGraph.getDirectory().remove("landmarks_subnetwork_" + lmConfig.getName());
+        }
+        List<PrepareLandmarks> prepared = prepareLM(false, lmConfigs);
+        Map<String, LandmarkStorage> newLandmarks = new LinkedHashMap<>(landmarks);
+        for (LMProfile lmp : lmPreparationHandler.getLMProfiles()) {
+            String prepProfile = lmp.usesOtherPreparation() ? lmp.getPreparationProfile() : lmp.getProfile();
+            prepared.stream().filter(pl -> pl.getLandmarkStorage().getLMConfig().getName().equals(prepProfile)).findFirst()
+                    .ifPresent(pl -> newLandmarks.put(lmp.getProfile(), pl.getLandmarkStorage()));
+        }
+        landmarks = newLandmarks;
+    }
+
     protected void createBaseGraphAndProperties() {
         baseGraph.getDirectory().create();
         baseGraph.create(100);
@@ -976,7 +1320,10 @@ public class GraphHopper {
             maxSpeedCalculator.createDataAccessForParser(baseGraph.getDirectory());
     }
 
-    public static void sortGraphAlongHilbertCurve(BaseGraph graph) {
+    /**
+     * @return the new node for every old node
+     */
+    public static IntArrayList sortGraphAlongHilbertCurve(BaseGraph graph) {
         logger.info("sorting graph along Hilbert curve...");
         StopWatch sw = StopWatch.started();
         NodeAccess na = graph.getNodeAccess();
@@ -1002,6 +1349,7 @@ public class GraphHopper {
         IntArrayList newNodesByOldNodes = IntArrayList.from(ArrayUtil.invert(nodeOrder));
         logger.info("calculating sort order took: " + sw.stop().getTimeString());
         sortGraphForGivenOrdering(graph, newNodesByOldNodes, newEdgesByOldEdges);
+        return newNodesByOldNodes;
     }
 
     public static void sortGraphForGivenOrdering(BaseGraph baseGraph, IntArrayList newNodesByOldNodes, IntArrayList newEdgesByOldEdges) {
@@ -1129,6 +1477,19 @@ public class GraphHopper {
 
         GHDirectory directory = new GHDirectory(ghLocation, dataAccessDefaultType);
         directory.configure(dataAccessConfig);
+        if (directory.openArchive()) {
+            GraphArchive graphArchive = directory.getArchive();
+            // the adjacency array is only created when the graph is frozen, so a graph packed without it cannot use it
+            if (adjacencyArray && !graphArchive.contains("adjacency")) {
+                directory.close();
+                throw new IllegalStateException("The adjacency array is enabled, but it is missing in the read-only archive "
+                        + graphArchive + ". Disable graph.adjacency_array or pack the graph again after creating it.");
+            }
+            archive = graphArchive;
+            logger.info("loading graph from archive " + archive + ", " + archive.getNames().size() + " files");
+            if (verifyArchive)
+                archive.verify();
+        }
         GHLock lock = null;
         try {
             // create locks only if writes are allowed, if they are not allowed a lock cannot be created
@@ -1150,9 +1511,22 @@ public class GraphHopper {
                     .set3D(hasElevation())
                     .withTurnCosts(encodingManager.needsTurnCostsSupport())
                     .setSegmentSize(defaultSegmentSize)
+                    .withAdjacencyArray(adjacencyArray)
                     .build();
             checkProfilesConsistency();
             baseGraph.loadExisting();
+            String trafficSpeedKey = properties.get("graph.traffic_speed.active");
+            if (!trafficSpeedKey.isEmpty())
+                routingGraphs = new RoutingGraphs(Collections.emptyMap(), Collections.emptyMap(),
+                        encodingManager.getDecimalEncodedValue(trafficSpeedKey));
+            if (osmNodeIds) {
+                osmNodeIdStorage = new OSMNodeIdStorage(directory);
+                if (!osmNodeIdStorage.loadExisting()) {
+                    logger.warn("The OSM node ids are missing in " + ghLocation + ", import the graph again to use graph.osm_node_ids");
+                    directory.remove("osm_node_ids");
+                    osmNodeIdStorage = null;
+                }
+            }
             String storedProfiles = properties.get("profiles");
             String configuredProfiles = getProfilesString();
             if (!storedProfiles.equals(configuredProfiles))
@@ -1207,6 +1581,9 @@ public class GraphHopper {
             if (!profilesByName.containsKey(chProfile.getProfile())) {
                 throw new IllegalArgumentException("CH profile references unknown profile '" + chProfile.getProfile() + "'");
             }
+            if (chProfile.isCustomizable() && profilesByName.get(chProfile.getProfile()).hasTurnCosts()) {
+                throw new IllegalArgumentException("Customizable CH does not support turn costs, but profile '" + chProfile.getProfile() + "' uses them");
+            }
         }
         Map<String, LMProfile> lmProfileMap = new LinkedHashMap<>(lmPreparationHandler.getLMProfiles().size());
         for (LMProfile lmProfile : lmPreparationHandler.getLMProfiles()) {
@@ -1327,13 +1704,29 @@ public class GraphHopper {
     }
 
     protected WeightingFactory createWeightingFactory() {
-        return new DefaultWeightingFactory(baseGraph.getBaseGraph(), getEncodingManager());
+        return createWeightingFactory(routingGraphs.trafficSpeedEnc);
+    }
+
+    /**
+     * @param trafficSpeedEnc the buffer of the traffic speeds that is used instead of traffic_speed, or null
+     */
+    protected WeightingFactory createWeightingFactory(DecimalEncodedValue trafficSpeedEnc) {
+        EncodingManager em = getEncodingManager();
+        return new DefaultWeightingFactory(baseGraph.getBaseGraph(), em,
+                trafficSpeedEnc == null ? em : new TrafficSpeedLookup(em, trafficSpeedEnc));
     }
 
     public GHResponse route(GHRequest request) {
         return createRouter().route(request);
     }
 
+    /**
+     * @see Router#routeMatrix(GHRequest, List, List, boolean)
+     */
+    public ManyToManyCH.Matrix routeMatrix(GHRequest request, List<GHPoint> fromPoints, List<GHPoint> toPoints, boolean calcTimesAndDistances) {
+        return createRouter().routeMatrix(request, fromPoints, toPoints, calcTimesAndDistances);
+    }
+
     private Router createRouter() {
         if (baseGraph == null || !fullyLoaded)
             throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
@@ -1342,15 +1735,18 @@ public class GraphHopper {
         if (locationIndex == null)
             throw new IllegalStateException("Location index not initialized");
 
+        // the weightings must use the traffic speeds the CH graphs were customized for
+        RoutingGraphs graphs = routingGraphs;
         return doCreateRouter(baseGraph, encodingManager, locationIndex, profilesByName, pathBuilderFactory,
-                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks);
+                trMap, routerConfig, createWeightingFactory(graphs.trafficSpeedEnc), graphs.chGraphs, graphs.cchGraphs, landmarks);
     }
 
     protected Router doCreateRouter(BaseGraph baseGraph, EncodingManager encodingManager, LocationIndex locationIndex, Map<String, Profile> profilesByName,
                                     PathDetailsBuilderFactory pathBuilderFactory, TranslationMap trMap, RouterConfig routerConfig,
-                                    WeightingFactory weightingFactory, Map<String, RoutingCHGraph> chGraphs, Map<String, LandmarkStorage> landmarks) {
+                                    WeightingFactory weightingFactory, Map<String, RoutingCHGraph> chGraphs,
+                                    Map<String, CustomizableCH> cchGraphs, Map<String, LandmarkStorage> landmarks) {
         return new Router(baseGraph, encodingManager, locationIndex, profilesByName, pathBuilderFactory,
-                trMap, routerConfig, weightingFactory, chGraphs, landmarks
+                trMap, routerConfig, weightingFactory, chGraphs, cchGraphs, landmarks
         );
     }
 
@@ -1430,15 +1826,31 @@ public class GraphHopper {
                 throw new IllegalArgumentException("CH preparation of " + profile.getProfile() + " already exists in storage and doesn't match configuration");
 
         // we load ch graphs that already exist and prepare the other ones
-        List<CHConfig> chConfigs = createCHConfigs(chPreparationHandler.getCHProfiles());
+        List<CHConfig> chConfigs = createCHConfigs(chPreparationHandler.getCHProfiles().stream().filter(p -> !p.isCustomizable()).toList());
         Map<String, RoutingCHGraph> loaded = chPreparationHandler.load(baseGraph.getBaseGraph(), chConfigs);
         List<CHConfig> configsToPrepare = chConfigs.stream().filter(c -> !loaded.containsKey(c.getName())).collect(Collectors.toList());
         Map<String, PrepareContractionHierarchies.Result> prepared = prepareCH(closeEarly, configsToPrepare);
 
+        // the same for the customizable ch storages, which do not depend on the weighting
+        List<String> cchProfiles = chPreparationHandler.getCHProfiles().stream().filter(CHProfile::isCustomizable).map(CHProfile::getProfile).toList();
+        Map<String, CCHStorage> loadedCCH = chPreparationHandler.loadCCH(baseGraph.getBaseGraph(), cchProfiles);
+        Map<String, CCHStorage> preparedCCH = prepareCCH(cchProfiles.stream().filter(p -> !loadedCCH.containsKey(p)).toList());
+
         // we map all profile names for which there is CH support to the according CH graphs
-        chGraphs = new LinkedHashMap<>();
+        Map<String, RoutingCHGraph> chGraphs = new LinkedHashMap<>();
+        Map<String, CustomizableCH> cchGraphs = new LinkedHashMap<>();
         for (CHProfile profile : chPreparationHandler.getCHProfiles()) {
-            if (loaded.containsKey(profile.getProfile()) && prepared.containsKey(profile.getProfile()))
+            if (profile.isCustomizable()) {
+                CCHStorage storage = loadedCCH.get(profile.getProfile());
+                if (storage == null) {
+                    storage = preparedCCH.get(profile.getProfile());
+                    setCHProfileVersion(profile.getProfile(), getProfileHash(profilesByName.get(profile.getProfile())));
+                }
+                CustomizableCH cch = new CustomizableCH(baseGraph.getBaseGraph(), storage, cchCacheSize);
+                cchGraphs.put(profile.getProfile(), cch);
+                Weighting weighting = createWeighting(profilesByName.get(profile.getProfile()), new PMap());
+                chGraphs.put(profile.getProfile(), cch.customize(CHConfig.nodeBased(profile.getProfile(), weighting)));
+            } else if (loaded.containsKey(profile.getProfile()) && prepared.containsKey(profile.getProfile()))
                 throw new IllegalStateException("CH graph should be either loaded or prepared, but not both: " + profile.getProfile());
             else if (prepared.containsKey(profile.getProfile())) {
                 setCHProfileVersion(profile.getProfile(), getProfileHash(profilesByName.get(profile.getProfile())));
@@ -1449,6 +1861,7 @@ public class GraphHopper {
             } else
                 throw new IllegalStateException("CH graph should be either loaded or prepared: " + profile.getProfile());
         }
+        routingGraphs = new RoutingGraphs(chGraphs, cchGraphs, routingGraphs.trafficSpeedEnc);
     }
 
     protected Map<String, PrepareContractionHierarchies.Result> prepareCH(boolean closeEarly, List<CHConfig> configsToPrepare) {
@@ -1459,6 +1872,14 @@ public class GraphHopper {
         return chPreparationHandler.prepare(baseGraph, properties, configsToPrepare, closeEarly);
     }
 
+    protected Map<String, CCHStorage> prepareCCH(List<String> profilesToPrepare) {
+        if (!profilesToPrepare.isEmpty())
+            ensureWriteAccess();
+        if (!baseGraph.isFrozen())
+            baseGraph.freeze();
+        return chPreparationHandler.prepareCCH(baseGraph, properties, profilesToPrepare);
+    }
+
     /**
      * For landmarks it is required to always call this method: either it creates the landmark data or it loads it.
      */
@@ -1512,11 +1933,18 @@ public class GraphHopper {
     }
 
     private List<PrepareJob> buildSubnetworkRemovalJobs() {
+        return buildSubnetworkRemovalJobs(profilesByName.values());
+    }
+
+    private List<PrepareJob> buildSubnetworkRemovalJobs(Collection<Profile> profiles) {
         List<PrepareJob> jobs = new ArrayList<>();
-        for (Profile profile : profilesByName.values()) {
+        for (Profile profile : profiles) {
             // if turn costs are enabled use u-turn costs of zero as we only want to make sure the graph is fully connected assuming finite u-turn costs
             Weighting weighting = createWeighting(profile, new PMap().putObject(Parameters.Routing.U_TURN_COSTS, 0));
-            jobs.add(new PrepareJob(encodingManager.getBooleanEncodedValue(Subnetwork.key(profile.getName())), weighting));
+            // with finite u-turn costs the turn restrictions are the only turns that are forbidden, which allows
+            // sharing the component search with other profiles that have the same restrictions
+            BooleanEncodedValue turnRestrictionEnc = profile.hasTurnCosts() ? encodingManager.getTurnBooleanEncodedValue(TurnRestriction.key(profile.getName())) : null;
+            jobs.add(new PrepareJob(encodingManager.getBooleanEncodedValue(Subnetwork.key(profile.getName())), weighting, turnRestrictionEnc));
         }
         return jobs;
     }
@@ -1525,6 +1953,8 @@ public class GraphHopper {
         logger.info("flushing graph " + getBaseGraphString() + ", details:" + baseGraph.toDetailsString() + ", "
                 + getMemInfo() + ")");
         baseGraph.flush();
+        if (osmNodeIdStorage != null)
+            osmNodeIdStorage.flush();
         properties.flush();
         logger.info("flushed graph " + getMemInfo() + ")");
         setFullyLoaded();
@@ -1537,14 +1967,21 @@ public class GraphHopper {
     public void close() {
         if (baseGraph != null)
             baseGraph.close();
+        if (osmNodeIdStorage != null)
+            osmNodeIdStorage.close();
         if (properties != null)
             properties.close();
 
-        chGraphs.values().forEach(RoutingCHGraph::close);
+        routingGraphs.chGraphs.values().forEach(RoutingCHGraph::close);
+        routingGraphs.cchGraphs.values().forEach(CustomizableCH::close);
+        chNodesByLevel.clear();
         landmarks.values().forEach(LandmarkStorage::close);
 
         if (locationIndex != null)
             locationIndex.close();
+        clearSnapCache();
+        if (archive != null)
+            archive.close();
 
         try {
             lockFactory.forceRemove(fileLockName, true);
@@ -1573,10 +2010,20 @@ public class GraphHopper {
     protected void ensureWriteAccess() {
         if (!allowWrites)
             throw new IllegalStateException("Writes are not allowed!");
+        if (archive != null)
+            throw new IllegalStateException("Writes are not possible for a graph loaded from the read-only archive "
+                    + archive + ". Use the unpacked graph folder instead.");
     }
 
     private void setFullyLoaded() {
         fullyLoaded = true;
+        // the cached snaps might refer to a graph that was loaded before
+        clearSnapCache();
+    }
+
+    private void clearSnapCache() {
+        if (routerConfig.getSnapCache() != null)
+            routerConfig.getSnapCache().clear();
     }
 
     public boolean getFullyLoaded() {
@@ -1681,4 +2128,20 @@ public class GraphHopper {
         }
         return newProfiles;
     }
+
+    /**
+     * The CH graphs and the buffer of the traffic speeds they were customized for, see {@link #updateTrafficSpeeds}.
+     */
+    private static class RoutingGraphs {
+        final Map<String, RoutingCHGraph> chGraphs;
+        final Map<String, CustomizableCH> cchGraphs;
+        // null as long as traffic_speed itself is used
+        final DecimalEncodedValue trafficSpeedEnc;
+
+        RoutingGraphs(Map<String, RoutingCHGraph> chGraphs, Map<String, CustomizableCH> cchGraphs, DecimalEncodedValue trafficSpeedEnc) {
+            this.chGraphs = chGraphs;
+            this.cchGraphs = cchGraphs;
+            this.trafficSpeedEnc = trafficSpeedEnc;
+        }
+    }
 }
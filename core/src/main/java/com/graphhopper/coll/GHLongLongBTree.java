@@ -17,6 +17,7 @@
  */
 package com.graphhopper.coll;
 
+import com.carrotsearch.hppc.procedures.LongLongProcedure;
 import com.graphhopper.util.Helper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -123,6 +124,13 @@ public class GHLongLongBTree implements LongLongMap {
         return root.get(key);
     }
 
+    /**
+     * Calls the given procedure for every entry, sorted by key
+     */
+    public void forEach(LongLongProcedure procedure) {
+        root.forEach(procedure);
+    }
+
     int height() {
         return height;
     }
@@ -372,6 +380,16 @@ public class GHLongLongBTree implements LongLongMap {
             }
         }
 
+        void forEach(LongLongProcedure procedure) {
+            for (int i = 0; i < entrySize; i++) {
+                if (!isLeaf && children[i] != null)
+                    children[i].forEach(procedure);
+                procedure.apply(keys[i], toLong(values, i * bytesPerValue));
+            }
+            if (!isLeaf && children[entrySize] != null)
+                children[entrySize].forEach(procedure);
+        }
+
         long get(long key) {
             int index = binarySearch(keys, 0, entrySize, key);
             if (index >= 0) {
@@ -0,0 +1,279 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.ByteArrayList;
+import com.carrotsearch.hppc.LongArrayList;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+import java.util.Arrays;
+
+/**
+ * A {@link LongLongMap} that is specialised for keys that are inserted in increasing order, like the OSM node ids of
+ * a file that is sorted by type and id. The keys are stored in blocks of {@link #BLOCK_SIZE} sorted keys. Every block
+ * stores its first key and the differences of all keys to this first key using only as many bits as the largest
+ * difference needs, e.g. 10-12 bits instead of 64 for the densely used OSM node ids. The values are stored with a
+ * fixed number of bytes. Keys and values are stored in {@link DataAccess} objects created by the given
+ * {@link Directory}, so they can also be kept off-heap or memory mapped.
+ * <p>
+ * A key that is not larger than all keys inserted before is put into a (hopefully small) {@link GHLongLongBTree}
+ * instead, so this map works for any insertion order, but it is only memory efficient for (mostly) sorted keys. The
+ * lookup is fastest if the keys are also queried in increasing order.
+ */
+public class GHSortedLongLongMap implements LongLongMap {
+    static final int BLOCK_SIZE = 256;
+    private final Directory dir;
+    private final String name;
+    private final int bytesPerValue;
+    private final long emptyValue;
+    private final long maxValue;
+    private DataAccess keyBits;
+    private DataAccess values;
+    // the first key, the byte position of the key differences and the bits per key difference for every full block
+    private final LongArrayList blockFirstKeys = new LongArrayList();
+    private final LongArrayList blockPointers = new LongArrayList();
+    private final ByteArrayList blockWidths = new ByteArrayList();
+    // the keys of the last block are kept uncompressed until it is full
+    private final long[] currentKeys = new long[BLOCK_SIZE];
+    private int currentCount;
+    private long lastKey;
+    private final long[] packedBits = new long[BLOCK_SIZE + 1];
+    private long keyBitsPointer;
+    private long size;
+    // the block of the last lookup, which is checked first for the next one
+    private int cursor;
+    private GHLongLongBTree unsorted;
+
+    /**
+     * @param bytesPerValue the number of bytes used for every value, must be in [4, 8]. One bit is reserved for
+     *                      negative values like for {@link GHLongLongBTree}.
+     */
+    public GHSortedLongLongMap(Directory dir, String name, int bytesPerValue, long emptyValue) {
+        if (bytesPerValue < 4 || bytesPerValue > 8)
+            throw new IllegalArgumentException("bytesPerValue must be in [4, 8], but was " + bytesPerValue);
+        this.dir = dir;
+        this.name = name;
+        this.bytesPerValue = bytesPerValue;
+        this.emptyValue = emptyValue;
+        this.maxValue = (1L << (bytesPerValue * 8 - 1)) - 1;
+    }
+
+    @Override
+    public long put(long key, long value) {
+        if (value > maxValue)
+            throw new IllegalArgumentException("Value " + value + " exceeded max value: " + maxValue
+                    + ". Increase bytesPerValue (" + bytesPerValue + ")");
+        if (value == emptyValue)
+            throw new IllegalArgumentException("Value cannot be the 'empty value' " + emptyValue);
+
+        long index = indexOf(key);
+        if (index >= 0) {
+            long oldValue = getValue(index);
+            setValue(index, value);
+            return oldValue;
+        }
+        if (size == 0 || key > lastKey) {
+            append(key, value);
+            return emptyValue;
+        }
+        if (unsorted == null)
+            unsorted = new GHLongLongBTree(200, bytesPerValue, emptyValue);
+        return unsorted.put(key, value);
+    }
+
+    @Override
+    public long get(long key) {
+        long index = indexOf(key);
+        if (index >= 0)
+            return getValue(index);
+        return unsorted == null ? emptyValue : unsorted.get(key);
+    }
+
+    /**
+     * @return the number of keys that were not inserted in increasing order
+     */
+    public long getUnsortedSize() {
+        return unsorted == null ? 0 : unsorted.getSize();
+    }
+
+    private void append(long key, long value) {
+        if (values == null) {
+            values = dir.create(name + "_values").create(1024);
+            keyBits = dir.create(name + "_keys").create(1024);
+        }
+        currentKeys[currentCount++] = key;
+        lastKey = key;
+        setValue(size, value);
+        size++;
+        if (currentCount == BLOCK_SIZE)
+            flushBlock();
+    }
+
+    private void flushBlock() {
+        long firstKey = currentKeys[0];
+        // the keys are sorted, so the last difference is the largest. it might be larger than Long.MAX_VALUE so all
+        // differences are treated as unsigned
+        int width = 64 - Long.numberOfLeadingZeros(currentKeys[BLOCK_SIZE - 1] - firstKey);
+        Arrays.fill(packedBits, 0);
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            long diff = currentKeys[i] - firstKey;
+            long bitPos = (long) i * width;
+            int word = (int) (bitPos >>> 6);
+            int shift = (int) (bitPos & 63);
+            packedBits[word] |= diff << shift;
+            if (shift + width > 64)
+                packedBits[word + 1] |= diff >>> (64 - shift);
+        }
+        // every block starts at a new int and readBits reads up to two ints more than necessary
+        int ints = (BLOCK_SIZE * width + 31) / 32;
+        keyBits.ensureCapacity(keyBitsPointer + (ints + 2) * 4L);
+        for (int i = 0; i < ints; i++)
+            keyBits.setInt(keyBitsPointer + i * 4L, (int) (packedBits[i >> 1] >>> ((i & 1) * 32)));
+        blockFirstKeys.add(firstKey);
+        blockPointers.add(keyBitsPointer);
+        blockWidths.add((byte) width);
+        keyBitsPointer += ints * 4L;
+        currentCount = 0;
+    }
+
+    private long readBits(long blockPointer, long bitPos, int width) {
+        if (width == 0)
+            return 0;
+        long pointer = blockPointer + (bitPos >>> 5) * 4;
+        int shift = (int) (bitPos & 31);
+        long result = ((keyBits.getInt(pointer) & 0xFFFF_FFFFL) | ((long) keyBits.getInt(pointer + 4) << 32)) >>> shift;
+        if (shift + width > 64)
+            result |= (long) keyBits.getInt(pointer + 8) << (64 - shift);
+        return width == 64 ? result : result & ((1L << width) - 1);
+    }
+
+    /**
+     * @return the index of the given key or -1 if it is not stored in the sorted part of this map
+     */
+    private long indexOf(long key) {
+        if (currentCount > 0 && key >= currentKeys[0]) {
+            int index = GHLongLongBTree.binarySearch(currentKeys, 0, currentCount, key);
+            return index >= 0 ? (long) blockFirstKeys.size() * BLOCK_SIZE + index : -1;
+        }
+        int blocks = blockFirstKeys.size();
+        if (blocks == 0 || key < blockFirstKeys.get(0))
+            return -1;
+        int block = findBlock(key, blocks);
+        cursor = block;
+        long firstKey = blockFirstKeys.get(block);
+        long diff = key - firstKey;
+        long pointer = blockPointers.get(block);
+        int width = blockWidths.get(block);
+        int low = 0, high = BLOCK_SIZE - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Long.compareUnsigned(readBits(pointer, (long) mid * width, width), diff);
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return (long) block * BLOCK_SIZE + mid;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the last block with a first key that is smaller or equal to the given key
+     */
+    private int findBlock(long key, int blocks) {
+        // first try the block of the last lookup and the one after it, which is fast for sorted lookups
+        for (int block = cursor; block < Math.min(cursor + 2, blocks); block++) {
+            if (blockFirstKeys.get(block) <= key && (block + 1 == blocks || blockFirstKeys.get(block + 1) > key))
+                return block;
+        }
+        int index = GHLongLongBTree.binarySearch(blockFirstKeys.buffer, 0, blocks, key);
+        return index >= 0 ? index : ~index - 1;
+    }
+
+    private long getValue(long index) {
+        long pointer = index * bytesPerValue;
+        long value = values.getInt(pointer) & 0xFFFF_FFFFL;
+        for (int i = 4; i < bytesPerValue; i++)
+            value |= (values.getByte(pointer + i) & 0xFFL) << (8 * i);
+        // restore the sign
+        int unusedBits = 64 - 8 * bytesPerValue;
+        return value << unusedBits >> unusedBits;
+    }
+
+    private void setValue(long index, long value) {
+        long pointer = index * bytesPerValue;
+        values.ensureCapacity(pointer + bytesPerValue);
+        values.setInt(pointer, (int) value);
+        for (int i = 4; i < bytesPerValue; i++)
+            values.setByte(pointer + i, (byte) (value >> (8 * i)));
+    }
+
+    @Override
+    public long getSize() {
+        return size + getUnsortedSize();
+    }
+
+    @Override
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    @Override
+    public void optimize() {
+        if (unsorted != null)
+            unsorted.optimize();
+    }
+
+    /**
+     * @return memory usage in MB
+     */
+    @Override
+    public int getMemoryUsage() {
+        long bytes = (long) blockFirstKeys.buffer.length * 8 + (long) blockPointers.buffer.length * 8 + blockWidths.buffer.length
+                + (long) BLOCK_SIZE * 8;
+        if (values != null)
+            bytes += values.getCapacity() + keyBits.getCapacity();
+        return Math.round(bytes / Helper.MB) + (unsorted == null ? 0 : unsorted.getMemoryUsage());
+    }
+
+    @Override
+    public void clear() {
+        if (values != null) {
+            dir.remove(values.getName());
+            dir.remove(keyBits.getName());
+            values = null;
+            keyBits = null;
+        }
+        blockFirstKeys.release();
+        blockPointers.release();
+        blockWidths.release();
+        currentCount = 0;
+        keyBitsPointer = 0;
+        size = 0;
+        cursor = 0;
+        unsorted = null;
+    }
+
+    @Override
+    public String toString() {
+        return "blocks: " + blockFirstKeys.size() + ", size: " + size + ", unsorted: " + getUnsortedSize();
+    }
+}
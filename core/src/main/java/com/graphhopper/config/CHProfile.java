@@ -24,12 +24,14 @@ import static com.graphhopper.config.Profile.validateProfileName;
 
 /**
  * Corresponds to an entry in the `profiles_ch` section in config.yml and specifies a routing profile that shall be
- * prepared using Contraction Hierarchies (CH)
+ * prepared using Contraction Hierarchies (CH). If the profile is customizable a metric-independent customizable CH is
+ * prepared instead, which also allows using a custom model in the request.
  *
  * @see Profile
  */
 public class CHProfile {
     private String profile = "";
+    private boolean customizable = false;
 
     private CHProfile() {
         // default constructor needed for jackson
@@ -37,6 +39,7 @@ public class CHProfile {
 
     public CHProfile(CHProfile profile) {
         this.profile = profile.profile;
+        this.customizable = profile.customizable;
     }
 
     public CHProfile(String profile) {
@@ -52,6 +55,15 @@ public class CHProfile {
         this.profile = profile;
     }
 
+    public boolean isCustomizable() {
+        return customizable;
+    }
+
+    public CHProfile setCustomizable(boolean customizable) {
+        this.customizable = customizable;
+        return this;
+    }
+
     @Override
     public String toString() {
         return profile;
@@ -62,11 +74,11 @@ public class CHProfile {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         CHProfile that = (CHProfile) o;
-        return Objects.equals(profile, that.profile);
+        return customizable == that.customizable && Objects.equals(profile, that.profile);
     }
 
     @Override
     public int hashCode() {
-        return profile.hashCode();
+        return Objects.hash(profile, customizable);
     }
 }
@@ -0,0 +1,354 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.routing.RoutingWorkspace;
+import com.graphhopper.routing.RoutingWorkspacePool;
+import com.graphhopper.routing.ch.ShortcutUnpacker;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A {@link ShortestPathTree} that uses a node-based CH graph and the PHAST algorithm (Delling et al., 'PHAST:
+ * Hardware-Accelerated Shortest Path Trees'): First we run an upward search starting from the source node, then we
+ * sweep over all nodes of the graph in descending CH level order and relax the incoming edges coming from higher
+ * level nodes. This has linear running time in the size of the graph, without any priority queue operations for
+ * the downward part, and is therefore much faster than a Dijkstra-based search for large limits.
+ * <p>
+ * The CH edges of the resulting tree are unpacked afterwards, such that the labels passed to the consumer
+ * refer to original edges and the parent of every label is its predecessor in the original graph, just like for
+ * {@link ShortestPathTree}. Only labels that are required for the given limit are created and unpacked.
+ * <p>
+ * The given graph must not contain any virtual nodes other than the one of the source snap, and the level order
+ * must be created by {@link #sortNodesByLevel(RoutingCHGraph)} for the underlying (non-query) CH graph.
+ */
+public class PhastShortestPathTree extends ShortestPathTree {
+    private static final byte UNKNOWN = 0;
+    private static final byte LABELED = 1;
+    private static final byte BEYOND_LIMIT = 2;
+
+    private final RoutingCHGraph chGraph;
+    private final int[] nodesByLevel;
+    private final boolean reverseFlow;
+    private final RoutingCHEdgeExplorer upExplorer;
+    private final RoutingCHEdgeExplorer downExplorer;
+    private RoutingWorkspacePool workspacePool;
+    private SearchArrays arrays;
+    private final ArrayList<IsoLabel> createdLabels = new ArrayList<>();
+    private int visitedNodes;
+
+    public PhastShortestPathTree(RoutingCHGraph chGraph, int[] nodesByLevel, boolean reverseFlow) {
+        super(chGraph.getBaseGraph(), chGraph.getWeighting(), reverseFlow, TraversalMode.NODE_BASED);
+        if (chGraph.isEdgeBased())
+            throw new IllegalArgumentException("PHAST shortest path trees only support node-based CH graphs");
+        if (chGraph.getNodes() > nodesByLevel.length + 1)
+            throw new IllegalArgumentException("PHAST shortest path trees support at most one virtual node, but the graph has " +
+                    (chGraph.getNodes() - nodesByLevel.length) + " virtual nodes");
+        this.chGraph = chGraph;
+        this.nodesByLevel = nodesByLevel;
+        this.reverseFlow = reverseFlow;
+        upExplorer = reverseFlow ? chGraph.createInEdgeExplorer() : chGraph.createOutEdgeExplorer();
+        downExplorer = reverseFlow ? chGraph.createOutEdgeExplorer() : chGraph.createInEdgeExplorer();
+    }
+
+    /**
+     * @param workspacePool the search arrays are borrowed from the workspace of the current thread instead of
+     *                      allocating them for every search, or null to disable this
+     */
+    public PhastShortestPathTree setWorkspacePool(RoutingWorkspacePool workspacePool) {
+        this.workspacePool = workspacePool;
+        return this;
+    }
+
+    /**
+     * @return the nodes of the given CH graph ordered by descending level, i.e. the order in which the downward sweep
+     * has to process them. This only depends on the CH preparation, so it should be computed once and re-used.
+     */
+    public static int[] sortNodesByLevel(RoutingCHGraph chGraph) {
+        int nodes = chGraph.getNodes();
+        // the levels are the contraction order, so usually they are a permutation of the node ids and a counting sort
+        // is sufficient, but we do not rely on this
+        int maxLevel = 0;
+        for (int node = 0; node < nodes; node++)
+            maxLevel = Math.max(maxLevel, chGraph.getLevel(node));
+        int[] counts = new int[maxLevel + 2];
+        for (int node = 0; node < nodes; node++)
+            counts[maxLevel - chGraph.getLevel(node) + 1]++;
+        for (int i = 1; i < counts.length; i++)
+            counts[i] += counts[i - 1];
+        int[] result = new int[nodes];
+        for (int node = 0; node < nodes; node++)
+            result[counts[maxLevel - chGraph.getLevel(node)]++] = node;
+        return result;
+    }
+
+    @Override
+    public void search(int from, final Consumer<IsoLabel> consumer) {
+        checkAlreadyRun();
+        int nodes = chGraph.getNodes();
+        if (workspacePool == null) {
+            arrays = new SearchArrays(nodes);
+            runSearch(from, consumer);
+            return;
+        }
+        RoutingWorkspace workspace = workspacePool.acquire();
+        try {
+            arrays = workspace.getOrCreate(SearchArrays.class, () -> new SearchArrays(nodes));
+            arrays.ensureCapacity(nodes);
+            runSearch(from, consumer);
+        } finally {
+            if (arrays != null)
+                arrays.reset();
+            arrays = null;
+            workspacePool.release(workspace);
+        }
+    }
+
+    private void runSearch(int from, Consumer<IsoLabel> consumer) {
+        IntArrayList settled = upwardSearch(from);
+        downwardSweep();
+
+        IsoLabel fromLabel = new IsoLabel(from, EdgeIterator.NO_EDGE, 0, 0, 0, null);
+        arrays.setLabel(from, fromLabel);
+        createdLabels.add(fromLabel);
+        consumer.accept(fromLabel);
+        LabelBuilder labelBuilder = new LabelBuilder(consumer);
+        // the nodes found by the upward search might not be swept when they are virtual
+        for (int i = 0; i < settled.size(); i++)
+            labelBuilder.buildLabel(settled.get(i));
+        for (int node : nodesByLevel)
+            if (arrays.weights[node] < Double.POSITIVE_INFINITY)
+                labelBuilder.buildLabel(node);
+    }
+
+    private IntArrayList upwardSearch(int from) {
+        IntArrayList settled = new IntArrayList();
+        double[] weights = arrays.weights;
+        MinHeapWithUpdate heap = arrays.heap;
+        arrays.setWeight(from, 0, -1, EdgeIterator.NO_EDGE);
+        heap.push(from, 0);
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            settled.add(node);
+            visitedNodes++;
+            RoutingCHEdgeIterator iter = upExplorer.setBaseNode(node);
+            while (iter.next()) {
+                int adj = iter.getAdjNode();
+                if (!isVirtual(node) && !isVirtual(adj) && chGraph.getLevel(node) > chGraph.getLevel(adj))
+                    continue;
+                double weight = weights[node] + iter.getWeight(reverseFlow);
+                if (weight >= weights[adj])
+                    continue;
+                arrays.setWeight(adj, weight, node, iter.getEdge());
+                // the heap only uses float precision, but since we allow updates of already polled nodes the
+                // resulting weights are still exact
+                if (heap.contains(adj))
+                    heap.update(adj, (float) weight);
+                else
+                    heap.push(adj, (float) weight);
+            }
+        }
+        return settled;
+    }
+
+    private void downwardSweep() {
+        double[] weights = arrays.weights;
+        for (int node : nodesByLevel) {
+            visitedNodes++;
+            int level = chGraph.getLevel(node);
+            RoutingCHEdgeIterator iter = downExplorer.setBaseNode(node);
+            while (iter.next()) {
+                int adj = iter.getAdjNode();
+                if (weights[adj] == Double.POSITIVE_INFINITY || (!isVirtual(adj) && chGraph.getLevel(adj) <= level))
+                    continue;
+                double weight = weights[adj] + iter.getWeight(!reverseFlow);
+                if (weight < weights[node])
+                    arrays.setWeight(node, weight, adj, iter.getEdge());
+            }
+        }
+    }
+
+    private boolean isVirtual(int node) {
+        return node >= nodesByLevel.length;
+    }
+
+    /**
+     * Creates the labels for the original edges by unpacking the CH edges of the tree. Labels are only created if
+     * their parent label is within the limit, so the labels just beyond the limit are still available.
+     */
+    private class LabelBuilder implements ShortcutUnpacker.Visitor {
+        private final Consumer<IsoLabel> consumer;
+        private final ShortcutUnpacker unpacker;
+        private final IntArrayList stack = new IntArrayList();
+        private IsoLabel prevLabel;
+        private boolean beyondLimit;
+
+        LabelBuilder(Consumer<IsoLabel> consumer) {
+            this.consumer = consumer;
+            this.unpacker = new ShortcutUnpacker(chGraph, this, false);
+        }
+
+        void buildLabel(int node) {
+            byte[] labelStates = arrays.labelStates;
+            int[] parentNodes = arrays.parentNodes;
+            // collect all nodes up to the first ancestor that was already handled
+            while (labelStates[node] == UNKNOWN) {
+                stack.add(node);
+                node = parentNodes[node];
+            }
+            while (!stack.isEmpty()) {
+                node = stack.remove(stack.size() - 1);
+                if (labelStates[node] != UNKNOWN)
+                    // the node was labeled while unpacking a previous edge
+                    continue;
+                int parent = parentNodes[node];
+                if (labelStates[parent] == BEYOND_LIMIT) {
+                    arrays.setBeyondLimit(node);
+                    continue;
+                }
+                prevLabel = arrays.labels[parent];
+                beyondLimit = false;
+                if (reverseFlow)
+                    unpacker.visitOriginalEdgesBwd(arrays.parentEdges[node], node, false, EdgeIterator.NO_EDGE);
+                else
+                    unpacker.visitOriginalEdgesFwd(arrays.parentEdges[node], node, false, EdgeIterator.NO_EDGE);
+            }
+        }
+
+        @Override
+        public void visit(EdgeIteratorState edge, boolean reverse, int prevOrNextEdgeId) {
+            int adj = edge.getAdjNode();
+            if (arrays.labelStates[adj] == LABELED) {
+                prevLabel = arrays.labels[adj];
+                return;
+            }
+            if (beyondLimit || arrays.labelStates[adj] == BEYOND_LIMIT || getExploreValue(prevLabel) > getLimit()) {
+                beyondLimit = true;
+                arrays.setBeyondLimit(adj);
+                return;
+            }
+            IsoLabel label = new IsoLabel(adj, edge.getEdge(),
+                    prevLabel.weight + weighting.calcEdgeWeight(edge, reverse),
+                    prevLabel.time + weighting.calcEdgeMillis(edge, reverse),
+                    prevLabel.distance + edge.getDistance(), prevLabel);
+            arrays.setLabel(adj, label);
+            createdLabels.add(label);
+            if (getExploreValue(label) <= getLimit())
+                consumer.accept(label);
+            prevLabel = label;
+        }
+    }
+
+    /**
+     * The per-node state of a search. The nodes that were modified are recorded, so the arrays can be reset in
+     * O(touched) and re-used for the next search, see {@link #setWorkspacePool}.
+     */
+    private static class SearchArrays {
+        double[] weights;
+        int[] parentNodes;
+        int[] parentEdges;
+        IsoLabel[] labels;
+        byte[] labelStates;
+        MinHeapWithUpdate heap;
+        final IntArrayList touched = new IntArrayList();
+
+        SearchArrays(int capacity) {
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            weights = new double[capacity];
+            Arrays.fill(weights, Double.POSITIVE_INFINITY);
+            parentNodes = new int[capacity];
+            parentEdges = new int[capacity];
+            labels = new IsoLabel[capacity];
+            labelStates = new byte[capacity];
+            heap = new MinHeapWithUpdate(capacity);
+            touched.clear();
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity > weights.length)
+                allocate(capacity);
+        }
+
+        void setWeight(int node, double weight, int parentNode, int parentEdge) {
+            if (weights[node] == Double.POSITIVE_INFINITY && labelStates[node] == UNKNOWN)
+                touched.add(node);
+            weights[node] = weight;
+            parentNodes[node] = parentNode;
+            parentEdges[node] = parentEdge;
+        }
+
+        void setLabel(int node, IsoLabel label) {
+            if (weights[node] == Double.POSITIVE_INFINITY && labelStates[node] == UNKNOWN)
+                touched.add(node);
+            labels[node] = label;
+            labelStates[node] = LABELED;
+        }
+
+        void setBeyondLimit(int node) {
+            if (weights[node] == Double.POSITIVE_INFINITY && labelStates[node] == UNKNOWN)
+                touched.add(node);
+            labelStates[node] = BEYOND_LIMIT;
+        }
+
+        void reset() {
+            for (int i = 0; i < touched.size(); i++) {
+                int node = touched.get(i);
+                weights[node] = Double.POSITIVE_INFINITY;
+                labels[node] = null;
+                labelStates[node] = UNKNOWN;
+            }
+            touched.clear();
+            heap.clear();
+        }
+    }
+
+    @Override
+    public ArrayList<IsoLabel> getIsochroneEdges(double z) {
+        ArrayList<IsoLabel> result = new ArrayList<>();
+        for (IsoLabel label : createdLabels) {
+            if (label.parent != null &&
+                    (getExploreValue(label) > z ^ getExploreValue(label.parent) > z)) {
+                result.add(label);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String getName() {
+        return "reachability_phast";
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+}
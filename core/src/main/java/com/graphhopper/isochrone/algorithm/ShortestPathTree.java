@@ -194,7 +194,11 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
         return result;
     }
 
-    private double getExploreValue(IsoLabel label) {
+    double getLimit() {
+        return limit;
+    }
+
+    double getExploreValue(IsoLabel label) {
         if (exploreType == TIME)
             return label.time;
         if (exploreType == WEIGHT)
@@ -17,7 +17,6 @@
  */
 package com.graphhopper.reader.dem;
 
-import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.storage.DataAccess;
 import com.graphhopper.util.Downloader;
 import com.graphhopper.util.Helper;
@@ -38,8 +37,6 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
     private final int MAX_LAT;
     private final int WIDTH_BYTE_INDEX = 0;
     private final int DEGREE = 1;
-    // use a map as an array is not quite useful if we want to hold only parts of the world
-    private final GHIntObjectHashMap<HeightTile> cacheData = new GHIntObjectHashMap<>();
     private final double precision = 1e7;
     private final double invPrecision = 1 / precision;
 
@@ -58,18 +55,6 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
         return (down(lat) + 90) * 1000 + down(lon) + 180;
     }
 
-    @Override
-    public void release() {
-        cacheData.clear();
-        if (dir != null) {
-            // for memory mapped type we remove temporary files
-            if (autoRemoveTemporary)
-                dir.clear();
-            else
-                dir.close();
-        }
-    }
-
     int down(double val) {
         int intVal = (int) val;
         if (val >= 0 || intVal - val < invPrecision)
@@ -87,7 +72,7 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
         lat = (int) (lat * precision) / precision;
         lon = (int) (lon * precision) / precision;
         int intKey = calcIntKey(lat, lon);
-        HeightTile demProvider = cacheData.get(intKey);
+        HeightTile demProvider = tileCache.get(this, intKey);
         if (demProvider == null) {
             if (!cacheDir.exists())
                 cacheDir.mkdirs();
@@ -99,7 +84,7 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
             if (fileName == null || (Helper.isEmpty(baseUrl) && !new File(fileName).exists()))
                 return 0;
 
-            DataAccess heights = getDirectory().create("dem" + intKey);
+            DataAccess heights = createTileHeights("dem" + intKey);
             boolean loadExisting = false;
             try {
                 loadExisting = heights.loadExisting();
@@ -112,8 +97,8 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
                     updateHeightsFromFile(lat, lon, heights);
                 } catch (FileNotFoundException ex) {
                     demProvider = new HeightTile(minLat, minLon, DEFAULT_WIDTH, DEFAULT_WIDTH, precision, DEGREE, DEGREE);
-                    cacheData.put(intKey, demProvider);
                     demProvider.setHeights(heights);
+                    tileCache.put(this, intKey, demProvider);
                     demProvider.setSeaLevel(true);
                     // use small size on disc and in-memory
                     heights.create(10)
@@ -127,9 +112,9 @@ public abstract class AbstractSRTMElevationProvider extends TileBasedElevationPr
                 width = DEFAULT_WIDTH;
 
             demProvider = new HeightTile(minLat, minLon, width, width, precision, DEGREE, DEGREE);
-            cacheData.put(intKey, demProvider);
             demProvider.setInterpolate(interpolate);
             demProvider.setHeights(heights);
+            tileCache.put(this, intKey, demProvider);
         }
 
         if (demProvider.isSeaLevel())
@@ -25,8 +25,6 @@ import java.awt.image.Raster;
 import java.io.File;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Provides basic methods that are usually used in an ElevationProvider that reads tiff files.
@@ -34,7 +32,6 @@ import java.util.Map;
  * @author Robin Boldt
  */
 public abstract class AbstractTiffElevationProvider extends TileBasedElevationProvider {
-    private final Map<String, HeightTile> cacheData = new HashMap<>();
     final double precision = 1e7;
 
     private final int WIDTH;
@@ -55,18 +52,6 @@ public abstract class AbstractTiffElevationProvider extends TileBasedElevationPr
         this.LON_DEGREE = lonDegree;
     }
 
-    @Override
-    public void release() {
-        cacheData.clear();
-        if (dir != null) {
-            // for memory mapped type we remove temporary files
-            if (autoRemoveTemporary)
-                dir.clear();
-            else
-                dir.close();
-        }
-    }
-
     /**
      * Return true if the coordinates are outside of the supported area
      */
@@ -106,7 +91,7 @@ public abstract class AbstractTiffElevationProvider extends TileBasedElevationPr
         lat = (int) (lat * precision) / precision;
         lon = (int) (lon * precision) / precision;
         String name = getFileName(lat, lon);
-        HeightTile demProvider = cacheData.get(name);
+        HeightTile demProvider = tileCache.get(this, name);
         if (demProvider == null) {
             if (!cacheDir.exists())
                 cacheDir.mkdirs();
@@ -116,10 +101,9 @@ public abstract class AbstractTiffElevationProvider extends TileBasedElevationPr
             // less restrictive against boundary checking
             demProvider = new HeightTile(minLat, minLon, WIDTH, HEIGHT, LON_DEGREE * precision, LON_DEGREE, LAT_DEGREE);
             demProvider.setInterpolate(interpolate);
-
-            cacheData.put(name, demProvider);
-            DataAccess heights = getDirectory().create(name + ".gh");
+            DataAccess heights = createTileHeights(name + ".gh");
             demProvider.setHeights(heights);
+            tileCache.put(this, name, demProvider);
             boolean loadExisting = false;
             try {
                 loadExisting = heights.loadExisting();
@@ -0,0 +1,103 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps the {@link HeightTile}s that were loaded by one or more {@link TileBasedElevationProvider}s. The cache can
+ * be bounded: when more than the given number of tiles are open the least recently used tile is closed. Its decoded
+ * heights stay in the cache directory of the provider, so the tile is loaded again cheaply if it is needed later.
+ * Sharing one cache among several providers, like the ones of a {@link MultiSourceElevationProvider}, bounds the
+ * number of open tiles of all of them.
+ */
+public class HeightTileCache {
+    private final int maxTiles;
+    private final LinkedHashMap<Key, HeightTile> tiles;
+
+    /**
+     * @param maxTiles the maximum number of open tiles, or 0 to keep all tiles open
+     */
+    public HeightTileCache(int maxTiles) {
+        if (maxTiles < 0)
+            throw new IllegalArgumentException("maxTiles must not be negative: " + maxTiles);
+        this.maxTiles = maxTiles;
+        this.tiles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, HeightTile> eldest) {
+                if (HeightTileCache.this.maxTiles == 0 || size() <= HeightTileCache.this.maxTiles)
+                    return false;
+                eldest.getKey().provider.closeTile(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    public int getMaxTiles() {
+        return maxTiles;
+    }
+
+    synchronized HeightTile get(TileBasedElevationProvider provider, Object tileId) {
+        return tiles.get(new Key(provider, tileId));
+    }
+
+    synchronized void put(TileBasedElevationProvider provider, Object tileId, HeightTile tile) {
+        tiles.put(new Key(provider, tileId), tile);
+    }
+
+    /**
+     * Removes the tiles of the given provider without closing them
+     */
+    synchronized void removeAll(TileBasedElevationProvider provider) {
+        Iterator<Key> iter = tiles.keySet().iterator();
+        while (iter.hasNext()) {
+            if (iter.next().provider == provider)
+                iter.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return tiles.size();
+    }
+
+    private static class Key {
+        final TileBasedElevationProvider provider;
+        final Object tileId;
+
+        Key(TileBasedElevationProvider provider, Object tileId) {
+            this.provider = provider;
+            this.tileId = tileId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return provider == other.provider && tileId.equals(other.tileId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(provider) + tileId.hashCode();
+        }
+    }
+}
@@ -84,6 +84,13 @@ public class MultiSourceElevationProvider extends TileBasedElevationProvider {
         return this;
     }
 
+    @Override
+    public MultiSourceElevationProvider setTileCache(HeightTileCache tileCache) {
+        srtmProvider.setTileCache(tileCache);
+        globalProvider.setTileCache(tileCache);
+        return this;
+    }
+
     @Override
     public boolean canInterpolate() {
         return srtmProvider.canInterpolate() && globalProvider.canInterpolate();
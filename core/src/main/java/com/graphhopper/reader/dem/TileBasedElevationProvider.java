@@ -18,6 +18,7 @@
 package com.graphhopper.reader.dem;
 
 import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.GHDirectory;
 import com.graphhopper.util.Downloader;
@@ -26,6 +27,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * Provides basic methods that are usually used in an ElevationProvider using tiles from files.
@@ -42,6 +45,9 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
     boolean interpolate = false;
     boolean autoRemoveTemporary = true;
     long sleep = 2000;
+    HeightTileCache tileCache = new HeightTileCache(0);
+    // the names of all tiles we created, including the ones that were closed by the tile cache in the meantime
+    private final Set<String> tileNames = new HashSet<>();
 
     protected TileBasedElevationProvider(String cacheDirString) {
         File cacheDir = new File(cacheDirString);
@@ -103,6 +109,16 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
         return this;
     }
 
+    /**
+     * Specifies the cache that keeps the open tiles. Pass a bounded cache to limit the number of tiles that are open
+     * at the same time, and use the same cache for several providers to share this limit among them. By default
+     * every provider keeps all its tiles open.
+     */
+    public TileBasedElevationProvider setTileCache(HeightTileCache tileCache) {
+        this.tileCache = tileCache;
+        return this;
+    }
+
     public TileBasedElevationProvider setDownloader(Downloader downloader) {
         this.downloader = downloader;
         return this;
@@ -112,6 +128,40 @@ public abstract class TileBasedElevationProvider implements ElevationProvider {
         return cacheDir;
     }
 
+    /**
+     * Creates the DataAccess that stores the decoded heights of a tile.
+     */
+    DataAccess createTileHeights(String name) {
+        tileNames.add(name);
+        return getDirectory().create(name);
+    }
+
+    /**
+     * Called when the given tile is evicted from the tile cache. The heights are closed but the backing files are
+     * kept, so they can be loaded again.
+     */
+    void closeTile(HeightTile tile) {
+        dir.close(tile.getHeights().getName());
+    }
+
+    @Override
+    public void release() {
+        tileCache.removeAll(this);
+        if (dir != null) {
+            // for memory mapped type we remove temporary files
+            if (autoRemoveTemporary) {
+                // tiles closed by the tile cache are no longer part of the directory, but their files need to be removed as well
+                for (String name : tileNames)
+                    if (!dir.getDAs().containsKey(name))
+                        dir.create(name);
+                dir.clear();
+            } else {
+                dir.close();
+            }
+        }
+        tileNames.clear();
+    }
+
     protected Directory getDirectory() {
         if (dir != null)
             return dir;
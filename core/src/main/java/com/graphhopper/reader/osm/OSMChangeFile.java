@@ -0,0 +1,154 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.LongHashSet;
+import com.graphhopper.reader.ReaderNode;
+import com.graphhopper.reader.ReaderRelation;
+import com.graphhopper.reader.ReaderWay;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The content of an OSM change file (.osc or .osc.gz) like the ones that are published for the minutely, hourly and
+ * daily replication of OpenStreetMap. Only the latest version of each element is kept, i.e. an element that is
+ * modified and deleted in the same file counts as deleted.
+ *
+ * @see OSMReader#applyChanges
+ */
+public class OSMChangeFile {
+    private final Map<Long, ReaderNode> nodes = new LinkedHashMap<>();
+    private final Map<Long, ReaderWay> ways = new LinkedHashMap<>();
+    private final Map<Long, ReaderRelation> relations = new LinkedHashMap<>();
+    private final LongHashSet deletedNodes = new LongHashSet();
+    private final LongHashSet deletedWays = new LongHashSet();
+    private final LongHashSet deletedRelations = new LongHashSet();
+
+    public static OSMChangeFile read(File file) throws IOException {
+        try (InputStream is = new BufferedInputStream(new FileInputStream(file), 50_000)) {
+            is.mark(2);
+            boolean gzipped = is.read() == 31 && is.read() == 139;
+            is.reset();
+            return read(gzipped ? new GZIPInputStream(is, 50_000) : is);
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not read OSM change file " + file, e);
+        }
+    }
+
+    static OSMChangeFile read(InputStream is) throws XMLStreamException {
+        XMLStreamReader parser = XMLInputFactory.newInstance().createXMLStreamReader(is, "UTF-8");
+        if (parser.nextTag() != XMLStreamConstants.START_ELEMENT || !parser.getLocalName().equals("osmChange"))
+            throw new IllegalArgumentException("File is not a valid OSM change file");
+        OSMChangeFile changes = new OSMChangeFile();
+        boolean delete = false;
+        for (int event = parser.next(); event != XMLStreamConstants.END_DOCUMENT; event = parser.next()) {
+            if (event != XMLStreamConstants.START_ELEMENT)
+                continue;
+            String name = parser.getLocalName();
+            if (name.equals("create") || name.equals("modify") || name.equals("delete")) {
+                delete = name.equals("delete");
+                continue;
+            }
+            String idStr = parser.getAttributeValue(null, "id");
+            if (idStr == null)
+                continue;
+            long id = Long.parseLong(idStr);
+            // deleted elements do not necessarily contain coordinates or tags, so we only keep their ids
+            switch (name) {
+                case "node":
+                    if (delete)
+                        changes.delete(id, changes.nodes, changes.deletedNodes);
+                    else
+                        changes.put(id, OSMXMLHelper.createNode(id, parser), changes.nodes, changes.deletedNodes);
+                    break;
+                case "way":
+                    if (delete)
+                        changes.delete(id, changes.ways, changes.deletedWays);
+                    else
+                        changes.put(id, OSMXMLHelper.createWay(id, parser), changes.ways, changes.deletedWays);
+                    break;
+                case "relation":
+                    if (delete)
+                        changes.delete(id, changes.relations, changes.deletedRelations);
+                    else
+                        changes.put(id, OSMXMLHelper.createRelation(id, parser), changes.relations, changes.deletedRelations);
+                    break;
+            }
+        }
+        parser.close();
+        return changes;
+    }
+
+    private <T> void put(long id, T element, Map<Long, T> elements, LongHashSet deleted) {
+        elements.put(id, element);
+        deleted.remove(id);
+    }
+
+    private <T> void delete(long id, Map<Long, T> elements, LongHashSet deleted) {
+        elements.remove(id);
+        deleted.add(id);
+    }
+
+    /**
+     * @return the created or modified node with the given id or null if it was not changed
+     */
+    public ReaderNode getNode(long id) {
+        return nodes.get(id);
+    }
+
+    /**
+     * @return all created or modified nodes
+     */
+    public Collection<ReaderNode> getNodes() {
+        return nodes.values();
+    }
+
+    /**
+     * @return all created or modified ways
+     */
+    public Collection<ReaderWay> getWays() {
+        return ways.values();
+    }
+
+    /**
+     * @return all created or modified relations
+     */
+    public Collection<ReaderRelation> getRelations() {
+        return relations.values();
+    }
+
+    public LongHashSet getDeletedNodes() {
+        return deletedNodes;
+    }
+
+    public LongHashSet getDeletedWays() {
+        return deletedWays;
+    }
+
+    public LongHashSet getDeletedRelations() {
+        return deletedRelations;
+    }
+}
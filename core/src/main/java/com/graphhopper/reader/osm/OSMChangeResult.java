@@ -0,0 +1,147 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.storage.IntsRef;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The edges that were changed by {@link OSMReader#applyChanges} along with their flags before the change, and some
+ * statistics about the OSM elements that were applied or could not be applied.
+ */
+public class OSMChangeResult {
+    private final IntArrayList changedEdges = new IntArrayList();
+    private final List<IntsRef> previousFlags = new ArrayList<>();
+    int updatedWays;
+    int removedWays;
+    int addedWays;
+    int rebuiltWays;
+    int addedEdges;
+    int addedNodes;
+    int movedNodes;
+    int missingWays;
+    int geometryChangedWays;
+    int ignoredNodes;
+
+    void addChangedEdge(int edge, IntsRef flags) {
+        changedEdges.add(edge);
+        previousFlags.add(flags);
+    }
+
+    public int getChangedEdgeCount() {
+        return changedEdges.size();
+    }
+
+    public int getChangedEdge(int index) {
+        return changedEdges.get(index);
+    }
+
+    /**
+     * @return the flags the changed edge with the given index had before the change
+     */
+    public IntsRef getPreviousFlags(int index) {
+        return previousFlags.get(index);
+    }
+
+    /**
+     * @return the number of OSM ways whose edges were parsed again
+     */
+    public int getUpdatedWays() {
+        return updatedWays;
+    }
+
+    /**
+     * @return the number of OSM ways whose edges were made inaccessible, because the way was deleted or is no longer
+     * accepted
+     */
+    public int getRemovedWays() {
+        return removedWays;
+    }
+
+    /**
+     * @return the number of created OSM ways whose edges were added to the graph
+     */
+    public int getAddedWays() {
+        return addedWays;
+    }
+
+    /**
+     * @return the number of modified OSM ways whose geometry changed, so their edges were removed and added again
+     */
+    public int getRebuiltWays() {
+        return rebuiltWays;
+    }
+
+    /**
+     * @return the number of edges that were added for created or rebuilt ways, or that replaced the edges of moved
+     * tower nodes. The edges that were replaced are contained in the changed edges.
+     */
+    public int getAddedEdges() {
+        return addedEdges;
+    }
+
+    /**
+     * @return the number of tower nodes that were added for created or rebuilt ways
+     */
+    public int getAddedNodes() {
+        return addedNodes;
+    }
+
+    /**
+     * @return the number of tower nodes whose coordinates changed
+     */
+    public int getMovedNodes() {
+        return movedNodes;
+    }
+
+    /**
+     * @return the number of accepted OSM ways that are not included in the graph, because they were created but the
+     * coordinates of some of their nodes are unknown, or because the OSM node ids are not stored. These require a new
+     * import.
+     */
+    public int getMissingWays() {
+        return missingWays;
+    }
+
+    /**
+     * @return the number of updated OSM ways that reference created or modified nodes, so their geometry has likely
+     * changed, but the coordinates of some of their nodes are unknown. Only their tags were updated, the geometry
+     * requires a new import.
+     */
+    public int getGeometryChangedWays() {
+        return geometryChangedWays;
+    }
+
+    /**
+     * @return the number of created, modified or deleted nodes that do not belong to any updated way
+     */
+    public int getIgnoredNodes() {
+        return ignoredNodes;
+    }
+
+    @Override
+    public String toString() {
+        return "changed edges: " + changedEdges.size() + ", updated ways: " + updatedWays + ", removed ways: " + removedWays
+                + ", added ways: " + addedWays + ", rebuilt ways: " + rebuiltWays + ", added edges: " + addedEdges
+                + ", added nodes: " + addedNodes + ", moved nodes: " + movedNodes + ", missing ways: " + missingWays + ", ways with changed geometry: " + geometryChangedWays
+                + ", ignored nodes: " + ignoredNodes;
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.ReaderNode;
+import com.graphhopper.reader.ReaderRelation;
+import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.util.Helper;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Stores OSM elements one after another in a {@link DataAccess} so they can be read again in the same order without
+ * reading and decoding the OSM file a second time. The ids are delta encoded as variable length integers and the node
+ * coordinates are stored with the same precision as in the graph. Only String tag values are supported, which is
+ * what the OSM readers produce.
+ * <p>
+ * The elements of a whole OSM file usually do not fit into memory, so the DataAccess is always memory mapped to a
+ * file in a {@link TempMMapDirectory}, independent of the DAType configured for the graph.
+ */
+class OSMElementBuffer {
+    private static final int NODE = 0, WAY = 1, RELATION = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final TempMMapDirectory directory;
+    private final DataAccess da;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPos;
+    // the position in the DataAccess the buffer starts at
+    private long pointer;
+    // the end of the valid bytes in the buffer, only used when reading
+    private int bufferEnd;
+    private final long[] prevIds = new long[3];
+    private long elements;
+
+    OSMElementBuffer(String name) {
+        directory = new TempMMapDirectory(name);
+        // the segments must not be smaller than the buffer
+        da = directory.create(name, 1 << 20).create(BUFFER_SIZE);
+    }
+
+    /**
+     * @return the number of stored elements
+     */
+    long getElements() {
+        return elements;
+    }
+
+    long getCapacity() {
+        return da.getCapacity();
+    }
+
+    /**
+     * @return the temporary folder of the memory mapped file, which is removed by {@link #clear()}
+     */
+    File getFolder() {
+        return directory.getFolder();
+    }
+
+    void addNode(ReaderNode node, boolean withTags) {
+        writeType(NODE, node.getId());
+        writeInt(Helper.degreeToInt(node.getLat()));
+        writeInt(Helper.degreeToInt(node.getLon()));
+        writeTags(withTags ? node.getTags() : Map.of());
+    }
+
+    void addWay(ReaderWay way) {
+        writeType(WAY, way.getId());
+        writeTags(way.getTags());
+        LongArrayList nodes = way.getNodes();
+        writeVarLong(nodes.size());
+        long prev = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            writeVarLong(zigZag(nodes.get(i) - prev));
+            prev = nodes.get(i);
+        }
+    }
+
+    void addRelation(ReaderRelation relation) {
+        writeType(RELATION, relation.getId());
+        writeTags(relation.getTags());
+        writeVarLong(relation.getMembers().size());
+        for (ReaderRelation.Member member : relation.getMembers()) {
+            writeByte(member.getType().ordinal());
+            writeVarLong(zigZag(member.getRef()));
+            writeString(member.getRole());
+        }
+    }
+
+    /**
+     * Passes all stored elements to the given consumer in the order they were added. No more elements can be added
+     * afterwards.
+     */
+    void forEach(Consumer<ReaderElement> consumer) {
+        flush();
+        long end = pointer;
+        bufferEnd = 0;
+        pointer = 0;
+        bufferPos = 0;
+        prevIds[NODE] = prevIds[WAY] = prevIds[RELATION] = 0;
+        for (long i = 0; i < elements; i++)
+            consumer.accept(readElement(end));
+        if (pointer != end || bufferPos != bufferEnd)
+            throw new IllegalStateException("Not all bytes were read, position: " + (pointer - bufferEnd + bufferPos) + ", end: " + end);
+    }
+
+    void clear() {
+        directory.close();
+        elements = 0;
+    }
+
+    private ReaderElement readElement(long end) {
+        int type = readByte(end);
+        long id = prevIds[type] + unZigZag(readVarLong(end));
+        prevIds[type] = id;
+        if (type == NODE) {
+            double lat = Helper.intToDegree(readInt(end));
+            double lon = Helper.intToDegree(readInt(end));
+            ReaderNode node = new ReaderNode(id, lat, lon);
+            readTags(node, end);
+            return node;
+        } else if (type == WAY) {
+            ReaderWay way = new ReaderWay(id);
+            readTags(way, end);
+            int nodes = (int) readVarLong(end);
+            long prev = 0;
+            for (int i = 0; i < nodes; i++) {
+                prev += unZigZag(readVarLong(end));
+                way.getNodes().add(prev);
+            }
+            return way;
+        } else if (type == RELATION) {
+            ReaderRelation relation = new ReaderRelation(id);
+            readTags(relation, end);
+            int members = (int) readVarLong(end);
+            for (int i = 0; i < members; i++) {
+                ReaderElement.Type memberType = ReaderElement.Type.values()[readByte(end)];
+                long ref = unZigZag(readVarLong(end));
+                relation.add(new ReaderRelation.Member(memberType, ref, readString(end)));
+            }
+            return relation;
+        } else
+            throw new IllegalStateException("Unknown element type: " + type);
+    }
+
+    private void writeType(int type, long id) {
+        writeByte(type);
+        writeVarLong(zigZag(id - prevIds[type]));
+        prevIds[type] = id;
+        elements++;
+    }
+
+    private void writeTags(Map<String, Object> tags) {
+        writeVarLong(tags.size());
+        for (Map.Entry<String, Object> e : tags.entrySet()) {
+            writeString(e.getKey());
+            writeString((String) e.getValue());
+        }
+    }
+
+    private void readTags(ReaderElement element, long end) {
+        int size = (int) readVarLong(end);
+        if (size == 0)
+            return;
+        Map<String, Object> tags = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            String key = readString(end);
+            tags.put(key, readString(end));
+        }
+        element.setTags(tags);
+    }
+
+    private void writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        for (byte b : bytes)
+            writeByte(b);
+    }
+
+    private String readString(long end) {
+        byte[] bytes = new byte[(int) readVarLong(end)];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = (byte) readByte(end);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeInt(int value) {
+        writeByte(value >>> 24);
+        writeByte(value >>> 16);
+        writeByte(value >>> 8);
+        writeByte(value);
+    }
+
+    private int readInt(long end) {
+        return readByte(end) << 24 | readByte(end) << 16 | readByte(end) << 8 | readByte(end);
+    }
+
+    private void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte((int) value);
+    }
+
+    private long readVarLong(long end) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = readByte(end);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private void writeByte(int value) {
+        if (bufferPos == BUFFER_SIZE)
+            flush();
+        buffer[bufferPos++] = (byte) value;
+    }
+
+    private void flush() {
+        da.ensureCapacity(pointer + bufferPos);
+        da.setBytes(pointer, buffer, bufferPos);
+        pointer += bufferPos;
+        bufferPos = 0;
+    }
+
+    private int readByte(long end) {
+        if (bufferPos == bufferEnd) {
+            if (pointer == end)
+                throw new IllegalStateException("Unexpected end of OSM element buffer");
+            bufferEnd = (int) Math.min(BUFFER_SIZE, end - pointer);
+            da.getBytes(pointer, buffer, bufferEnd);
+            pointer += bufferEnd;
+            bufferPos = 0;
+        }
+        return buffer[bufferPos++] & 0xFF;
+    }
+}
@@ -30,6 +30,8 @@ import javax.xml.stream.XMLStreamReader;
  * @author ratrun
  */
 public class OSMFileHeader extends ReaderElement {
+    public static final String SORT_TYPE_THEN_ID = "sort_type_then_id";
+
     public OSMFileHeader() {
         super(0, Type.FILEHEADER);
     }
@@ -43,6 +45,13 @@ public class OSMFileHeader extends ReaderElement {
         return header;
     }
 
+    /**
+     * @return true if the file declares that its elements are sorted by type (nodes, ways, relations) and id
+     */
+    public boolean isSortedByTypeThenId() {
+        return getTag(SORT_TYPE_THEN_ID, false);
+    }
+
     protected void readFileHeader(XMLStreamReader parser) throws XMLStreamException {
         int event = parser.getEventType();
         while (event != XMLStreamConstants.END_DOCUMENT && parser.getLocalName().equals("osm")) {
@@ -20,10 +20,13 @@ package com.graphhopper.reader.osm;
 
 import com.carrotsearch.hppc.LongScatterSet;
 import com.carrotsearch.hppc.LongSet;
+import com.carrotsearch.hppc.procedures.LongLongProcedure;
 import com.graphhopper.coll.GHLongLongBTree;
+import com.graphhopper.coll.GHSortedLongLongMap;
 import com.graphhopper.coll.LongLongMap;
 import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.search.KVStorage;
+import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.util.PointAccess;
 import com.graphhopper.util.PointList;
@@ -31,6 +34,7 @@ import com.graphhopper.util.shapes.GHPoint3D;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
 import java.util.function.DoubleSupplier;
 import java.util.function.LongUnaryOperator;
 import java.util.stream.Collectors;
@@ -60,19 +64,20 @@ class OSMNodeData {
     static final long CONNECTION_NODE = 2;
 
     // this map stores our internal node id for each OSM node
-    private final LongLongMap idsByOsmNodeIds;
+    private LongLongMap idsByOsmNodeIds;
 
     // here we store node coordinates, separated for pillar and tower nodes
     private final PillarInfo pillarNodes;
     private final PointAccess towerNodes;
 
     // this map stores an index for each OSM node we keep the node tags of. a value of -1 means there is no entry yet.
-    private final LongLongMap nodeTagIndicesByOsmNodeIds;
+    private LongLongMap nodeTagIndicesByOsmNodeIds;
 
     // stores node tags
     private final KVStorage nodeKVStorage;
     // collect all nodes that should be split and a barrier edge should be created between them.
     private final LongSet nodesToBeSplit;
+    private final Directory directory;
 
     private int nextTowerId = 0;
     private long nextPillarId = 0;
@@ -85,6 +90,7 @@ class OSMNodeData {
         // allocating big arrays when growing the size.
         idsByOsmNodeIds = new GHLongLongBTree(200, 5, EMPTY_NODE);
         towerNodes = nodeAccess;
+        this.directory = directory;
         pillarNodes = new PillarInfo(towerNodes.is3D(), directory);
 
         nodeTagIndicesByOsmNodeIds = new GHLongLongBTree(200, 4, -1);
@@ -92,6 +98,24 @@ class OSMNodeData {
         nodeKVStorage = new KVStorage(directory, false).create(100);
     }
 
+    /**
+     * Replaces the b-trees by maps that store the OSM node ids much more compactly, but that are only efficient if
+     * new ids are inserted in increasing order, see {@link GHSortedLongLongMap}. This is the case for the ids that
+     * are added while reading the nodes of an OSM file that is sorted by type and id, so this should be called after
+     * pass1. The node types that were stored so far are copied.
+     */
+    public void useSortedNodeIdMaps() {
+        if (getTaggedNodeCount() > 0)
+            throw new IllegalStateException("Node tags must not be stored before switching to the sorted maps");
+        if (!(idsByOsmNodeIds instanceof GHLongLongBTree))
+            throw new IllegalStateException("Sorted maps are already used");
+        GHSortedLongLongMap sortedIds = new GHSortedLongLongMap(directory, "tmp_osm_node_ids", 5, EMPTY_NODE);
+        ((GHLongLongBTree) idsByOsmNodeIds).forEach((LongLongProcedure) sortedIds::put);
+        idsByOsmNodeIds.clear();
+        idsByOsmNodeIds = sortedIds;
+        nodeTagIndicesByOsmNodeIds = new GHSortedLongLongMap(directory, "tmp_osm_node_tag_indices", 4, -1);
+    }
+
     public boolean is3D() {
         return towerNodes.is3D();
     }
@@ -214,6 +238,85 @@ class OSMNodeData {
         return addTowerNode(osmNodeId, lat, lon, ele);
     }
 
+    /**
+     * Determines the elevation of all tower and pillar nodes stored so far and overwrites their current elevation.
+     * Unlike when the elevation is determined while the nodes are read, the nodes are visited ordered by the one
+     * degree cell they are located in and the cells are visited in Z-order. Nearby nodes are therefore looked up one
+     * after another, so elevation tiles only need to be loaded once or a few times even if the elevation provider can
+     * only keep a limited number of them open at the same time. The node ids are sorted by their cell using a counting
+     * sort into a memory mapped {@link TempMMapDirectory}, so the nodes are read only twice no matter how many there
+     * are and the ids do not use the memory of the graph.
+     *
+     * @param getEle returns the elevation for the given latitude and longitude
+     */
+    public void updateElevationsOrderedByLocation(DoubleBinaryOperator getEle) {
+        if (!is3D())
+            return;
+        // the number of nodes per cell, indexed by the Z-order of the cell, and then where the ids of each cell start
+        long[] cellOffsets = new long[1 << 18];
+        for (int tower = 0; tower < nextTowerId; tower++)
+            cellOffsets[getCell(towerNodes.getLat(tower), towerNodes.getLon(tower))]++;
+        for (long pillar = 0; pillar < nextPillarId; pillar++)
+            cellOffsets[getCell(pillarNodes.getLat(pillar), pillarNodes.getLon(pillar))]++;
+        long nodes = 0;
+        for (int cell = 0; cell < cellOffsets.length; cell++) {
+            long count = cellOffsets[cell];
+            cellOffsets[cell] = nodes;
+            nodes += count;
+        }
+
+        TempMMapDirectory tmpDirectory = new TempMMapDirectory("tmp_elevation_node_ids");
+        try {
+            DataAccess sortedIds = tmpDirectory.create("tmp_elevation_node_ids", 1 << 20).create(8 * nodes);
+            for (int tower = 0; tower < nextTowerId; tower++) {
+                int cell = getCell(towerNodes.getLat(tower), towerNodes.getLon(tower));
+                setId(sortedIds, cellOffsets[cell]++, towerNodeToId(tower));
+            }
+            for (long pillar = 0; pillar < nextPillarId; pillar++) {
+                int cell = getCell(pillarNodes.getLat(pillar), pillarNodes.getLon(pillar));
+                setId(sortedIds, cellOffsets[cell]++, pillarNodeToId(pillar));
+            }
+
+            for (long i = 0; i < nodes; i++) {
+                long id = getId(sortedIds, i);
+                if (isTowerNode(id)) {
+                    int tower = idToTowerNode(id);
+                    double lat = towerNodes.getLat(tower), lon = towerNodes.getLon(tower);
+                    towerNodes.setNode(tower, lat, lon, getEle.applyAsDouble(lat, lon));
+                } else {
+                    long pillar = idToPillarNode(id);
+                    double lat = pillarNodes.getLat(pillar), lon = pillarNodes.getLon(pillar);
+                    pillarNodes.setNode(pillar, lat, lon, getEle.applyAsDouble(lat, lon));
+                }
+            }
+        } finally {
+            tmpDirectory.close();
+        }
+    }
+
+    private static void setId(DataAccess da, long index, long id) {
+        da.setInt(8 * index, (int) id);
+        da.setInt(8 * index + 4, (int) (id >>> 32));
+    }
+
+    private static long getId(DataAccess da, long index) {
+        return ((long) da.getInt(8 * index + 4) << 32) | (da.getInt(8 * index) & 0xFFFF_FFFFL);
+    }
+
+    /**
+     * @return the Z-order of the one degree cell that contains the given coordinates
+     */
+    static int getCell(double lat, double lon) {
+        int latCell = Math.max(0, Math.min(180, (int) Math.floor(lat) + 90));
+        int lonCell = Math.max(0, Math.min(360, (int) Math.floor(lon) + 180));
+        int cell = 0;
+        for (int bit = 0; bit < 9; bit++) {
+            cell |= ((latCell >> bit) & 1) << (2 * bit + 1);
+            cell |= ((lonCell >> bit) & 1) << (2 * bit);
+        }
+        return cell;
+    }
+
     public GHPoint3D getCoordinates(long id) {
         if (isTowerNode(id)) {
             int tower = idToTowerNode(id);
@@ -0,0 +1,123 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.BitSet;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Stores the OSM node id of every tower node, i.e. every node of the graph. The pillar nodes of the way geometries
+ * are not included. This is needed to connect the ways of an OSM change file to the graph, see
+ * {@link OSMReader#applyChanges}.
+ * <p>
+ * The copies of barrier nodes have artificial, negative ids. The id is 0 for nodes that were not set, which is not a
+ * valid OSM id.
+ */
+public class OSMNodeIdStorage {
+    private final DataAccess da;
+    private int nodeCount;
+
+    public OSMNodeIdStorage(Directory dir) {
+        this.da = dir.create("osm_node_ids");
+    }
+
+    public OSMNodeIdStorage create(long initBytes) {
+        da.create(initBytes);
+        return this;
+    }
+
+    public boolean loadExisting() {
+        if (!da.loadExisting())
+            return false;
+        nodeCount = da.getHeader(0);
+        return true;
+    }
+
+    public void setOSMNodeId(int node, long osmNodeId) {
+        long pointer = 8L * node;
+        da.ensureCapacity(pointer + 8);
+        da.setInt(pointer, (int) osmNodeId);
+        da.setInt(pointer + 4, (int) (osmNodeId >>> 32));
+        nodeCount = Math.max(nodeCount, node + 1);
+    }
+
+    /**
+     * @return the OSM id of the given tower node or 0 if it is unknown
+     */
+    public long getOSMNodeId(int node) {
+        if (node >= nodeCount)
+            return 0;
+        long pointer = 8L * node;
+        return ((long) da.getInt(pointer + 4) << 32) | (da.getInt(pointer) & 0xFFFF_FFFFL);
+    }
+
+    /**
+     * @return the number of nodes for which there is an entry, which can include nodes with an unknown id
+     */
+    public int getNodes() {
+        return nodeCount;
+    }
+
+    /**
+     * Moves the ids along with the nodes when the nodes of the graph are relabeled, see
+     * {@link com.graphhopper.storage.BaseGraph#relabelNodes}.
+     *
+     * @param nodes the number of nodes of the graph, which can be larger than the number of nodes with an id
+     */
+    public void relabelNodes(int nodes, IntUnaryOperator getNewNodeForOldNode) {
+        if (nodes > nodeCount) {
+            da.ensureCapacity(8L * nodes);
+            nodeCount = nodes;
+        }
+        BitSet visited = new BitSet(nodeCount);
+        for (int node = 0; node < nodeCount; node++) {
+            if (visited.get(node))
+                continue;
+            int curr = node;
+            long osmNodeId = getOSMNodeId(node);
+            do {
+                visited.set(curr);
+                int newNode = getNewNodeForOldNode.applyAsInt(curr);
+                long tmp = getOSMNodeId(newNode);
+                setOSMNodeId(newNode, osmNodeId);
+                osmNodeId = tmp;
+                curr = newNode;
+            } while (curr != node);
+        }
+    }
+
+    public void flush() {
+        da.setHeader(0, nodeCount);
+        da.flush();
+    }
+
+    public void close() {
+        da.close();
+    }
+
+    public boolean isClosed() {
+        return da.isClosed();
+    }
+
+    public long getCapacity() {
+        return da.getCapacity();
+    }
+}
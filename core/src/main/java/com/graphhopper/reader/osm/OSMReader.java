@@ -18,7 +18,13 @@
 package com.graphhopper.reader.osm;
 
 import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongHashSet;
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.cursors.LongCursor;
 import com.graphhopper.coll.GHLongLongHashMap;
 import com.graphhopper.reader.ReaderElement;
 import com.graphhopper.reader.ReaderNode;
@@ -31,7 +37,11 @@ import com.graphhopper.reader.dem.ElevationProvider;
 import com.graphhopper.routing.OSMReaderConfig;
 import com.graphhopper.routing.ev.Country;
 import com.graphhopper.routing.ev.EdgeIntAccess;
+import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.ev.IntEncodedValueImpl;
+import com.graphhopper.routing.ev.IntsRefEdgeIntAccess;
 import com.graphhopper.routing.ev.State;
+import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.AreaIndex;
 import com.graphhopper.routing.util.CustomArea;
 import com.graphhopper.routing.util.FerrySpeedCalculator;
@@ -39,6 +49,7 @@ import com.graphhopper.routing.util.OSMParsers;
 import com.graphhopper.routing.util.countryrules.CountryRule;
 import com.graphhopper.routing.util.countryrules.CountryRuleFactory;
 import com.graphhopper.routing.util.parsers.RestrictionSetter;
+import com.graphhopper.routing.util.parsers.TagParser;
 import com.graphhopper.search.KVStorage;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.IntsRef;
@@ -53,9 +64,13 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
 import java.util.function.LongToIntFunction;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.graphhopper.search.KVStorage.KValue;
 import static com.graphhopper.util.GHUtility.OSM_WARNING_LOGGER;
@@ -87,13 +102,15 @@ public class OSMReader {
     private final RestrictionSetter restrictionSetter;
     private ElevationProvider eleProvider = ElevationProvider.NOOP;
     private AreaIndex<CustomArea> areaIndex;
+    private OSMNodeIdStorage osmNodeIds;
     private CountryRuleFactory countryRuleFactory = null;
     private File osmFile;
     private final RamerDouglasPeucker simplifyAlgo = new RamerDouglasPeucker();
-    private int bugCounter = 0;
+    private final AtomicInteger bugCounter = new AtomicInteger();
     private final IntsRef tempRelFlags;
     private Date osmDataDate;
-    private long zeroCounter = 0;
+    private final AtomicLong zeroCounter = new AtomicLong();
+    private boolean hasNonThreadSafeParsers;
 
     private GHLongLongHashMap osmWayIdToRelationFlagsMap = new GHLongLongHashMap(200, .5f);
     private WayToEdgesMap restrictedWaysToEdgesMap = new WayToEdgesMap();
@@ -133,6 +150,15 @@ public class OSMReader {
         return this;
     }
 
+    /**
+     * The OSM node ids of the tower nodes are written into the given storage when reading the graph. They are used by
+     * {@link #applyChanges} to add created ways and to change the geometry of modified ways.
+     */
+    public OSMReader setOSMNodeIdStorage(OSMNodeIdStorage osmNodeIds) {
+        this.osmNodeIds = osmNodeIds;
+        return this;
+    }
+
     public OSMReader setElevationProvider(ElevationProvider eleProvider) {
         if (eleProvider == null)
             throw new IllegalStateException("Use the NOOP elevation provider instead of null or don't call setElevationProvider");
@@ -162,7 +188,7 @@ public class OSMReader {
         if (!baseGraph.isInitialized())
             throw new IllegalStateException("BaseGraph must be initialize before we can read OSM");
 
-        WaySegmentParser waySegmentParser = new WaySegmentParser.Builder(baseGraph.getNodeAccess(), baseGraph.getDirectory())
+        WaySegmentParser.Builder builder = new WaySegmentParser.Builder(baseGraph.getNodeAccess(), baseGraph.getDirectory())
                 .setElevationProvider(this::getElevation)
                 .setWayFilter(this::acceptWay)
                 .setSplitNodeFilter(this::isBarrierNode)
@@ -171,7 +197,21 @@ public class OSMReader {
                 .setRelationProcessor(this::processRelation)
                 .setEdgeHandler(this::addEdge)
                 .setWorkerThreads(config.getWorkerThreads())
-                .build();
+                .setSinglePass(config.isSinglePass())
+                .setSortedElevationLookup(config.isSortedElevationLookup());
+        if (osmNodeIds != null)
+            builder.setTowerNodeHandler(osmNodeIds::setOSMNodeId);
+        if (config.getEdgeThreads() > 1) {
+            if (nodeAccess.is3D() && config.getLongEdgeSamplingDistance() < Double.MAX_VALUE)
+                // the edge sampling queries the elevation provider, which is not thread-safe
+                LOGGER.warn("Cannot prepare edges in parallel when long edge sampling is enabled, using a single thread");
+            else {
+                hasNonThreadSafeParsers = Stream.concat(osmParsers.getRelationTagParsers().stream(), osmParsers.getWayTagParsers().stream())
+                        .anyMatch(p -> !p.isThreadSafe());
+                builder.setParallelEdgeHandler(this::prepareEdge, config.getEdgeThreads());
+            }
+        }
+        WaySegmentParser waySegmentParser = builder.build();
         waySegmentParser.readOSM(osmFile);
         osmDataDate = waySegmentParser.getTimestamp();
         if (baseGraph.getNodes() == 0)
@@ -180,7 +220,7 @@ public class OSMReader {
         addRestrictionsToGraph();
         releaseRestrictionData();
         LOGGER.info("Finished reading OSM file: {}, nodes: {}, edges: {}, zero distance edges: {}",
-                osmFile.getAbsolutePath(), nf(baseGraph.getNodes()), nf(baseGraph.getEdges()), nf(zeroCounter));
+                osmFile.getAbsolutePath(), nf(baseGraph.getNodes()), nf(baseGraph.getEdges()), nf(zeroCounter.get()));
     }
 
     /**
@@ -316,6 +356,42 @@ public class OSMReader {
      * @param nodeTags  node tags of this segment. there is one map of tags for each point.
      */
     protected void addEdge(int fromIndex, int toIndex, PointList pointList, ReaderWay way, List<Map<String, Object>> nodeTags) {
+        checkSegment(fromIndex, toIndex, pointList, nodeTags);
+        pointList = prepareGeometry(pointList);
+        double distance = calcEdgeDistance(pointList, way.getId());
+        setArtificialWayTags(pointList, way, distance, nodeTags);
+        IntsRef relationFlags = getRelFlagsMap(way.getId());
+        EdgeIteratorState edge = baseGraph.edge(fromIndex, toIndex).setDistance(distance);
+        osmParsers.handleWayTags(edge.getEdge(), edgeIntAccess, way, relationFlags);
+        finishEdge(edge, fromIndex, toIndex, pointList, way.getId(), way.getTag("key_values", Collections.emptyMap()));
+    }
+
+    /**
+     * Does the same as {@link #addEdge}, but this method can be called concurrently for different ways, because all
+     * the work that does not modify the graph is done here and the edge is only added when the returned action is run.
+     * The tag parsers that are not thread-safe are also run by the returned action.
+     */
+    protected Runnable prepareEdge(int fromIndex, int toIndex, PointList pointList, ReaderWay way, List<Map<String, Object>> nodeTags) {
+        checkSegment(fromIndex, toIndex, pointList, nodeTags);
+        PointList geometry = prepareGeometry(pointList);
+        double distance = calcEdgeDistance(geometry, way.getId());
+        setArtificialWayTags(geometry, way, distance, nodeTags);
+        IntsRef relationFlags = getRelFlagsMap(way.getId(), osmParsers.createRelationFlags());
+        IntsRef edgeFlags = baseGraph.createEdgeFlags();
+        // the edge id is not known yet, but it is ignored by IntsRefEdgeIntAccess anyway
+        osmParsers.handleWayTags(0, new IntsRefEdgeIntAccess(edgeFlags), way, relationFlags, true);
+        Map<String, KValue> keyValues = way.getTag("key_values", Collections.emptyMap());
+        // the way is modified for its next segment, so the remaining parsers need a copy of its current state
+        ReaderWay wayCopy = hasNonThreadSafeParsers ? copyWay(way) : null;
+        return () -> {
+            EdgeIteratorState edge = baseGraph.edge(fromIndex, toIndex).setDistance(distance).setFlags(edgeFlags);
+            if (wayCopy != null)
+                osmParsers.handleWayTags(edge.getEdge(), edgeIntAccess, wayCopy, relationFlags, false);
+            finishEdge(edge, fromIndex, toIndex, geometry, way.getId(), keyValues);
+        };
+    }
+
+    private void checkSegment(int fromIndex, int toIndex, PointList pointList, List<Map<String, Object>> nodeTags) {
         // sanity checks
         if (fromIndex < 0 || toIndex < 0)
             throw new AssertionError("to or from index is invalid for this edge " + fromIndex + "->" + toIndex + ", points:" + pointList);
@@ -323,7 +399,9 @@ public class OSMReader {
             throw new AssertionError("Dimension does not match for pointList vs. nodeAccess " + pointList.getDimension() + " <-> " + nodeAccess.getDimension());
         if (pointList.size() != nodeTags.size())
             throw new AssertionError("there should be as many maps of node tags as there are points. node tags: " + nodeTags.size() + ", points: " + pointList.size());
+    }
 
+    private PointList prepareGeometry(PointList pointList) {
         // todo: in principle it should be possible to delay elevation calculation so we do not need to store
         // elevations during import (saves memory in pillar info during import). also note that we already need to
         // to do some kind of elevation processing (bridge+tunnel interpolation in GraphHopper class, maybe this can
@@ -345,19 +423,22 @@ public class OSMReader {
 
         if (config.getMaxWayPointDistance() > 0 && pointList.size() > 2)
             simplifyAlgo.simplify(pointList);
+        return pointList;
+    }
 
+    private double calcEdgeDistance(PointList pointList, long wayId) {
         double distance = distCalc.calcDistance(pointList);
 
         if (distance < 0.001) {
             // As investigation shows often two paths should have crossed via one identical point
             // but end up in two very close points.
-            zeroCounter++;
+            zeroCounter.incrementAndGet();
             distance = 0.001;
         }
 
         double maxDistance = (Integer.MAX_VALUE - 1) / 1000d;
         if (Double.isNaN(distance)) {
-            LOGGER.warn("Bug in OSM or GraphHopper (" + bugCounter++ + "). Illegal tower node distance " + distance + " reset to 1m, osm way " + way.getId());
+            LOGGER.warn("Bug in OSM or GraphHopper (" + bugCounter.getAndIncrement() + "). Illegal tower node distance " + distance + " reset to 1m, osm way " + wayId);
             distance = 1;
         }
 
@@ -365,20 +446,18 @@ public class OSMReader {
             // Too large is very rare and often the wrong tagging. See #435
             // so we can avoid the complexity of splitting the way for now (new towernodes would be required, splitting up geometry etc)
             // For example this happens here: https://www.openstreetmap.org/way/672506453 (Cape Town - Tristan da Cunha ferry)
-            LOGGER.warn("Bug in OSM or GraphHopper (" + bugCounter++ + "). Too big tower node distance " + distance + " reset to large value, osm way " + way.getId());
+            LOGGER.warn("Bug in OSM or GraphHopper (" + bugCounter.getAndIncrement() + "). Too big tower node distance " + distance + " reset to large value, osm way " + wayId);
             distance = maxDistance;
         }
 
-        if (bugCounter > 30)
+        if (bugCounter.get() > 30)
             throw new IllegalStateException("Too many bugs in OSM or GraphHopper encountered " + bugCounter);
+        return distance;
+    }
 
-        setArtificialWayTags(pointList, way, distance, nodeTags);
-        IntsRef relationFlags = getRelFlagsMap(way.getId());
-        EdgeIteratorState edge = baseGraph.edge(fromIndex, toIndex).setDistance(distance);
-        osmParsers.handleWayTags(edge.getEdge(), edgeIntAccess, way, relationFlags);
-        Map<String, KValue> map = way.getTag("key_values", Collections.emptyMap());
-        if (!map.isEmpty())
-            edge.setKeyValues(map);
+    private void finishEdge(EdgeIteratorState edge, int fromIndex, int toIndex, PointList pointList, long wayId, Map<String, KValue> keyValues) {
+        if (!keyValues.isEmpty())
+            edge.setKeyValues(keyValues);
 
         // If the entire way is just the first and last point, do not waste space storing an empty way geometry
         if (pointList.size() > 2) {
@@ -390,7 +469,14 @@ public class OSMReader {
         }
 
         checkDistance(edge);
-        restrictedWaysToEdgesMap.putIfReserved(way.getId(), edge.getEdge());
+        restrictedWaysToEdgesMap.putIfReserved(wayId, edge.getEdge());
+    }
+
+    private static ReaderWay copyWay(ReaderWay way) {
+        ReaderWay copy = new ReaderWay(way.getId());
+        copy.getNodes().addAll(way.getNodes());
+        copy.setTags(way.getTags());
+        return copy;
     }
 
     private void checkCoordinates(int nodeIndex, GHPoint point) {
@@ -420,6 +506,10 @@ public class OSMReader {
      */
     protected void preprocessWay(ReaderWay way, WaySegmentParser.CoordinateSupplier coordinateSupplier,
                                  WaySegmentParser.NodeTagSupplier nodeTagSupplier) {
+        preprocessWay(way, nodeTagSupplier, () -> calcDistance(way, coordinateSupplier));
+    }
+
+    private void preprocessWay(ReaderWay way, WaySegmentParser.NodeTagSupplier nodeTagSupplier, DoubleSupplier wayDistance) {
         Map<String, KValue> map = new LinkedHashMap<>();
         if (config.isParseWayNames()) {
             // http://wiki.openstreetmap.org/wiki/Key:name
@@ -489,7 +579,7 @@ public class OSMReader {
         if (!isCalculateWayDistance(way))
             return;
 
-        double distance = calcDistance(way, coordinateSupplier);
+        double distance = wayDistance.getAsDouble();
         if (Double.isNaN(distance)) {
             // Some nodes were missing, and we cannot determine the distance. This can happen when ways are only
             // included partially in an OSM extract. In this case we cannot calculate the speed either, so we return.
@@ -531,6 +621,526 @@ public class OSMReader {
         way.setTag("speed_from_duration", speedInKmPerHour);
     }
 
+    /**
+     * Applies the given OSM changes to the graph that was created by {@link #readGraph} before. The edges of each way
+     * are found using the given OSM way id encoded value. The edges of modified ways are parsed again and the edges of
+     * deleted ways, or ways that are no longer accepted, become inaccessible, because their flags are reset.
+     * <p>
+     * The ways can only be connected to the graph if the OSM node ids of the tower nodes are known, see
+     * {@link #setOSMNodeIdStorage}. In this case created ways are added, modified ways whose geometry changed are
+     * replaced by new edges and tower nodes that were moved get new coordinates, for which their edges are replaced
+     * as well. The coordinates of the nodes that are not contained in the change file are taken from the tower nodes
+     * or, for modified ways, from their previous geometry. Ways that reference other nodes are not changed: created
+     * ways are counted as missing and modified ways are only parsed again, see {@link OSMChangeResult}. New tower
+     * nodes are only created for the nodes that are shared by the ways of the change file, so created ways are not
+     * connected to the pillar nodes of other ways. The new edges do not get barrier edges and turn restrictions.
+     * <p>
+     * Some information that is available during the import is missing for such an update: node tags are only known
+     * for nodes contained in the change file, route relations are only considered if they are contained in the change
+     * file, and barrier edges are only changed if their way is removed. For modified ways that are not a member of a
+     * relation in the change file the given relation encoded values, i.e. the values written by the
+     * {@link com.graphhopper.routing.util.parsers.RelationTagParser}s, keep their previous values.
+     */
+    public OSMChangeResult applyChanges(OSMChangeFile changes, IntEncodedValue osmWayIdEnc, List<IntEncodedValueImpl> relationEncodedValues) {
+        StopWatch sw = StopWatch.started();
+        OSMChangeResult result = new OSMChangeResult();
+        for (ReaderRelation relation : changes.getRelations())
+            preprocessRelations(relation);
+
+        LongHashSet changedWayIds = new LongHashSet();
+        changedWayIds.addAll(changes.getDeletedWays());
+        for (ReaderWay way : changes.getWays())
+            changedWayIds.add(way.getId());
+        Map<Long, IntArrayList> edgesByWayId = new HashMap<>();
+        AllEdgesIterator iter = baseGraph.getAllEdges();
+        while (iter.next()) {
+            long wayId = iter.get(osmWayIdEnc);
+            if (changedWayIds.contains(wayId))
+                edgesByWayId.computeIfAbsent(wayId, k -> new IntArrayList()).add(iter.getEdge());
+        }
+
+        for (LongCursor wayId : changes.getDeletedWays()) {
+            IntArrayList edges = edgesByWayId.get(wayId.value);
+            if (edges != null) {
+                removeEdges(edges, result);
+                result.removedWays++;
+            }
+        }
+        LongHashSet changedNodeIds = new LongHashSet();
+        changedNodeIds.addAll(changes.getDeletedNodes());
+        for (ReaderNode node : changes.getNodes())
+            changedNodeIds.add(node.getId());
+        LongHashSet usedNodeIds = new LongHashSet();
+
+        // the number of times each node is referenced by the accepted ways, so we know where the ways are split
+        LongIntHashMap nodeReferences = new LongIntHashMap();
+        for (ReaderWay way : changes.getWays())
+            if (acceptWay(way))
+                for (LongCursor node : way.getNodes())
+                    nodeReferences.addTo(node.value, 1);
+        LongIntHashMap towerNodes = null;
+        if (osmNodeIds != null) {
+            towerNodes = findTowerNodes(changes, nodeReferences);
+            for (ReaderNode node : changes.getNodes()) {
+                int towerNode = towerNodes.getOrDefault(node.getId(), -1);
+                if (towerNode >= 0 && moveTowerNode(towerNode, node, osmWayIdEnc, edgesByWayId, result))
+                    usedNodeIds.add(node.getId());
+            }
+        }
+
+        for (ReaderWay way : changes.getWays()) {
+            IntArrayList edges = edgesByWayId.get(way.getId());
+            boolean accepted = acceptWay(way);
+            if (edges == null) {
+                if (!accepted)
+                    continue;
+                List<WayPoint> points = towerNodes == null ? null : resolveWayPoints(way, null, changes, towerNodes);
+                if (points == null) {
+                    result.missingWays++;
+                    continue;
+                }
+                addWay(way, points, null, changes, towerNodes, nodeReferences, relationEncodedValues, result);
+                result.addedWays++;
+                for (LongCursor node : way.getNodes())
+                    if (changedNodeIds.contains(node.value))
+                        usedNodeIds.add(node.value);
+            } else if (!accepted) {
+                removeEdges(edges, result);
+                result.removedWays++;
+            } else {
+                boolean geometryChanged = false;
+                for (LongCursor node : way.getNodes())
+                    if (changedNodeIds.contains(node.value)) {
+                        geometryChanged = true;
+                        usedNodeIds.add(node.value);
+                    }
+                List<WayPoint> points = towerNodes == null ? null : resolveWayPoints(way, edges, changes, towerNodes);
+                if (points != null && !hasSameEdges(points, splitWay(points, nodeReferences, towerNodes), edges, towerNodes)) {
+                    IntsRef previousFlags = baseGraph.getEdgeIteratorState(edges.get(0), Integer.MIN_VALUE).getFlags();
+                    removeEdges(edges, result);
+                    addWay(way, points, previousFlags, changes, towerNodes, nodeReferences, relationEncodedValues, result);
+                    result.rebuiltWays++;
+                } else {
+                    if (geometryChanged && points == null)
+                        result.geometryChangedWays++;
+                    updateEdges(way, edges, changes, relationEncodedValues, result);
+                    result.updatedWays++;
+                }
+            }
+        }
+        result.ignoredNodes = changedNodeIds.size() - usedNodeIds.size();
+        LOGGER.info("Applied OSM changes, {}, took: {}", result, sw.stop().getTimeString());
+        return result;
+    }
+
+    /**
+     * A point of an OSM way whose coordinates were determined by {@link #resolveWayPoints}. The OSM node id is 0 for
+     * points that were taken from the previous geometry of the way.
+     */
+    private static class WayPoint {
+        final long osmNodeId;
+        final double lat;
+        final double lon;
+        final double ele;
+        final Map<String, Object> tags;
+
+        WayPoint(long osmNodeId, double lat, double lon, double ele, Map<String, Object> tags) {
+            this.osmNodeId = osmNodeId;
+            this.lat = lat;
+            this.lon = lon;
+            this.ele = ele;
+            this.tags = tags;
+        }
+    }
+
+    /**
+     * @return the tower nodes of the nodes that are contained in the change file or referenced by its ways
+     */
+    private LongIntHashMap findTowerNodes(OSMChangeFile changes, LongIntHashMap nodeReferences) {
+        LongHashSet osmNodeIdSet = new LongHashSet();
+        for (LongCursor node : nodeReferences.keys())
+            osmNodeIdSet.add(node.value);
+        for (ReaderNode node : changes.getNodes())
+            osmNodeIdSet.add(node.getId());
+        LongIntHashMap towerNodes = new LongIntHashMap();
+        for (int node = 0; node < osmNodeIds.getNodes(); node++) {
+            long osmNodeId = osmNodeIds.getOSMNodeId(node);
+            if (osmNodeId > 0 && osmNodeIdSet.contains(osmNodeId))
+                towerNodes.put(osmNodeId, node);
+        }
+        return towerNodes;
+    }
+
+    /**
+     * Sets the coordinates of the given tower node, and of the copies if it is a barrier node, to the ones of the
+     * given OSM node. The edges of the node are replaced by new edges with the same properties, because their
+     * geometry might be stored relative to the tower nodes.
+     *
+     * @return true if the coordinates changed
+     */
+    private boolean moveTowerNode(int towerNode, ReaderNode node, IntEncodedValue osmWayIdEnc, Map<Long, IntArrayList> edgesByWayId,
+                                  OSMChangeResult result) {
+        if (Math.abs(nodeAccess.getLat(towerNode) - node.getLat()) < 1.e-7 && Math.abs(nodeAccess.getLon(towerNode) - node.getLon()) < 1.e-7)
+            return false;
+        IntArrayList movedNodes = IntArrayList.from(towerNode);
+        EdgeExplorer explorer = baseGraph.createEdgeExplorer();
+        EdgeIterator iter = explorer.setBaseNode(towerNode);
+        while (iter.next())
+            if (isBarrierEdge(iter))
+                movedNodes.add(iter.getAdjNode());
+        IntHashSet edgeSet = new IntHashSet();
+        List<EdgeIteratorState> edges = new ArrayList<>();
+        List<PointList> pillarNodes = new ArrayList<>();
+        for (IntCursor movedNode : movedNodes) {
+            iter = explorer.setBaseNode(movedNode.value);
+            while (iter.next())
+                if (edgeSet.add(iter.getEdge()) && !isRemoved(iter.getFlags())) {
+                    EdgeIteratorState edge = baseGraph.getEdgeIteratorState(iter.getEdge(), Integer.MIN_VALUE);
+                    edges.add(edge);
+                    // the geometry must be fetched before the tower node is moved
+                    pillarNodes.add(edge.fetchWayGeometry(FetchMode.PILLAR_ONLY));
+                }
+        }
+        double ele = nodeAccess.is3D() ? getElevation(node) : Double.NaN;
+        for (IntCursor movedNode : movedNodes)
+            nodeAccess.setNode(movedNode.value, node.getLat(), node.getLon(), ele);
+        for (int i = 0; i < edges.size(); i++) {
+            EdgeIteratorState edge = edges.get(i);
+            IntsRef flags = edge.getFlags();
+            EdgeIteratorState newEdge = baseGraph.appendEdge(edge.getBaseNode(), edge.getAdjNode()).setFlags(flags);
+            if (!edge.getKeyValues().isEmpty())
+                newEdge.setKeyValues(edge.getKeyValues());
+            newEdge.setWayGeometry(pillarNodes.get(i));
+            long wayId = newEdge.get(osmWayIdEnc);
+            newEdge.setDistance(calcEdgeDistance(newEdge.fetchWayGeometry(FetchMode.ALL), wayId));
+            result.addChangedEdge(edge.getEdge(), flags);
+            edge.setFlags(baseGraph.createEdgeFlags());
+            result.addedEdges++;
+            IntArrayList wayEdges = edgesByWayId.get(wayId);
+            int index = wayEdges == null ? -1 : wayEdges.indexOf(edge.getEdge());
+            if (index >= 0)
+                wayEdges.set(index, newEdge.getEdge());
+        }
+        result.movedNodes++;
+        return true;
+    }
+
+    /**
+     * Determines the coordinates of all nodes of the given way. For a modified way the coordinates of the nodes that
+     * are neither contained in the change file nor tower nodes are taken from the previous geometry of the way, which
+     * requires that the nodes before and after them are still located on this geometry. The way is simplified when
+     * it is added, so these nodes are replaced by the points of the previous geometry between these nodes.
+     *
+     * @param edges the edges of the modified way or null for a created way
+     * @return the points of the way or null if the coordinates of some nodes are unknown
+     */
+    private List<WayPoint> resolveWayPoints(ReaderWay way, IntArrayList edges, OSMChangeFile changes, LongIntHashMap towerNodes) {
+        LongArrayList nodes = way.getNodes();
+        List<WayPoint> knownPoints = new ArrayList<>(nodes.size());
+        boolean complete = true;
+        for (LongCursor cursor : nodes) {
+            ReaderNode node = changes.getNode(cursor.value);
+            int towerNode = towerNodes.getOrDefault(cursor.value, -1);
+            if (node != null)
+                knownPoints.add(new WayPoint(node.getId(), node.getLat(), node.getLon(),
+                        nodeAccess.is3D() ? getElevation(node) : Double.NaN, node.getTags()));
+            else if (towerNode >= 0)
+                knownPoints.add(new WayPoint(cursor.value, nodeAccess.getLat(towerNode), nodeAccess.getLon(towerNode),
+                        nodeAccess.is3D() ? nodeAccess.getEle(towerNode) : Double.NaN, Collections.emptyMap()));
+            else {
+                knownPoints.add(null);
+                complete = false;
+            }
+        }
+        if (complete)
+            return knownPoints;
+        // the way ends are always tower nodes, so the unknown nodes must be between two known nodes
+        if (edges == null || knownPoints.get(0) == null || knownPoints.get(knownPoints.size() - 1) == null)
+            return null;
+        PointList previousGeometry = getWayGeometry(edges);
+        if (previousGeometry == null)
+            return null;
+
+        List<WayPoint> points = new ArrayList<>(nodes.size());
+        double searchFrom = 0;
+        double previousPosition = -1;
+        for (int i = 0; i < knownPoints.size(); i++) {
+            WayPoint point = knownPoints.get(i);
+            if (point == null)
+                continue;
+            double position = findPosition(previousGeometry, point, searchFrom);
+            if (i > 0 && knownPoints.get(i - 1) == null) {
+                if (previousPosition < 0 || position < 0)
+                    return null;
+                for (int p = (int) Math.floor(previousPosition) + 1; p < position; p++)
+                    points.add(new WayPoint(0, previousGeometry.getLat(p), previousGeometry.getLon(p), previousGeometry.getEle(p),
+                            Collections.emptyMap()));
+            }
+            points.add(point);
+            previousPosition = position;
+            // for nodes that were moved we continue the search at the previous position
+            if (position >= 0)
+                searchFrom = position;
+        }
+        return points;
+    }
+
+    /**
+     * @return the position of the given point on the given geometry that is not before the given position, i.e. the
+     * index of the equal point or the index of the closest previous point plus the fraction of the next segment, or -1
+     * if the point is not located on the geometry
+     */
+    private double findPosition(PointList geometry, WayPoint point, double from) {
+        final double tolerance = Math.max(config.getMaxWayPointDistance(), 0.1);
+        for (int i = (int) Math.floor(from); i < geometry.size(); i++) {
+            if (i >= from && Math.abs(geometry.getLat(i) - point.lat) < 1.e-6 && Math.abs(geometry.getLon(i) - point.lon) < 1.e-6)
+                return i;
+            if (i + 1 == geometry.size())
+                break;
+            double latA = geometry.getLat(i), lonA = geometry.getLon(i);
+            double latB = geometry.getLat(i + 1), lonB = geometry.getLon(i + 1);
+            if (!distCalc.validEdgeDistance(point.lat, point.lon, latA, lonA, latB, lonB))
+                continue;
+            double distance = distCalc.calcDenormalizedDist(distCalc.calcNormalizedEdgeDistance(point.lat, point.lon, latA, lonA, latB, lonB));
+            if (distance > tolerance)
+                continue;
+            GHPoint crossing = distCalc.calcCrossingPointToEdge(point.lat, point.lon, latA, lonA, latB, lonB);
+            double segmentLength = distCalc.calcDist(latA, lonA, latB, lonB);
+            double position = i + (segmentLength > 0 ? distCalc.calcDist(latA, lonA, crossing.lat, crossing.lon) / segmentLength : 0);
+            if (position >= from)
+                return position;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the geometry of the given edges of a way from its first to its last node, or null if the edges are not
+     * connected
+     */
+    private PointList getWayGeometry(IntArrayList edges) {
+        // the edges were sorted after the import, but they still point in the direction of the way
+        IntHashSet adjNodes = new IntHashSet();
+        for (IntCursor edge : edges)
+            adjNodes.add(baseGraph.getEdgeIteratorState(edge.value, Integer.MIN_VALUE).getAdjNode());
+        int current = -1;
+        for (IntCursor edge : edges) {
+            int baseNode = baseGraph.getEdgeIteratorState(edge.value, Integer.MIN_VALUE).getBaseNode();
+            if (!adjNodes.contains(baseNode)) {
+                if (current >= 0)
+                    return null;
+                current = baseNode;
+            }
+        }
+        if (current < 0)
+            // a closed way
+            current = baseGraph.getEdgeIteratorState(edges.get(0), Integer.MIN_VALUE).getBaseNode();
+        PointList geometry = new PointList(10, nodeAccess.is3D());
+        BitSet used = new BitSet(edges.size());
+        for (int count = 0; count < edges.size(); count++) {
+            EdgeIteratorState next = null;
+            for (int i = 0; i < edges.size() && next == null; i++) {
+                EdgeIteratorState edge = baseGraph.getEdgeIteratorState(edges.get(i), Integer.MIN_VALUE);
+                if (!used.get(i) && edge.getBaseNode() == current) {
+                    next = edge;
+                    used.set(i);
+                }
+            }
+            if (next == null)
+                return null;
+            PointList points = next.fetchWayGeometry(FetchMode.ALL);
+            for (int i = geometry.isEmpty() ? 0 : 1; i < points.size(); i++)
+                geometry.add(points, i);
+            current = next.getAdjNode();
+        }
+        return geometry;
+    }
+
+    /**
+     * Splits the given points of a way into edges like {@link WaySegmentParser}: at the tower nodes and at the nodes
+     * that are referenced more than once by the ways of the change file.
+     *
+     * @return the index of the first and last point of each edge
+     */
+    private List<int[]> splitWay(List<WayPoint> points, LongIntHashMap nodeReferences, LongIntHashMap towerNodes) {
+        List<int[]> segments = new ArrayList<>();
+        int from = 0;
+        for (int i = 1; i < points.size(); i++) {
+            long osmNodeId = points.get(i).osmNodeId;
+            if (i < points.size() - 1 && (osmNodeId == 0 || nodeReferences.get(osmNodeId) < 2 && !towerNodes.containsKey(osmNodeId)))
+                continue;
+            if (osmNodeId != 0 && osmNodeId == points.get(from).osmNodeId) {
+                // loops are split into two edges and loops without points in between are ignored
+                if (i - from > 1) {
+                    segments.add(new int[]{from, i - 1});
+                    segments.add(new int[]{i - 1, i});
+                }
+            } else {
+                segments.add(new int[]{from, i});
+            }
+            from = i;
+        }
+        return segments;
+    }
+
+    /**
+     * @return true if the given edges of a modified way connect the same tower nodes as the given segments and have
+     * the same geometry, i.e. the geometry of the way did not change
+     */
+    private boolean hasSameEdges(List<WayPoint> points, List<int[]> segments, IntArrayList edges, LongIntHashMap towerNodes) {
+        List<EdgeIteratorState> remaining = new ArrayList<>();
+        for (IntCursor edge : edges) {
+            EdgeIteratorState state = baseGraph.getEdgeIteratorState(edge.value, Integer.MIN_VALUE);
+            if (!isBarrierEdge(state))
+                remaining.add(state);
+        }
+        if (remaining.size() != segments.size())
+            return false;
+        for (int[] segment : segments) {
+            int from = towerNodes.getOrDefault(points.get(segment[0]).osmNodeId, -1);
+            int to = towerNodes.getOrDefault(points.get(segment[1]).osmNodeId, -1);
+            PointList pointList = prepareGeometry(createPointList(points, segment));
+            EdgeIteratorState match = null;
+            for (EdgeIteratorState edge : remaining)
+                if (edge.getBaseNode() == from && edge.getAdjNode() == to && hasSameCoordinates(edge.fetchWayGeometry(FetchMode.ALL), pointList)) {
+                    match = edge;
+                    break;
+                }
+            if (match == null)
+                return false;
+            remaining.remove(match);
+        }
+        return true;
+    }
+
+    private static boolean hasSameCoordinates(PointList a, PointList b) {
+        if (a.size() != b.size())
+            return false;
+        for (int i = 0; i < a.size(); i++)
+            if (Math.abs(a.getLat(i) - b.getLat(i)) > 1.e-6 || Math.abs(a.getLon(i) - b.getLon(i)) > 1.e-6)
+                return false;
+        return true;
+    }
+
+    private PointList createPointList(List<WayPoint> points, int[] segment) {
+        PointList pointList = new PointList(segment[1] - segment[0] + 1, nodeAccess.is3D());
+        for (int i = segment[0]; i <= segment[1]; i++)
+            pointList.add(points.get(i).lat, points.get(i).lon, points.get(i).ele);
+        return pointList;
+    }
+
+    /**
+     * Adds the edges of a created way, or of a modified way whose previous edges were removed, in the same way as
+     * they are added by {@link #addEdge} during the import.
+     *
+     * @param previousFlags the flags of a previous edge of the way, whose relation encoded values are kept if the way
+     *                      is not a member of a relation in the change file, or null for a created way
+     */
+    private void addWay(ReaderWay way, List<WayPoint> points, IntsRef previousFlags, OSMChangeFile changes, LongIntHashMap towerNodes,
+                        LongIntHashMap nodeReferences, List<IntEncodedValueImpl> relationEncodedValues, OSMChangeResult result) {
+        preprocessWay(way, nodeId -> {
+            ReaderNode node = changes.getNode(nodeId);
+            return node == null ? Collections.emptyMap() : node.getTags();
+        }, () -> {
+            double distance = 0;
+            for (int i = 1; i < points.size(); i++)
+                distance += distCalc.calcDist(points.get(i - 1).lat, points.get(i - 1).lon, points.get(i).lat, points.get(i).lon);
+            return distance;
+        });
+        IntsRef relationFlags = getRelFlagsMap(way.getId());
+        for (int[] segment : splitWay(points, nodeReferences, towerNodes)) {
+            int from = getOrCreateTowerNode(points.get(segment[0]), towerNodes, result);
+            int to = getOrCreateTowerNode(points.get(segment[1]), towerNodes, result);
+            List<Map<String, Object>> nodeTags = new ArrayList<>(segment[1] - segment[0] + 1);
+            for (int i = segment[0]; i <= segment[1]; i++)
+                nodeTags.add(points.get(i).tags);
+            PointList pointList = prepareGeometry(createPointList(points, segment));
+            double distance = calcEdgeDistance(pointList, way.getId());
+            setArtificialWayTags(pointList, way, distance, nodeTags);
+            EdgeIteratorState edge = baseGraph.appendEdge(from, to).setDistance(distance);
+            handleWayTags(edge, way, relationFlags, previousFlags, relationEncodedValues);
+            finishEdge(edge, from, to, pointList, way.getId(), way.getTag("key_values", Collections.emptyMap()));
+            result.addedEdges++;
+        }
+    }
+
+    private int getOrCreateTowerNode(WayPoint point, LongIntHashMap towerNodes, OSMChangeResult result) {
+        if (point.osmNodeId != 0 && towerNodes.containsKey(point.osmNodeId))
+            return towerNodes.get(point.osmNodeId);
+        int towerNode = baseGraph.getNodes();
+        nodeAccess.setNode(towerNode, point.lat, point.lon, point.ele);
+        osmNodeIds.setOSMNodeId(towerNode, point.osmNodeId);
+        if (point.osmNodeId != 0)
+            towerNodes.put(point.osmNodeId, towerNode);
+        result.addedNodes++;
+        return towerNode;
+    }
+
+    private void updateEdges(ReaderWay way, IntArrayList edges, OSMChangeFile changes, List<IntEncodedValueImpl> relationEncodedValues,
+                             OSMChangeResult result) {
+        preprocessWay(way, nodeId -> {
+            ReaderNode node = changes.getNode(nodeId);
+            return node == null ? Collections.emptyMap() : node.getTags();
+        }, () -> {
+            double distance = 0;
+            for (IntCursor edge : edges)
+                distance += baseGraph.getEdgeIteratorState(edge.value, Integer.MIN_VALUE).getDistance();
+            return distance;
+        });
+        IntsRef relationFlags = getRelFlagsMap(way.getId());
+        Map<String, KValue> keyValues = way.getTag("key_values", Collections.emptyMap());
+        for (IntCursor cursor : edges) {
+            EdgeIteratorState edge = baseGraph.getEdgeIteratorState(cursor.value, Integer.MIN_VALUE);
+            if (isBarrierEdge(edge))
+                // we do not know the tags of the barrier node
+                continue;
+            PointList pointList = edge.fetchWayGeometry(FetchMode.ALL);
+            setArtificialWayTags(pointList, way, edge.getDistance(), Collections.nCopies(pointList.size(), Collections.emptyMap()));
+            IntsRef previousFlags = edge.getFlags();
+            result.addChangedEdge(edge.getEdge(), previousFlags);
+            edge.setFlags(baseGraph.createEdgeFlags());
+            handleWayTags(edge, way, relationFlags, previousFlags, relationEncodedValues);
+            edge.setKeyValues(keyValues);
+        }
+    }
+
+    private void handleWayTags(EdgeIteratorState edge, ReaderWay way, IntsRef relationFlags, IntsRef previousFlags,
+                               List<IntEncodedValueImpl> relationEncodedValues) {
+        // the relations of the way are unknown unless they are part of the change file
+        if (previousFlags != null && relationFlags.isEmpty()) {
+            // the way tag parsers run afterwards, because they can depend on these values, e.g. the bike priority
+            IntsRefEdgeIntAccess previousAccess = new IntsRefEdgeIntAccess(previousFlags);
+            for (IntEncodedValueImpl enc : relationEncodedValues)
+                enc.copy(edge.getEdge(), previousAccess, edge.getEdge(), edgeIntAccess);
+            for (TagParser parser : osmParsers.getWayTagParsers())
+                parser.handleWayTags(edge.getEdge(), edgeIntAccess, way, relationFlags);
+        } else {
+            osmParsers.handleWayTags(edge.getEdge(), edgeIntAccess, way, relationFlags);
+        }
+    }
+
+    private void removeEdges(IntArrayList edges, OSMChangeResult result) {
+        for (IntCursor cursor : edges) {
+            EdgeIteratorState edge = baseGraph.getEdgeIteratorState(cursor.value, Integer.MIN_VALUE);
+            result.addChangedEdge(edge.getEdge(), edge.getFlags());
+            // all access flags are false for empty edge flags
+            edge.setFlags(baseGraph.createEdgeFlags());
+        }
+    }
+
+    private static boolean isRemoved(IntsRef flags) {
+        for (int i = 0; i < flags.length; i++)
+            if (flags.ints[flags.offset + i] != 0)
+                return false;
+        return true;
+    }
+
+    private boolean isBarrierEdge(EdgeIteratorState edge) {
+        // barrier edges connect a barrier node with its copy, see WaySegmentParser
+        int base = edge.getBaseNode(), adj = edge.getAdjNode();
+        return base != adj && nodeAccess.getLat(base) == nodeAccess.getLat(adj) && nodeAccess.getLon(base) == nodeAccess.getLon(adj)
+                && edge.fetchWayGeometry(FetchMode.PILLAR_ONLY).isEmpty();
+    }
+
     static String fixWayName(String str) {
         if (str == null)
             return "";
@@ -674,10 +1284,14 @@ public class OSMReader {
     }
 
     IntsRef getRelFlagsMap(long osmId) {
+        return getRelFlagsMap(osmId, tempRelFlags);
+    }
+
+    private IntsRef getRelFlagsMap(long osmId, IntsRef relFlags) {
         long relFlagsAsLong = osmWayIdToRelationFlagsMap.get(osmId);
-        tempRelFlags.ints[0] = (int) relFlagsAsLong;
-        tempRelFlags.ints[1] = (int) (relFlagsAsLong >> 32);
-        return tempRelFlags;
+        relFlags.ints[0] = (int) relFlagsAsLong;
+        relFlags.ints[1] = (int) (relFlagsAsLong >> 32);
+        return relFlags;
     }
 
     void putRelFlagsMap(long osmId, IntsRef relFlags) {
@@ -0,0 +1,61 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.Helper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+/**
+ * A directory in a new temporary folder for data that is only needed during the import. The temporary data of a
+ * whole OSM file usually does not fit into memory, so its DataAccess objects are always memory mapped, independent
+ * of the DAType configured for the graph. {@link #close()} removes the folder including all its files.
+ */
+class TempMMapDirectory {
+    private final File folder;
+    private final Directory directory;
+
+    TempMMapDirectory(String name) {
+        try {
+            folder = Files.createTempDirectory("gh_" + name).toFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create temporary folder for " + name, e);
+        }
+        directory = new GHDirectory(folder.getAbsolutePath(), DAType.MMAP).create();
+    }
+
+    DataAccess create(String name, int segmentSize) {
+        return directory.create(name, DAType.MMAP, segmentSize);
+    }
+
+    File getFolder() {
+        return folder;
+    }
+
+    void close() {
+        directory.clear();
+        Helper.removeDir(folder);
+    }
+}
@@ -37,6 +37,10 @@ import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.*;
 
 import static com.graphhopper.reader.osm.OSMNodeData.*;
@@ -50,7 +54,9 @@ import static com.graphhopper.util.Helper.nf;
  * <p>
  * The OSM file is read twice. The first time we ignore OSM nodes and only determine the OSM node IDs at which accepted
  * ways are intersecting. During the second pass we split the OSM ways at intersections, introduce the artificial
- * segments and pass the way information along with the corresponding nodes to a given callback.
+ * segments and pass the way information along with the corresponding nodes to a given callback. Optionally, the
+ * elements needed for the second pass can be stored during the first pass, such that the file is only read once, see
+ * {@link Builder#setSinglePass}.
  * <p>
  * We assume a strict order of the OSM file: nodes, ways, then relations.
  * <p>
@@ -73,10 +79,17 @@ public class WaySegmentParser {
     };
     private EdgeHandler edgeHandler = (from, to, pointList, way, nodeTags) ->
             System.out.println("edge " + from + "->" + to + " (" + pointList.size() + " points)");
+    private TowerNodeHandler towerNodeHandler = (towerNode, osmNodeId) -> {
+    };
+    private ParallelEdgeHandler parallelEdgeHandler;
+    private int edgeHandlerThreads = 1;
     private int workerThreads = 2;
+    private boolean singlePass;
+    private boolean sortedElevationLookup;
 
     private final OSMNodeData nodeData;
     private Date timestamp;
+    private boolean sortedByTypeThenId;
 
     private WaySegmentParser(OSMNodeData nodeData) {
         this.nodeData = nodeData;
@@ -90,18 +103,47 @@ public class WaySegmentParser {
             throw new IllegalStateException("You can only run way segment parser once");
 
         LOGGER.info("Start reading OSM file: '" + osmFile + "'");
-        LOGGER.info("pass1 - start");
         StopWatch sw1 = StopWatch.started();
-        readOSM(osmFile, new Pass1Handler(), new SkipOptions(true, false, false));
+        OSMElementBuffer elementBuffer = null;
+        if (singlePass) {
+            // we read the file only once and store the elements we need for pass2
+            LOGGER.info("pass1 - start, storing OSM elements for pass2");
+            elementBuffer = new OSMElementBuffer("tmp_osm_elements");
+            readOSM(osmFile, new Pass1Handler(elementBuffer), SkipOptions.none());
+        } else {
+            LOGGER.info("pass1 - start");
+            readOSM(osmFile, new Pass1Handler(null), new SkipOptions(true, false, false));
+        }
         LOGGER.info("pass1 - finished, took: {}", sw1.stop().getTimeString());
 
         long nodes = nodeData.getNodeCount();
+        if (sortedByTypeThenId) {
+            // the nodes will be read in increasing id order, so we can use a more compact map for pass2
+            StopWatch sw = StopWatch.started();
+            nodeData.useSortedNodeIdMaps();
+            LOGGER.info("OSM file is sorted, converted node id map, took: {}, {}", sw.stop().getTimeString(), Helper.getMemInfo());
+        }
 
         LOGGER.info("Creating graph. Node count (pillar+tower): " + nodes + ", " + Helper.getMemInfo());
 
         LOGGER.info("pass2 - start");
         StopWatch sw2 = new StopWatch().start();
-        readOSM(osmFile, new Pass2Handler(), SkipOptions.none());
+        EdgePipeline edgePipeline = null;
+        if (parallelEdgeHandler != null) {
+            LOGGER.info("pass2 - preparing edges using {} threads", edgeHandlerThreads);
+            edgePipeline = new EdgePipeline(parallelEdgeHandler, edgeHandlerThreads);
+        }
+        try {
+            if (elementBuffer != null)
+                readElements(elementBuffer, new Pass2Handler(edgePipeline));
+            else
+                readOSM(osmFile, new Pass2Handler(edgePipeline), SkipOptions.none());
+        } finally {
+            if (edgePipeline != null)
+                edgePipeline.close();
+            if (elementBuffer != null)
+                elementBuffer.clear();
+        }
         LOGGER.info("pass2 - finished, took: {}", sw2.stop().getTimeString());
 
         nodeData.release();
@@ -120,12 +162,30 @@ public class WaySegmentParser {
     }
 
     private class Pass1Handler implements ReaderElementHandler {
+        // only used when the elements are stored for pass2 instead of reading the file again
+        private final OSMElementBuffer elementBuffer;
         private boolean handledWays;
         private boolean handledRelations;
+        private long nodeCounter = 0;
         private long wayCounter = 0;
         private long acceptedWays = 0;
         private long relationsCounter = 0;
 
+        Pass1Handler(OSMElementBuffer elementBuffer) {
+            this.elementBuffer = elementBuffer;
+        }
+
+        @Override
+        public void handleNode(ReaderNode node) {
+            if (elementBuffer == null)
+                return;
+            if (++nodeCounter % 10_000_000 == 0)
+                LOGGER.info("pass1 - stored nodes: " + nf(nodeCounter) + ", " + Helper.getMemInfo());
+            // we do not know yet which nodes belong to the accepted ways, so we need to store all of them. but we only
+            // keep the tags that are used in pass2
+            elementBuffer.addNode(node, splitNodeFilter.test(node) || hasIncludedNodeTag(node));
+        }
+
         @Override
         public void handleWay(ReaderWay way) {
             if (!handledWays) {
@@ -151,6 +211,8 @@ public class WaySegmentParser {
                         // connection nodes are those where (only) two OSM ways are connected at their ends
                         prev -> prev == END_NODE && isEnd ? CONNECTION_NODE : JUNCTION_NODE);
             }
+            if (elementBuffer != null)
+                elementBuffer.addWay(way);
         }
 
         @Override
@@ -163,11 +225,14 @@ public class WaySegmentParser {
             if (++relationsCounter % 1_000_000 == 0)
                 LOGGER.info("pass1 - processed relations: " + nf(relationsCounter) + ", " + Helper.getMemInfo());
 
+            if (elementBuffer != null)
+                elementBuffer.addRelation(relation);
             relationPreprocessor.accept(relation);
         }
 
         @Override
         public void handleFileHeader(OSMFileHeader fileHeader) throws ParseException {
+            sortedByTypeThenId |= fileHeader.isSortedByTypeThenId();
             timestamp = Helper.createFormatter().parse(fileHeader.getTag("timestamp"));
         }
 
@@ -176,18 +241,26 @@ public class WaySegmentParser {
             LOGGER.info("pass1 - finished, processed ways: " + nf(wayCounter) + ", accepted ways: " +
                     nf(acceptedWays) + ", way nodes: " + nf(nodeData.getNodeCount()) + ", relations: " +
                     nf(relationsCounter) + ", " + Helper.getMemInfo());
+            if (elementBuffer != null)
+                LOGGER.info("pass1 - stored OSM elements: {}, bytes: {}", nf(elementBuffer.getElements()), nf(elementBuffer.getCapacity()));
         }
     }
 
     private class Pass2Handler implements ReaderElementHandler {
+        private final EdgePipeline edgePipeline;
         private boolean handledNodes;
         private boolean handledWays;
         private boolean handledRelations;
+        private boolean elevationsLookedUp;
         private long nodeCounter = 0;
         private long acceptedNodes = 0;
         private long ignoredSplitNodes = 0;
         private long wayCounter = 0;
 
+        Pass2Handler(EdgePipeline edgePipeline) {
+            this.edgePipeline = edgePipeline;
+        }
+
         @Override
         public void handleNode(ReaderNode node) {
             if (!handledNodes) {
@@ -203,7 +276,9 @@ public class WaySegmentParser {
                 LOGGER.info("pass2 - processed nodes: " + nf(nodeCounter) + ", accepted nodes: " + nf(acceptedNodes) +
                         ", " + Helper.getMemInfo());
 
-            long nodeType = nodeData.addCoordinatesIfMapped(node.getId(), node.getLat(), node.getLon(), () -> elevationProvider.applyAsDouble(node));
+            // for the sorted elevation lookup we only store a placeholder and determine the elevation after reading all nodes
+            long nodeType = nodeData.addCoordinatesIfMapped(node.getId(), node.getLat(), node.getLon(),
+                    sortedElevationLookup ? () -> 0 : () -> elevationProvider.applyAsDouble(node));
             if (nodeType == EMPTY_NODE)
                 return;
 
@@ -220,21 +295,19 @@ public class WaySegmentParser {
             }
 
             // store node tags if at least one important tag is included and make this available for the edge handler
-            for (Map.Entry<String, Object> e : node.getTags().entrySet()) {
-                if (INCLUDE_IF_NODE_TAGS.contains(e.getKey())) {
-                    node.removeTag("created_by");
-                    node.removeTag("source");
-                    node.removeTag("note");
-                    node.removeTag("fixme");
-                    nodeData.setTags(node);
-                    break;
-                }
+            if (hasIncludedNodeTag(node)) {
+                node.removeTag("created_by");
+                node.removeTag("source");
+                node.removeTag("note");
+                node.removeTag("fixme");
+                nodeData.setTags(node);
             }
         }
 
         @Override
         public void handleWay(ReaderWay way) {
             if (!handledWays) {
+                lookupElevationsIfSorted();
                 LOGGER.info("pass2 - start reading OSM ways");
                 handledWays = true;
             }
@@ -251,6 +324,8 @@ public class WaySegmentParser {
                 segment.add(new SegmentNode(node.value, nodeData.getId(node.value), nodeData.getTags(node.value)));
             wayPreprocessor.preprocessWay(way, osmNodeId -> nodeData.getCoordinates(nodeData.getId(osmNodeId)), osmNodeId -> nodeData.getTags(osmNodeId));
             splitWayAtJunctionsAndEmptySections(segment, way);
+            if (edgePipeline != null)
+                edgePipeline.finishWay();
         }
 
         private void splitWayAtJunctionsAndEmptySections(List<SegmentNode> fullSegment, ReaderWay way) {
@@ -364,7 +439,12 @@ public class WaySegmentParser {
             }
             if (from < 0 || to < 0)
                 throw new IllegalStateException("The first and last nodes of a segment must be tower nodes, way: " + way.getId());
-            edgeHandler.handleEdge(from, to, pointList, way, nodeTags);
+            towerNodeHandler.handleTowerNode(from, segment.get(0).osmNodeId);
+            towerNodeHandler.handleTowerNode(to, segment.get(segment.size() - 1).osmNodeId);
+            if (edgePipeline != null)
+                edgePipeline.addSegment(from, to, pointList, way, nodeTags);
+            else
+                edgeHandler.handleEdge(from, to, pointList, way, nodeTags);
         }
 
         @Override
@@ -372,13 +452,28 @@ public class WaySegmentParser {
             if (!handledRelations) {
                 LOGGER.info("pass2 - start reading OSM relations");
                 handledRelations = true;
+                // make sure all edges were added before we process the relations
+                if (edgePipeline != null)
+                    edgePipeline.flush();
             }
 
             relationProcessor.processRelation(relation, this::getInternalNodeIdOfOSMNode);
         }
 
+        private void lookupElevationsIfSorted() {
+            if (!sortedElevationLookup || elevationsLookedUp)
+                return;
+            elevationsLookedUp = true;
+            StopWatch sw = StopWatch.started();
+            nodeData.updateElevationsOrderedByLocation((lat, lon) -> elevationProvider.applyAsDouble(new ReaderNode(0, lat, lon)));
+            LOGGER.info("pass2 - looked up elevations ordered by location, took: {}, {}", sw.stop().getTimeString(), Helper.getMemInfo());
+        }
+
         @Override
         public void onFinish() {
+            lookupElevationsIfSorted();
+            if (edgePipeline != null)
+                edgePipeline.flush();
             LOGGER.info("pass2 - finished, processed ways: {}, way nodes: {}, nodes with tags: {}, node tag capacity: {}, ignored barriers at junctions: {}",
                     nf(wayCounter), nf(acceptedNodes), nf(nodeData.getTaggedNodeCount()), nf(nodeData.getNodeTagCapacity()), nf(ignoredSplitNodes));
         }
@@ -391,6 +486,24 @@ public class WaySegmentParser {
         }
     }
 
+    private static boolean hasIncludedNodeTag(ReaderNode node) {
+        for (String key : node.getTags().keySet())
+            if (INCLUDE_IF_NODE_TAGS.contains(key))
+                return true;
+        return false;
+    }
+
+    private void readElements(OSMElementBuffer elementBuffer, ReaderElementHandler handler) {
+        elementBuffer.forEach(elem -> {
+            try {
+                handler.handleElement(elem);
+            } catch (ParseException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        handler.onFinish();
+    }
+
     private void readOSM(File file, ReaderElementHandler handler, SkipOptions skipOptions) {
         try (OSMInput osmInput = openOsmInputFile(file, skipOptions)) {
             ReaderElement elem;
@@ -475,6 +588,30 @@ public class WaySegmentParser {
             return this;
         }
 
+        /**
+         * @param towerNodeHandler callback function that is called for the first and last node of each edge (way
+         *                         segment) with the OSM id of the node. The copies of barrier nodes have artificial,
+         *                         negative ids.
+         */
+        public Builder setTowerNodeHandler(TowerNodeHandler towerNodeHandler) {
+            waySegmentParser.towerNodeHandler = towerNodeHandler;
+            return this;
+        }
+
+        /**
+         * @param parallelEdgeHandler used instead of the edge handler. It allows preparing the edges of different ways
+         *                            concurrently, while the edges are still added one after another and in the
+         *                            same order as with the edge handler
+         * @param threads             the number of threads used to prepare the edges
+         */
+        public Builder setParallelEdgeHandler(ParallelEdgeHandler parallelEdgeHandler, int threads) {
+            if (threads < 1)
+                throw new IllegalArgumentException("The number of threads must be positive, but was: " + threads);
+            waySegmentParser.parallelEdgeHandler = parallelEdgeHandler;
+            waySegmentParser.edgeHandlerThreads = threads;
+            return this;
+        }
+
         /**
          * @param workerThreads the number of threads used for the low level reading of the OSM file
          */
@@ -483,6 +620,40 @@ public class WaySegmentParser {
             return this;
         }
 
+        /**
+         * @param sortedInput true if the nodes of the OSM file are sorted by id even though the file header does not
+         *                    declare this, which allows using more compact maps for the node ids. Files with
+         *                    Sort.Type_then_ID in the header are always treated as sorted.
+         */
+        public Builder setSortedInput(boolean sortedInput) {
+            waySegmentParser.sortedByTypeThenId = sortedInput;
+            return this;
+        }
+
+        /**
+         * @param singlePass true if the OSM file shall only be read once. Instead of reading it again in the second
+         *                   pass we store all nodes, the accepted ways and the relations in a temporary, memory mapped
+         *                   file in the temp folder of the system. This avoids decompressing and decoding the file twice
+         *                   at the cost of the (delta encoded) storage for all nodes.
+         */
+        public Builder setSinglePass(boolean singlePass) {
+            waySegmentParser.singlePass = singlePass;
+            return this;
+        }
+
+        /**
+         * @param sortedElevationLookup true if the elevation of the nodes shall be determined after reading all nodes
+         *                              and ordered by their location instead of while reading them. This way each
+         *                              elevation tile is loaded only once or a few times, which is much faster when
+         *                              only a limited number of tiles can be open at the same time. Note that the
+         *                              nodes passed to the elevation provider only contain the coordinates but
+         *                              neither the OSM id nor the tags.
+         */
+        public Builder setSortedElevationLookup(boolean sortedElevationLookup) {
+            waySegmentParser.sortedElevationLookup = sortedElevationLookup;
+            return this;
+        }
+
         public WaySegmentParser build() {
             return waySegmentParser;
         }
@@ -528,6 +699,138 @@ public class WaySegmentParser {
         void handleEdge(int from, int to, PointList pointList, ReaderWay way, List<Map<String, Object>> nodeTags);
     }
 
+    public interface TowerNodeHandler {
+        void handleTowerNode(int towerNode, long osmNodeId);
+    }
+
+    public interface ParallelEdgeHandler {
+        /**
+         * Prepares the edge for a way segment. This method is called concurrently for different ways, but the
+         * segments of one way are handled one after another by the same thread. It must not modify the graph.
+         *
+         * @return the action that adds the prepared edge. These actions are run on a single thread in the order of
+         * the segments.
+         */
+        Runnable prepareEdge(int from, int to, PointList pointList, ReaderWay way, List<Map<String, Object>> nodeTags);
+    }
+
+    /**
+     * Collects the segments of consecutive ways in batches and prepares the edges of each batch using a
+     * {@link ParallelEdgeHandler}. The edges of a batch are added while the next batch is prepared.
+     */
+    private static class EdgePipeline {
+        // the number of segments that are prepared by each thread per batch
+        private static final int SEGMENTS_PER_THREAD = 1_000;
+        private final ParallelEdgeHandler edgeHandler;
+        private final int threads;
+        private final ExecutorService executorService;
+        private List<WaySegments> batch = new ArrayList<>();
+        private int batchSegments;
+        private List<Future<List<Runnable>>> pendingEdges = Collections.emptyList();
+
+        EdgePipeline(ParallelEdgeHandler edgeHandler, int threads) {
+            this.edgeHandler = edgeHandler;
+            this.threads = threads;
+            this.executorService = Executors.newFixedThreadPool(threads);
+        }
+
+        void addSegment(int from, int to, PointList pointList, ReaderWay way, List<Map<String, Object>> nodeTags) {
+            if (batch.isEmpty() || batch.get(batch.size() - 1).way != way)
+                batch.add(new WaySegments(way));
+            batch.get(batch.size() - 1).segments.add(new Segment(from, to, pointList, nodeTags, way.hasTag("gh:barrier_edge")));
+            batchSegments++;
+        }
+
+        /**
+         * Needs to be called after all segments of a way were added. The segments of one way always end up in the
+         * same batch, because the way is modified while its edges are prepared.
+         */
+        void finishWay() {
+            if (batchSegments >= threads * SEGMENTS_PER_THREAD)
+                submitBatch();
+        }
+
+        /**
+         * Prepares and adds all remaining edges
+         */
+        void flush() {
+            if (!batch.isEmpty())
+                submitBatch();
+            addPendingEdges();
+        }
+
+        void close() {
+            executorService.shutdownNow();
+        }
+
+        private void submitBatch() {
+            List<WaySegments> ways = batch;
+            batch = new ArrayList<>();
+            batchSegments = 0;
+            int waysPerThread = (ways.size() + threads - 1) / threads;
+            List<Future<List<Runnable>>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < ways.size(); i += waysPerThread) {
+                List<WaySegments> chunk = ways.subList(i, Math.min(ways.size(), i + waysPerThread));
+                futures.add(executorService.submit(() -> prepareEdges(chunk)));
+            }
+            addPendingEdges();
+            pendingEdges = futures;
+        }
+
+        private List<Runnable> prepareEdges(List<WaySegments> ways) {
+            List<Runnable> result = new ArrayList<>();
+            for (WaySegments waySegments : ways) {
+                ReaderWay way = waySegments.way;
+                for (Segment segment : waySegments.segments) {
+                    if (segment.barrierEdge)
+                        way.setTag("gh:barrier_edge", true);
+                    result.add(edgeHandler.prepareEdge(segment.from, segment.to, segment.pointList, way, segment.nodeTags));
+                    way.removeTag("gh:barrier_edge");
+                }
+            }
+            return result;
+        }
+
+        private void addPendingEdges() {
+            try {
+                for (Future<List<Runnable>> future : pendingEdges)
+                    for (Runnable addEdge : future.get())
+                        addEdge.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+            pendingEdges = Collections.emptyList();
+        }
+
+        private static class WaySegments {
+            final ReaderWay way;
+            final List<Segment> segments = new ArrayList<>();
+
+            WaySegments(ReaderWay way) {
+                this.way = way;
+            }
+        }
+
+        private static class Segment {
+            final int from;
+            final int to;
+            final PointList pointList;
+            final List<Map<String, Object>> nodeTags;
+            final boolean barrierEdge;
+
+            Segment(int from, int to, PointList pointList, List<Map<String, Object>> nodeTags, boolean barrierEdge) {
+                this.from = from;
+                this.to = to;
+                this.pointList = pointList;
+                this.nodeTags = nodeTags;
+                this.barrierEdge = barrierEdge;
+            }
+        }
+    }
+
     public interface RelationProcessor {
         void processRelation(ReaderRelation relation, LongToIntFunction getNodeIdForOSMNodeId);
     }
@@ -100,6 +100,7 @@ public class PbfBlobDecoder implements Runnable {
         OSMFileHeader fileheader = new OSMFileHeader();
         long milliSecondDate = header.getOsmosisReplicationTimestamp();
         fileheader.setTag("timestamp", Helper.createFormatter().format(new Date(milliSecondDate * 1000)));
+        fileheader.setTag(OSMFileHeader.SORT_TYPE_THEN_ID, header.getOptionalFeaturesList().contains("Sort.Type_then_ID"));
         decodedEntities.add(fileheader);
 
         // Build a new bound object which corresponds to the header.
@@ -0,0 +1,90 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.BalancedWeightApproximator;
+import com.graphhopper.routing.weighting.BeelineWeightApproximator;
+import com.graphhopper.routing.weighting.WeightApproximator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.DistancePlaneProjection;
+import com.graphhopper.util.Parameters;
+
+/**
+ * A bidirectional A* like {@link AStarBidirection}, but the shortest path trees are stored in arrays, see
+ * {@link AbstractNonCHBidirArrayAlgo}.
+ */
+public class AStarBidirectionArray extends AbstractNonCHBidirArrayAlgo {
+    private BalancedWeightApproximator weightApprox;
+    private double stoppingCriterionOffset;
+
+    public AStarBidirectionArray(Graph graph, Weighting weighting, TraversalMode tMode) {
+        this(graph, weighting, tMode, null, null);
+    }
+
+    public AStarBidirectionArray(Graph graph, Weighting weighting, TraversalMode tMode, SPTArrays sptFrom, SPTArrays sptTo) {
+        super(graph, weighting, tMode, sptFrom, sptTo);
+        setDefaultApproximation();
+    }
+
+    public AStarBidirectionArray(Graph graph, Weighting weighting, TraversalMode tMode, RoutingWorkspacePool workspacePool) {
+        super(graph, weighting, tMode, workspacePool);
+        setDefaultApproximation();
+    }
+
+    private void setDefaultApproximation() {
+        BeelineWeightApproximator defaultApprox = new BeelineWeightApproximator(nodeAccess, weighting);
+        defaultApprox.setDistanceCalc(DistancePlaneProjection.DIST_PLANE);
+        setApproximation(defaultApprox);
+    }
+
+    @Override
+    protected void init(int from, int to) {
+        weightApprox.setFromTo(from, to);
+        stoppingCriterionOffset = weightApprox.approximate(to, true) + weightApprox.getSlack();
+        super.init(from, to);
+    }
+
+    @Override
+    protected boolean finished() {
+        if (finishedFrom || finishedTo)
+            return true;
+
+        return getCurrentHeapWeight(false) + getCurrentHeapWeight(true) >= bestWeight + stoppingCriterionOffset;
+    }
+
+    @Override
+    protected double calcHeapWeight(int node, double weight, boolean reverse) {
+        return weight + weightApprox.approximate(node, reverse);
+    }
+
+    public WeightApproximator getApproximation() {
+        return weightApprox.getApproximation();
+    }
+
+    public AStarBidirectionArray setApproximation(WeightApproximator approx) {
+        weightApprox = new BalancedWeightApproximator(approx);
+        return this;
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.ASTAR_BI + "|array|" + weightApprox;
+    }
+}
@@ -43,6 +43,8 @@ public abstract class AbstractBidirCHAlgo extends AbstractBidirAlgo implements E
     protected RoutingCHEdgeExplorer outEdgeExplorer;
     protected CHEdgeFilter levelEdgeFilter;
     private Supplier<BidirPathExtractor> pathExtractorSupplier;
+    private final int collectionSize;
+    private RoutingWorkspacePool workspacePool;
 
     public AbstractBidirCHAlgo(RoutingCHGraph graph, TraversalMode tMode) {
         super(tMode);
@@ -54,8 +56,8 @@ public abstract class AbstractBidirCHAlgo extends AbstractBidirAlgo implements E
         inEdgeExplorer = graph.createInEdgeExplorer();
         levelEdgeFilter = new CHLevelEdgeFilter(graph);
         pathExtractorSupplier = () -> new NodeBasedCHBidirPathExtractor(graph);
-        int size = Math.min(Math.max(200, graph.getNodes() / 10), 150_000);
-        initCollections(size);
+        // the collections are created lazily, because they might be borrowed from the workspace pool instead
+        collectionSize = Math.min(Math.max(200, graph.getNodes() / 10), 150_000);
     }
 
     @Override
@@ -63,6 +65,38 @@ public abstract class AbstractBidirCHAlgo extends AbstractBidirAlgo implements E
         super.initCollections(Math.min(size, 2000));
     }
 
+    /**
+     * Uses the priority queues and maps of the workspace of the current thread instead of creating new ones.
+     */
+    public AbstractBidirCHAlgo setWorkspacePool(RoutingWorkspacePool workspacePool) {
+        this.workspacePool = workspacePool;
+        return this;
+    }
+
+    @Override
+    public Path calcPath(int from, int to, int fromOutEdge, int toInEdge) {
+        if (workspacePool == null)
+            return super.calcPath(from, to, fromOutEdge, toInEdge);
+
+        RoutingWorkspace workspace = workspacePool.acquire();
+        try {
+            pqOpenSetFrom = workspace.getPQFrom();
+            pqOpenSetTo = workspace.getPQTo();
+            bestWeightMapFrom = workspace.getMapFrom();
+            bestWeightMapTo = workspace.getMapTo();
+            return super.calcPath(from, to, fromOutEdge, toInEdge);
+        } finally {
+            workspacePool.release(workspace);
+        }
+    }
+
+    @Override
+    void init(int from, double fromWeight, int to, double toWeight) {
+        if (pqOpenSetFrom == null)
+            initCollections(collectionSize);
+        super.init(from, fromWeight, to, toWeight);
+    }
+
     /**
      * Creates a new entry of the shortest path tree (a {@link SPTEntry} or one of its subclasses) during a dijkstra
      * expansion.
@@ -0,0 +1,386 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.*;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.graphhopper.routing.SPTArrays.NO_PARENT;
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+
+/**
+ * Common subclass for bidirectional algorithms that store their shortest path trees in {@link SPTArrays} instead of
+ * {@link SPTEntry} objects, hash maps and a {@link java.util.PriorityQueue} like {@link AbstractNonCHBidirAlgo}.
+ * Apart from the path object no objects are created per search, which is useful for long searches that would
+ * otherwise create millions of short-lived objects. The downside is that the arrays are as large as the graph, so
+ * creating a new instance for every short search is not efficient. Unlike the other algorithms, instances of this
+ * class can be used for multiple searches on the same graph and the arrays can also be passed in from the outside or
+ * borrowed from a {@link RoutingWorkspacePool} for the duration of each search.
+ *
+ * @see AbstractNonCHBidirAlgo
+ */
+public abstract class AbstractNonCHBidirArrayAlgo implements EdgeToEdgeRoutingAlgorithm {
+    protected final Graph graph;
+    protected final NodeAccess nodeAccess;
+    protected final Weighting weighting;
+    protected final TraversalMode traversalMode;
+    protected final EdgeExplorer edgeExplorer;
+    private final RoutingWorkspacePool workspacePool;
+    private SPTArrays sptFrom;
+    private SPTArrays sptTo;
+    // for edge-based traversal the roots of the shortest path trees are stored using this traversal id
+    private final int rootId;
+    protected int from;
+    protected int to;
+    protected int fromOutEdge;
+    protected int toInEdge;
+    protected int currFrom;
+    protected int currTo;
+    protected int bestFwdId;
+    protected int bestBwdId;
+    protected double bestWeight;
+    protected boolean finishedFrom;
+    protected boolean finishedTo;
+    private int visitedCountFrom;
+    private int visitedCountTo;
+    private EdgeFilter additionalEdgeFilter;
+    protected int maxVisitedNodes = Integer.MAX_VALUE;
+    protected long timeoutMillis = Long.MAX_VALUE;
+    private long finishTimeMillis = Long.MAX_VALUE;
+
+    public AbstractNonCHBidirArrayAlgo(Graph graph, Weighting weighting, TraversalMode tMode) {
+        this(graph, weighting, tMode, null, null);
+    }
+
+    /**
+     * @param sptFrom the arrays used for the forward search, or null to create new ones. They are resized if
+     *                necessary and can be re-used for other instances, but not concurrently.
+     * @param sptTo   the arrays used for the backward search, or null to create new ones.
+     */
+    public AbstractNonCHBidirArrayAlgo(Graph graph, Weighting weighting, TraversalMode tMode, SPTArrays sptFrom, SPTArrays sptTo) {
+        this(graph, weighting, tMode, sptFrom, sptTo, null);
+    }
+
+    /**
+     * @param workspacePool the arrays are borrowed from the workspace of the current thread at the beginning of each
+     *                      search and given back when it is finished, so no arrays are allocated per instance. If
+     *                      this is null new arrays are created.
+     */
+    public AbstractNonCHBidirArrayAlgo(Graph graph, Weighting weighting, TraversalMode tMode, RoutingWorkspacePool workspacePool) {
+        this(graph, weighting, tMode, null, null, workspacePool);
+    }
+
+    private AbstractNonCHBidirArrayAlgo(Graph graph, Weighting weighting, TraversalMode tMode, SPTArrays sptFrom, SPTArrays sptTo,
+                                        RoutingWorkspacePool workspacePool) {
+        if (weighting.hasTurnCosts() && !tMode.isEdgeBased())
+            throw new IllegalStateException("Weightings supporting turn costs cannot be used with node-based traversal mode");
+        this.graph = graph;
+        this.nodeAccess = graph.getNodeAccess();
+        this.weighting = weighting;
+        this.traversalMode = tMode;
+        this.edgeExplorer = graph.createEdgeExplorer();
+        this.workspacePool = workspacePool;
+        int capacity = getRequiredCapacity(graph, tMode);
+        rootId = capacity - 1;
+        if (workspacePool == null) {
+            this.sptFrom = sptFrom == null ? new SPTArrays(capacity) : sptFrom;
+            this.sptTo = sptTo == null ? new SPTArrays(capacity) : sptTo;
+            this.sptFrom.ensureCapacity(capacity);
+            this.sptTo.ensureCapacity(capacity);
+        }
+    }
+
+    /**
+     * @return the capacity the {@link SPTArrays} need to have for a search on the given graph
+     */
+    public static int getRequiredCapacity(Graph graph, TraversalMode tMode) {
+        // for edge-based traversal we use an additional slot for the root
+        return tMode.isEdgeBased() ? 2 * graph.getEdges() + 1 : graph.getNodes();
+    }
+
+    /**
+     * @return the weight that is used to sort the entries in the priority queue
+     */
+    protected abstract double calcHeapWeight(int node, double weight, boolean reverse);
+
+    @Override
+    public List<Path> calcPaths(int from, int to) {
+        return Collections.singletonList(calcPath(from, to));
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        return calcPath(from, to, ANY_EDGE, ANY_EDGE);
+    }
+
+    @Override
+    public Path calcPath(int from, int to, int fromOutEdge, int toInEdge) {
+        if ((fromOutEdge != ANY_EDGE || toInEdge != ANY_EDGE) && !traversalMode.isEdgeBased()) {
+            throw new IllegalArgumentException("Restricting the start/target edges is only possible for edge-based graph traversal");
+        }
+        this.fromOutEdge = fromOutEdge;
+        this.toInEdge = toInEdge;
+        if (workspacePool == null)
+            return search(from, to);
+
+        RoutingWorkspace workspace = workspacePool.acquire();
+        try {
+            sptFrom = workspace.getSPTFrom(rootId + 1);
+            sptTo = workspace.getSPTTo(rootId + 1);
+            return search(from, to);
+        } finally {
+            // the arrays might be used by another search as soon as they were released
+            sptFrom = null;
+            sptTo = null;
+            workspacePool.release(workspace);
+        }
+    }
+
+    private Path search(int from, int to) {
+        setupFinishTime();
+        init(from, to);
+        runAlgo();
+        return extractPath();
+    }
+
+    protected void init(int from, int to) {
+        sptFrom.reset();
+        sptTo.reset();
+        this.from = from;
+        this.to = to;
+        bestFwdId = NO_PARENT;
+        bestBwdId = NO_PARENT;
+        bestWeight = Double.MAX_VALUE;
+        finishedFrom = false;
+        finishedTo = false;
+        visitedCountFrom = 0;
+        visitedCountTo = 0;
+        currFrom = traversalMode.isEdgeBased() ? rootId : from;
+        currTo = traversalMode.isEdgeBased() ? rootId : to;
+        sptFrom.setRoot(currFrom, from, 0, calcHeapWeight(from, 0, false));
+        sptTo.setRoot(currTo, to, 0, calcHeapWeight(to, 0, true));
+
+        if (!traversalMode.isEdgeBased()) {
+            if (from == to) {
+                bestFwdId = from;
+                bestBwdId = to;
+                bestWeight = 0;
+            }
+        } else if (from == to && fromOutEdge == ANY_EDGE && toInEdge == ANY_EDGE) {
+            // special handling if start and end are the same and no directions are restricted
+            bestFwdId = currFrom;
+            bestBwdId = currTo;
+            bestWeight = 0;
+            finishedFrom = true;
+            finishedTo = true;
+            return;
+        }
+
+        if (fromOutEdge == ANY_EDGE) {
+            finishedFrom = !fillEdgesFrom();
+        } else {
+            additionalEdgeFilter = edgeState -> edgeState.getEdge() == fromOutEdge;
+            finishedFrom = !fillEdgesFrom();
+            additionalEdgeFilter = null;
+        }
+        if (toInEdge == ANY_EDGE) {
+            finishedTo = !fillEdgesTo();
+        } else {
+            additionalEdgeFilter = edgeState -> edgeState.getEdge() == toInEdge;
+            finishedTo = !fillEdgesTo();
+            additionalEdgeFilter = null;
+        }
+    }
+
+    protected void runAlgo() {
+        while (!finished() && !isMaxVisitedNodesExceeded() && !isTimeoutExceeded()) {
+            if (!finishedFrom)
+                finishedFrom = !fillEdgesFrom();
+
+            if (!finishedTo)
+                finishedTo = !fillEdgesTo();
+        }
+    }
+
+    protected boolean finished() {
+        if (finishedFrom || finishedTo)
+            return true;
+
+        return getCurrentHeapWeight(false) + getCurrentHeapWeight(true) >= bestWeight;
+    }
+
+    /**
+     * @return the heap weight of the entry that was polled last from the forward or backward priority queue
+     */
+    protected double getCurrentHeapWeight(boolean reverse) {
+        return reverse ? sptTo.heapWeights[currTo] : sptFrom.heapWeights[currFrom];
+    }
+
+    private boolean fillEdgesFrom() {
+        if (sptFrom.heap.isEmpty())
+            return false;
+        currFrom = sptFrom.heap.poll();
+        visitedCountFrom++;
+        fillEdges(currFrom, sptFrom, sptTo, false);
+        return true;
+    }
+
+    private boolean fillEdgesTo() {
+        if (sptTo.heap.isEmpty())
+            return false;
+        currTo = sptTo.heap.poll();
+        visitedCountTo++;
+        fillEdges(currTo, sptTo, sptFrom, true);
+        return true;
+    }
+
+    private void fillEdges(int currId, SPTArrays spt, SPTArrays sptOther, boolean reverse) {
+        final int currEdge = spt.edges[currId];
+        final double currWeight = spt.weights[currId];
+        EdgeIterator iter = edgeExplorer.setBaseNode(spt.adjNodes[currId]);
+        while (iter.next()) {
+            if (!accept(iter, currEdge))
+                continue;
+
+            final double weight = GHUtility.calcWeightWithTurnWeight(weighting, iter, reverse, currEdge) + currWeight;
+            if (Double.isInfinite(weight))
+                continue;
+            final int traversalId = traversalMode.createTraversalId(iter, reverse);
+            // the weight is infinite if there is no entry yet
+            if (spt.weights[traversalId] <= weight)
+                continue;
+            int adjNode = iter.getAdjNode();
+            spt.set(traversalId, iter.getEdge(), adjNode, weight, calcHeapWeight(adjNode, weight, reverse), currId);
+
+            if (sptOther.isSet(traversalId))
+                updateBestPath(iter, traversalId, spt, sptOther, reverse);
+        }
+    }
+
+    private void updateBestPath(EdgeIteratorState edgeState, int traversalId, SPTArrays spt, SPTArrays sptOther, boolean reverse) {
+        // update μ
+        double weight = spt.weights[traversalId] + sptOther.weights[traversalId];
+        int id = traversalId;
+        if (traversalMode.isEdgeBased()) {
+            // prevents the path to contain the edge at the meeting point twice and subtracts the weight (excluding turn weight => no previous edge)
+            id = spt.parents[traversalId];
+            weight -= weighting.calcEdgeWeight(edgeState, reverse);
+        }
+
+        if (weight < bestWeight) {
+            bestFwdId = reverse ? traversalId : id;
+            bestBwdId = reverse ? id : traversalId;
+            bestWeight = weight;
+        }
+    }
+
+    protected boolean accept(EdgeIteratorState iter, int prevOrNextEdgeId) {
+        // for edge-based traversal we leave it for TurnWeighting to decide whether or not a u-turn is acceptable,
+        // but for node-based traversal we exclude such a turn for performance reasons already here
+        if (!traversalMode.isEdgeBased() && iter.getEdge() == prevOrNextEdgeId)
+            return false;
+
+        return additionalEdgeFilter == null || additionalEdgeFilter.accept(iter);
+    }
+
+    protected Path extractPath() {
+        if (bestFwdId == NO_PARENT || bestBwdId == NO_PARENT || !finished())
+            return new Path(graph);
+        return new ArrayPathExtractor(graph, weighting).extract(sptFrom, bestFwdId, sptTo, bestBwdId, bestWeight);
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedCountFrom + visitedCountTo;
+    }
+
+    @Override
+    public void setMaxVisitedNodes(int numberOfNodes) {
+        this.maxVisitedNodes = numberOfNodes;
+    }
+
+    @Override
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    protected void setupFinishTime() {
+        try {
+            this.finishTimeMillis = Math.addExact(System.currentTimeMillis(), timeoutMillis);
+        } catch (ArithmeticException e) {
+            this.finishTimeMillis = Long.MAX_VALUE;
+        }
+    }
+
+    protected boolean isMaxVisitedNodesExceeded() {
+        return maxVisitedNodes < getVisitedNodes();
+    }
+
+    protected boolean isTimeoutExceeded() {
+        return finishTimeMillis < Long.MAX_VALUE && System.currentTimeMillis() > finishTimeMillis;
+    }
+
+    @Override
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    @Override
+    public String toString() {
+        return getName() + "|" + weighting;
+    }
+
+    private static class ArrayPathExtractor extends DefaultBidirPathExtractor {
+        ArrayPathExtractor(Graph graph, Weighting weighting) {
+            super(graph, weighting);
+        }
+
+        Path extract(SPTArrays sptFrom, int fwdId, SPTArrays sptTo, int bwdId, double weight) {
+            if (sptFrom.adjNodes[fwdId] != sptTo.adjNodes[bwdId])
+                throw new IllegalStateException("forward and backward entries must have same adjacent nodes, fwd: "
+                        + sptFrom.adjNodes[fwdId] + ", bwd: " + sptTo.adjNodes[bwdId]);
+
+            StopWatch sw = new StopWatch().start();
+            onFwdTreeRoot(followParentsUntilRoot(sptFrom, fwdId, false));
+            // since we followed the fwd path in backward direction we need to reverse the edge ids
+            ArrayUtil.reverse(path.getEdges());
+            onMeetingPoint(sptFrom.edges[fwdId], sptFrom.adjNodes[fwdId], sptTo.edges[bwdId]);
+            onBwdTreeRoot(followParentsUntilRoot(sptTo, bwdId, true));
+            setExtractionTime(sw.stop().getNanos());
+            path.setFound(true);
+            path.setWeight(weight);
+            return path;
+        }
+
+        private int followParentsUntilRoot(SPTArrays spt, int id, boolean reverse) {
+            while (EdgeIterator.Edge.isValid(spt.edges[id])) {
+                int parent = spt.parents[id];
+                onEdge(spt.edges[id], spt.adjNodes[id], reverse, spt.edges[parent]);
+                id = parent;
+            }
+            return spt.adjNodes[id];
+        }
+    }
+}
@@ -21,6 +21,7 @@ package com.graphhopper.routing;
 import com.graphhopper.config.Profile;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.EncodedValueLookup;
 import com.graphhopper.routing.ev.Orientation;
 import com.graphhopper.routing.ev.TurnRestriction;
 import com.graphhopper.routing.util.EncodingManager;
@@ -42,10 +43,20 @@ public class DefaultWeightingFactory implements WeightingFactory {
 
     private final BaseGraph graph;
     private final EncodingManager encodingManager;
+    private final EncodedValueLookup customModelLookup;
 
     public DefaultWeightingFactory(BaseGraph graph, EncodingManager encodingManager) {
+        this(graph, encodingManager, encodingManager);
+    }
+
+    /**
+     * @param customModelLookup resolves the encoded values of the custom models, e.g. a
+     *                          {@link com.graphhopper.routing.util.TrafficSpeedLookup}
+     */
+    public DefaultWeightingFactory(BaseGraph graph, EncodingManager encodingManager, EncodedValueLookup customModelLookup) {
         this.graph = graph;
         this.encodingManager = encodingManager;
+        this.customModelLookup = customModelLookup;
     }
 
     @Override
@@ -85,9 +96,9 @@ public class DefaultWeightingFactory implements WeightingFactory {
             if (hints.has("cm_version")) {
                 if (!hints.getString("cm_version", "").equals("2"))
                     throw new IllegalArgumentException("cm_version: \"2\" is required");
-                weighting = CustomModelParser.createWeighting2(encodingManager, turnCostProvider, mergedCustomModel);
+                weighting = CustomModelParser.createWeighting2(customModelLookup, turnCostProvider, mergedCustomModel);
             } else
-                weighting = CustomModelParser.createWeighting(encodingManager, turnCostProvider, mergedCustomModel);
+                weighting = CustomModelParser.createWeighting(customModelLookup, turnCostProvider, mergedCustomModel);
 
         } else if ("shortest".equalsIgnoreCase(weightingStr)) {
             throw new IllegalArgumentException("Instead of weighting=shortest use weighting=custom with a high distance_influence");
@@ -0,0 +1,51 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.Parameters;
+
+/**
+ * Calculates the best path in a bidirectional way like {@link DijkstraBidirectionRef}, but stores the shortest path
+ * trees in arrays, see {@link AbstractNonCHBidirArrayAlgo}.
+ */
+public class DijkstraBidirectionArray extends AbstractNonCHBidirArrayAlgo {
+    public DijkstraBidirectionArray(Graph graph, Weighting weighting, TraversalMode tMode) {
+        super(graph, weighting, tMode);
+    }
+
+    public DijkstraBidirectionArray(Graph graph, Weighting weighting, TraversalMode tMode, SPTArrays sptFrom, SPTArrays sptTo) {
+        super(graph, weighting, tMode, sptFrom, sptTo);
+    }
+
+    public DijkstraBidirectionArray(Graph graph, Weighting weighting, TraversalMode tMode, RoutingWorkspacePool workspacePool) {
+        super(graph, weighting, tMode, workspacePool);
+    }
+
+    @Override
+    protected double calcHeapWeight(int node, double weight, boolean reverse) {
+        return weight;
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.DIJKSTRA_BI + "|array";
+    }
+}
@@ -33,6 +33,9 @@ public class OSMReaderConfig {
     private int ramerElevationSmoothingMax = 5;
     private double longEdgeSamplingDistance = Double.MAX_VALUE;
     private int workerThreads = 2;
+    private int edgeThreads = 1;
+    private boolean singlePass = false;
+    private boolean sortedElevationLookup = false;
     private double defaultElevation = 0;
 
     public List<String> getIgnoredHighways() {
@@ -157,6 +160,47 @@ public class OSMReaderConfig {
         return this;
     }
 
+    public int getEdgeThreads() {
+        return edgeThreads;
+    }
+
+    /**
+     * Sets the number of threads used to prepare the edges (geometry simplification, distance calculation and tag
+     * parsing) during the second pass of the OSM import. The edges are still added to the graph one after another
+     * and in the same order as with a single thread.
+     */
+    public OSMReaderConfig setEdgeThreads(int edgeThreads) {
+        this.edgeThreads = edgeThreads;
+        return this;
+    }
+
+    public boolean isSinglePass() {
+        return singlePass;
+    }
+
+    /**
+     * Sets whether the OSM file shall be read only once. The nodes, accepted ways and relations are then stored in a
+     * temporary file during the first pass, which avoids reading and decoding the OSM file a second time.
+     */
+    public OSMReaderConfig setSinglePass(boolean singlePass) {
+        this.singlePass = singlePass;
+        return this;
+    }
+
+    public boolean isSortedElevationLookup() {
+        return sortedElevationLookup;
+    }
+
+    /**
+     * Sets whether the elevation of the nodes shall be looked up after reading all nodes and ordered by their location.
+     * This avoids loading the same elevation tile many times when the number of open tiles is limited, see
+     * graph.elevation.cache_size.
+     */
+    public OSMReaderConfig setSortedElevationLookup(boolean sortedElevationLookup) {
+        this.sortedElevationLookup = sortedElevationLookup;
+        return this;
+    }
+
     public double getDefaultElevation() {
         return defaultElevation;
     }
@@ -24,17 +24,21 @@ import com.graphhopper.GHResponse;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.config.Profile;
 import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
+import com.graphhopper.routing.ch.CustomizableCH;
+import com.graphhopper.routing.ch.ManyToManyCH;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.EncodedValueLookup;
 import com.graphhopper.routing.ev.Subnetwork;
 import com.graphhopper.routing.lm.LMRoutingAlgorithmFactory;
 import com.graphhopper.routing.lm.LandmarkStorage;
 import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.routing.weighting.custom.FindMinMax;
 import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.storage.index.LocationIndex;
@@ -65,6 +69,7 @@ public class Router {
     protected final RouterConfig routerConfig;
     protected final WeightingFactory weightingFactory;
     protected final Map<String, RoutingCHGraph> chGraphs;
+    protected final Map<String, CustomizableCH> cchGraphs;
     protected final Map<String, LandmarkStorage> landmarks;
     protected final boolean chEnabled;
     protected final boolean lmEnabled;
@@ -73,6 +78,18 @@ public class Router {
                   Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
                   TranslationMap translationMap, RouterConfig routerConfig, WeightingFactory weightingFactory,
                   Map<String, RoutingCHGraph> chGraphs, Map<String, LandmarkStorage> landmarks) {
+        this(graph, encodingManager, locationIndex, profilesByName, pathDetailsBuilderFactory, translationMap, routerConfig,
+                weightingFactory, chGraphs, Collections.emptyMap(), landmarks);
+    }
+
+    /**
+     * @param cchGraphs the customizable CH preparations, which allow using a custom model in CH requests. The CH
+     *                  graphs of these profiles must also be contained in chGraphs.
+     */
+    public Router(BaseGraph graph, EncodingManager encodingManager, LocationIndex locationIndex,
+                  Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
+                  TranslationMap translationMap, RouterConfig routerConfig, WeightingFactory weightingFactory,
+                  Map<String, RoutingCHGraph> chGraphs, Map<String, CustomizableCH> cchGraphs, Map<String, LandmarkStorage> landmarks) {
         this.graph = graph;
         this.encodingManager = encodingManager;
         this.locationIndex = locationIndex;
@@ -82,6 +99,7 @@ public class Router {
         this.routerConfig = routerConfig;
         this.weightingFactory = weightingFactory;
         this.chGraphs = chGraphs;
+        this.cchGraphs = cchGraphs;
         this.landmarks = landmarks;
         // note that his is not the same as !ghStorage.getCHConfigs().isEmpty(), because the GHStorage might have some
         // CHGraphs that were not built yet (and possibly no CH profiles were configured).
@@ -131,6 +149,56 @@ public class Router {
         }
     }
 
+    /**
+     * Calculates the weights, times and distances between all the given from- and to-points using the many-to-many
+     * CH algorithm, which only needs one search per point instead of one route calculation per pair of points. This
+     * requires a CH preparation for the requested profile. The points of the given request are ignored, but its
+     * profile, hints and snap preventions are used the same way as for {@link #route(GHRequest)}.
+     *
+     * @param calcTimesAndDistances if false only the weights are calculated, which is faster because no shortcuts
+     *                              need to be unpacked
+     */
+    public ManyToManyCH.Matrix routeMatrix(GHRequest request, List<GHPoint> fromPoints, List<GHPoint> toPoints, boolean calcTimesAndDistances) {
+        if (fromPoints.isEmpty() || toPoints.isEmpty())
+            throw new IllegalArgumentException("You have to pass at least one from_point and one to_point");
+        List<GHPoint> points = new ArrayList<>(fromPoints.size() + toPoints.size());
+        points.addAll(fromPoints);
+        points.addAll(toPoints);
+        checkNoLegacyParameters(request);
+        checkIfPointsAreInBoundsAndNotNull(points);
+        checkNoBlockArea(request);
+        if (!request.getHeadings().isEmpty() || !request.getPointHints().isEmpty() || !request.getCurbsides().isEmpty())
+            throw new IllegalArgumentException("The matrix calculation does not support headings, point hints or curbsides");
+
+        Solver solver = createSolver(request);
+        if (!(solver instanceof CHSolver))
+            throw new IllegalArgumentException("The matrix calculation requires a CH preparation, make sure you do not use " + Parameters.CH.DISABLE + "=true");
+        solver.checkRequest();
+        solver.init();
+
+        List<Snap> snaps;
+        try {
+            snaps = lookup(request, points, solver, solver.createDirectedEdgeFilter());
+        } catch (MultiplePointsNotFoundException ex) {
+            int p = ex.getPointsNotFound().get(0);
+            String pointStr = p < fromPoints.size() ? "from_point " + p : "to_point " + (p - fromPoints.size());
+            throw new PointNotFoundException("Cannot find " + pointStr + ": " + points.get(p), p);
+        }
+        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        int[] sources = new int[fromPoints.size()];
+        for (int i = 0; i < sources.length; i++)
+            sources[i] = snaps.get(i).getClosestNode();
+        int[] targets = new int[toPoints.size()];
+        for (int i = 0; i < targets.length; i++)
+            targets[i] = snaps.get(sources.length + i).getClosestNode();
+
+        RoutingCHGraph chGraph = ((CHSolver) solver).getRoutingCHGraph(solver.profile.getName());
+        return new ManyToManyCH(new QueryRoutingCHGraph(chGraph, queryGraph))
+                .setCalcPaths(calcTimesAndDistances)
+                .setMaxVisitedNodes(solver.getMaxVisitedNodes(request.getHints()))
+                .calcMatrix(sources, targets);
+    }
+
     private void checkNoLegacyParameters(GHRequest request) {
         if (request.getHints().has("vehicle"))
             throw new IllegalArgumentException("GHRequest may no longer contain a vehicle, use the profile parameter instead, see docs/core/profiles.md");
@@ -201,7 +269,7 @@ public class Router {
 
     protected Solver createCHSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig,
                                     EncodingManager encodingManager, Map<String, RoutingCHGraph> chGraphs) {
-        return new CHSolver(request, profilesByName, routerConfig, encodingManager, chGraphs);
+        return new CHSolver(request, profilesByName, routerConfig, encodingManager, chGraphs, cchGraphs, weightingFactory);
     }
 
     protected Solver createLMSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig,
@@ -238,14 +306,22 @@ public class Router {
         return ghRsp;
     }
 
+    private List<Snap> lookup(GHRequest request, List<GHPoint> points, Solver solver, DirectedEdgeFilter directedEdgeFilter) {
+        SnapCache snapCache = routerConfig.getSnapCache();
+        // the snap filter depends on the weighting, so the custom model needs to be part of the key
+        String snapFilterKey = snapCache == null ? null : request.getProfile() + "|" + request.getSnapPreventions()
+                + "|" + (request.getCustomModel() == null ? "" : request.getCustomModel().toString());
+        return ViaRouting.lookup(encodingManager, points, solver.createSnapFilter(), locationIndex, request.getSnapPreventions(),
+                request.getPointHints(), directedEdgeFilter, request.getHeadings(), snapCache, snapFilterKey);
+    }
+
     protected GHResponse routeAlt(GHRequest request, Solver solver) {
         if (request.getPoints().size() > 2)
             throw new IllegalArgumentException("Currently alternative routes work only with start and end point. You tried to use: " + request.getPoints().size() + " points");
         GHResponse ghRsp = new GHResponse();
         StopWatch sw = new StopWatch().start();
         DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
-        List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
-                request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
+        List<Snap> snaps = lookup(request, request.getPoints(), solver, directedEdgeFilter);
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
         PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
@@ -277,8 +353,7 @@ public class Router {
         GHResponse ghRsp = new GHResponse();
         StopWatch sw = new StopWatch().start();
         DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
-        List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
-                request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
+        List<Snap> snaps = lookup(request, request.getPoints(), solver, directedEdgeFilter);
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
         // (base) query graph used to resolve headings, curbsides etc. this is not necessarily the same thing as
         // the (possibly implementation specific) query graph used by PathCalculator
@@ -447,10 +522,18 @@ public class Router {
 
     private static class CHSolver extends Solver {
         private final Map<String, RoutingCHGraph> chGraphs;
+        private final Map<String, CustomizableCH> cchGraphs;
+        private final WeightingFactory weightingFactory;
+        private final RoutingWorkspacePool workspacePool;
+        private RoutingCHGraph customizedCHGraph;
 
-        CHSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup, Map<String, RoutingCHGraph> chGraphs) {
+        CHSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup,
+                 Map<String, RoutingCHGraph> chGraphs, Map<String, CustomizableCH> cchGraphs, WeightingFactory weightingFactory) {
             super(request, profilesByName, routerConfig, lookup);
+            this.workspacePool = routerConfig.getWorkspacePool();
             this.chGraphs = chGraphs;
+            this.cchGraphs = cchGraphs;
+            this.weightingFactory = weightingFactory;
         }
 
         @Override
@@ -462,8 +545,9 @@ public class Router {
             if (getPassThrough(request.getHints()))
                 throw new IllegalArgumentException("The '" + Parameters.Routing.PASS_THROUGH + "' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`. See issue #1765");
 
-            if (request.getCustomModel() != null)
-                throw new IllegalArgumentException("The 'custom_model' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`.");
+            if (request.getCustomModel() != null && !cchGraphs.containsKey(request.getProfile()))
+                throw new IllegalArgumentException("The 'custom_model' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`" +
+                        " or use a customizable CH profile.");
 
             if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm()))
                 throw new IllegalArgumentException("algorithm=round_trip cannot be used with CH");
@@ -486,10 +570,21 @@ public class Router {
             opts.putObject(ALGORITHM, request.getAlgorithm());
             opts.putObject(MAX_VISITED_NODES, getMaxVisitedNodes(request.getHints()));
             opts.putObject(TIMEOUT_MS, getTimeoutMillis(request.getHints()));
-            return new CHPathCalculator(new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph), opts);
+            return new CHPathCalculator(new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph)
+                    .setWorkspacePool(workspacePool), opts);
         }
 
         private RoutingCHGraph getRoutingCHGraph(String profileName) {
+            if (request.getCustomModel() != null) {
+                // the custom model of the request is merged with the one of the profile, so it is sufficient as key
+                if (customizedCHGraph == null)
+                    customizedCHGraph = cchGraphs.get(profileName).getCustomized(request.getCustomModel().toString(), () -> {
+                        PMap requestHints = new PMap(request.getHints());
+                        requestHints.putObject(CustomModel.KEY, request.getCustomModel());
+                        return CHConfig.nodeBased(profileName, weightingFactory.createWeighting(profile, requestHints, false));
+                    });
+                return customizedCHGraph;
+            }
             RoutingCHGraph chGraph = chGraphs.get(profileName);
             if (chGraph == null)
                 throw new IllegalArgumentException("Cannot find CH preparation for the requested profile: '" + profileName + "'" +
@@ -529,7 +624,7 @@ public class Router {
 
         @Override
         protected FlexiblePathCalculator createPathCalculator(QueryGraph queryGraph) {
-            RoutingAlgorithmFactory algorithmFactory = new RoutingAlgorithmFactorySimple();
+            RoutingAlgorithmFactory algorithmFactory = new RoutingAlgorithmFactorySimple().setWorkspacePool(routerConfig.getWorkspacePool());
             return new FlexiblePathCalculator(queryGraph, algorithmFactory, weighting, getAlgoOpts());
         }
 
@@ -589,7 +684,9 @@ public class Router {
                         "\navailable LM profiles: " + landmarks.keySet());
             if (request.getCustomModel() != null)
                 FindMinMax.checkLMConstraints(profile.getCustomModel(), request.getCustomModel(), lookup);
-            RoutingAlgorithmFactory routingAlgorithmFactory = new LMRoutingAlgorithmFactory(landmarkStorage).setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount());
+            RoutingAlgorithmFactory routingAlgorithmFactory = new LMRoutingAlgorithmFactory(landmarkStorage)
+                    .setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount())
+                    .setWorkspacePool(routerConfig.getWorkspacePool());
             return new FlexiblePathCalculator(queryGraph, routingAlgorithmFactory, weighting, getAlgoOpts());
         }
     }
@@ -31,6 +31,8 @@ public class RouterConfig {
     private boolean simplifyResponse = true;
     private double elevationWayPointMaxDistance = Double.MAX_VALUE;
     private int activeLandmarkCount = 8;
+    private RoutingWorkspacePool workspacePool;
+    private SnapCache snapCache;
 
     public int getMaxVisitedNodes() {
         return maxVisitedNodes;
@@ -119,4 +121,27 @@ public class RouterConfig {
     public void setElevationWayPointMaxDistance(double elevationWayPointMaxDistance) {
         this.elevationWayPointMaxDistance = elevationWayPointMaxDistance;
     }
+
+    public RoutingWorkspacePool getWorkspacePool() {
+        return workspacePool;
+    }
+
+    /**
+     * Sets the pool the routing algorithms borrow their data structures from, so they do not need to be allocated for
+     * every request. Null (the default) disables pooling.
+     */
+    public void setWorkspacePool(RoutingWorkspacePool workspacePool) {
+        this.workspacePool = workspacePool;
+    }
+
+    public SnapCache getSnapCache() {
+        return snapCache;
+    }
+
+    /**
+     * Sets the cache that stores the snaps of frequently requested points. Null (the default) disables caching.
+     */
+    public void setSnapCache(SnapCache snapCache) {
+        this.snapCache = snapCache;
+    }
 }
@@ -26,6 +26,7 @@ import com.graphhopper.util.DistanceCalcEarth;
 import com.graphhopper.util.DistancePlaneProjection;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
 
 import static com.graphhopper.util.Parameters.Algorithms.*;
 
@@ -36,16 +37,35 @@ import static com.graphhopper.util.Parameters.Algorithms.*;
  * @author Peter Karich
  */
 public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
+    private RoutingWorkspacePool workspacePool;
+
+    /**
+     * If a workspace pool is set the bidirectional Dijkstra and A* use the array-based implementations with the
+     * arrays of the current thread, see {@link AbstractNonCHBidirArrayAlgo}.
+     */
+    public RoutingAlgorithmFactorySimple setWorkspacePool(RoutingWorkspacePool workspacePool) {
+        this.workspacePool = workspacePool;
+        return this;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph g, Weighting w, AlgorithmOptions opts) {
         RoutingAlgorithm ra;
         String algoStr = opts.getAlgorithm();
         Weighting weighting = g.wrapWeighting(w);
+        boolean arrayBased = workspacePool != null || opts.getHints().getBool(Parameters.Routing.ARRAY_BASED, false);
         if (DIJKSTRA_BI.equalsIgnoreCase(algoStr)) {
-            ra = new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
+            ra = arrayBased
+                    ? new DijkstraBidirectionArray(g, weighting, opts.getTraversalMode(), workspacePool)
+                    : new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
         } else if (DIJKSTRA.equalsIgnoreCase(algoStr)) {
             ra = new Dijkstra(g, weighting, opts.getTraversalMode());
 
+        } else if ((ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) && arrayBased) {
+            AStarBidirectionArray aStarBi = new AStarBidirectionArray(g, weighting, opts.getTraversalMode(), workspacePool);
+            aStarBi.setApproximation(getApproximation(ASTAR_BI, opts.getHints(), weighting, g.getNodeAccess()));
+            ra = aStarBi;
+
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
             AStarBidirection aStarBi = new AStarBidirection(g, weighting,
                     opts.getTraversalMode());
@@ -0,0 +1,138 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.coll.GHIntObjectHashMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Supplier;
+
+/**
+ * The data structures of a bidirectional search that can be re-used for many searches, see
+ * {@link RoutingWorkspacePool}. For the array-based algorithms these are the {@link SPTArrays}, which are reset in
+ * O(touched). The algorithms based on {@link SPTEntry} objects re-use the priority queues and maps, which keeps them
+ * from growing again for every search.
+ */
+public class RoutingWorkspace {
+    // maps larger than this are not kept, so a single large search does not keep its memory forever
+    private static final int MAX_RETAINED_MAP_SIZE = 1 << 16;
+    private SPTArrays sptFrom;
+    private SPTArrays sptTo;
+    private final PriorityQueue<SPTEntry> pqFrom = new PriorityQueue<>();
+    private final PriorityQueue<SPTEntry> pqTo = new PriorityQueue<>();
+    private final TrackingMap mapFrom = new TrackingMap();
+    private final TrackingMap mapTo = new TrackingMap();
+    private final Map<Class<?>, Object> extensions = new HashMap<>();
+    boolean inUse;
+
+    /**
+     * @return the arrays for the forward search with at least the given capacity
+     */
+    public SPTArrays getSPTFrom(int capacity) {
+        if (sptFrom == null)
+            sptFrom = new SPTArrays(capacity);
+        sptFrom.ensureCapacity(capacity);
+        return sptFrom;
+    }
+
+    /**
+     * @return the arrays for the backward search with at least the given capacity
+     */
+    public SPTArrays getSPTTo(int capacity) {
+        if (sptTo == null)
+            sptTo = new SPTArrays(capacity);
+        sptTo.ensureCapacity(capacity);
+        return sptTo;
+    }
+
+    /**
+     * @return the data structure of the given type that is kept in this workspace, e.g. the arrays of algorithms
+     * outside of this package. It is created with the given supplier on first access. Such data structures are not
+     * cleared when the workspace is released, so the algorithm has to reset them itself.
+     */
+    public <T> T getOrCreate(Class<T> type, Supplier<T> supplier) {
+        return type.cast(extensions.computeIfAbsent(type, t -> supplier.get()));
+    }
+
+    PriorityQueue<SPTEntry> getPQFrom() {
+        return pqFrom;
+    }
+
+    PriorityQueue<SPTEntry> getPQTo() {
+        return pqTo;
+    }
+
+    GHIntObjectHashMap<SPTEntry> getMapFrom() {
+        return mapFrom;
+    }
+
+    GHIntObjectHashMap<SPTEntry> getMapTo() {
+        return mapTo;
+    }
+
+    /**
+     * Removes all shortest path tree entries, so they can be garbage collected while the workspace is not used.
+     */
+    void clear() {
+        pqFrom.clear();
+        pqTo.clear();
+        mapFrom.clearTouched();
+        mapTo.clearTouched();
+    }
+
+    /**
+     * A map that records the keys that were inserted, so it can be cleared in O(touched) instead of O(capacity) after
+     * a search that only visited a small part of a large map.
+     */
+    private static class TrackingMap extends GHIntObjectHashMap<SPTEntry> {
+        private final IntArrayList touched = new IntArrayList();
+
+        @Override
+        public SPTEntry put(int key, SPTEntry value) {
+            int size = size();
+            SPTEntry prev = super.put(key, value);
+            if (size() > size)
+                touched.add(key);
+            return prev;
+        }
+
+        @Override
+        public void indexInsert(int index, int key, SPTEntry value) {
+            super.indexInsert(index, key, value);
+            touched.add(key);
+        }
+
+        void clearTouched() {
+            if (size() > MAX_RETAINED_MAP_SIZE) {
+                release();
+                touched.release();
+                return;
+            }
+            if (touched.size() < keys.length / 4) {
+                for (int i = 0; i < touched.size(); i++)
+                    remove(touched.get(i));
+            } else {
+                clear();
+            }
+            touched.clear();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+/**
+ * Provides one {@link RoutingWorkspace} per thread, such that the routing algorithms do not need to allocate their
+ * data structures for every request. A workspace has to be given back using {@link #release} when the search is
+ * finished. If the workspace of the current thread is still in use, e.g. because two algorithm instances are used in
+ * a nested way, a temporary workspace is created instead.
+ * <p>
+ * Note that the arrays of a workspace grow with the largest graph that was searched and they are kept as long as the
+ * thread and this pool are alive, so the memory usage is proportional to the number of routing threads.
+ */
+public class RoutingWorkspacePool {
+    private final ThreadLocal<RoutingWorkspace> workspaces = ThreadLocal.withInitial(RoutingWorkspace::new);
+
+    public RoutingWorkspace acquire() {
+        RoutingWorkspace workspace = workspaces.get();
+        if (workspace.inUse)
+            workspace = new RoutingWorkspace();
+        workspace.inUse = true;
+        return workspace;
+    }
+
+    public void release(RoutingWorkspace workspace) {
+        workspace.clear();
+        workspace.inUse = false;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Arrays;
+
+/**
+ * A shortest path tree and the corresponding priority queue stored in primitive arrays instead of {@link SPTEntry}
+ * objects. The arrays are indexed by the traversal id (the node for node-based traversal and the edge key for
+ * edge-based traversal), so their size is proportional to the graph size. The entries that were modified are
+ * recorded such that the arrays can be reset in O(touched) and reused for the next search.
+ *
+ * @see AbstractNonCHBidirArrayAlgo
+ */
+public class SPTArrays {
+    public static final int NO_PARENT = -1;
+    double[] weights;
+    double[] heapWeights;
+    int[] parents;
+    int[] edges;
+    int[] adjNodes;
+    MinHeapWithUpdate heap;
+    private final IntArrayList touched = new IntArrayList();
+
+    /**
+     * @param capacity the number of traversal ids, which can be increased later using {@link #ensureCapacity}
+     */
+    public SPTArrays(int capacity) {
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        weights = new double[capacity];
+        Arrays.fill(weights, Double.POSITIVE_INFINITY);
+        heapWeights = new double[capacity];
+        parents = new int[capacity];
+        edges = new int[capacity];
+        adjNodes = new int[capacity];
+        heap = new MinHeapWithUpdate(capacity);
+        touched.clear();
+    }
+
+    /**
+     * Makes sure the traversal ids [0, capacity[ can be stored. Growing the arrays also resets them.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > weights.length)
+            allocate(Math.max(capacity, weights.length + (weights.length >> 2)));
+    }
+
+    public int getCapacity() {
+        return weights.length;
+    }
+
+    /**
+     * Resets all entries that were modified since the last reset
+     */
+    public void reset() {
+        for (int i = 0; i < touched.size(); i++)
+            weights[touched.get(i)] = Double.POSITIVE_INFINITY;
+        touched.clear();
+        heap.clear();
+    }
+
+    /**
+     * @return true if an entry was set for the given traversal id
+     */
+    public boolean isSet(int traversalId) {
+        return weights[traversalId] != Double.POSITIVE_INFINITY;
+    }
+
+    public double getWeight(int traversalId) {
+        return weights[traversalId];
+    }
+
+    public int getParent(int traversalId) {
+        return parents[traversalId];
+    }
+
+    public int getEdge(int traversalId) {
+        return edges[traversalId];
+    }
+
+    public int getAdjNode(int traversalId) {
+        return adjNodes[traversalId];
+    }
+
+    /**
+     * Sets the entry for the given traversal id and adds it to the heap or updates its heap weight.
+     */
+    void set(int traversalId, int edge, int adjNode, double weight, double heapWeight, int parent) {
+        if (weights[traversalId] == Double.POSITIVE_INFINITY)
+            touched.add(traversalId);
+        weights[traversalId] = weight;
+        heapWeights[traversalId] = heapWeight;
+        parents[traversalId] = parent;
+        edges[traversalId] = edge;
+        adjNodes[traversalId] = adjNode;
+        if (heap.contains(traversalId))
+            heap.update(traversalId, (float) heapWeight);
+        else
+            heap.push(traversalId, (float) heapWeight);
+    }
+
+    void setRoot(int traversalId, int node, double weight, double heapWeight) {
+        set(traversalId, EdgeIterator.NO_EDGE, node, weight, heapWeight, NO_PARENT);
+    }
+
+    /**
+     * @return the number of entries that were set since the last reset
+     */
+    public int getTouchedCount() {
+        return touched.size();
+    }
+}
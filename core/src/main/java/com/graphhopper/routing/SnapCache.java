@@ -0,0 +1,132 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.GHPoint;
+import com.graphhopper.util.shapes.GHPoint3D;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
+
+/**
+ * A bounded cache for the snaps of points that are requested over and over again, like depots or hubs. The entries
+ * are keyed by the coordinates rounded to the precision of the graph and everything else {@link ViaRouting#lookup}
+ * depends on: the snap filter key (which identifies the profile, custom model and snap preventions of the request),
+ * the heading and the point hint. If the cache is full the least recently used entry is evicted.
+ * <p>
+ * The cached snaps refer to the edges of the graph, so the cache has to be cleared when the graph is closed or
+ * (re)loaded. This class is thread-safe.
+ */
+public class SnapCache {
+    private final int maxSize;
+    private final LinkedHashMap<Key, Snap> snaps;
+
+    public SnapCache(int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("maxSize must be at least 1, but was: " + maxSize);
+        this.maxSize = maxSize;
+        this.snaps = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Snap> eldest) {
+                return size() > SnapCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param heading   the heading of the point or NaN
+     * @param pointHint the point hint or null if the request has no point hints
+     * @return a copy of the cached snap for the given point or null if there is none. Copies are returned because
+     * the snaps are modified when they are used to create a QueryGraph.
+     */
+    public Snap get(GHPoint point, String snapFilterKey, double heading, String pointHint) {
+        Snap snap;
+        synchronized (this) {
+            snap = snaps.get(new Key(point, snapFilterKey, heading, pointHint));
+        }
+        return snap == null ? null : copy(snap, point);
+    }
+
+    /**
+     * Adds a copy of the given snap, which must be valid and must not have been used for a QueryGraph yet.
+     */
+    public void put(GHPoint point, String snapFilterKey, double heading, String pointHint, Snap snap) {
+        if (!snap.isValid())
+            throw new IllegalArgumentException("Only valid snaps can be cached, point: " + point);
+        Snap copy = copy(snap, point);
+        synchronized (this) {
+            snaps.put(new Key(point, snapFilterKey, heading, pointHint), copy);
+        }
+    }
+
+    public synchronized void clear() {
+        snaps.clear();
+    }
+
+    public synchronized int size() {
+        return snaps.size();
+    }
+
+    private static Snap copy(Snap snap, GHPoint queryPoint) {
+        Snap copy = new Snap(queryPoint.lat, queryPoint.lon);
+        copy.setClosestNode(snap.getClosestNode());
+        copy.setClosestEdge(snap.getClosestEdge());
+        copy.setWayIndex(snap.getWayIndex());
+        copy.setSnappedPosition(snap.getSnappedPosition());
+        GHPoint3D snappedPoint = snap.getSnappedPoint();
+        copy.setSnappedPoint(new GHPoint3D(snappedPoint.lat, snappedPoint.lon, snappedPoint.ele));
+        // the query point can differ from the cached one by less than the precision of the graph
+        copy.setQueryDistance(DIST_PLANE.calcDist(snappedPoint.lat, snappedPoint.lon, queryPoint.lat, queryPoint.lon));
+        return copy;
+    }
+
+    private static class Key {
+        final int lat;
+        final int lon;
+        final String snapFilterKey;
+        final double heading;
+        final String pointHint;
+
+        Key(GHPoint point, String snapFilterKey, double heading, String pointHint) {
+            this.lat = Helper.degreeToInt(point.lat);
+            this.lon = Helper.degreeToInt(point.lon);
+            this.snapFilterKey = snapFilterKey;
+            this.heading = heading;
+            this.pointHint = pointHint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return lat == key.lat && lon == key.lon && Double.compare(heading, key.heading) == 0
+                    && snapFilterKey.equals(key.snapFilterKey) && Objects.equals(pointHint, key.pointHint);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lat, lon, snapFilterKey, heading, pointHint);
+        }
+    }
+}
@@ -33,6 +33,7 @@ import com.graphhopper.util.Helper;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
@@ -55,6 +56,19 @@ public class ViaRouting {
     public static List<Snap> lookup(EncodedValueLookup lookup, List<GHPoint> points, EdgeFilter snapFilter,
                                     LocationIndex locationIndex, List<String> snapPreventions, List<String> pointHints,
                                     DirectedEdgeFilter directedSnapFilter, List<Double> headings) {
+        return lookup(lookup, points, snapFilter, locationIndex, snapPreventions, pointHints, directedSnapFilter, headings, null, null);
+    }
+
+    /**
+     * @param snapCache     if not null, the snaps are read from this cache if possible and new snaps are added to it
+     * @param snapFilterKey identifies the snapFilter and snapPreventions in the snapCache, i.e. different filters
+     *                      must use different keys
+     * @throws MultiplePointsNotFoundException in case one or more points could not be resolved
+     */
+    public static List<Snap> lookup(EncodedValueLookup lookup, List<GHPoint> points, EdgeFilter snapFilter,
+                                    LocationIndex locationIndex, List<String> snapPreventions, List<String> pointHints,
+                                    DirectedEdgeFilter directedSnapFilter, List<Double> headings,
+                                    SnapCache snapCache, String snapFilterKey) {
         if (points.size() < 2)
             throw new IllegalArgumentException("At least 2 points have to be specified, but was:" + points.size());
 
@@ -63,12 +77,32 @@ public class ViaRouting {
         EdgeFilter strictEdgeFilter = snapPreventions.isEmpty()
                 ? snapFilter
                 : new SnapPreventionEdgeFilter(snapFilter, roadClassEnc, roadEnvEnc, snapPreventions);
+        Snap[] cachedSnaps = new Snap[points.size()];
+        if (snapCache != null)
+            for (int placeIndex = 0; placeIndex < points.size(); placeIndex++)
+                cachedSnaps[placeIndex] = snapCache.get(points.get(placeIndex), snapFilterKey,
+                        getHeading(headings, placeIndex), getPointHint(pointHints, placeIndex));
+
+        // points without heading or point hint are snapped in one batch, which shares the work between nearby points
+        List<GHPoint> batchPoints = new ArrayList<>();
+        if (pointHints.isEmpty())
+            for (int placeIndex = 0; placeIndex < points.size(); placeIndex++)
+                if (cachedSnaps[placeIndex] == null && !hasHeading(headings, placeIndex))
+                    batchPoints.add(points.get(placeIndex));
+        List<Snap> batchSnaps = batchPoints.isEmpty() ? Collections.emptyList() : locationIndex.findClosest(batchPoints, strictEdgeFilter);
+
         List<Snap> snaps = new ArrayList<>(points.size());
         IntArrayList pointsNotFound = new IntArrayList();
+        int batchIndex = 0;
         for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
+            if (cachedSnaps[placeIndex] != null) {
+                snaps.add(cachedSnaps[placeIndex]);
+                continue;
+            }
             GHPoint point = points.get(placeIndex);
-            Snap snap = null;
-            if (placeIndex < headings.size() && !Double.isNaN(headings.get(placeIndex))) {
+            Snap snap;
+            boolean retry = true;
+            if (hasHeading(headings, placeIndex)) {
                 if (!pointHints.isEmpty() && !Helper.isEmpty(pointHints.get(placeIndex)))
                     throw new IllegalArgumentException("Cannot specify heading and point_hint at the same time. " +
                             "Make sure you specify either an empty point_hint (String) or a NaN heading (double) for point " + placeIndex);
@@ -76,14 +110,18 @@ public class ViaRouting {
             } else if (!pointHints.isEmpty()) {
                 snap = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter,
                         pointHints.get(placeIndex), point, 170));
-            } else if (!snapPreventions.isEmpty()) {
-                snap = locationIndex.findClosest(point.lat, point.lon, strictEdgeFilter);
+            } else {
+                snap = batchSnaps.get(batchIndex++);
+                // repeating the lookup with the same filter would not find anything either
+                retry = strictEdgeFilter != snapFilter;
             }
 
-            if (snap == null || !snap.isValid())
+            if (!snap.isValid() && retry)
                 snap = locationIndex.findClosest(point.lat, point.lon, snapFilter);
             if (!snap.isValid())
                 pointsNotFound.add(placeIndex);
+            else if (snapCache != null)
+                snapCache.put(point, snapFilterKey, getHeading(headings, placeIndex), getPointHint(pointHints, placeIndex), snap);
 
             snaps.add(snap);
         }
@@ -94,6 +132,18 @@ public class ViaRouting {
         return snaps;
     }
 
+    private static boolean hasHeading(List<Double> headings, int placeIndex) {
+        return placeIndex < headings.size() && !Double.isNaN(headings.get(placeIndex));
+    }
+
+    private static double getHeading(List<Double> headings, int placeIndex) {
+        return hasHeading(headings, placeIndex) ? headings.get(placeIndex) : Double.NaN;
+    }
+
+    private static String getPointHint(List<String> pointHints, int placeIndex) {
+        return pointHints.isEmpty() ? null : Helper.isEmpty(pointHints.get(placeIndex)) ? "" : pointHints.get(placeIndex);
+    }
+
     public static Result calcPaths(List<GHPoint> points, QueryGraph queryGraph, List<Snap> snaps,
                                    DirectedEdgeFilter directedEdgeFilter, PathCalculator pathCalculator,
                                    List<String> curbsides, String curbsideStrictness, List<Double> headings, boolean passThrough) {
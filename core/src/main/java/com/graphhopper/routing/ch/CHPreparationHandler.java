@@ -143,6 +143,46 @@ public class CHPreparationHandler {
         return results;
     }
 
+    /**
+     * Loads the customizable CH storages for the given profile names, if they exist.
+     */
+    public Map<String, CCHStorage> loadCCH(BaseGraph graph, List<String> profiles) {
+        Map<String, CCHStorage> loaded = Collections.synchronizedMap(new LinkedHashMap<>());
+        Stream<Runnable> runnables = profiles.stream()
+                .map(p -> () -> {
+                    CCHStorage storage = new CCHStorage(graph.getDirectory(), p, graph.getSegmentSize());
+                    if (storage.loadExisting())
+                        loaded.put(p, storage);
+                    else {
+                        graph.getDirectory().remove("nodes_cch_" + p);
+                        graph.getDirectory().remove("arcs_cch_" + p);
+                    }
+                });
+        GHUtility.runConcurrently(runnables, preparationThreads);
+        return loaded;
+    }
+
+    /**
+     * Creates the metric-independent customizable CH storages for the given profile names.
+     */
+    public Map<String, CCHStorage> prepareCCH(BaseGraph baseGraph, StorableProperties properties, List<String> profiles) {
+        if (profiles.isEmpty())
+            return Collections.emptyMap();
+        LOGGER.info("Creating CCH preparations, {}", getMemInfo());
+        Map<String, CCHStorage> results = Collections.synchronizedMap(new LinkedHashMap<>());
+        Stream<Runnable> runnables = profiles.stream()
+                .map(p -> () -> {
+                    Thread.currentThread().setName(p);
+                    CCHStorage storage = PrepareCustomizableCH.fromGraph(baseGraph, p).doWork();
+                    storage.flush();
+                    results.put(p, storage);
+                    properties.put(CH.PREPARE + "date." + p, createFormatter().format(new Date()));
+                });
+        GHUtility.runConcurrently(runnables, preparationThreads);
+        LOGGER.info("Finished CCH preparation, {}", getMemInfo());
+        return results;
+    }
+
     private PrepareContractionHierarchies createCHPreparation(BaseGraph graph, CHConfig chConfig) {
         PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraph(graph, chConfig);
         pch.setParams(pMap);
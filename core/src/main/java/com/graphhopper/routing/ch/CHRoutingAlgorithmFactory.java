@@ -35,6 +35,7 @@ import static com.graphhopper.util.Parameters.Routing.*;
  */
 public class CHRoutingAlgorithmFactory {
     private final RoutingCHGraph routingCHGraph;
+    private RoutingWorkspacePool workspacePool;
 
     public CHRoutingAlgorithmFactory(RoutingCHGraph routingCHGraph, QueryGraph queryGraph) {
         this(new QueryRoutingCHGraph(routingCHGraph, queryGraph));
@@ -44,10 +45,20 @@ public class CHRoutingAlgorithmFactory {
         this.routingCHGraph = routingCHGraph;
     }
 
+    /**
+     * @param workspacePool the pool the (non-alternative route) algorithms borrow their collections from, or null
+     */
+    public CHRoutingAlgorithmFactory setWorkspacePool(RoutingWorkspacePool workspacePool) {
+        this.workspacePool = workspacePool;
+        return this;
+    }
+
     public EdgeToEdgeRoutingAlgorithm createAlgo(PMap opts) {
         EdgeToEdgeRoutingAlgorithm algo = routingCHGraph.isEdgeBased()
                 ? createAlgoEdgeBased(routingCHGraph, opts)
                 : createAlgoNodeBased(routingCHGraph, opts);
+        if (workspacePool != null && algo instanceof AbstractBidirCHAlgo && !(algo instanceof AlternativeRouteCH) && !(algo instanceof AlternativeRouteEdgeCH))
+            ((AbstractBidirCHAlgo) algo).setWorkspacePool(workspacePool);
         if (opts.has(MAX_VISITED_NODES))
             algo.setMaxVisitedNodes(opts.getInt(MAX_VISITED_NODES, Integer.MAX_VALUE));
         if (opts.has(TIMEOUT_MS))
@@ -0,0 +1,236 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * A customizable contraction hierarchy (CCH): Uses the metric-independent node order and arcs created by
+ * {@link PrepareCustomizableCH} to create node-based CH graphs for arbitrary weightings. This customization only
+ * requires a single pass over the arcs (without any witness searches), so it is much faster than a full CH
+ * preparation. The resulting {@link RoutingCHGraph} can be used with all the usual CH algorithms.
+ * <p>
+ * The customized graphs are kept in memory only. Since customization still takes a while for large graphs, the most
+ * recently used ones are kept in a cache.
+ */
+public class CustomizableCH {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomizableCH.class);
+    private final BaseGraph graph;
+    private final CCHStorage storage;
+    private final int[] nodesByLevel;
+    // the futures make sure concurrent requests for the same key wait for a single customization
+    private final Map<String, CompletableFuture<RoutingCHGraph>> cache;
+
+    /**
+     * @param cacheSize the maximum number of customized graphs that are kept in memory by
+     *                  {@link #getCustomized(String, Supplier)}
+     */
+    public CustomizableCH(BaseGraph graph, CCHStorage storage, int cacheSize) {
+        if (storage.getNodes() != graph.getNodes())
+            throw new IllegalArgumentException("The CCH was created for " + storage.getNodes() + " nodes, but the graph has " + graph.getNodes());
+        this.graph = graph;
+        this.storage = storage;
+        nodesByLevel = new int[storage.getNodes()];
+        for (int node = 0; node < storage.getNodes(); node++)
+            nodesByLevel[storage.getLevel(node)] = node;
+        // use accessOrder==true to remove the least recently used entry, not the oldest inserted
+        cache = Collections.synchronizedMap(new LinkedHashMap<>(cacheSize + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<RoutingCHGraph>> eldest) {
+                // we do not close the evicted graph, because it might still be in use. its storage is in-memory only
+                // and will be garbage collected
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    public CCHStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Returns the customized graph that was cached for the given key, or customizes a new one using the given CH
+     * config. Different keys must correspond to different weightings. If another thread is already customizing the
+     * graph for the same key, this method waits for its result instead of running the customization again.
+     */
+    public RoutingCHGraph getCustomized(String key, Supplier<CHConfig> chConfigSupplier) {
+        CompletableFuture<RoutingCHGraph> created = new CompletableFuture<>();
+        CompletableFuture<RoutingCHGraph> future = cache.computeIfAbsent(key, k -> created);
+        if (future == created) {
+            try {
+                created.complete(customize(chConfigSupplier.get()));
+            } catch (RuntimeException e) {
+                // do not cache the failure, the next request will try again
+                cache.remove(key, created);
+                created.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Calculates the shortcut weights for the given (node-based) CH config. For every arc a-b we find the minimum
+     * weight of all paths between a and b that only visit nodes with a lower level than a and b. We process the nodes
+     * in increasing level order, so when we reach node v all arcs v-x are final and we can update the arcs a-b of all
+     * triangles v-a-b using the path a-v-b. Only arcs for which such a path is shorter than the original edges
+     * become shortcuts.
+     */
+    public RoutingCHGraph customize(CHConfig chConfig) {
+        if (chConfig.isEdgeBased())
+            throw new IllegalArgumentException("Customizable CH only supports node-based CH configs, but got: " + chConfig);
+        StopWatch sw = StopWatch.started();
+        Weighting weighting = chConfig.getWeighting();
+        int arcs = storage.getArcs();
+        // for every arc we store the weight in upward (lower level -> higher level) and downward direction and the
+        // edge(s) that yield this weight. the second skipped edge is NO_EDGE if the arc is represented by a single
+        // edge, i.e. an original edge or a shortcut that was already added.
+        double[] weights = new double[2 * arcs];
+        Arrays.fill(weights, Double.POSITIVE_INFINITY);
+        int[] skipped1 = new int[2 * arcs];
+        Arrays.fill(skipped1, NO_EDGE);
+        int[] skipped2 = new int[2 * arcs];
+        Arrays.fill(skipped2, NO_EDGE);
+
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            int base = iter.getBaseNode();
+            int adj = iter.getAdjNode();
+            if (base == adj)
+                continue;
+            boolean baseIsLower = storage.getLevel(base) < storage.getLevel(adj);
+            int arc = findArc(baseIsLower ? base : adj, baseIsLower ? adj : base);
+            double fwdWeight = weighting.calcEdgeWeight(iter, false);
+            double bwdWeight = weighting.calcEdgeWeight(iter, true);
+            int up = 2 * arc;
+            int down = 2 * arc + 1;
+            double upWeight = baseIsLower ? fwdWeight : bwdWeight;
+            double downWeight = baseIsLower ? bwdWeight : fwdWeight;
+            if (upWeight < weights[up]) {
+                weights[up] = upWeight;
+                skipped1[up] = iter.getEdge();
+            }
+            if (downWeight < weights[down]) {
+                weights[down] = downWeight;
+                skipped1[down] = iter.getEdge();
+            }
+        }
+
+        CHStorage chStorage = new CHStorage(new RAMDirectory(), chConfig.getName(), graph.getSegmentSize(), false);
+        chStorage.create(graph.getNodes(), arcs / 4);
+        CHStorageBuilder chBuilder = new CHStorageBuilder(chStorage);
+        for (int node = 0; node < graph.getNodes(); node++)
+            chBuilder.setLevel(node, storage.getLevel(node));
+        int baseEdges = graph.getEdges();
+        for (int level = 0; level < nodesByLevel.length; level++) {
+            int node = nodesByLevel[level];
+            int firstArc = storage.getFirstArc(node);
+            int endArc = storage.getEndArc(node);
+            // all arcs of this node are final now, so we add the shortcuts that are needed for them
+            for (int arc = firstArc; arc < endArc; arc++) {
+                int target = nodesByLevel[storage.getArcTargetLevel(arc)];
+                int up = 2 * arc;
+                int down = 2 * arc + 1;
+                boolean upShortcut = skipped2[up] != NO_EDGE;
+                boolean downShortcut = skipped2[down] != NO_EDGE;
+                if (upShortcut && downShortcut && weights[up] == weights[down]
+                        && skipped1[up] == skipped1[down] && skipped2[up] == skipped2[down]) {
+                    int shortcut = chBuilder.addShortcutNodeBased(node, target, PrepareEncoder.getScDirMask(), weights[up], skipped1[up], skipped2[up]);
+                    setShortcut(skipped1, skipped2, up, baseEdges + shortcut);
+                    setShortcut(skipped1, skipped2, down, baseEdges + shortcut);
+                    continue;
+                }
+                if (upShortcut) {
+                    int shortcut = chBuilder.addShortcutNodeBased(node, target, PrepareEncoder.getScFwdDir(), weights[up], skipped1[up], skipped2[up]);
+                    setShortcut(skipped1, skipped2, up, baseEdges + shortcut);
+                }
+                if (downShortcut) {
+                    int shortcut = chBuilder.addShortcutNodeBased(node, target, PrepareEncoder.getScBwdDir(), weights[down], skipped1[down], skipped2[down]);
+                    setShortcut(skipped1, skipped2, down, baseEdges + shortcut);
+                }
+            }
+            // now we update the arcs between the upward neighbors of this node
+            for (int arcA = firstArc; arcA < endArc; arcA++) {
+                double upToA = weights[2 * arcA];
+                double downFromA = weights[2 * arcA + 1];
+                if (upToA == Double.POSITIVE_INFINITY && downFromA == Double.POSITIVE_INFINITY)
+                    continue;
+                int nodeA = nodesByLevel[storage.getArcTargetLevel(arcA)];
+                for (int arcB = arcA + 1; arcB < endArc; arcB++) {
+                    int arc = storage.findArc(nodeA, storage.getArcTargetLevel(arcB));
+                    assert arc >= 0 : "the arcs of a CCH must form a chordal graph";
+                    // a -> node -> b
+                    double upWeight = downFromA + weights[2 * arcB];
+                    if (upWeight < weights[2 * arc]) {
+                        weights[2 * arc] = upWeight;
+                        skipped1[2 * arc] = skipped1[2 * arcA + 1];
+                        skipped2[2 * arc] = skipped1[2 * arcB];
+                    }
+                    // b -> node -> a
+                    double downWeight = weights[2 * arcB + 1] + upToA;
+                    if (downWeight < weights[2 * arc + 1]) {
+                        weights[2 * arc + 1] = downWeight;
+                        skipped1[2 * arc + 1] = skipped1[2 * arcA];
+                        skipped2[2 * arc + 1] = skipped1[2 * arcB + 1];
+                    }
+                }
+            }
+        }
+        LOGGER.debug("Customized CCH for '{}', shortcuts: {}, took: {}ms", chConfig.getName(), chStorage.getShortcuts(), sw.stop().getMillis());
+        return RoutingCHGraphImpl.fromGraph(graph, chStorage, chConfig);
+    }
+
+    private int findArc(int lowerNode, int higherNode) {
+        int arc = storage.findArc(lowerNode, storage.getLevel(higherNode));
+        if (arc < 0)
+            throw new IllegalStateException("There is no CCH arc between nodes " + lowerNode + " and " + higherNode +
+                    ". Was the CCH created for a different graph?");
+        return arc;
+    }
+
+    private static void setShortcut(int[] skipped1, int[] skipped2, int index, int shortcutEdge) {
+        skipped1[index] = shortcutEdge;
+        skipped2[index] = NO_EDGE;
+    }
+
+    public void close() {
+        cache.clear();
+        storage.close();
+    }
+}
@@ -28,6 +28,8 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
@@ -54,7 +56,9 @@ class EdgeBasedNodeContractor implements NodeContractor {
     private PrepareGraphEdgeExplorer existingShortcutExplorer;
     private PrepareGraphOrigEdgeExplorer sourceNodeOrigInEdgeExplorer;
     private CHStorageBuilder chBuilder;
-    private final Params params = new Params();
+    private final Params params;
+    // the node contractor this one was forked from, or null
+    private final EdgeBasedNodeContractor parent;
     private final StopWatch dijkstraSW = new StopWatch();
     // temporary data used during node contraction
     private final IntSet sourceNodes = new IntHashSet(10);
@@ -85,9 +89,18 @@ class EdgeBasedNodeContractor implements NodeContractor {
     public EdgeBasedNodeContractor(CHPreparationGraph prepareGraph, CHStorageBuilder chBuilder, PMap pMap) {
         this.prepareGraph = prepareGraph;
         this.chBuilder = chBuilder;
+        this.params = new Params();
+        this.parent = null;
         extractParams(pMap);
     }
 
+    private EdgeBasedNodeContractor(EdgeBasedNodeContractor parent) {
+        this.prepareGraph = parent.prepareGraph;
+        this.params = parent.params;
+        this.parent = parent;
+        initFromGraph();
+    }
+
     private void extractParams(PMap pMap) {
         params.edgeQuotientWeight = pMap.getFloat(EDGE_QUOTIENT_WEIGHT, params.edgeQuotientWeight);
         params.originalEdgeQuotientWeight = pMap.getFloat(ORIGINAL_EDGE_QUOTIENT_WEIGHT, params.originalEdgeQuotientWeight);
@@ -102,7 +115,8 @@ class EdgeBasedNodeContractor implements NodeContractor {
         outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
         existingShortcutExplorer = prepareGraph.createOutEdgeExplorer();
         sourceNodeOrigInEdgeExplorer = prepareGraph.createInOrigEdgeExplorer();
-        hierarchyDepths = new int[prepareGraph.getNodes()];
+        // forked node contractors only read the hierarchy depths, so they can share them
+        hierarchyDepths = parent == null ? new int[prepareGraph.getNodes()] : parent.hierarchyDepths;
         witnessPathSearcher = new EdgeBasedWitnessPathSearcher(prepareGraph);
         bridgePathFinder = new BridgePathFinder(prepareGraph);
         meanDegree = prepareGraph.getOriginalEdges() * 1.0 / prepareGraph.getNodes();
@@ -118,7 +132,7 @@ class EdgeBasedNodeContractor implements NodeContractor {
             // no shortcuts will be introduced
             return Float.NEGATIVE_INFINITY;
         stats().stopWatch.start();
-        findAndHandlePrepareShortcuts(node, this::countShortcuts, (int) (meanDegree * params.maxPollFactorHeuristic), wpsStatsHeur);
+        findAndHandlePrepareShortcuts(node, this::countShortcuts, (int) (getMeanDegree() * params.maxPollFactorHeuristic), wpsStatsHeur);
         stats().stopWatch.stop();
         // the higher the priority the later (!) this node will be contracted
         float edgeQuotient = numShortcuts / (float) (prepareGraph.getDegree(node));
@@ -151,6 +165,50 @@ class EdgeBasedNodeContractor implements NodeContractor {
         return neighbors;
     }
 
+    @Override
+    public NodeContractor fork() {
+        return new EdgeBasedNodeContractor(this);
+    }
+
+    @Override
+    public NodeContractor.Shortcuts findShortcuts(int node, BitSet batchNodes) {
+        activeStats = addingStats;
+        stats().stopWatch.start();
+        FoundShortcuts result = new FoundShortcuts();
+        witnessPathSearcher.setIgnoredNodes(batchNodes);
+        try {
+            // the entries created by the bridge path finder are not re-used, so we can keep them until we add the shortcuts
+            findAndHandlePrepareShortcuts(node, (edgeFrom, edgeTo, origEdgeCount) -> {
+                result.edgesFrom.add(edgeFrom);
+                result.edgesTo.add(edgeTo);
+                result.origEdgeCounts.add(origEdgeCount);
+            }, (int) (getMeanDegree() * params.maxPollFactorContraction), wpsStatsContr);
+        } finally {
+            witnessPathSearcher.setIgnoredNodes(null);
+        }
+        stats().stopWatch.stop();
+        return result;
+    }
+
+    @Override
+    public IntContainer contractNode(int node, NodeContractor.Shortcuts shortcuts) {
+        FoundShortcuts found = (FoundShortcuts) shortcuts;
+        activeStats = addingStats;
+        stats().stopWatch.start();
+        for (int i = 0; i < found.edgesFrom.size(); i++)
+            addShortcutsToPrepareGraph(found.edgesFrom.get(i), found.edgesTo.get(i), found.origEdgeCounts.get(i));
+        insertShortcuts(node);
+        IntContainer neighbors = prepareGraph.disconnect(node);
+        meanDegree = (meanDegree * 2 + neighbors.size()) / 3;
+        updateHierarchyDepthsOfNeighbors(node, neighbors);
+        stats().stopWatch.stop();
+        return neighbors;
+    }
+
+    private double getMeanDegree() {
+        return parent == null ? meanDegree : parent.meanDegree;
+    }
+
     @Override
     public void finishContraction() {
         chBuilder.replaceSkippedEdges(prepareGraph::getShortcutForPrepareEdge);
@@ -367,7 +425,8 @@ class EdgeBasedNodeContractor implements NodeContractor {
 
     @Override
     public void close() {
-        prepareGraph.close();
+        if (parent == null)
+            prepareGraph.close();
         inEdgeExplorer = null;
         outEdgeExplorer = null;
         existingShortcutExplorer = null;
@@ -427,6 +486,12 @@ class EdgeBasedNodeContractor implements NodeContractor {
         private double maxPollFactorContraction = 200;
     }
 
+    private static class FoundShortcuts implements NodeContractor.Shortcuts {
+        final List<PrepareCHEntry> edgesFrom = new ArrayList<>();
+        final List<PrepareCHEntry> edgesTo = new ArrayList<>();
+        final IntArrayList origEdgeCounts = new IntArrayList();
+    }
+
     private static class Stats {
         int nodes;
         StopWatch stopWatch = new StopWatch();
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.BitSet;
 import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.apache.commons.collections.IntFloatBinaryHeap;
 import com.graphhopper.util.GHUtility;
@@ -59,6 +60,8 @@ public class EdgeBasedWitnessPathSearcher {
 
     private int sourceNode;
     private int centerNode;
+    // nodes that are not used for witness paths, can be null
+    private BitSet ignoredNodes;
 
     // various counters
     private int numPolls;
@@ -85,6 +88,14 @@ public class EdgeBasedWitnessPathSearcher {
         initCollections();
     }
 
+    /**
+     * Sets nodes that shall not be used for witness paths by all following searches, or null. The given set is only
+     * read, so it can be shared between several searchers.
+     */
+    public void setIgnoredNodes(BitSet ignoredNodes) {
+        this.ignoredNodes = ignoredNodes;
+    }
+
     /**
      * Deletes the shortest path tree that has been found so far and initializes a new witness path search for a given
      * node to be contracted and source edge key.
@@ -151,6 +162,8 @@ public class EdgeBasedWitnessPathSearcher {
                 // being recognized as witnesses when there are double zero weight loops at the source node
                 if (currNode == sourceNode && iter.getAdjNode() == sourceNode && iter.getWeight() < MAX_ZERO_WEIGHT_LOOP)
                     continue;
+                if (ignoredNodes != null && iter.getAdjNode() != centerNode && ignoredNodes.get(iter.getAdjNode()))
+                    continue;
                 final double weight = weights[currKey] + calcTurnWeight(currKey, currNode, iter.getOrigEdgeKeyFirst()) + iter.getWeight();
                 if (Double.isInfinite(weight))
                     continue;
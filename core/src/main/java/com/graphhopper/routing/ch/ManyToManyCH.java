@@ -0,0 +1,322 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntObjectMap;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.BidirPathExtractor;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.exceptions.MaximumNodesExceededException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Calculates the weights (and optionally the times and distances) between many source and many target nodes using
+ * the bucket-based many-to-many CH algorithm: First we run one upward backward search from every target and store the
+ * settled entries in 'buckets' at the nodes where they were settled. Then we run one upward forward search from every
+ * source and scan the buckets of every node we settle. This way we only need |sources|+|targets| one-directional
+ * searches instead of |sources|*|targets| bidirectional ones.
+ * <p>
+ * This works for node- and edge-based {@link RoutingCHGraph}s and in particular also for a
+ * {@link com.graphhopper.routing.querygraph.QueryRoutingCHGraph}, so sources and targets can be virtual nodes.
+ *
+ * @see "Knopp et al., Computing Many-to-Many Shortest Paths Using Highway Hierarchies"
+ */
+public class ManyToManyCH {
+    private final RoutingCHGraph graph;
+    private final TraversalMode traversalMode;
+    private final RoutingCHEdgeExplorer inEdgeExplorer;
+    private final RoutingCHEdgeExplorer outEdgeExplorer;
+    private final int maxNodes;
+    private final IntObjectMap<List<BucketEntry>> buckets;
+    private final IntObjectMap<CHEntry> bestWeightMap;
+    private final PriorityQueue<CHEntry> pq;
+    private boolean calcPaths = true;
+    private int maxVisitedNodes = Integer.MAX_VALUE;
+    private int visitedNodes;
+
+    public ManyToManyCH(RoutingCHGraph graph) {
+        this.graph = graph;
+        this.traversalMode = graph.isEdgeBased() ? TraversalMode.EDGE_BASED : TraversalMode.NODE_BASED;
+        inEdgeExplorer = graph.createInEdgeExplorer();
+        outEdgeExplorer = graph.createOutEdgeExplorer();
+        maxNodes = graph.getBaseGraph().getBaseGraph().getNodes();
+        int size = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
+        buckets = new GHIntObjectHashMap<>(size);
+        bestWeightMap = new GHIntObjectHashMap<>(size);
+        pq = new PriorityQueue<>(size);
+    }
+
+    /**
+     * @param calcPaths if false only the weights are calculated and the (more expensive) shortcut unpacking that is
+     *                  needed to determine times and distances is skipped
+     */
+    public ManyToManyCH setCalcPaths(boolean calcPaths) {
+        this.calcPaths = calcPaths;
+        return this;
+    }
+
+    /**
+     * Limits the number of nodes that may be settled by every single forward or backward search.
+     */
+    public ManyToManyCH setMaxVisitedNodes(int maxVisitedNodes) {
+        this.maxVisitedNodes = maxVisitedNodes;
+        return this;
+    }
+
+    public Matrix calcMatrix(int[] sources, int[] targets) {
+        if (sources.length == 0 || targets.length == 0)
+            throw new IllegalArgumentException("There has to be at least one source and one target, but was: " + sources.length + "x" + targets.length);
+        visitedNodes = 0;
+        buckets.clear();
+        for (int j = 0; j < targets.length; j++) {
+            final int target = j;
+            runUpwardSearch(targets[j], true, entry -> {
+                List<BucketEntry> bucket = buckets.get(entry.adjNode);
+                if (bucket == null) {
+                    bucket = new ArrayList<>(4);
+                    buckets.put(entry.adjNode, bucket);
+                }
+                bucket.add(new BucketEntry(target, entry));
+            });
+        }
+
+        Matrix matrix = new Matrix(sources.length, targets.length, calcPaths);
+        double[] bestWeights = new double[targets.length];
+        CHEntry[] bestFwdEntries = new CHEntry[targets.length];
+        CHEntry[] bestBwdEntries = new CHEntry[targets.length];
+        for (int i = 0; i < sources.length; i++) {
+            Arrays.fill(bestWeights, Double.MAX_VALUE);
+            Arrays.fill(bestFwdEntries, null);
+            Arrays.fill(bestBwdEntries, null);
+            runUpwardSearch(sources[i], false, entry -> {
+                List<BucketEntry> bucket = buckets.get(entry.adjNode);
+                if (bucket == null)
+                    return;
+                for (BucketEntry bucketEntry : bucket) {
+                    double weight = entry.weight + bucketEntry.entry.weight;
+                    if (traversalMode.isEdgeBased())
+                        weight += graph.getTurnWeight(entry.incEdge, entry.adjNode, bucketEntry.entry.incEdge);
+                    if (weight < bestWeights[bucketEntry.target]) {
+                        bestWeights[bucketEntry.target] = weight;
+                        bestFwdEntries[bucketEntry.target] = entry;
+                        bestBwdEntries[bucketEntry.target] = bucketEntry.entry;
+                    }
+                }
+            });
+            for (int j = 0; j < targets.length; j++) {
+                if (bestFwdEntries[j] == null)
+                    continue;
+                matrix.weights[i][j] = bestWeights[j];
+                if (calcPaths) {
+                    Path path = createPathExtractor().extract(bestFwdEntries[j], bestBwdEntries[j], bestWeights[j]);
+                    matrix.times[i][j] = path.getTime();
+                    matrix.distances[i][j] = path.getDistance();
+                }
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * @return the number of nodes settled by all forward and backward searches of the last matrix calculation
+     */
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    private void runUpwardSearch(int startNode, boolean reverse, SettledEntryHandler handler) {
+        bestWeightMap.clear();
+        pq.clear();
+        CHEntry startEntry = new CHEntry(startNode, 0);
+        if (!traversalMode.isEdgeBased())
+            bestWeightMap.put(startNode, startEntry);
+        pq.add(startEntry);
+        RoutingCHEdgeExplorer explorer = reverse ? inEdgeExplorer : outEdgeExplorer;
+        int visitedNodesSearch = 0;
+        while (!pq.isEmpty()) {
+            CHEntry currEntry = pq.poll();
+            if (currEntry.isDeleted())
+                continue;
+            visitedNodes++;
+            if (++visitedNodesSearch > maxVisitedNodes)
+                throw new MaximumNodesExceededException("No matrix found due to maximum nodes exceeded " + maxVisitedNodes, maxVisitedNodes);
+            if (!traversalMode.isEdgeBased() && entryIsStallable(currEntry, reverse))
+                continue;
+            handler.onSettled(currEntry);
+
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(currEntry.adjNode);
+            while (iter.next()) {
+                if (!accept(iter, currEntry))
+                    continue;
+                double weight = calcWeight(iter, reverse, getIncomingEdge(currEntry)) + currEntry.weight;
+                if (Double.isInfinite(weight))
+                    continue;
+                int origEdgeId = GHUtility.getEdgeFromEdgeKey(reverse ? iter.getOrigEdgeKeyFirst() : iter.getOrigEdgeKeyLast());
+                int traversalId = traversalMode.createTraversalId(iter, reverse);
+                CHEntry entry = bestWeightMap.get(traversalId);
+                if (entry != null && entry.weight <= weight)
+                    continue;
+                if (entry != null)
+                    // flagging this entry, so it will be ignored when it is polled the next time
+                    entry.setDeleted();
+                entry = new CHEntry(iter.getEdge(), origEdgeId, iter.getAdjNode(), weight, currEntry);
+                bestWeightMap.put(traversalId, entry);
+                pq.add(entry);
+            }
+        }
+    }
+
+    private boolean accept(RoutingCHEdgeIteratorState edgeState, CHEntry currEntry) {
+        if (traversalMode.isEdgeBased()) {
+            // just like for the bidirectional edge-based CH algorithms we need all edges for the first step
+            if (currEntry.parent == null)
+                return true;
+        } else if (edgeState.getEdge() == currEntry.edge) {
+            // for node-based traversal we exclude u-turns already here
+            return false;
+        }
+        int base = edgeState.getBaseNode();
+        int adj = edgeState.getAdjNode();
+        // always accept virtual edges, see #288
+        if (base >= maxNodes || adj >= maxNodes)
+            return true;
+        return graph.getLevel(base) <= graph.getLevel(adj);
+    }
+
+    /**
+     * Simple stall-on-demand for the node-based searches, see {@link com.graphhopper.routing.DijkstraBidirectionCH}.
+     * Stalled entries are neither expanded nor added to the buckets.
+     */
+    private boolean entryIsStallable(CHEntry entry, boolean reverse) {
+        RoutingCHEdgeIterator iter = (reverse ? outEdgeExplorer : inEdgeExplorer).setBaseNode(entry.adjNode);
+        while (iter.next()) {
+            if (iter.getEdge() == entry.edge)
+                continue;
+            CHEntry adjEntry = bestWeightMap.get(iter.getAdjNode());
+            // we have to be careful because of rounded shortcut weights in combination with virtual via nodes, see #1574
+            final double precision = 0.001;
+            if (adjEntry != null &&
+                    adjEntry.weight + calcWeight(iter, !reverse, getIncomingEdge(entry)) - entry.weight < -precision)
+                return true;
+        }
+        return false;
+    }
+
+    private double calcWeight(RoutingCHEdgeIteratorState edgeState, boolean reverse, int prevOrNextEdgeId) {
+        double edgeWeight = edgeState.getWeight(reverse);
+        if (!traversalMode.isEdgeBased())
+            return edgeWeight;
+        final int origEdgeId = GHUtility.getEdgeFromEdgeKey(reverse ? edgeState.getOrigEdgeKeyLast() : edgeState.getOrigEdgeKeyFirst());
+        double turnCosts = reverse
+                ? graph.getTurnWeight(origEdgeId, edgeState.getBaseNode(), prevOrNextEdgeId)
+                : graph.getTurnWeight(prevOrNextEdgeId, edgeState.getBaseNode(), origEdgeId);
+        return edgeWeight + turnCosts;
+    }
+
+    private int getIncomingEdge(CHEntry entry) {
+        return traversalMode.isEdgeBased() ? entry.incEdge : entry.edge;
+    }
+
+    private BidirPathExtractor createPathExtractor() {
+        return traversalMode.isEdgeBased()
+                ? new EdgeBasedCHBidirPathExtractor(graph)
+                : new NodeBasedCHBidirPathExtractor(graph);
+    }
+
+    private interface SettledEntryHandler {
+        void onSettled(CHEntry entry);
+    }
+
+    private static class BucketEntry {
+        final int target;
+        final CHEntry entry;
+
+        BucketEntry(int target, CHEntry entry) {
+            this.target = target;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * The result of a many-to-many calculation. Rows correspond to the sources and columns to the targets. Pairs
+     * that are not connected have weight and distance {@link Double#MAX_VALUE} and time {@link Long#MAX_VALUE}.
+     */
+    public static class Matrix {
+        private final double[][] weights;
+        private final long[][] times;
+        private final double[][] distances;
+
+        Matrix(int rows, int cols, boolean withPaths) {
+            weights = new double[rows][cols];
+            times = withPaths ? new long[rows][cols] : new long[0][];
+            distances = withPaths ? new double[rows][cols] : new double[0][];
+            for (int i = 0; i < rows; i++) {
+                Arrays.fill(weights[i], Double.MAX_VALUE);
+                if (withPaths) {
+                    Arrays.fill(times[i], Long.MAX_VALUE);
+                    Arrays.fill(distances[i], Double.MAX_VALUE);
+                }
+            }
+        }
+
+        public int getRows() {
+            return weights.length;
+        }
+
+        public int getCols() {
+            return weights.length == 0 ? 0 : weights[0].length;
+        }
+
+        public boolean isConnected(int from, int to) {
+            return weights[from][to] < Double.MAX_VALUE;
+        }
+
+        public double getWeight(int from, int to) {
+            return weights[from][to];
+        }
+
+        public long getTime(int from, int to) {
+            checkPathsCalculated();
+            return times[from][to];
+        }
+
+        public double getDistance(int from, int to) {
+            checkPathsCalculated();
+            return distances[from][to];
+        }
+
+        public boolean hasTimesAndDistances() {
+            return times.length > 0;
+        }
+
+        private void checkPathsCalculated() {
+            if (!hasTimesAndDistances())
+                throw new IllegalStateException("Times and distances were not calculated, see ManyToManyCH#setCalcPaths");
+        }
+    }
+}
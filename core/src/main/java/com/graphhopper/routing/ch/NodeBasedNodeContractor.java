@@ -17,6 +17,9 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
 import com.graphhopper.storage.CHStorageBuilder;
 import com.graphhopper.util.PMap;
@@ -31,7 +34,9 @@ import static com.graphhopper.util.Helper.nf;
 
 class NodeBasedNodeContractor implements NodeContractor {
     private final CHPreparationGraph prepareGraph;
-    private final Params params = new Params();
+    private final Params params;
+    // the node contractor this one was forked from, or null
+    private final NodeBasedNodeContractor parent;
     // todo: maybe use a set to prevent duplicates instead?
     private List<Shortcut> shortcuts = new ArrayList<>();
     private CHStorageBuilder chBuilder;
@@ -51,10 +56,19 @@ class NodeBasedNodeContractor implements NodeContractor {
 
     NodeBasedNodeContractor(CHPreparationGraph prepareGraph, CHStorageBuilder chBuilder, PMap pMap) {
         this.prepareGraph = prepareGraph;
+        this.params = new Params();
+        this.parent = null;
         extractParams(pMap);
         this.chBuilder = chBuilder;
     }
 
+    private NodeBasedNodeContractor(NodeBasedNodeContractor parent) {
+        this.prepareGraph = parent.prepareGraph;
+        this.params = parent.params;
+        this.parent = parent;
+        initFromGraph();
+    }
+
     private void extractParams(PMap pMap) {
         params.edgeDifferenceWeight = pMap.getFloat(EDGE_DIFFERENCE_WEIGHT, params.edgeDifferenceWeight);
         params.originalEdgesCountWeight = pMap.getFloat(ORIGINAL_EDGE_COUNT_WEIGHT, params.originalEdgesCountWeight);
@@ -73,7 +87,8 @@ class NodeBasedNodeContractor implements NodeContractor {
 
     @Override
     public void close() {
-        prepareGraph.close();
+        if (parent == null)
+            prepareGraph.close();
         shortcuts = null;
         chBuilder = null;
         inEdgeExplorer = null;
@@ -97,7 +112,7 @@ class NodeBasedNodeContractor implements NodeContractor {
         // originalEdgesCount = σ(v) := sum_{ (u,w) ∈ shortcuts(v) } of r(u, w)
         shortcutsCount = 0;
         originalEdgesCount = 0;
-        findAndHandleShortcuts(node, this::countShortcuts, (int) (meanDegree * params.maxPollFactorHeuristic));
+        findAndHandleShortcuts(node, this::countShortcuts, (int) (getMeanDegree() * params.maxPollFactorHeuristic));
 
         // from shortcuts we can compute the edgeDifference
         // # low influence: with it the shortcut creation is slightly faster
@@ -123,6 +138,43 @@ class NodeBasedNodeContractor implements NodeContractor {
         return prepareGraph.disconnect(node);
     }
 
+    @Override
+    public NodeContractor fork() {
+        return new NodeBasedNodeContractor(this);
+    }
+
+    @Override
+    public NodeContractor.Shortcuts findShortcuts(int node, BitSet batchNodes) {
+        FoundShortcuts result = new FoundShortcuts();
+        witnessPathSearcher.setIgnoredNodes(batchNodes);
+        try {
+            result.degree = findAndHandleShortcuts(node, (fromNode, toNode, weight, outgoingEdge, outOrigEdgeCount, incomingEdge, inOrigEdgeCount) -> {
+                result.ints.add(fromNode, toNode, outgoingEdge, outOrigEdgeCount, incomingEdge, inOrigEdgeCount);
+                result.weights.add(weight);
+            }, (int) (getMeanDegree() * params.maxPollFactorContraction));
+        } finally {
+            witnessPathSearcher.setIgnoredNodes(null);
+        }
+        return result;
+    }
+
+    @Override
+    public IntContainer contractNode(int node, NodeContractor.Shortcuts shortcuts) {
+        FoundShortcuts found = (FoundShortcuts) shortcuts;
+        for (int i = 0; i < found.weights.size(); i++) {
+            int j = 6 * i;
+            addOrUpdateShortcut(found.ints.get(j), found.ints.get(j + 1), found.weights.get(i), found.ints.get(j + 2),
+                    found.ints.get(j + 3), found.ints.get(j + 4), found.ints.get(j + 5));
+        }
+        insertShortcuts(node);
+        meanDegree = (meanDegree * 2 + found.degree) / 3;
+        return prepareGraph.disconnect(node);
+    }
+
+    private double getMeanDegree() {
+        return parent == null ? meanDegree : parent.meanDegree;
+    }
+
     /**
      * Calls the shortcut handler for all edges and shortcuts adjacent to the given node. After this method is called
      * these edges and shortcuts will be removed from the prepare graph, so this method offers the last chance to deal
@@ -310,6 +362,13 @@ class NodeBasedNodeContractor implements NodeContractor {
         private double maxPollFactorContraction = 200;
     }
 
+    private static class FoundShortcuts implements NodeContractor.Shortcuts {
+        // fromNode, toNode, outgoingEdge, outOrigEdgeCount, incomingEdge and inOrigEdgeCount for each shortcut
+        final IntArrayList ints = new IntArrayList();
+        final DoubleArrayList weights = new DoubleArrayList();
+        long degree;
+    }
+
     private static class Shortcut {
         int prepareEdgeFwd;
         int prepareEdgeBwd;
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.BitSet;
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.graphhopper.apache.commons.collections.IntFloatBinaryHeap;
@@ -34,6 +35,8 @@ public class NodeBasedWitnessPathSearcher {
     private final IntArrayList changedNodes;
     private final IntFloatBinaryHeap heap;
     private int ignoreNode = -1;
+    // further nodes that are ignored by all searches, can be null
+    private BitSet ignoredNodes;
     private int settledNodes = 0;
 
     public NodeBasedWitnessPathSearcher(CHPreparationGraph graph) {
@@ -44,6 +47,14 @@ public class NodeBasedWitnessPathSearcher {
         changedNodes = new IntArrayList();
     }
 
+    /**
+     * Sets nodes that shall be ignored by all following searches in addition to the ignored node given in init(), or
+     * null to ignore no further nodes. The given set is only read, so it can be shared between several searchers.
+     */
+    public void setIgnoredNodes(BitSet ignoredNodes) {
+        this.ignoredNodes = ignoredNodes;
+    }
+
     /**
      * Sets up a search for given start node and an ignored node. The shortest path tree will be re-used for different
      * target nodes until this method is called again.
@@ -85,7 +96,7 @@ public class NodeBasedWitnessPathSearcher {
             PrepareGraphEdgeIterator iter = outEdgeExplorer.setBaseNode(node);
             while (iter.next()) {
                 int adjNode = iter.getAdjNode();
-                if (adjNode == ignoreNode)
+                if (adjNode == ignoreNode || (ignoredNodes != null && ignoredNodes.get(adjNode)))
                     continue;
                 double weight = weights[node] + iter.getWeight();
                 if (Double.isInfinite(weight))
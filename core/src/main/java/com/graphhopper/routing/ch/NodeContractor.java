@@ -18,6 +18,7 @@
 
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.BitSet;
 import com.carrotsearch.hppc.IntContainer;
 
 public interface NodeContractor {
@@ -37,6 +38,33 @@ public interface NodeContractor {
      */
     IntContainer contractNode(int node);
 
+    /**
+     * Creates another node contractor for the same prepare graph, which can be used to calculate priorities and to
+     * find shortcuts from a different thread as long as the prepare graph is not modified meanwhile. The returned
+     * node contractor uses the current state of this one, like the mean degree, and it needs its own memory for the
+     * witness searches.
+     */
+    NodeContractor fork();
+
+    /**
+     * Finds the shortcuts that are required to contract the given node, but unlike {@link #contractNode(int)} this
+     * does not change the graph. Therefore, this method can be called concurrently for several nodes using forked
+     * node contractors.
+     *
+     * @param batchNodes the nodes that are contracted together with the given node. They are not used for witness
+     *                   paths, because these paths would no longer exist once all of these nodes are contracted.
+     */
+    Shortcuts findShortcuts(int node, BitSet batchNodes);
+
+    /**
+     * Adds the given shortcuts and removes the given node from the graph. The shortcuts must have been found by this
+     * node contractor or one of its forks and the graph must not have been changed in the meantime, except by
+     * contracting other nodes that are not adjacent to the given node.
+     *
+     * @return the set of nodes adjacent to this node (before contraction)
+     */
+    IntContainer contractNode(int node, Shortcuts shortcuts);
+
     void finishContraction();
 
     long getAddedShortcutsCount();
@@ -45,4 +73,10 @@ public interface NodeContractor {
 
     float getDijkstraSeconds();
 
+    /**
+     * The shortcuts required to contract a node, see {@link #findShortcuts(int)}
+     */
+    interface Shortcuts {
+    }
+
 }
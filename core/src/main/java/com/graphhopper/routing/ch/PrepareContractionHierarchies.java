@@ -17,7 +17,10 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
+import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.graphhopper.coll.MinHeapWithUpdate;
 import com.graphhopper.routing.util.TraversalMode;
@@ -28,8 +31,15 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.getMemInfo;
@@ -62,6 +72,12 @@ public class PrepareContractionHierarchies {
     private final Params params;
     private final BaseGraph graph;
     private NodeContractor nodeContractor;
+    private CHPreparationGraph prepareGraph;
+    // the number of threads used to contract the nodes, only used for the heuristic node ordering
+    private int contractionThreads = 1;
+    // the forked node contractors and the threads that use them, only used if there are multiple contraction threads
+    private final List<NodeContractor> workers = new ArrayList<>();
+    private ExecutorService executorService;
     private final int nodes;
     private NodeOrderingProvider nodeOrderingProvider;
     private int maxLevel;
@@ -69,6 +85,8 @@ public class PrepareContractionHierarchies {
     private MinHeapWithUpdate sortedNodes;
     private PMap pMap = new PMap();
     private int checkCounter;
+    private int updateCounter;
+    private int level;
     private boolean prepared = false;
 
     public static PrepareContractionHierarchies fromGraph(BaseGraph graph, CHConfig chConfig) {
@@ -100,6 +118,19 @@ public class PrepareContractionHierarchies {
         params.setMaxNeighborUpdates(pMap.getInt(NEIGHBOR_UPDATES_MAX, params.getMaxNeighborUpdates()));
         params.setNodesContractedPercentage(pMap.getInt(CONTRACTED_NODES, params.getNodesContractedPercentage()));
         params.setLogMessagesPercentage(pMap.getInt(LOG_MESSAGES, params.getLogMessagesPercentage()));
+        setContractionThreads(pMap.getInt(CONTRACTION_THREADS, contractionThreads));
+        return this;
+    }
+
+    /**
+     * Contracts independent nodes using the given number of threads. This speeds up the preparation of a single
+     * profile, but the resulting hierarchy is slightly different and every thread needs its own memory for the
+     * witness searches. This is ignored when a fixed node ordering is used.
+     */
+    public PrepareContractionHierarchies setContractionThreads(int contractionThreads) {
+        if (contractionThreads < 1)
+            throw new IllegalArgumentException(CONTRACTION_THREADS + " must be at least 1, but was: " + contractionThreads);
+        this.contractionThreads = contractionThreads;
         return this;
     }
 
@@ -170,7 +201,6 @@ public class PrepareContractionHierarchies {
 
     private void initFromGraph() {
         logger.info("Creating CH prepare graph, {}", getMemInfo());
-        CHPreparationGraph prepareGraph;
         if (chConfig.getTraversalMode().isEdgeBased()) {
             TurnCostStorage turnCostStorage = graph.getTurnCostStorage();
             if (turnCostStorage == null)
@@ -201,16 +231,32 @@ public class PrepareContractionHierarchies {
     private void updatePrioritiesOfRemainingNodes() {
         periodicUpdateSW.start();
         sortedNodes.clear();
-        for (int node = 0; node < nodes; node++) {
-            if (isContracted(node))
-                continue;
-            float priority = calculatePriority(node);
-            sortedNodes.push(node, priority);
+        if (workers.isEmpty()) {
+            for (int node = 0; node < nodes; node++) {
+                if (isContracted(node))
+                    continue;
+                float priority = calculatePriority(node);
+                sortedNodes.push(node, priority);
+            }
+        } else {
+            IntArrayList remainingNodes = new IntArrayList();
+            for (int node = 0; node < nodes; node++)
+                if (!isContracted(node))
+                    remainingNodes.add(node);
+            float[] priorities = calculatePrioritiesInParallel(remainingNodes);
+            for (int i = 0; i < remainingNodes.size(); i++)
+                sortedNodes.push(remainingNodes.get(i), priorities[i]);
         }
         periodicUpdateSW.stop();
     }
 
     private void contractNodesUsingHeuristicNodeOrdering() {
+        if (contractionThreads > 1) {
+            logger.info("Using {} threads to contract nodes", contractionThreads);
+            executorService = Executors.newFixedThreadPool(contractionThreads);
+            for (int i = 0; i < contractionThreads; i++)
+                workers.add(nodeContractor.fork());
+        }
         StopWatch sw = new StopWatch().start();
         logger.info("Building initial queue of nodes to be contracted: {} nodes, {}", nodes, getMemInfo());
         // note that we update the priorities before preparing the node contractor. this does not make much sense,
@@ -218,8 +264,9 @@ public class PrepareContractionHierarchies {
         updatePrioritiesOfRemainingNodes();
         logger.info("Finished building queue, took: {}s, {}", sw.stop().getSeconds(), getMemInfo());
         final int initSize = sortedNodes.size();
-        int level = 0;
+        level = 0;
         checkCounter = 0;
+        updateCounter = 0;
         final long logSize = params.getLogMessagesPercentage() == 0
                 ? Long.MAX_VALUE
                 : Math.round(Math.max(10, initSize * (params.getLogMessagesPercentage() / 100d)));
@@ -231,7 +278,6 @@ public class PrepareContractionHierarchies {
         final long periodicUpdatesCount = params.getPeriodicUpdatesPercentage() == 0
                 ? Long.MAX_VALUE
                 : Math.round(Math.max(10, initSize * (params.getPeriodicUpdatesPercentage() / 100d)));
-        int updateCounter = 0;
 
         // enable lazy updates for last x percentage of nodes. lazy updates make preparation slower but potentially
         // keep node priorities more up to date, possibly resulting in a better preparation.
@@ -246,7 +292,11 @@ public class PrepareContractionHierarchies {
         // reduces number of shortcuts.
         final boolean neighborUpdate = (params.getNeighborUpdatePercentage() != 0);
 
-        while (!sortedNodes.isEmpty()) {
+        if (!workers.isEmpty())
+            contractIndependentNodesInParallel(logSize, periodicUpdatesCount, lastNodesLazyUpdates, nodesToAvoidContract, neighborUpdate);
+
+        // when we use multiple threads all nodes have been contracted already
+        while (workers.isEmpty() && !sortedNodes.isEmpty()) {
             stopIfInterrupted();
             // periodically update priorities of ALL nodes
             if (checkCounter > 0 && checkCounter % periodicUpdatesCount == 0) {
@@ -316,6 +366,156 @@ public class PrepareContractionHierarchies {
         _close();
     }
 
+    /**
+     * Contracts the nodes in batches of independent nodes, i.e. nodes that are not adjacent to each other. Contracting
+     * one of these nodes does not change the edges of the others, so we can run the witness searches for all nodes of
+     * a batch concurrently and only add the found shortcuts sequentially. The witness searches must not use the other
+     * nodes of the batch, though. Otherwise, e.g. two nodes with the same neighbors could serve as witness for each
+     * other and both would be contracted without the required shortcut. The lazy, neighbor and periodic priority
+     * updates are calculated concurrently as well. All decisions are made by the calling thread, so the result does
+     * not depend on the thread scheduling.
+     */
+    private void contractIndependentNodesInParallel(long logSize, long periodicUpdatesCount, long lastNodesLazyUpdates,
+                                                   long nodesToAvoidContract, boolean neighborUpdate) {
+        // the more candidates we consider per batch the more work we can do in parallel, but the more the contraction
+        // order deviates from the sequential one
+        final int maxCandidates = 8 * contractionThreads;
+        PrepareGraphEdgeExplorer outExplorer = prepareGraph.createOutEdgeExplorer();
+        PrepareGraphEdgeExplorer inExplorer = prepareGraph.createInEdgeExplorer();
+        IntArrayList candidates = new IntArrayList(maxCandidates);
+        float[] priorities = new float[maxCandidates];
+        IntArrayList batch = new IntArrayList(maxCandidates);
+        IntHashSet blockedNodes = new IntHashSet();
+        BitSet batchNodes = new BitSet(prepareGraph.getNodes());
+        IntArrayList neighborsToUpdate = new IntArrayList();
+        IntHashSet neighborsToUpdateSet = new IntHashSet();
+        long nextPeriodicUpdate = periodicUpdatesCount;
+        long nextLogMessage = 0;
+        while (!sortedNodes.isEmpty()) {
+            stopIfInterrupted();
+            if (checkCounter >= nextPeriodicUpdate) {
+                updatePrioritiesOfRemainingNodes();
+                updateCounter++;
+                nextPeriodicUpdate = checkCounter + periodicUpdatesCount;
+            }
+            if (checkCounter >= nextLogMessage) {
+                logHeuristicStats(updateCounter);
+                nextLogMessage = checkCounter + logSize;
+            }
+
+            candidates.clear();
+            while (!sortedNodes.isEmpty() && candidates.size() < maxCandidates) {
+                priorities[candidates.size()] = sortedNodes.peekValue();
+                candidates.add(sortedNodes.poll());
+            }
+            checkCounter += candidates.size();
+            float maxPriority = Float.POSITIVE_INFINITY;
+            if (!sortedNodes.isEmpty() && sortedNodes.size() < lastNodesLazyUpdates) {
+                lazyUpdateSW.start();
+                float[] updatedPriorities = calculatePrioritiesInParallel(candidates);
+                System.arraycopy(updatedPriorities, 0, priorities, 0, candidates.size());
+                maxPriority = sortedNodes.peekValue();
+                lazyUpdateSW.stop();
+            }
+
+            // select the candidates we contract in this batch, the others are put back into the queue
+            batch.clear();
+            blockedNodes.clear();
+            for (int i = 0; i < candidates.size(); i++) {
+                int node = candidates.get(i);
+                if (blockedNodes.contains(node) || priorities[i] > maxPriority) {
+                    // the node is adjacent to a node of this batch or it got more important
+                    sortedNodes.push(node, priorities[i]);
+                    continue;
+                }
+                batch.add(node);
+                blockedNodes.add(node);
+                PrepareGraphEdgeIterator outIter = outExplorer.setBaseNode(node);
+                while (outIter.next())
+                    blockedNodes.add(outIter.getAdjNode());
+                PrepareGraphEdgeIterator inIter = inExplorer.setBaseNode(node);
+                while (inIter.next())
+                    blockedNodes.add(inIter.getAdjNode());
+            }
+            if (batch.isEmpty())
+                continue;
+
+            contractionSW.start();
+            for (int i = 0; i < batch.size(); i++)
+                batchNodes.set(batch.get(i));
+            NodeContractor.Shortcuts[] shortcuts = findShortcutsInParallel(batch, batchNodes);
+            for (int i = 0; i < batch.size(); i++)
+                batchNodes.clear(batch.get(i));
+            contractionSW.stop();
+            neighborsToUpdate.clear();
+            neighborsToUpdateSet.clear();
+            for (int i = 0; i < batch.size(); i++) {
+                IntContainer neighbors = contractNode(batch.get(i), level++, shortcuts[i]);
+                int neighborCount = 0;
+                for (IntCursor neighbor : neighbors) {
+                    if (neighborUpdate && (params.getMaxNeighborUpdates() < 0 || neighborCount < params.getMaxNeighborUpdates()) && rand.nextInt(100) < params.getNeighborUpdatePercentage()) {
+                        neighborCount++;
+                        if (neighborsToUpdateSet.add(neighbor.value))
+                            neighborsToUpdate.add(neighbor.value);
+                    }
+                }
+            }
+
+            if (sortedNodes.size() < nodesToAvoidContract)
+                // skipped nodes are already set to maxLevel
+                break;
+
+            neighborUpdateSW.start();
+            float[] neighborPriorities = calculatePrioritiesInParallel(neighborsToUpdate);
+            for (int i = 0; i < neighborsToUpdate.size(); i++)
+                sortedNodes.update(neighborsToUpdate.get(i), neighborPriorities[i]);
+            neighborUpdateSW.stop();
+        }
+    }
+
+    private float[] calculatePrioritiesInParallel(IntArrayList nodes) {
+        float[] priorities = new float[nodes.size()];
+        runInParallel(nodes.size(), (contractor, i) -> priorities[i] = contractor.calculatePriority(nodes.get(i)));
+        return priorities;
+    }
+
+    private NodeContractor.Shortcuts[] findShortcutsInParallel(IntArrayList nodes, BitSet batchNodes) {
+        NodeContractor.Shortcuts[] shortcuts = new NodeContractor.Shortcuts[nodes.size()];
+        runInParallel(nodes.size(), (contractor, i) -> shortcuts[i] = contractor.findShortcuts(nodes.get(i), batchNodes));
+        return shortcuts;
+    }
+
+    /**
+     * Runs the given task for all indices in [0, size[. Every forked node contractor is used by a single thread.
+     */
+    private void runInParallel(int size, WorkerTask task) {
+        if (size == 1) {
+            task.run(workers.get(0), 0);
+            return;
+        }
+        AtomicInteger nextIndex = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(workers.size());
+        for (NodeContractor worker : workers)
+            futures.add(executorService.submit(() -> {
+                for (int i = nextIndex.getAndIncrement(); i < size; i = nextIndex.getAndIncrement())
+                    task.run(worker, i);
+            }));
+        try {
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @FunctionalInterface
+    private interface WorkerTask {
+        void run(NodeContractor worker, int index);
+    }
+
     private void contractNodesUsingFixedNodeOrdering() {
         final int nodesToContract = nodeOrderingProvider.getNumNodes();
         final int logSize = Math.max(10, (int) (params.getLogMessagesPercentage() / 100.0 * nodesToContract));
@@ -350,6 +550,16 @@ public class PrepareContractionHierarchies {
         return neighbors;
     }
 
+    private IntContainer contractNode(int node, int level, NodeContractor.Shortcuts shortcuts) {
+        if (isContracted(node))
+            throw new IllegalArgumentException("Node " + node + " was contracted already");
+        contractionSW.start();
+        chBuilder.setLevel(node, level);
+        IntContainer neighbors = nodeContractor.contractNode(node, shortcuts);
+        contractionSW.stop();
+        return neighbors;
+    }
+
     private boolean isContracted(int node) {
         return chStore.getLevel(chStore.toNodePointer(node)) != maxLevel;
     }
@@ -414,7 +624,13 @@ public class PrepareContractionHierarchies {
     }
 
     private void _close() {
+        for (NodeContractor worker : workers)
+            worker.close();
+        workers.clear();
+        if (executorService != null)
+            executorService.shutdown();
         nodeContractor.close();
+        prepareGraph = null;
         sortedNodes = null;
     }
 
@@ -0,0 +1,256 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CCHStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import static com.graphhopper.util.Helper.getMemInfo;
+import static com.graphhopper.util.Helper.nf;
+
+/**
+ * Prepares the metric-independent part of a customizable contraction hierarchy (CCH, Dibbelt, Strasser and Wagner,
+ * 'Customizable Contraction Hierarchies'). Unlike {@link PrepareContractionHierarchies} this does not depend on a
+ * weighting:
+ * <ul>
+ * <li>the node order is a nested dissection order, which we obtain by recursively bisecting the nodes along the
+ * longer side of their bounding box and using the boundary nodes of one half as separator</li>
+ * <li>the shortcuts are all the arcs that are added when the nodes are contracted in this order without any witness
+ * searches. The result is stored in a {@link CCHStorage}</li>
+ * </ul>
+ * The weights are calculated for a specific weighting later, see {@link CustomizableCH}.
+ */
+public class PrepareCustomizableCH {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrepareCustomizableCH.class);
+    // cells with at most this many nodes are not bisected any further
+    private static final int MAX_CELL_SIZE = 8;
+    private final BaseGraph graph;
+    private final String name;
+    private final int nodes;
+    // the undirected adjacency lists of the base graph
+    private int[] firstNeighbor;
+    private int[] neighbors;
+
+    public static PrepareCustomizableCH fromGraph(BaseGraph graph, String name) {
+        return new PrepareCustomizableCH(graph, name);
+    }
+
+    private PrepareCustomizableCH(BaseGraph graph, String name) {
+        if (!graph.isFrozen())
+            throw new IllegalStateException("BaseGraph must be frozen before creating a CCH");
+        this.graph = graph;
+        this.name = name;
+        this.nodes = graph.getNodes();
+    }
+
+    public CCHStorage doWork() {
+        StopWatch sw = StopWatch.started();
+        LOGGER.info("Creating CCH for '{}', nodes: {}, edges: {}, {}", name, nf(nodes), nf(graph.getEdges()), getMemInfo());
+        buildNeighbors();
+        int[] levels = calcNestedDissectionLevels();
+        float orderTime = sw.stop().getSeconds();
+        sw = StopWatch.started();
+        CCHStorage storage = new CCHStorage(graph.getDirectory(), name, graph.getSegmentSize());
+        storage.create(nodes, 2 * graph.getEdges());
+        for (int node = 0; node < nodes; node++)
+            storage.setLevel(node, levels[node]);
+        buildArcs(storage, levels);
+        firstNeighbor = null;
+        neighbors = null;
+        LOGGER.info("Finished CCH for '{}', arcs: {}, ordering took: {}s, building arcs took: {}s, {}", name,
+                nf(storage.getArcs()), orderTime, sw.stop().getSeconds(), getMemInfo());
+        return storage;
+    }
+
+    private void buildNeighbors() {
+        firstNeighbor = new int[nodes + 1];
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (iter.getBaseNode() == iter.getAdjNode())
+                continue;
+            firstNeighbor[iter.getBaseNode() + 1]++;
+            firstNeighbor[iter.getAdjNode() + 1]++;
+        }
+        for (int node = 0; node < nodes; node++)
+            firstNeighbor[node + 1] += firstNeighbor[node];
+        neighbors = new int[firstNeighbor[nodes]];
+        int[] next = Arrays.copyOf(firstNeighbor, nodes);
+        iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (iter.getBaseNode() == iter.getAdjNode())
+                continue;
+            neighbors[next[iter.getBaseNode()]++] = iter.getAdjNode();
+            neighbors[next[iter.getAdjNode()]++] = iter.getBaseNode();
+        }
+    }
+
+    /**
+     * Calculates a nested dissection order: The nodes of each cell are split into two halves and the nodes of the
+     * smaller boundary between the two halves form the separator. The separator nodes get the highest levels of the
+     * cell and the two remaining halves, which are not connected to each other anymore, are ordered recursively.
+     */
+    int[] calcNestedDissectionLevels() {
+        NodeAccess na = graph.getNodeAccess();
+        int[] levels = new int[nodes];
+        int[] cellIds = new int[nodes];
+        int cellCount = 0;
+        Deque<Cell> cells = new ArrayDeque<>();
+        int[] allNodes = new int[nodes];
+        for (int node = 0; node < nodes; node++)
+            allNodes[node] = node;
+        cells.push(new Cell(allNodes, 0));
+        while (!cells.isEmpty()) {
+            Cell cell = cells.pop();
+            int[] cellNodes = cell.nodes;
+            if (cellNodes.length <= MAX_CELL_SIZE) {
+                for (int i = 0; i < cellNodes.length; i++)
+                    levels[cellNodes[i]] = cell.minLevel + i;
+                continue;
+            }
+
+            // split the cell at the median of the longer side of its bounding box
+            double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE, minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+            for (int node : cellNodes) {
+                double lat = na.getLat(node), lon = na.getLon(node);
+                minLat = Math.min(minLat, lat);
+                maxLat = Math.max(maxLat, lat);
+                minLon = Math.min(minLon, lon);
+                maxLon = Math.max(maxLon, lon);
+            }
+            boolean splitByLat = maxLat - minLat > (maxLon - minLon) * Math.cos(Math.toRadians((minLat + maxLat) / 2));
+            long[] keys = new long[cellNodes.length];
+            for (int i = 0; i < cellNodes.length; i++) {
+                int node = cellNodes[i];
+                double coordinate = splitByLat ? na.getLat(node) : na.getLon(node);
+                // the coordinates are within [-180, 180], so after adding the offset the key is positive
+                keys[i] = (Math.round(coordinate * 1e6) + (1L << 29)) << 32 | node;
+            }
+            Arrays.sort(keys);
+            int half = cellNodes.length / 2;
+            int firstId = ++cellCount;
+            int secondId = ++cellCount;
+            for (int i = 0; i < keys.length; i++)
+                cellIds[(int) keys[i]] = i < half ? firstId : secondId;
+
+            IntArrayList firstBoundary = new IntArrayList();
+            IntArrayList secondBoundary = new IntArrayList();
+            for (int i = 0; i < keys.length; i++) {
+                int node = (int) keys[i];
+                int otherId = i < half ? secondId : firstId;
+                for (int j = firstNeighbor[node]; j < firstNeighbor[node + 1]; j++) {
+                    if (cellIds[neighbors[j]] == otherId) {
+                        (i < half ? firstBoundary : secondBoundary).add(node);
+                        break;
+                    }
+                }
+            }
+            IntArrayList separator = firstBoundary.size() <= secondBoundary.size() ? firstBoundary : secondBoundary;
+            int separatorId = ++cellCount;
+            for (int i = 0; i < separator.size(); i++)
+                cellIds[separator.get(i)] = separatorId;
+
+            int[] first = new int[half - (separator == firstBoundary ? separator.size() : 0)];
+            int[] second = new int[keys.length - half - (separator == secondBoundary ? separator.size() : 0)];
+            int firstCount = 0, secondCount = 0;
+            for (long key : keys) {
+                int node = (int) key;
+                if (cellIds[node] == firstId)
+                    first[firstCount++] = node;
+                else if (cellIds[node] == secondId)
+                    second[secondCount++] = node;
+            }
+            int separatorMinLevel = cell.minLevel + first.length + second.length;
+            for (int i = 0; i < separator.size(); i++)
+                levels[separator.get(i)] = separatorMinLevel + i;
+            cells.push(new Cell(first, cell.minLevel));
+            cells.push(new Cell(second, cell.minLevel + first.length));
+        }
+        return levels;
+    }
+
+    /**
+     * Contracts the nodes in the order of the given levels without any witness searches. The upward neighbors of a
+     * node are its original upward neighbors plus the upward neighbors of all nodes below it that were connected to
+     * it when they were contracted. It is sufficient to pass the upward neighbors of a contracted node to its lowest
+     * upward neighbor only, because this neighbor will then pass them on when it is contracted itself.
+     */
+    private void buildArcs(CCHStorage storage, int[] levels) {
+        int[] nodesByLevel = new int[nodes];
+        for (int node = 0; node < nodes; node++)
+            nodesByLevel[levels[node]] = node;
+        IntArrayList[] pending = new IntArrayList[nodes];
+        int[] lastVisit = new int[nodes];
+        Arrays.fill(lastVisit, -1);
+        int[] targetLevels = new int[16];
+        for (int level = 0; level < nodes; level++) {
+            int node = nodesByLevel[level];
+            int count = 0;
+            lastVisit[node] = level;
+            for (int i = firstNeighbor[node]; i < firstNeighbor[node + 1]; i++) {
+                int adj = neighbors[i];
+                if (levels[adj] > level && lastVisit[adj] != level) {
+                    lastVisit[adj] = level;
+                    if (count == targetLevels.length)
+                        targetLevels = Arrays.copyOf(targetLevels, 2 * count);
+                    targetLevels[count++] = levels[adj];
+                }
+            }
+            if (pending[node] != null) {
+                IntArrayList pendingLevels = pending[node];
+                for (int i = 0; i < pendingLevels.size(); i++) {
+                    int adj = nodesByLevel[pendingLevels.get(i)];
+                    if (lastVisit[adj] != level) {
+                        lastVisit[adj] = level;
+                        if (count == targetLevels.length)
+                            targetLevels = Arrays.copyOf(targetLevels, 2 * count);
+                        targetLevels[count++] = levels[adj];
+                    }
+                }
+                pending[node] = null;
+            }
+            Arrays.sort(targetLevels, 0, count);
+            storage.addArcs(node, targetLevels, count);
+            if (count > 1) {
+                int parent = nodesByLevel[targetLevels[0]];
+                if (pending[parent] == null)
+                    pending[parent] = new IntArrayList(count - 1);
+                pending[parent].add(targetLevels, 1, count - 1);
+            }
+        }
+    }
+
+    private static class Cell {
+        final int[] nodes;
+        final int minLevel;
+
+        Cell(int[] nodes, int minLevel) {
+            this.nodes = nodes;
+            this.minLevel = minLevel;
+        }
+    }
+}
@@ -175,6 +175,17 @@ public class DefaultImportRegistry implements ImportRegistry {
                     (lookup, props) -> new OSMWayIDParser(
                             lookup.getIntEncodedValue(OSMWayID.KEY))
             );
+        else if (TrafficSpeed.KEY.equals(name))
+            return ImportUnit.create(name, props -> TrafficSpeed.create(),
+                    (lookup, props) -> new TrafficSpeedParser(
+                            lookup.getDecimalEncodedValue(TrafficSpeed.KEY)),
+                    TrafficSpeed.BUFFER_KEY
+            );
+        else if (TrafficSpeed.BUFFER_KEY.equals(name))
+            return ImportUnit.create(name, props -> TrafficSpeed.createBuffer(),
+                    (lookup, props) -> new TrafficSpeedParser(
+                            lookup.getDecimalEncodedValue(TrafficSpeed.BUFFER_KEY))
+            );
         else if (MtbRating.KEY.equals(name))
             return ImportUnit.create(name, props -> MtbRating.create(),
                     (lookup, props) -> new OSMMtbRatingParser(
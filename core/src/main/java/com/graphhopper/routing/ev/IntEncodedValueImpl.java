@@ -205,6 +205,22 @@ public class IntEncodedValueImpl implements IntEncodedValue {
         }
     }
 
+    /**
+     * Copies the stored bits of this encoded value for both directions from one edge to another, without converting
+     * them. Unlike getInt and setInt this keeps the exact value for all subclasses, e.g. for boolean, decimal and
+     * enum encoded values.
+     */
+    public final void copy(int fromEdgeId, EdgeIntAccess from, int toEdgeId, EdgeIntAccess to) {
+        copyBits(fwdDataIndex, fwdMask, fromEdgeId, from, toEdgeId, to);
+        if (storeTwoDirections)
+            copyBits(bwdDataIndex, bwdMask, fromEdgeId, from, toEdgeId, to);
+    }
+
+    private static void copyBits(int dataIndex, int mask, int fromEdgeId, EdgeIntAccess from, int toEdgeId, EdgeIntAccess to) {
+        int value = from.getInt(fromEdgeId, dataIndex) & mask;
+        to.setInt(toEdgeId, dataIndex, (to.getInt(toEdgeId, dataIndex) & ~mask) | value);
+    }
+
     @Override
     public int getMaxStorableInt() {
         return maxStorableValue;
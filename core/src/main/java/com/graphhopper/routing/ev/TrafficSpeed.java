@@ -0,0 +1,39 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ev;
+
+/**
+ * This EncodedValue stores live traffic speeds in km/h that are not read from OSM but written after the import, see
+ * {@link com.graphhopper.routing.util.TrafficSpeedUpdater}. Edges without traffic information use infinity, so a
+ * custom model can use it like max_speed, e.g. with "limit_to": "traffic_speed". A speed of 0 closes the edge.
+ * <p>
+ * The speeds are double-buffered: a traffic update writes into the encoded value that is not used for routing and
+ * GraphHopper then resolves traffic_speed to it, see GraphHopper#updateTrafficSpeeds.
+ */
+public class TrafficSpeed {
+    public static final String KEY = "traffic_speed";
+    public static final String BUFFER_KEY = "traffic_speed_buffer";
+
+    public static DecimalEncodedValue create() {
+        return new DecimalEncodedValueImpl(KEY, 7, 0, 2, false, true, true);
+    }
+
+    public static DecimalEncodedValue createBuffer() {
+        return new DecimalEncodedValueImpl(BUFFER_KEY, 7, 0, 2, false, true, true);
+    }
+}
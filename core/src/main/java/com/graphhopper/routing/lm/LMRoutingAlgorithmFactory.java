@@ -30,6 +30,7 @@ import static com.graphhopper.util.Parameters.Algorithms.*;
 public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
     private final LandmarkStorage lms;
     private int defaultActiveLandmarks;
+    private RoutingWorkspacePool workspacePool;
 
     public LMRoutingAlgorithmFactory(LandmarkStorage lms) {
         this.lms = lms;
@@ -41,6 +42,15 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
         return this;
     }
 
+    /**
+     * If a workspace pool is set the bidirectional A* uses the array-based implementation with the arrays of the
+     * current thread, see {@link AbstractNonCHBidirArrayAlgo}.
+     */
+    public LMRoutingAlgorithmFactory setWorkspacePool(RoutingWorkspacePool workspacePool) {
+        this.workspacePool = workspacePool;
+        return this;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph g, Weighting w, AlgorithmOptions opts) {
         if (!lms.isInitialized())
@@ -55,6 +65,14 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
             algo.setTimeoutMillis(opts.getTimeoutMillis());
             return algo;
+        } else if ((ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr))
+                && (workspacePool != null || opts.getHints().getBool(Parameters.Routing.ARRAY_BASED, false))) {
+            double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
+            AStarBidirectionArray algo = new AStarBidirectionArray(g, weighting, opts.getTraversalMode(), workspacePool);
+            algo.setApproximation(getApproximator(g, weighting, activeLM, epsilon));
+            algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+            algo.setTimeoutMillis(opts.getTimeoutMillis());
+            return algo;
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
             AStarBidirection algo = new AStarBidirection(g, weighting, opts.getTraversalMode());
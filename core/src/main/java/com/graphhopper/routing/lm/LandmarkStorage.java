@@ -50,6 +50,7 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 /**
  * This class stores the landmark nodes and the weights from and to all other nodes in every
@@ -94,6 +95,7 @@ public class LandmarkStorage {
     private List<LandmarkSuggestion> landmarkSuggestions = Collections.emptyList();
     private AreaIndex<SplitArea> areaIndex;
     private boolean logDetails = false;
+    private int landmarkThreads = 1;
     /**
      * 'to' and 'from' fit into 32 bit => 16 bit for each of them => 65536
      */
@@ -169,6 +171,17 @@ public class LandmarkStorage {
         this.logDetails = logDetails;
     }
 
+    /**
+     * Sets the number of threads that are used to calculate the weights of the different landmarks of a subnetwork.
+     * Every thread requires the memory for a full exploration of the graph. Default is 1.
+     */
+    public LandmarkStorage setLandmarkThreads(int landmarkThreads) {
+        if (landmarkThreads < 1)
+            throw new IllegalArgumentException("landmark threads must be at least 1, but was: " + landmarkThreads);
+        this.landmarkThreads = landmarkThreads;
+        return this;
+    }
+
     /**
      * This method forces the landmark preparation to skip the landmark search and uses the specified landmark list instead.
      * Useful for manual tuning of larger areas to safe import time or improve quality.
@@ -445,35 +458,29 @@ public class LandmarkStorage {
         }
 
         // 2) calculate weights for all landmarks -> 'from' and 'to' weight
-        for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
-            }
-            int lmNodeId = tmpLandmarkNodeIds[lmIdx];
-            LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
-
-            // set subnetwork id to all explored nodes, but do this only for the first landmark
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
-
-            explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
-
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
+        // the explorations of the first landmark also determine the subnetwork, so we always do them first
+        if (!createLandmarkWeights(0, tmpLandmarkNodeIds[0], subnetworks, subnetworkId, accessFilter))
+            return false;
+        if (landmarkThreads > 1) {
+            // every landmark writes its own 'column' of the landmark weights so the remaining ones can run concurrently
+            AtomicInteger finished = new AtomicInteger(1);
+            GHUtility.runConcurrently(IntStream.range(1, tmpLandmarkNodeIds.length).mapToObj(lmIdx -> () -> {
+                createLandmarkWeights(lmIdx, tmpLandmarkNodeIds[lmIdx], null, subnetworkId, accessFilter);
+                int count = finished.incrementAndGet();
+                if (logDetails && count % logOffset == 0)
+                    LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                            + "Progress " + (int) (100.0 * count / tmpLandmarkNodeIds.length) + "%");
+            }), landmarkThreads);
+        } else {
+            for (int lmIdx = 1; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
+                }
+                createLandmarkWeights(lmIdx, tmpLandmarkNodeIds[lmIdx], null, subnetworkId, accessFilter);
+                if (logDetails && lmIdx % logOffset == 0)
+                    LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                            + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
             }
-
-            if (logDetails && lmIdx % logOffset == 0)
-                LOGGER.info("Set landmarks weights [" + weighting + "]. "
-                        + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
         }
 
         // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
@@ -481,6 +488,27 @@ public class LandmarkStorage {
         return true;
     }
 
+    /**
+     * Calculates the 'from' and 'to' weights of a single landmark. If subnetworks is not null the subnetwork id is set
+     * for all explored nodes.
+     *
+     * @return false if the explored nodes were already assigned to another subnetwork
+     */
+    private boolean createLandmarkWeights(int lmIdx, int lmNodeId, byte[] subnetworks, int subnetworkId, EdgeFilter accessFilter) {
+        LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
+        explorer.setStartNode(lmNodeId);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
+        if (subnetworks != null && explorer.setSubnetworks(subnetworks, subnetworkId))
+            return false;
+
+        explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
+        explorer.setStartNode(lmNodeId);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+        return subnetworks == null || !explorer.setSubnetworks(subnetworks, subnetworkId);
+    }
+
     /**
      * This method specifies the polygons which should be used to split the world wide area to improve performance and
      * quality in this scenario.
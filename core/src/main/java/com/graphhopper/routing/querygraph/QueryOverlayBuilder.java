@@ -20,7 +20,6 @@ package com.graphhopper.routing.querygraph;
 
 import com.carrotsearch.hppc.predicates.IntObjectPredicate;
 import com.graphhopper.coll.GHIntObjectHashMap;
-import com.graphhopper.search.KVStorage;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.IntsRef;
 import com.graphhopper.storage.index.Snap;
@@ -29,6 +28,7 @@ import com.graphhopper.util.shapes.GHPoint;
 import com.graphhopper.util.shapes.GHPoint3D;
 
 import java.util.*;
+import java.util.function.Supplier;
 
 import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
 
@@ -212,29 +212,29 @@ class QueryOverlayBuilder {
                              GHPoint3D prevSnapped, int prevWayIndex, boolean isPillar, GHPoint3D currSnapped, int wayIndex,
                              PointList fullPL, EdgeIteratorState closestEdge,
                              int prevNodeId, int nodeId) {
+        // The geometry and the key values of the virtual edges are only created once they are requested, which for
+        // CH queries only happens for the virtual edges on the final path. The weights only need the distance.
         int max = wayIndex + 1;
-        PointList basePoints = new PointList(max - prevWayIndex + 1, is3D);
-        basePoints.add(prevSnapped.lat, prevSnapped.lon, prevSnapped.ele);
+        double baseDistance = 0;
+        double prevLat = prevSnapped.lat, prevLon = prevSnapped.lon, prevEle = prevSnapped.ele;
         for (int i = prevWayIndex; i < max; i++) {
-            basePoints.add(fullPL, i);
+            baseDistance += calcDist(prevLat, prevLon, prevEle, fullPL.getLat(i), fullPL.getLon(i), fullPL.getEle(i));
+            prevLat = fullPL.getLat(i);
+            prevLon = fullPL.getLon(i);
+            prevEle = fullPL.getEle(i);
         }
-        if (!isPillar) {
-            basePoints.add(currSnapped.lat, currSnapped.lon, currSnapped.ele);
-        }
-        // basePoints must have at least the size of 2 to make sure fetchWayGeometry(FetchMode.ALL) returns at least 2
-        assert basePoints.size() >= 2 : "basePoints must have at least two points";
-
-        PointList baseReversePoints = basePoints.clone(true);
-        double baseDistance = DistancePlaneProjection.DIST_PLANE.calcDistance(basePoints);
+        if (!isPillar)
+            baseDistance += calcDist(prevLat, prevLon, prevEle, currSnapped.lat, currSnapped.lon, currSnapped.ele);
+        Supplier<PointList> basePoints = () -> createBasePoints(prevSnapped, prevWayIndex, isPillar, currSnapped, max, fullPL);
         int virtEdgeId = firstVirtualEdgeId + queryOverlay.getNumVirtualEdges() / 2;
 
         boolean reverse = closestEdge.get(EdgeIteratorState.REVERSE_STATE);
         // edges between base and snapped point
-        Map<String, KVStorage.KValue> keyValues = closestEdge.getKeyValues();
         VirtualEdgeIteratorState baseEdge = new VirtualEdgeIteratorState(origEdgeKey, GHUtility.createEdgeKey(virtEdgeId, false),
-                prevNodeId, nodeId, baseDistance, closestEdge.getFlags(), keyValues, basePoints, reverse);
+                prevNodeId, nodeId, baseDistance, closestEdge.getFlags(), closestEdge::getKeyValues, basePoints, reverse);
         VirtualEdgeIteratorState baseReverseEdge = new VirtualEdgeIteratorState(origRevEdgeKey, GHUtility.createEdgeKey(virtEdgeId, true),
-                nodeId, prevNodeId, baseDistance, IntsRef.deepCopyOf(closestEdge.getFlags()), keyValues, baseReversePoints, !reverse);
+                nodeId, prevNodeId, baseDistance, IntsRef.deepCopyOf(closestEdge.getFlags()), closestEdge::getKeyValues,
+                () -> basePoints.get().clone(true), !reverse);
 
         baseEdge.setReverseEdge(baseReverseEdge);
         baseReverseEdge.setReverseEdge(baseEdge);
@@ -242,6 +242,30 @@ class QueryOverlayBuilder {
         queryOverlay.addVirtualEdge(baseReverseEdge);
     }
 
+    /**
+     * Calculates the distance like DIST_PLANE.calcDistance does for a point list
+     */
+    private double calcDist(double fromLat, double fromLon, double fromEle, double toLat, double toLon, double toEle) {
+        return is3D
+                ? DIST_PLANE.calcDist3D(fromLat, fromLon, fromEle, toLat, toLon, toEle)
+                : DIST_PLANE.calcDist(fromLat, fromLon, toLat, toLon);
+    }
+
+    private PointList createBasePoints(GHPoint3D prevSnapped, int prevWayIndex, boolean isPillar, GHPoint3D currSnapped,
+                                       int max, PointList fullPL) {
+        PointList basePoints = new PointList(max - prevWayIndex + 1, is3D);
+        basePoints.add(prevSnapped.lat, prevSnapped.lon, prevSnapped.ele);
+        for (int i = prevWayIndex; i < max; i++) {
+            basePoints.add(fullPL, i);
+        }
+        if (!isPillar) {
+            basePoints.add(currSnapped.lat, currSnapped.lon, currSnapped.ele);
+        }
+        // basePoints must have at least the size of 2 to make sure fetchWayGeometry(FetchMode.ALL) returns at least 2
+        assert basePoints.size() >= 2 : "basePoints must have at least two points";
+        return basePoints;
+    }
+
     private void buildEdgeChangesAtRealNodes() {
         EdgeChangeBuilder.build(queryOverlay.getClosestEdges(), queryOverlay.getVirtualEdges(), firstVirtualNodeId, queryOverlay.getEdgeChangesAtRealNodes());
     }
@@ -26,6 +26,7 @@ import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.PointList;
 
 import java.util.Map;
+import java.util.function.Supplier;
 
 import static com.graphhopper.util.Parameters.Details.STREET_NAME;
 
@@ -36,7 +37,8 @@ import static com.graphhopper.util.Parameters.Details.STREET_NAME;
  * even gets removed.
  */
 public class VirtualEdgeIteratorState implements EdgeIteratorState {
-    private final PointList pointList;
+    private PointList pointList;
+    private Supplier<PointList> pointListSupplier;
     private final int edgeKey;
     private final int baseNode;
     private final int adjNode;
@@ -45,6 +47,7 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
     private IntsRef edgeFlags;
     private EdgeIntAccess edgeIntAccess;
     private Map<String, KVStorage.KValue> keyValues;
+    private Supplier<Map<String, KVStorage.KValue>> keyValuesSupplier;
     // true if edge should be avoided as start/stop
     private boolean unfavored;
     private EdgeIteratorState reverseEdge;
@@ -64,6 +67,26 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
         this.reverse = reverse;
     }
 
+    /**
+     * Creates a virtual edge whose key values and geometry are only created when they are requested for the first
+     * time. This is cheaper when they are never needed, e.g. if only the weights of the virtual edges are used.
+     */
+    VirtualEdgeIteratorState(int originalEdgeKey, int edgeKey, int baseNode, int adjNode, double distance,
+                             IntsRef edgeFlags, Supplier<Map<String, KVStorage.KValue>> keyValuesSupplier,
+                             Supplier<PointList> pointListSupplier, boolean reverse) {
+        this(originalEdgeKey, edgeKey, baseNode, adjNode, distance, edgeFlags, (Map<String, KVStorage.KValue>) null, null, reverse);
+        this.keyValuesSupplier = keyValuesSupplier;
+        this.pointListSupplier = pointListSupplier;
+    }
+
+    private PointList getPointList() {
+        if (pointListSupplier != null) {
+            pointList = pointListSupplier.get();
+            pointListSupplier = null;
+        }
+        return pointList;
+    }
+
     /**
      * This method returns the original (not virtual!) edge key. I.e. also the direction is
      * already correctly encoded.
@@ -101,6 +124,7 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
 
     @Override
     public PointList fetchWayGeometry(FetchMode mode) {
+        PointList pointList = getPointList();
         if (pointList.isEmpty())
             return PointList.EMPTY;
         // due to API we need to create a new instance per call!
@@ -323,17 +347,22 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
     @Override
     public EdgeIteratorState setKeyValues(Map<String, KVStorage.KValue> list) {
         this.keyValues = list;
+        this.keyValuesSupplier = null;
         return this;
     }
 
     @Override
     public Map<String, KVStorage.KValue> getKeyValues() {
+        if (keyValuesSupplier != null) {
+            keyValues = keyValuesSupplier.get();
+            keyValuesSupplier = null;
+        }
         return keyValues;
     }
 
     @Override
     public Object getValue(String key) {
-        KVStorage.KValue value = keyValues.get(key);
+        KVStorage.KValue value = getKeyValues().get(key);
         if (value != null) {
             if (!reverse && value.getFwd() != null) return value.getFwd();
             if (reverse && value.getBwd() != null) return value.getBwd();
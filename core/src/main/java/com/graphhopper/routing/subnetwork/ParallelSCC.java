@@ -0,0 +1,495 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.subnetwork;
+
+import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.IntArrayDeque;
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.EdgeTransitionFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.createEdgeKey;
+import static com.graphhopper.util.GHUtility.getEdgeFromEdgeKey;
+
+/**
+ * Finds the strongly connected components of a directed graph using multiple threads. It yields the same components as
+ * {@link TarjanSCC} (for the nodes of a graph) and {@link EdgeBasedTarjanSCC} (for the edge keys of a graph), but does
+ * not depend on a single depth-first search. Instead it follows the 'Multistep' approach of Slota, Rajamanickam and
+ * Madduri ('BFS and Coloring-based Parallel Algorithms for Strongly Connected Components and Related Problems', 2014):
+ * <ol>
+ * <li>trimming: vertices without incoming or outgoing arcs form their own component. For the edge-based graph this
+ * removes all the edge keys that are not accessible, which are a large part of the graph</li>
+ * <li>forward-backward search: the vertices that are reachable from a pivot and from which the pivot can be reached
+ * form the component of the pivot. For road networks this is the main network, which contains most of the remaining
+ * vertices. The forward and the backward search run in parallel</li>
+ * <li>the remaining vertices are split into weakly connected components using a concurrent union-find and we run
+ * Tarjan's algorithm for all of them in parallel. These are usually very small</li>
+ * </ol>
+ * The graph is never materialized, but its arcs are explored on the fly, which is why the work done by the filters
+ * is repeated a few times. This pays off for multiple threads only.
+ */
+public class ParallelSCC {
+    // the number of vertices that are processed by a single task
+    private static final int CHUNK_SIZE = 1 << 14;
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private final int vertices;
+    private final Supplier<ArcExplorer> explorers;
+    private final int threads;
+    private final BitSet done;
+    // first the number of incoming arcs for every vertex, later the weakly connected component (its root vertex)
+    private int[] first;
+    // first the number of outgoing arcs for every vertex, later the position within the weakly connected component
+    private int[] second;
+    private ForkJoinPool pool;
+
+    /**
+     * Parallel version of {@link TarjanSCC#findComponents(Graph, EdgeFilter, boolean)}
+     */
+    public static TarjanSCC.ConnectedComponents findComponents(Graph graph, EdgeFilter edgeFilter, boolean excludeSingleNodeComponents, int threads) {
+        TarjanSCC.ConnectedComponents components = new TarjanSCC.ConnectedComponents(excludeSingleNodeComponents ? -1 : graph.getNodes());
+        new ParallelSCC(graph.getNodes(), () -> new NodeBasedArcExplorer(graph, edgeFilter), threads).run(
+                components::addComponent, node -> components.addSingleNodeComponent(node, excludeSingleNodeComponents));
+        return components;
+    }
+
+    /**
+     * Parallel version of {@link EdgeBasedTarjanSCC#findComponents(Graph, EdgeTransitionFilter, boolean)}
+     */
+    public static EdgeBasedTarjanSCC.ConnectedComponents findEdgeBasedComponents(Graph graph, EdgeTransitionFilter edgeTransitionFilter,
+                                                                                boolean excludeSingleEdgeComponents, int threads) {
+        EdgeBasedTarjanSCC.ConnectedComponents components = new EdgeBasedTarjanSCC.ConnectedComponents(excludeSingleEdgeComponents ? -1 : 2 * graph.getEdges());
+        new ParallelSCC(2 * graph.getEdges(), () -> new EdgeBasedArcExplorer(graph, edgeTransitionFilter), threads).run(
+                components::addComponent, edgeKey -> components.addSingleEdgeComponent(edgeKey, excludeSingleEdgeComponents));
+        return components;
+    }
+
+    ParallelSCC(int vertices, Supplier<ArcExplorer> explorers, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive, got: " + threads);
+        this.vertices = vertices;
+        this.explorers = explorers;
+        this.threads = threads;
+        this.done = new BitSet(vertices);
+    }
+
+    /**
+     * Finds all components and passes them to the given consumers. The consumers are only called from the calling
+     * thread.
+     */
+    void run(Consumer<IntArrayList> componentConsumer, IntConsumer singleVertexComponentConsumer) {
+        pool = new ForkJoinPool(threads);
+        try {
+            countArcs();
+            trim(singleVertexComponentConsumer);
+            findPivotComponent(componentConsumer, singleVertexComponentConsumer);
+            findRemainingComponents(componentConsumer, singleVertexComponentConsumer);
+        } finally {
+            pool.shutdown();
+            first = null;
+            second = null;
+        }
+    }
+
+    private void countArcs() {
+        first = new int[vertices];
+        second = new int[vertices];
+        forEachChunk((from, to) -> {
+            ArcExplorer explorer = explorers.get();
+            IntArrayList arcs = new IntArrayList();
+            for (int v = from; v < to; v++) {
+                arcs.clear();
+                explorer.addPredecessors(v, arcs);
+                first[v] = arcs.size();
+                arcs.clear();
+                explorer.addSuccessors(v, arcs);
+                second[v] = arcs.size();
+            }
+        });
+    }
+
+    private void trim(IntConsumer singleVertexComponentConsumer) {
+        for (int v = 0; v < vertices; v++) {
+            if (first[v] == 0 || second[v] == 0) {
+                done.set(v);
+                singleVertexComponentConsumer.accept(v);
+            }
+        }
+    }
+
+    private void findPivotComponent(Consumer<IntArrayList> componentConsumer, IntConsumer singleVertexComponentConsumer) {
+        // the vertex with the most arcs is very likely part of the biggest component
+        int pivot = -1;
+        long maxArcs = -1;
+        for (int v = 0; v < vertices; v++) {
+            long arcs = (long) first[v] * second[v];
+            if (!done.get(v) && arcs > maxArcs) {
+                pivot = v;
+                maxArcs = arcs;
+            }
+        }
+        if (pivot < 0)
+            return;
+        final int start = pivot;
+        BitSet forward = new BitSet(vertices);
+        BitSet backward = new BitSet(vertices);
+        ForkJoinTask<?> forwardSearch = pool.submit(() -> explore(start, true, forward));
+        ForkJoinTask<?> backwardSearch = pool.submit(() -> explore(start, false, backward));
+        join(forwardSearch);
+        join(backwardSearch);
+        IntArrayList component = new IntArrayList();
+        for (int v = forward.nextSetBit(0); v >= 0; v = forward.nextSetBit(v + 1)) {
+            if (backward.get(v)) {
+                component.add(v);
+                done.set(v);
+            }
+        }
+        if (component.size() == 1) {
+            singleVertexComponentConsumer.accept(pivot);
+        } else {
+            component.trimToSize();
+            componentConsumer.accept(component);
+        }
+    }
+
+    private void explore(int start, boolean forward, BitSet visited) {
+        ArcExplorer explorer = explorers.get();
+        IntArrayDeque queue = new IntArrayDeque();
+        IntArrayList arcs = new IntArrayList();
+        visited.set(start);
+        queue.addLast(start);
+        while (!queue.isEmpty()) {
+            int v = queue.removeFirst();
+            arcs.clear();
+            if (forward)
+                explorer.addSuccessors(v, arcs);
+            else
+                explorer.addPredecessors(v, arcs);
+            for (int i = 0; i < arcs.size(); i++) {
+                int w = arcs.get(i);
+                if (!done.get(w) && !visited.get(w)) {
+                    visited.set(w);
+                    queue.addLast(w);
+                }
+            }
+        }
+    }
+
+    private void findRemainingComponents(Consumer<IntArrayList> componentConsumer, IntConsumer singleVertexComponentConsumer) {
+        if (done.cardinality() == vertices)
+            return;
+        // 1. union-find to determine the weakly connected component of each remaining vertex
+        forEachChunk((from, to) -> {
+            for (int v = from; v < to; v++)
+                first[v] = done.get(v) ? -1 : v;
+        });
+        forEachChunk((from, to) -> {
+            ArcExplorer explorer = explorers.get();
+            IntArrayList arcs = new IntArrayList();
+            for (int v = from; v < to; v++) {
+                if (done.get(v))
+                    continue;
+                arcs.clear();
+                explorer.addSuccessors(v, arcs);
+                for (int i = 0; i < arcs.size(); i++)
+                    if (!done.get(arcs.get(i)))
+                        union(v, arcs.get(i));
+            }
+        });
+
+        // 2. collect the vertices of each weakly connected component, the root is the smallest vertex of it
+        for (int v = 0; v < vertices; v++) {
+            if (first[v] < 0)
+                continue;
+            first[v] = find(v);
+            second[v] = 0;
+            second[first[v]]++;
+        }
+        IntArrayList starts = new IntArrayList();
+        int total = 0;
+        for (int v = 0; v < vertices; v++) {
+            if (first[v] != v)
+                continue;
+            if (second[v] == 1) {
+                // a weakly connected component with a single vertex is also a strongly connected one
+                singleVertexComponentConsumer.accept(v);
+                first[v] = -1;
+            } else {
+                starts.add(total);
+                int size = second[v];
+                // from now on this is the next free position for the component
+                second[v] = total;
+                total += size;
+            }
+        }
+        starts.add(total);
+        int[] members = new int[total];
+        for (int v = 0; v < vertices; v++) {
+            if (first[v] >= 0)
+                members[second[first[v]]++] = v;
+        }
+        for (int c = 0; c < starts.size() - 1; c++)
+            for (int i = starts.get(c); i < starts.get(c + 1); i++)
+                second[members[i]] = i - starts.get(c);
+
+        // 3. run Tarjan's algorithm for the weakly connected components in parallel
+        IntArrayList batches = new IntArrayList();
+        batches.add(0);
+        for (int c = 0; c < starts.size() - 1; c++)
+            if (starts.get(c + 1) - starts.get(batches.get(batches.size() - 1)) >= CHUNK_SIZE)
+                batches.add(c + 1);
+        if (batches.get(batches.size() - 1) != starts.size() - 1)
+            batches.add(starts.size() - 1);
+        int numBatches = batches.size() - 1;
+        List<List<IntArrayList>> components = new ArrayList<>(numBatches);
+        List<IntArrayList> singleVertexComponents = new ArrayList<>(numBatches);
+        for (int b = 0; b < numBatches; b++) {
+            components.add(new ArrayList<>());
+            singleVertexComponents.add(new IntArrayList());
+        }
+        runInParallel(numBatches, b -> {
+            ArcExplorer explorer = explorers.get();
+            for (int c = batches.get(b); c < batches.get(b + 1); c++)
+                findComponents(members, starts.get(c), starts.get(c + 1), explorer, components.get(b), singleVertexComponents.get(b));
+        });
+        for (int b = 0; b < numBatches; b++) {
+            components.get(b).forEach(componentConsumer);
+            IntArrayList singles = singleVertexComponents.get(b);
+            for (int i = 0; i < singles.size(); i++)
+                singleVertexComponentConsumer.accept(singles.get(i));
+        }
+    }
+
+    /**
+     * Runs Tarjan's algorithm (using an explicit stack) for the vertices members[start..end[, which must form a
+     * weakly connected component.
+     */
+    private void findComponents(int[] members, int start, int end, ArcExplorer explorer, List<IntArrayList> components, IntArrayList singleVertexComponents) {
+        int root = first[members[start]];
+        int size = end - start;
+        int[] index = new int[size];
+        int[] lowLink = new int[size];
+        Arrays.fill(index, -1);
+        boolean[] onStack = new boolean[size];
+        IntArrayDeque tarjanStack = new IntArrayDeque();
+        // the positions of the successors of all vertices on the dfs stack
+        IntArrayList arcs = new IntArrayList();
+        // triples of vertex, first arc and next arc for every vertex on the dfs stack
+        IntArrayList dfsStack = new IntArrayList();
+        int currIndex = 0;
+        for (int s = 0; s < size; s++) {
+            if (index[s] != -1)
+                continue;
+            int v = s;
+            while (true) {
+                if (v >= 0) {
+                    // visit v for the first time
+                    index[v] = lowLink[v] = currIndex++;
+                    tarjanStack.addLast(v);
+                    onStack[v] = true;
+                    int firstArc = arcs.size();
+                    explorer.addSuccessors(members[start + v], arcs);
+                    int count = firstArc;
+                    for (int i = firstArc; i < arcs.size(); i++) {
+                        int w = arcs.get(i);
+                        if (first[w] == root)
+                            arcs.set(count++, second[w]);
+                    }
+                    arcs.removeRange(count, arcs.size());
+                    dfsStack.add(v, firstArc, firstArc);
+                }
+                if (dfsStack.isEmpty())
+                    break;
+                int top = dfsStack.size() - 3;
+                int u = dfsStack.get(top);
+                int nextArc = dfsStack.get(top + 2);
+                if (nextArc < arcs.size()) {
+                    dfsStack.set(top + 2, nextArc + 1);
+                    int w = arcs.get(nextArc);
+                    if (index[w] == -1) {
+                        v = w;
+                        continue;
+                    } else if (onStack[w])
+                        lowLink[u] = Math.min(lowLink[u], index[w]);
+                } else {
+                    // all successors of u are done
+                    arcs.removeRange(dfsStack.get(top + 1), arcs.size());
+                    dfsStack.removeRange(top, top + 3);
+                    if (lowLink[u] == index[u]) {
+                        if (tarjanStack.getLast() == u) {
+                            tarjanStack.removeLast();
+                            onStack[u] = false;
+                            singleVertexComponents.add(members[start + u]);
+                        } else {
+                            IntArrayList component = new IntArrayList();
+                            while (true) {
+                                int w = tarjanStack.removeLast();
+                                onStack[w] = false;
+                                component.add(members[start + w]);
+                                if (w == u)
+                                    break;
+                            }
+                            component.trimToSize();
+                            components.add(component);
+                        }
+                    }
+                    if (!dfsStack.isEmpty()) {
+                        int parent = dfsStack.get(dfsStack.size() - 3);
+                        lowLink[parent] = Math.min(lowLink[parent], lowLink[u]);
+                    }
+                }
+                v = -1;
+            }
+        }
+    }
+
+    private int find(int v) {
+        while (true) {
+            int parent = (int) INTS.getVolatile(first, v);
+            if (parent == v)
+                return v;
+            // path halving, losing this race is harmless
+            int grandParent = (int) INTS.getVolatile(first, parent);
+            if (grandParent != parent)
+                INTS.compareAndSet(first, v, parent, grandParent);
+            v = grandParent;
+        }
+    }
+
+    private void union(int a, int b) {
+        while (true) {
+            a = find(a);
+            b = find(b);
+            if (a == b)
+                return;
+            // we always attach the bigger root to the smaller one so there cannot be any cycles, and the root ends up
+            // being the smallest vertex of the component
+            if (a < b) {
+                int tmp = a;
+                a = b;
+                b = tmp;
+            }
+            if (INTS.compareAndSet(first, a, a, b))
+                return;
+        }
+    }
+
+    private void forEachChunk(ChunkTask task) {
+        int chunks = (vertices + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        runInParallel(chunks, c -> task.run(c * CHUNK_SIZE, Math.min(vertices, (c + 1) * CHUNK_SIZE)));
+    }
+
+    private void runInParallel(int tasks, IntConsumer task) {
+        join(pool.submit(() -> IntStream.range(0, tasks).parallel().forEach(task)));
+    }
+
+    private static void join(ForkJoinTask<?> task) {
+        try {
+            task.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private interface ChunkTask {
+        void run(int from, int to);
+    }
+
+    /**
+     * Explores the arcs of the graph we search the components for. Every thread uses its own instance so
+     * implementations do not have to be thread-safe.
+     */
+    interface ArcExplorer {
+        void addSuccessors(int v, IntArrayList successors);
+
+        void addPredecessors(int v, IntArrayList predecessors);
+    }
+
+    private static class NodeBasedArcExplorer implements ArcExplorer {
+        private final EdgeFilter edgeFilter;
+        private final EdgeExplorer explorer;
+
+        NodeBasedArcExplorer(Graph graph, EdgeFilter edgeFilter) {
+            this.edgeFilter = edgeFilter;
+            this.explorer = graph.createEdgeExplorer();
+        }
+
+        @Override
+        public void addSuccessors(int node, IntArrayList successors) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+                if (edgeFilter.accept(iter))
+                    successors.add(iter.getAdjNode());
+        }
+
+        @Override
+        public void addPredecessors(int node, IntArrayList predecessors) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+                if (edgeFilter.accept(iter.detach(true)))
+                    predecessors.add(iter.getAdjNode());
+        }
+    }
+
+    private static class EdgeBasedArcExplorer implements ArcExplorer {
+        private final Graph graph;
+        private final EdgeTransitionFilter edgeTransitionFilter;
+        private final EdgeExplorer explorer;
+
+        EdgeBasedArcExplorer(Graph graph, EdgeTransitionFilter edgeTransitionFilter) {
+            this.graph = graph;
+            this.edgeTransitionFilter = edgeTransitionFilter;
+            this.explorer = graph.createEdgeExplorer();
+        }
+
+        @Override
+        public void addSuccessors(int edgeKey, IntArrayList successors) {
+            int edge = getEdgeFromEdgeKey(edgeKey);
+            EdgeIterator iter = explorer.setBaseNode(graph.getEdgeIteratorStateForKey(edgeKey).getAdjNode());
+            while (iter.next())
+                if (edgeTransitionFilter.accept(edge, iter))
+                    successors.add(createEdgeKey(iter, false));
+        }
+
+        @Override
+        public void addPredecessors(int edgeKey, IntArrayList predecessors) {
+            EdgeIteratorState edgeState = graph.getEdgeIteratorStateForKey(edgeKey);
+            EdgeIterator iter = explorer.setBaseNode(edgeState.getBaseNode());
+            while (iter.next())
+                // the reverse of an edge leaving the base node is an edge arriving there
+                if (edgeTransitionFilter.accept(iter.getEdge(), edgeState))
+                    predecessors.add(createEdgeKey(iter, true));
+        }
+    }
+}
@@ -25,17 +25,18 @@ import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.TurnCostStorage;
+import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.util.stream.Stream;
 
 import static com.graphhopper.util.GHUtility.getEdgeFromEdgeKey;
 
@@ -58,6 +59,10 @@ import static com.graphhopper.util.GHUtility.getEdgeFromEdgeKey;
  * We always run an edge-based connected component search, because this way we retrieve the edges (not the nodes) that
  * belong to each component and can include turn restrictions as well. Node-based component search is faster, but since
  * the subnetwork search goes relatively fast anyway using it has no real benefit.
+ * <p>
+ * Jobs whose weightings allow the same (directed) edges and the same turns yield the same components, so we search the
+ * components only once for all of them. This is often the case for profiles that only differ by their speeds or
+ * priorities. The components are searched using {@link ParallelSCC} if there are more threads than distinct jobs.
  *
  * @author Peter Karich
  * @author easbar
@@ -101,30 +106,92 @@ public class PrepareRoutingSubnetworks {
         StopWatch sw = new StopWatch().start();
         logger.info("Start marking subnetworks, prepare.min_network_size: " + minNetworkSize + ", threads: " + threads + ", nodes: " +
                 Helper.nf(graph.getNodes()) + ", edges: " + Helper.nf(graph.getEdges()) + ", jobs: " + prepareJobs + ", " + Helper.getMemInfo());
+        BitSet[] accessibleEdgeKeys = new BitSet[prepareJobs.size()];
+        BitSet[] restrictedTurns = new BitSet[prepareJobs.size()];
+        GHUtility.runConcurrently(IntStream.range(0, prepareJobs.size()).mapToObj(i -> () -> {
+            accessibleEdgeKeys[i] = findAccessibleEdgeKeys(prepareJobs.get(i).weighting);
+            restrictedTurns[i] = findRestrictedTurns(prepareJobs.get(i));
+        }), threads);
+        List<List<Integer>> groups = groupJobs(accessibleEdgeKeys, restrictedTurns);
+        // the threads that are not needed to run the groups concurrently are used for the component search
+        int componentThreads = Math.max(1, threads / Math.max(1, groups.size()));
+
         AtomicInteger total = new AtomicInteger(0);
-        List<BitSet> flags = Stream.generate(() -> new BitSet(graph.getEdges())).limit(prepareJobs.size()).collect(Collectors.toList());
-        Stream<Runnable> runnables = IntStream.range(0, prepareJobs.size()).mapToObj(i -> () -> {
-            PrepareJob job = prepareJobs.get(i);
-            total.addAndGet(setSubnetworks(job.weighting, job.subnetworkEnc.getName().replaceAll("_subnetwork", ""), flags.get(i)));
-        });
-        GHUtility.runConcurrently(runnables, threads);
+        BitSet[] flags = new BitSet[prepareJobs.size()];
+        GHUtility.runConcurrently(groups.stream().map(group -> () -> {
+            int first = group.get(0);
+            BitSet groupFlags = new BitSet(graph.getEdges());
+            String groupName = group.stream().map(i -> prepareJobs.get(i).subnetworkEnc.getName().replaceAll("_subnetwork", "")).collect(Collectors.joining(","));
+            int markedEdges = setSubnetworks(prepareJobs.get(first).weighting, groupName, accessibleEdgeKeys[first], groupFlags, componentThreads);
+            total.addAndGet(group.size() * markedEdges);
+            for (int i : group)
+                flags[i] = groupFlags;
+        }), threads);
         AllEdgesIterator iter = graph.getAllEdges();
         while (iter.next()) {
             for (int i = 0; i < prepareJobs.size(); i++) {
                 PrepareJob prepareJob = prepareJobs.get(i);
-                iter.set(prepareJob.subnetworkEnc, flags.get(i).get(iter.getEdge()));
+                iter.set(prepareJob.subnetworkEnc, flags[i].get(iter.getEdge()));
             }
         }
-        logger.info("Finished finding and marking subnetworks for " + prepareJobs.size() + " jobs, took: " + sw.stop().getSeconds() + "s, " + Helper.getMemInfo());
+        logger.info("Finished finding and marking subnetworks for " + prepareJobs.size() + " jobs (" + groups.size() + " distinct), took: " + sw.stop().getSeconds() + "s, " + Helper.getMemInfo());
         return total.get();
     }
 
-    private int setSubnetworks(Weighting weighting, String jobName, BitSet subnetworkFlags) {
+    private BitSet findAccessibleEdgeKeys(Weighting weighting) {
+        BitSet accessibleEdgeKeys = new BitSet(2L * graph.getEdges());
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (Double.isFinite(weighting.calcEdgeWeight(iter, false)))
+                accessibleEdgeKeys.set(GHUtility.createEdgeKey(iter.getEdge(), false));
+            if (Double.isFinite(weighting.calcEdgeWeight(iter, true)))
+                accessibleEdgeKeys.set(GHUtility.createEdgeKey(iter.getEdge(), true));
+        }
+        return accessibleEdgeKeys;
+    }
+
+    /**
+     * @return the indices of the turn cost entries that are restricted for the given job or null if we do not know
+     * which turns the weighting of the job forbids
+     */
+    private BitSet findRestrictedTurns(PrepareJob job) {
+        BitSet restrictedTurns = new BitSet();
+        if (!job.weighting.hasTurnCosts())
+            return restrictedTurns;
+        if (job.turnRestrictionEnc == null)
+            return null;
+        TurnCostStorage.Iterator iter = graph.getTurnCostStorage().getAllTurnCosts();
+        for (int index = 0; iter.next(); index++)
+            if (iter.get(job.turnRestrictionEnc))
+                restrictedTurns.set(index);
+        return restrictedTurns;
+    }
+
+    /**
+     * Groups the jobs that allow the same edge keys and the same turns, because their components are the same.
+     */
+    private List<List<Integer>> groupJobs(BitSet[] accessibleEdgeKeys, BitSet[] restrictedTurns) {
+        Map<List<Object>, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < prepareJobs.size(); i++) {
+            // jobs with unknown turn restrictions are never grouped with other jobs
+            List<Object> key = Arrays.asList(accessibleEdgeKeys[i], restrictedTurns[i] == null ? i : restrictedTurns[i]);
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+        // we only need to keep the accessible edge keys of the first job of each group
+        for (List<Integer> group : groups.values())
+            for (int i = 1; i < group.size(); i++)
+                accessibleEdgeKeys[group.get(i)] = null;
+        return new ArrayList<>(groups.values());
+    }
+
+    private int setSubnetworks(Weighting weighting, String jobName, BitSet accessibleEdgeKeys, BitSet subnetworkFlags, int threads) {
         // partition graph into strongly connected components using Tarjan's algorithm
         StopWatch sw = new StopWatch().start();
-        EdgeBasedTarjanSCC.ConnectedComponents ccs = EdgeBasedTarjanSCC.findComponents(graph,
-                (prev, edge) -> Double.isFinite(GHUtility.calcWeightWithTurnWeight(weighting, edge, false, prev)),
-                false);
+        EdgeBasedTarjanSCC.EdgeTransitionFilter filter = (prev, edge) -> accessibleEdgeKeys.get(EdgeBasedTarjanSCC.createEdgeKey(edge, false))
+                && (!EdgeIterator.Edge.isValid(prev) || Double.isFinite(weighting.calcTurnWeight(prev, edge.getBaseNode(), edge.getEdge())));
+        EdgeBasedTarjanSCC.ConnectedComponents ccs = threads > 1
+                ? ParallelSCC.findEdgeBasedComponents(graph, filter, false, threads)
+                : EdgeBasedTarjanSCC.findComponents(graph, filter, false);
         List<IntArrayList> components = ccs.getComponents();
         BitSet singleEdgeComponents = ccs.getSingleEdgeComponents();
         long numSingleEdgeComponents = singleEdgeComponents.cardinality();
@@ -146,7 +213,7 @@ public class PrepareRoutingSubnetworks {
 
             if (component.size() < minNetworkSizeEdgeKeys) {
                 for (IntCursor cursor : component)
-                    markedEdges += setSubnetworkEdge(cursor.value, weighting, subnetworkFlags);
+                    markedEdges += setSubnetworkEdge(cursor.value, accessibleEdgeKeys, subnetworkFlags);
                 subnetworks++;
                 biggestSubnetwork = Math.max(biggestSubnetwork, component.size());
             } else {
@@ -157,7 +224,7 @@ public class PrepareRoutingSubnetworks {
         if (minNetworkSizeEdgeKeys > 0) {
             BitSetIterator iter = singleEdgeComponents.iterator();
             for (int edgeKey = iter.nextSetBit(); edgeKey >= 0; edgeKey = iter.nextSetBit()) {
-                markedEdges += setSubnetworkEdge(edgeKey, weighting, subnetworkFlags);
+                markedEdges += setSubnetworkEdge(edgeKey, accessibleEdgeKeys, subnetworkFlags);
                 subnetworks++;
                 biggestSubnetwork = Math.max(biggestSubnetwork, 1);
             }
@@ -176,9 +243,9 @@ public class PrepareRoutingSubnetworks {
         return markedEdges;
     }
 
-    private int setSubnetworkEdge(int edgeKey, Weighting weighting, BitSet subnetworkFlags) {
+    private int setSubnetworkEdge(int edgeKey, BitSet accessibleEdgeKeys, BitSet subnetworkFlags) {
         // edges that are not accessible anyway are not marked as subnetworks additionally
-        if (!Double.isFinite(weighting.calcEdgeWeight(graph.getEdgeIteratorStateForKey(edgeKey), false)))
+        if (!accessibleEdgeKeys.get(edgeKey))
             return 0;
 
         // now get edge again but in stored direction so that subnetwork EV is not overwritten (as it is unidirectional)
@@ -194,10 +261,21 @@ public class PrepareRoutingSubnetworks {
     public static class PrepareJob {
         private final BooleanEncodedValue subnetworkEnc;
         private final Weighting weighting;
+        private final BooleanEncodedValue turnRestrictionEnc;
 
         public PrepareJob(BooleanEncodedValue subnetworkEnc, Weighting weighting) {
+            this(subnetworkEnc, weighting, null);
+        }
+
+        /**
+         * @param turnRestrictionEnc the turn restrictions of the weighting. Jobs with turn costs can only share their
+         *                           component search with other jobs if this is set, and it must only be set if the
+         *                           weighting forbids no other turns, i.e. its u-turn costs are finite.
+         */
+        public PrepareJob(BooleanEncodedValue subnetworkEnc, Weighting weighting, BooleanEncodedValue turnRestrictionEnc) {
             this.weighting = weighting;
             this.subnetworkEnc = subnetworkEnc;
+            this.turnRestrictionEnc = turnRestrictionEnc;
         }
 
         @Override
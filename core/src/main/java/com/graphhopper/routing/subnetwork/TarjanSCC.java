@@ -286,6 +286,22 @@ public class TarjanSCC {
             biggestComponent = new IntArrayList();
         }
 
+        void addComponent(IntArrayList component) {
+            assert component.size() > 1;
+            numComponents++;
+            numNodes += component.size();
+            components.add(component);
+            if (component.size() > biggestComponent.size())
+                biggestComponent = component;
+        }
+
+        void addSingleNodeComponent(int node, boolean exclude) {
+            numComponents++;
+            numNodes++;
+            if (!exclude)
+                singleNodeComponents.set(node);
+        }
+
         /**
          * A list of arrays each containing the nodes of a strongly connected component. Components with only a single
          * node are not included here, but need to be obtained using {@link #getSingleNodeComponents()}.
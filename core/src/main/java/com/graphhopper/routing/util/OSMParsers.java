@@ -101,6 +101,20 @@ public class OSMParsers {
             parser.handleWayTags(edgeId, edgeIntAccess, way, relationFlags);
     }
 
+    /**
+     * Like {@link #handleWayTags(int, EdgeIntAccess, ReaderWay, IntsRef)}, but only uses the parsers for which
+     * {@link TagParser#isThreadSafe()} returns the given value. This allows running the thread-safe parsers
+     * concurrently for different ways and the remaining ones sequentially afterwards.
+     */
+    public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags, boolean threadSafe) {
+        for (RelationTagParser relParser : relationTagParsers)
+            if (relParser.isThreadSafe() == threadSafe)
+                relParser.handleWayTags(edgeId, edgeIntAccess, way, relationFlags);
+        for (TagParser parser : wayTagParsers)
+            if (parser.isThreadSafe() == threadSafe)
+                parser.handleWayTags(edgeId, edgeIntAccess, way, relationFlags);
+    }
+
     public IntsRef createRelationFlags() {
         int requiredInts = relConfig.getRequiredInts();
         if (requiredInts > 2)
@@ -0,0 +1,78 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util;
+
+import com.graphhopper.routing.ev.*;
+
+import java.util.List;
+
+/**
+ * Resolves {@link TrafficSpeed#KEY} to the given buffer of the traffic speeds and all other keys like the given lookup.
+ * Weightings that are created with this lookup read the speeds of this buffer, see TrafficSpeedUpdater#startUpdate.
+ */
+public class TrafficSpeedLookup implements EncodedValueLookup {
+    private final EncodedValueLookup lookup;
+    private final DecimalEncodedValue trafficSpeedEnc;
+
+    public TrafficSpeedLookup(EncodedValueLookup lookup, DecimalEncodedValue trafficSpeedEnc) {
+        this.lookup = lookup;
+        this.trafficSpeedEnc = trafficSpeedEnc;
+    }
+
+    @Override
+    public List<EncodedValue> getEncodedValues() {
+        return lookup.getEncodedValues();
+    }
+
+    @Override
+    public <T extends EncodedValue> T getEncodedValue(String key, Class<T> encodedValueType) {
+        if (TrafficSpeed.KEY.equals(key))
+            return encodedValueType.cast(trafficSpeedEnc);
+        return lookup.getEncodedValue(key, encodedValueType);
+    }
+
+    @Override
+    public BooleanEncodedValue getBooleanEncodedValue(String key) {
+        return lookup.getBooleanEncodedValue(key);
+    }
+
+    @Override
+    public IntEncodedValue getIntEncodedValue(String key) {
+        return lookup.getIntEncodedValue(key);
+    }
+
+    @Override
+    public DecimalEncodedValue getDecimalEncodedValue(String key) {
+        return TrafficSpeed.KEY.equals(key) ? trafficSpeedEnc : lookup.getDecimalEncodedValue(key);
+    }
+
+    @Override
+    public <T extends Enum<?>> EnumEncodedValue<T> getEnumEncodedValue(String key, Class<T> enumType) {
+        return lookup.getEnumEncodedValue(key, enumType);
+    }
+
+    @Override
+    public StringEncodedValue getStringEncodedValue(String key) {
+        return lookup.getStringEncodedValue(key);
+    }
+
+    @Override
+    public boolean hasEncodedValue(String key) {
+        return lookup.hasEncodedValue(key);
+    }
+}
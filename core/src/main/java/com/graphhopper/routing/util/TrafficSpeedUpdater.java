@@ -0,0 +1,129 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util;
+
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.storage.BaseGraph;
+
+import java.util.Arrays;
+
+/**
+ * Writes live traffic speeds into the {@link TrafficSpeed} encoded value of a graph. The speeds can be set per edge
+ * or per OSM way, which requires the {@link OSMWayID} encoded value. For a periodic refresh the same instance should be
+ * reused, because the mapping from OSM way ids to edges is only built once.
+ * <p>
+ * By default the speeds are written into {@link TrafficSpeed#KEY}. {@link #startUpdate} switches to the other buffer,
+ * so the speeds can be prepared while routing requests still read the previous ones. Preparations like CH are not
+ * updated by this class, see GraphHopper#updateTrafficSpeeds.
+ */
+public class TrafficSpeedUpdater {
+    private final BaseGraph graph;
+    private final EdgeIntAccess edgeIntAccess;
+    private DecimalEncodedValue trafficSpeedEnc;
+    private final IntEncodedValue osmWayIdEnc;
+    // the OSM way id in the upper and the edge id in the lower 32 bits, sorted
+    private long[] edgesByWayId;
+    private int updatedEdges;
+
+    public TrafficSpeedUpdater(BaseGraph graph, EncodedValueLookup lookup) {
+        if (!lookup.hasEncodedValue(TrafficSpeed.KEY))
+            throw new IllegalArgumentException("Traffic speeds require the encoded value " + TrafficSpeed.KEY);
+        this.graph = graph;
+        this.edgeIntAccess = graph.getEdgeAccess();
+        this.trafficSpeedEnc = lookup.getDecimalEncodedValue(TrafficSpeed.KEY);
+        this.osmWayIdEnc = lookup.hasEncodedValue(OSMWayID.KEY) ? lookup.getIntEncodedValue(OSMWayID.KEY) : null;
+    }
+
+    /**
+     * Writes the speeds into the given encoded value from now on. Its speeds are initialized with those of the previous
+     * encoded value, so speeds that are neither set nor cleared afterwards are kept.
+     */
+    public TrafficSpeedUpdater startUpdate(DecimalEncodedValue previousEnc, DecimalEncodedValue trafficSpeedEnc) {
+        this.trafficSpeedEnc = trafficSpeedEnc;
+        for (int edge = 0; edge < graph.getEdges(); edge++) {
+            trafficSpeedEnc.setDecimal(false, edge, edgeIntAccess, previousEnc.getDecimal(false, edge, edgeIntAccess));
+            trafficSpeedEnc.setDecimal(true, edge, edgeIntAccess, previousEnc.getDecimal(true, edge, edgeIntAccess));
+        }
+        return this;
+    }
+
+    /**
+     * Removes the traffic speeds of all edges, which is usually done before the speeds of a new traffic snapshot are set.
+     */
+    public TrafficSpeedUpdater clear() {
+        for (int edge = 0; edge < graph.getEdges(); edge++) {
+            trafficSpeedEnc.setDecimal(false, edge, edgeIntAccess, Double.POSITIVE_INFINITY);
+            trafficSpeedEnc.setDecimal(true, edge, edgeIntAccess, Double.POSITIVE_INFINITY);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the traffic speeds of the given edge in km/h. Infinity removes the traffic speed and 0 closes the edge.
+     *
+     * @param speed        the speed in the direction from the base to the adjacent node of the edge
+     * @param reverseSpeed the speed in the opposite direction
+     */
+    public TrafficSpeedUpdater setEdgeSpeed(int edge, double speed, double reverseSpeed) {
+        if (edge < 0 || edge >= graph.getEdges())
+            throw new IllegalArgumentException("Invalid edge: " + edge + ", edges: " + graph.getEdges());
+        if (!(speed >= 0) || !(reverseSpeed >= 0))
+            throw new IllegalArgumentException("Invalid traffic speed for edge " + edge + ": " + speed + ", " + reverseSpeed);
+        trafficSpeedEnc.setDecimal(false, edge, edgeIntAccess, speed);
+        trafficSpeedEnc.setDecimal(true, edge, edgeIntAccess, reverseSpeed);
+        updatedEdges++;
+        return this;
+    }
+
+    /**
+     * Sets the traffic speeds of all edges of the given OSM way, see {@link #setEdgeSpeed}.
+     *
+     * @param speed        the speed in the direction of the OSM way
+     * @param reverseSpeed the speed in the opposite direction
+     * @return the number of edges that belong to the given OSM way
+     */
+    public int setWaySpeed(long osmWayId, double speed, double reverseSpeed) {
+        if (osmWayIdEnc == null)
+            throw new IllegalStateException("Setting traffic speeds by OSM way requires the encoded value " + OSMWayID.KEY);
+        if (edgesByWayId == null)
+            edgesByWayId = createEdgesByWayId();
+        // the search key is found only if edge 0 belongs to the way, otherwise we get the insertion point
+        int index = Arrays.binarySearch(edgesByWayId, osmWayId << 32);
+        int count = 0;
+        for (int i = index >= 0 ? index : -index - 1; i < edgesByWayId.length && edgesByWayId[i] >>> 32 == osmWayId; i++) {
+            setEdgeSpeed((int) edgesByWayId[i], speed, reverseSpeed);
+            count++;
+        }
+        return count;
+    }
+
+    private long[] createEdgesByWayId() {
+        long[] result = new long[graph.getEdges()];
+        for (int edge = 0; edge < result.length; edge++)
+            result[edge] = (long) osmWayIdEnc.getInt(false, edge, edgeIntAccess) << 32 | edge;
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * @return the number of edges whose traffic speeds were set by this instance
+     */
+    public int getUpdatedEdges() {
+        return updatedEdges;
+    }
+}
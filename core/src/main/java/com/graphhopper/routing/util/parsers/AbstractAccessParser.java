@@ -125,4 +125,9 @@ public abstract class AbstractAccessParser implements TagParser {
     public String toString() {
         return getName();
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
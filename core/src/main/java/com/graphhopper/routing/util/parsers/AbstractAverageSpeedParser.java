@@ -43,4 +43,9 @@ public abstract class AbstractAverageSpeedParser implements TagParser {
     public String toString() {
         return getName();
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
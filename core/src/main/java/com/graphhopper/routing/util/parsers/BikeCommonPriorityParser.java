@@ -246,4 +246,9 @@ public abstract class BikeCommonPriorityParser implements TagParser {
     public final DecimalEncodedValue getPriorityEnc() {
         return priorityEnc;
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
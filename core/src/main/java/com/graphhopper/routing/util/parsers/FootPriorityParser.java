@@ -121,4 +121,9 @@ public class FootPriorityParser implements TagParser {
         if (way.hasTag("bicycle", "official") || way.hasTag("bicycle", "designated"))
             weightToPrioMap.put(44d, SLIGHT_AVOID);
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -107,4 +107,9 @@ public class ModeAccessParser implements TagParser {
         // vehicle:backward=no is like oneway=yes
         return way.hasTag("oneway", ONEWAYS_FW) || "no".equals(way.getFirstValue(vehicleBackward));
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -42,4 +42,9 @@ public class OSMHazmatTunnelParser implements TagParser {
             }
         }
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
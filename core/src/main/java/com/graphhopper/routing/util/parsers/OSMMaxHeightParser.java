@@ -39,4 +39,9 @@ public class OSMMaxHeightParser implements TagParser {
         List<String> heightTags = Arrays.asList("maxheight", "maxheight:physical"/*, the OSM tag "height" is not used for the height of a road, so omit it here! */);
         OSMValueExtractor.extractMeter(edgeId, edgeIntAccess, way, heightEncoder, heightTags);
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
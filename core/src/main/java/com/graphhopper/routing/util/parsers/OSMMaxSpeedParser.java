@@ -131,4 +131,9 @@ public class OSMMaxSpeedParser implements TagParser {
 
         return value;
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -53,4 +53,9 @@ public class OSMMaxWeightParser implements TagParser {
             }
         }
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -42,4 +42,9 @@ public class OSMSmoothnessParser implements TagParser {
 
         smoothnessEnc.setEnum(false, edgeId, edgeIntAccess, smoothness);
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
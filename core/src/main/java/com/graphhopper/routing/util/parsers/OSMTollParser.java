@@ -111,4 +111,9 @@ public class OSMTollParser implements TagParser {
             }
         }
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
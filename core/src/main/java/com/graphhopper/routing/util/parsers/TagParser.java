@@ -28,4 +28,13 @@ import com.graphhopper.storage.IntsRef;
 public interface TagParser {
 
     void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags);
+
+    /**
+     * @return true if this parser can be called concurrently for different ways. This requires that it does not
+     * modify any internal state and only writes to the given EdgeIntAccess for the given edge. The default is false,
+     * so parsers that were not written with this in mind run sequentially.
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util.parsers;
+
+import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.EdgeIntAccess;
+import com.graphhopper.storage.IntsRef;
+
+/**
+ * Initializes the traffic speed of all edges to infinity, i.e. no traffic information. The actual traffic speeds are
+ * set after the import.
+ */
+public class TrafficSpeedParser implements TagParser {
+    private final DecimalEncodedValue trafficSpeedEnc;
+
+    public TrafficSpeedParser(DecimalEncodedValue trafficSpeedEnc) {
+        if (!trafficSpeedEnc.isStoreTwoDirections())
+            throw new IllegalArgumentException("EncodedValue for traffic speed must be able to store two directions");
+        this.trafficSpeedEnc = trafficSpeedEnc;
+    }
+
+    @Override
+    public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
+        trafficSpeedEnc.setDecimal(false, edgeId, edgeIntAccess, Double.POSITIVE_INFINITY);
+        trafficSpeedEnc.setDecimal(true, edgeId, edgeIntAccess, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+}
@@ -99,7 +99,15 @@ public abstract class AbstractDataAccess implements DataAccess {
     }
 
     protected long readHeader(RandomAccessFile raFile) throws IOException {
-        raFile.seek(0);
+        return readHeader(raFile, 0);
+    }
+
+    /**
+     * Reads the header that starts at the given position of the specified file, which is not 0 for files that are
+     * contained in a {@link GraphArchive}.
+     */
+    protected long readHeader(RandomAccessFile raFile, long fileOffset) throws IOException {
+        raFile.seek(fileOffset);
         if (raFile.length() == 0)
             return -1;
 
@@ -56,19 +56,42 @@ public class BaseGraph implements Graph, Closeable {
     final BitUtil bitUtil;
     // length | nodeA | nextNode | ... | nodeB
     private final DataAccess wayGeometry;
+    // if true the pillar coordinates are stored as variable-length deltas, see createWayGeometryBytes
+    private boolean compactGeometry;
     private final Directory dir;
     private final int segmentSize;
     private boolean initialized = false;
     private long minGeoRef;
     private long maxGeoRef;
     private final int eleBytesPerCoord;
+    private final boolean withAdjacencyArray;
 
     public BaseGraph(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags) {
+        this(dir, withElevation, withTurnCosts, segmentSize, bytesForFlags, false);
+    }
+
+    /**
+     * @param withAdjacencyArray if true an adjacency array is created when the graph is frozen and it is used to
+     *                           iterate the edges of a node afterwards, see {@link BaseGraphNodesAndEdges}
+     */
+    public BaseGraph(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags,
+                     boolean withAdjacencyArray) {
+        this(dir, withElevation, withTurnCosts, segmentSize, bytesForFlags, withAdjacencyArray, false);
+    }
+
+    /**
+     * @param compactGeometry if true the pillar nodes are stored in a compact format, see {@link Builder#withCompactGeometry}.
+     *                        This is ignored for {@link #loadExisting}, which uses the format of the existing graph.
+     */
+    public BaseGraph(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags,
+                     boolean withAdjacencyArray, boolean compactGeometry) {
         this.dir = dir;
+        this.compactGeometry = compactGeometry;
         this.bitUtil = BitUtil.LITTLE;
         this.wayGeometry = dir.create("geometry", segmentSize);
         this.edgeKVStorage = new KVStorage(dir, true);
-        this.store = new BaseGraphNodesAndEdges(dir, withElevation, withTurnCosts, segmentSize, bytesForFlags);
+        this.store = new BaseGraphNodesAndEdges(dir, withElevation, withTurnCosts, segmentSize, bytesForFlags, withAdjacencyArray);
+        this.withAdjacencyArray = withAdjacencyArray;
         this.nodeAccess = new GHNodeAccess(store);
         this.segmentSize = segmentSize;
         this.turnCostStorage = withTurnCosts ? new TurnCostStorage(this, dir.create("turn_costs", dir.getDefaultType("turn_costs", true), segmentSize)) : null;
@@ -124,6 +147,7 @@ public class BaseGraph implements Graph, Closeable {
                 wayGeometry.getHeader(12),
                 wayGeometry.getHeader(16)
         );
+        compactGeometry = wayGeometry.getHeader(20) == 1;
     }
 
     private void setWayGeometryHeader() {
@@ -132,6 +156,7 @@ public class BaseGraph implements Graph, Closeable {
         wayGeometry.setHeader(8, bitUtil.getIntHigh(minGeoRef));
         wayGeometry.setHeader(12, bitUtil.getIntLow(maxGeoRef));
         wayGeometry.setHeader(16, bitUtil.getIntHigh(maxGeoRef));
+        wayGeometry.setHeader(20, compactGeometry ? 1 : 0);
     }
 
     private void setInitialized() {
@@ -166,6 +191,8 @@ public class BaseGraph implements Graph, Closeable {
         if (isFrozen())
             throw new IllegalStateException("base graph already frozen");
         store.setFrozen(true);
+        if (withAdjacencyArray)
+            store.createAdjacencyArray();
     }
 
     public synchronized boolean isFrozen() {
@@ -245,6 +272,10 @@ public class BaseGraph implements Graph, Closeable {
         return maxGeoRef;
     }
 
+    public boolean isCompactGeometry() {
+        return compactGeometry;
+    }
+
     public boolean loadExisting() {
         checkNotInitialized();
 
@@ -291,6 +322,19 @@ public class BaseGraph implements Graph, Closeable {
     public EdgeIteratorState edge(int nodeA, int nodeB) {
         if (isFrozen())
             throw new IllegalStateException("Cannot create edge if graph is already frozen");
+        return createEdge(nodeA, nodeB);
+    }
+
+    /**
+     * Creates an edge between nodes a and b even if the graph is already frozen, e.g. to apply OSM changes. This
+     * invalidates everything that was created for the frozen graph, i.e. the CH and LM preparations and the location
+     * index must be created again afterwards.
+     */
+    public EdgeIteratorState appendEdge(int nodeA, int nodeB) {
+        return createEdge(nodeA, nodeB);
+    }
+
+    private EdgeIteratorState createEdge(int nodeA, int nodeB) {
         if (nodeA == nodeB)
             // Loop edges would only make sense if their attributes were the same for both 'directions',
             // because for routing algorithms (which ignore the way geometry) loop edges do not even
@@ -464,18 +508,17 @@ public class BaseGraph implements Graph, Closeable {
                 // longer possible to find the copies corresponding to an edge, so we deny this
                 throw new IllegalStateException("This edge has already been copied so we can no longer change the geometry, pointer=" + edgePointer);
 
-            int len = pillarNodes.size();
+            byte[] wayGeometryBytes = createWayGeometryBytes(pillarNodes, edgePointer, reverse);
             if (existingGeoRef > 0) {
-                final int count = getPillarCount(existingGeoRef);
-                if (len <= count) {
-                    setWayGeometryAtGeoRef(pillarNodes, edgePointer, reverse, existingGeoRef);
+                if (wayGeometryBytes.length <= getWayGeometryLength(existingGeoRef)) {
+                    setWayGeometryAtGeoRef(wayGeometryBytes, edgePointer, existingGeoRef);
                     return;
                 } else {
                     throw new IllegalStateException("This edge already has a way geometry so it cannot be changed to a bigger geometry, pointer=" + edgePointer);
                 }
             }
-            long nextGeoRef = nextGeoRef(3 + len * (8 + eleBytesPerCoord));
-            setWayGeometryAtGeoRef(pillarNodes, edgePointer, reverse, nextGeoRef);
+            long nextGeoRef = nextGeoRef(wayGeometryBytes.length);
+            setWayGeometryAtGeoRef(wayGeometryBytes, edgePointer, nextGeoRef);
         } else {
             store.setGeoRef(edgePointer, 0L);
         }
@@ -485,14 +528,22 @@ public class BaseGraph implements Graph, Closeable {
         return store;
     }
 
-    private void setWayGeometryAtGeoRef(PointList pillarNodes, long edgePointer, boolean reverse, long geoRef) {
-        byte[] wayGeometryBytes = createWayGeometryBytes(pillarNodes, reverse);
+    /**
+     * @return an empty IntsRef that can hold the flags of one edge, see {@link EdgeIteratorState#setFlags}
+     */
+    public IntsRef createEdgeFlags() {
+        return store.createEdgeFlags();
+    }
+
+    private void setWayGeometryAtGeoRef(byte[] wayGeometryBytes, long edgePointer, long geoRef) {
         wayGeometry.ensureCapacity(geoRef + wayGeometryBytes.length);
         wayGeometry.setBytes(geoRef, wayGeometryBytes, wayGeometryBytes.length);
         store.setGeoRef(edgePointer, geoRef);
     }
 
-    private byte[] createWayGeometryBytes(PointList pillarNodes, boolean reverse) {
+    private byte[] createWayGeometryBytes(PointList pillarNodes, long edgePointer, boolean reverse) {
+        if (compactGeometry)
+            return createCompactWayGeometryBytes(pillarNodes, edgePointer, reverse);
         int len = pillarNodes.size();
         int totalLen = 3 + len * (8 + eleBytesPerCoord);
         if ((totalLen & 0xFF00_0000) != 0)
@@ -520,11 +571,75 @@ public class BaseGraph implements Graph, Closeable {
         return bytes;
     }
 
+    /**
+     * In the compact format the number of pillar nodes and the number of bytes of the encoded points are followed by
+     * the differences of the coordinates of each pillar node and the previous point, starting with nodeA of the edge.
+     * The differences are stored as zig-zag encoded VLongs, so close points need only one or two bytes per coordinate
+     * instead of four. The elevation is stored like in the default format, because it is changed in place after the
+     * import, see e.g. EdgeElevationInterpolator, and its differences would not fit into the space used before.
+     */
+    private byte[] createCompactWayGeometryBytes(PointList pillarNodes, long edgePointer, boolean reverse) {
+        int len = pillarNodes.size();
+        if (reverse)
+            pillarNodes.reverse();
+        int nodeA = store.getNodeA(edgePointer);
+        int prevLat = Helper.degreeToInt(nodeAccess.getLat(nodeA));
+        int prevLon = Helper.degreeToInt(nodeAccess.getLon(nodeA));
+        VLongStorage storage = new VLongStorage(6 + len * (4 + eleBytesPerCoord));
+        // reserve the space for the header
+        storage.seek(6);
+        boolean is3D = nodeAccess.is3D();
+        for (int i = 0; i < len; i++) {
+            int lat = Helper.degreeToInt(pillarNodes.getLat(i));
+            int lon = Helper.degreeToInt(pillarNodes.getLon(i));
+            storage.writeVLong(zigZag(lat - prevLat));
+            storage.writeVLong(zigZag(lon - prevLon));
+            prevLat = lat;
+            prevLon = lon;
+            if (is3D) {
+                int ele = Helper.eleToUInt(pillarNodes.getEle(i));
+                storage.writeByte((byte) ele);
+                storage.writeByte((byte) (ele >>> 8));
+                storage.writeByte((byte) (ele >>> 16));
+            }
+        }
+        int encodedLen = (int) storage.getPosition() - 6;
+        if ((encodedLen & 0xFF00_0000) != 0)
+            throw new IllegalArgumentException("too long way geometry " + encodedLen + ", " + len);
+        storage.trimToSize();
+        byte[] bytes = storage.getBytes();
+        bitUtil.fromUInt3(bytes, len, 0);
+        bitUtil.fromUInt3(bytes, encodedLen, 3);
+        return bytes;
+    }
+
+    private static long zigZag(int value) {
+        return ((long) value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(long value) {
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
+
     private int getPillarCount(long geoRef) {
         return (wayGeometry.getByte(geoRef + 2) & 0xFF << 16) | wayGeometry.getShort(geoRef);
     }
 
-    private PointList fetchWayGeometry_(long edgePointer, boolean reverse, FetchMode mode, int baseNode, int adjNode) {
+    /**
+     * @return the number of bytes that are used by the way geometry at the given geo ref
+     */
+    private int getWayGeometryLength(long geoRef) {
+        if (!compactGeometry)
+            return 3 + getPillarCount(geoRef) * (8 + eleBytesPerCoord);
+        return 6 + getCompactEncodedLength(geoRef);
+    }
+
+    private int getCompactEncodedLength(long geoRef) {
+        return (wayGeometry.getShort(geoRef + 3) & 0xFFFF) | (wayGeometry.getByte(geoRef + 5) & 0xFF) << 16;
+    }
+
+    private PointList fetchWayGeometry_(long edgePointer, boolean reverse, FetchMode mode, int baseNode, int adjNode,
+                                        GeometryBuffer buffer) {
         if (mode == FetchMode.TOWER_ONLY) {
             // no reverse handling required as adjNode and baseNode is already properly switched
             PointList pillarNodes = new PointList(2, nodeAccess.is3D());
@@ -533,6 +648,8 @@ public class BaseGraph implements Graph, Closeable {
             return pillarNodes;
         }
         long geoRef = store.getGeoRef(edgePointer);
+        if (compactGeometry && geoRef > 0)
+            return fetchCompactWayGeometry(edgePointer, geoRef, reverse, mode, baseNode, adjNode, buffer);
         int count = 0;
         byte[] bytes = null;
         if (geoRef > 0) {
@@ -575,6 +692,70 @@ public class BaseGraph implements Graph, Closeable {
         return pillarNodes;
     }
 
+    private PointList fetchCompactWayGeometry(long edgePointer, long geoRef, boolean reverse, FetchMode mode, int baseNode, int adjNode,
+                                              GeometryBuffer buffer) {
+        int count = getPillarCount(geoRef);
+        buffer.read(wayGeometry, geoRef + 6, getCompactEncodedLength(geoRef));
+        PointList pillarNodes = new PointList(getPointListLength(count, mode), nodeAccess.is3D());
+        if (reverse) {
+            if (mode == FetchMode.ALL || mode == FetchMode.PILLAR_AND_ADJ)
+                pillarNodes.add(nodeAccess, adjNode);
+        } else if (mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR)
+            pillarNodes.add(nodeAccess, baseNode);
+
+        int nodeA = store.getNodeA(edgePointer);
+        int lat = Helper.degreeToInt(nodeAccess.getLat(nodeA));
+        int lon = Helper.degreeToInt(nodeAccess.getLon(nodeA));
+        for (int i = 0; i < count; i++) {
+            lat += unZigZag(buffer.readVLong());
+            lon += unZigZag(buffer.readVLong());
+            if (nodeAccess.is3D()) {
+                pillarNodes.add(Helper.intToDegree(lat), Helper.intToDegree(lon), Helper.uIntToEle(bitUtil.toUInt3(buffer.bytes, buffer.position)));
+                buffer.position += 3;
+            } else {
+                pillarNodes.add(Helper.intToDegree(lat), Helper.intToDegree(lon));
+            }
+        }
+
+        if (reverse) {
+            if (mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR)
+                pillarNodes.add(nodeAccess, baseNode);
+            pillarNodes.reverse();
+        } else if (mode == FetchMode.ALL || mode == FetchMode.PILLAR_AND_ADJ)
+            pillarNodes.add(nodeAccess, adjNode);
+        return pillarNodes;
+    }
+
+    /**
+     * The bytes of a compact way geometry, see {@link #createCompactWayGeometryBytes}. The array is re-used by each
+     * edge iterator, so fetching the geometry does not allocate more than the returned point list.
+     */
+    static class GeometryBuffer {
+        private static final byte[] EMPTY = new byte[0];
+        private byte[] bytes = EMPTY;
+        private int position;
+
+        void read(DataAccess da, long pointer, int length) {
+            if (bytes.length < length)
+                bytes = new byte[Math.max(length, 2 * bytes.length)];
+            da.getBytes(pointer, bytes, length);
+            position = 0;
+        }
+
+        /**
+         * Reads a variable length long like {@link VLongStorage#readVLong}
+         */
+        long readVLong() {
+            byte b = bytes[position++];
+            long value = b & 0x7FL;
+            for (int shift = 7; b < 0; shift += 7) {
+                b = bytes[position++];
+                value |= (b & 0x7FL) << shift;
+            }
+            return value;
+        }
+    }
+
     static int getPointListLength(int pillarNodes, FetchMode mode) {
         switch (mode) {
             case TOWER_ONLY:
@@ -615,6 +796,8 @@ public class BaseGraph implements Graph, Closeable {
         private boolean withTurnCosts = false;
         private long bytes = 100;
         private int segmentSize = -1;
+        private boolean withAdjacencyArray = false;
+        private boolean withCompactGeometry = false;
 
         public Builder(EncodingManager em) {
             this(em.getBytesForFlags());
@@ -653,8 +836,30 @@ public class BaseGraph implements Graph, Closeable {
             return this;
         }
 
+        /**
+         * Creates an adjacency array when the graph is frozen. Iterating the edges of a node becomes faster, because
+         * the adjacent edges are stored next to each other. The array replaces the linked lists of adjacent edges,
+         * which saves 8 bytes per edge, and itself needs about one byte per node and three bytes per edge.
+         * The graph can then only be loaded with this option.
+         */
+        public Builder withAdjacencyArray(boolean withAdjacencyArray) {
+            this.withAdjacencyArray = withAdjacencyArray;
+            return this;
+        }
+
+        /**
+         * Stores the coordinates of the pillar nodes as variable-length differences to the previous point, which
+         * reduces the size of the way geometry by about half without elevation and by about a third with elevation.
+         * Reading the geometry is a bit slower, but for big graphs that are memory mapped fewer pages need to be read.
+         * The tower nodes of an edge must not be moved after its geometry was set.
+         */
+        public Builder withCompactGeometry(boolean withCompactGeometry) {
+            this.withCompactGeometry = withCompactGeometry;
+            return this;
+        }
+
         public BaseGraph build() {
-            return new BaseGraph(directory, withElevation, withTurnCosts, segmentSize, bytesForFlags);
+            return new BaseGraph(directory, withElevation, withTurnCosts, segmentSize, bytesForFlags, withAdjacencyArray, withCompactGeometry);
         }
 
         public BaseGraph create() {
@@ -667,6 +872,11 @@ public class BaseGraph implements Graph, Closeable {
     protected static class EdgeIteratorImpl extends EdgeIteratorStateImpl implements EdgeExplorer, EdgeIterator {
         final EdgeFilter filter;
         int nextEdgeId;
+        // only used if the adjacency array exists: the position of the next adjacent edge, the number of remaining
+        // adjacent edges and the key of the next adjacent edge
+        private long adjacencyPointer;
+        private int remainingEdges;
+        private int nextEdgeKey;
 
         public EdgeIteratorImpl(BaseGraph baseGraph, EdgeFilter filter) {
             super(baseGraph);
@@ -677,11 +887,39 @@ public class BaseGraph implements Graph, Closeable {
 
         @Override
         public EdgeIterator setBaseNode(int baseNode) {
-            nextEdgeId = edgeId = store.getEdgeRef(store.toNodePointer(baseNode));
+            if (store.hasAdjacencyArray()) {
+                adjacencyPointer = store.getAdjacentEdgesPointer(baseNode);
+                remainingEdges = adjacencyPointer < 0 ? 0 : readVInt();
+                nextEdgeKey = 0;
+                nextEdgeId = edgeId = readNextEdgeKey();
+            } else {
+                nextEdgeId = edgeId = store.getEdgeRef(store.toNodePointer(baseNode));
+            }
             this.baseNode = baseNode;
             return this;
         }
 
+        private int readNextEdgeKey() {
+            if (remainingEdges == 0)
+                return EdgeIterator.NO_EDGE;
+            remainingEdges--;
+            nextEdgeKey += BaseGraphNodesAndEdges.unZigZag(readVInt());
+            return nextEdgeKey >>> 1;
+        }
+
+        /**
+         * Reads a variable length int from the adjacency array, see {@link BaseGraphNodesAndEdges#getAdjacencyByte}
+         */
+        private int readVInt() {
+            byte b = store.getAdjacencyByte(adjacencyPointer++);
+            int value = b & 0x7F;
+            for (int shift = 7; b < 0; shift += 7) {
+                b = store.getAdjacencyByte(adjacencyPointer++);
+                value |= (b & 0x7F) << shift;
+            }
+            return value;
+        }
+
         @Override
         public final boolean next() {
             while (EdgeIterator.Edge.isValid(nextEdgeId)) {
@@ -695,6 +933,12 @@ public class BaseGraph implements Graph, Closeable {
         void goToNext() {
             edgePointer = store.toEdgePointer(nextEdgeId);
             edgeId = nextEdgeId;
+            if (store.hasAdjacencyArray()) {
+                reverse = (nextEdgeKey & 1) == 1;
+                adjNode = reverse ? store.getNodeA(edgePointer) : store.getNodeB(edgePointer);
+                nextEdgeId = readNextEdgeKey();
+                return;
+            }
             int nodeA = store.getNodeA(edgePointer);
             boolean baseNodeIsNodeA = baseNode == nodeA;
             adjNode = baseNodeIsNodeA ? store.getNodeB(edgePointer) : nodeA;
@@ -770,6 +1014,7 @@ public class BaseGraph implements Graph, Closeable {
         boolean reverse = false;
         int edgeId = -1;
         private final EdgeIntAccess edgeIntAccess;
+        private final GeometryBuffer geometryBuffer = new GeometryBuffer();
 
         public EdgeIteratorStateImpl(BaseGraph baseGraph) {
             this.baseGraph = baseGraph;
@@ -1025,7 +1270,7 @@ public class BaseGraph implements Graph, Closeable {
 
         @Override
         public PointList fetchWayGeometry(FetchMode mode) {
-            return baseGraph.fetchWayGeometry_(edgePointer, reverse, mode, getBaseNode(), getAdjNode());
+            return baseGraph.fetchWayGeometry_(edgePointer, reverse, mode, getBaseNode(), getAdjNode(), geometryBuffer);
         }
 
         @Override
@@ -19,9 +19,12 @@
 package com.graphhopper.storage;
 
 import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.routing.ev.EdgeIntAccess;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Locale;
 import java.util.function.IntUnaryOperator;
@@ -32,13 +35,22 @@ import static com.graphhopper.util.Helper.nf;
 /**
  * Underlying storage for nodes and edges of {@link BaseGraph}. Nodes and edges are stored using two {@link DataAccess}
  * instances. Nodes and edges are simply stored sequentially, see the memory layout in the constructor.
+ * <p>
+ * The edges adjacent to a node form a linked list: every node points to its first edge and every edge points to the
+ * next edge of its nodeA and nodeB. Optionally, an adjacency array can be created once the graph is frozen. It stores
+ * the adjacent edges of every node sequentially and delta-encoded (similar to the compressed sparse row format), which
+ * avoids jumping between the edge entries when iterating the edges of a node. The linked lists are removed from the
+ * edge entries afterwards, so the graph can then only be loaded with the adjacency array.
  */
 class BaseGraphNodesAndEdges implements EdgeIntAccess {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BaseGraphNodesAndEdges.class);
     // Currently distances are stored as 4 byte integers. using a conversion factor of 1000 the minimum distance
     // that is not considered zero is 0.0005m (=0.5mm) and the maximum distance per edge is about 2.147.483m=2147km.
     // See OSMReader.addEdge and #1871.
     private static final double INT_DIST_FACTOR = 1000d;
     static double MAX_DIST = Integer.MAX_VALUE / INT_DIST_FACTOR;
+    // the positions in the adjacency array are stored as unsigned ints, and NO_EDGE means that a node has no edges
+    private static final long MAX_ADJACENCY_POINTER = 0xFFFF_FFFEL;
 
     // nodes
     private final DataAccess nodes;
@@ -46,12 +58,22 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
     private int nodeEntryBytes;
     private int nodeCount;
 
-    // edges
-    private final DataAccess edges;
-    private final int E_NODEA, E_NODEB, E_LINKA, E_LINKB, E_DIST, E_KV, E_FLAGS, E_GEO;
+    // edges, the DataAccess is replaced when the linked lists are removed
+    private final Directory dir;
+    private DataAccess edges;
+    private final int E_NODEA, E_NODEB, E_LINKA, E_LINKB;
+    private int E_DIST, E_KV, E_FLAGS, E_GEO;
     private final int bytesForFlags;
     private int edgeEntryBytes;
     private int edgeCount;
+    private boolean withEdgeLinks;
+
+    // adjacency array, can be null. for every node N_EDGE_REF points to a block of this array, which starts with the
+    // number of adjacent edges followed by the adjacent edges. every adjacent edge is stored as edgeId << 1 | reverse,
+    // as difference to the previous one. the differences are zig-zag encoded and all values are stored as VInts.
+    private final DataAccess adjacency;
+    private long adjacencyBytes;
+    private boolean adjacencyCreated;
 
     private final boolean withTurnCosts;
     private final boolean withElevation;
@@ -63,8 +85,15 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
     private boolean frozen;
 
     public BaseGraphNodesAndEdges(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags) {
+        this(dir, withElevation, withTurnCosts, segmentSize, bytesForFlags, false);
+    }
+
+    public BaseGraphNodesAndEdges(Directory dir, boolean withElevation, boolean withTurnCosts, int segmentSize, int bytesForFlags,
+                                  boolean withAdjacencyArray) {
+        this.dir = dir;
         nodes = dir.create("nodes", dir.getDefaultType("nodes", true), segmentSize);
         edges = dir.create("edges", dir.getDefaultType("edges", false), segmentSize);
+        adjacency = withAdjacencyArray ? dir.create("adjacency", dir.getDefaultType("adjacency", false), segmentSize) : null;
         this.bytesForFlags = bytesForFlags;
         this.withTurnCosts = withTurnCosts;
         this.withElevation = withElevation;
@@ -83,9 +112,18 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
         E_NODEB = 4;
         E_LINKA = 8;
         E_LINKB = 12;
-        E_DIST = 16;
-        E_KV = 20;
-        E_FLAGS = 24;
+        setEdgeLayout(true);
+    }
+
+    /**
+     * The edge entries of a graph that uses the adjacency array do not contain the two links of the linked lists.
+     * All fields after E_NODEB move forward by 8 bytes then.
+     */
+    private void setEdgeLayout(boolean withEdgeLinks) {
+        this.withEdgeLinks = withEdgeLinks;
+        E_DIST = withEdgeLinks ? 16 : 8;
+        E_KV = E_DIST + 4;
+        E_FLAGS = E_KV + 4;
         E_GEO = E_FLAGS + bytesForFlags;
         edgeEntryBytes = E_GEO + 5;
     }
@@ -121,8 +159,31 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
 
         final int edgesVersion = edges.getHeader(0 * 4);
         GHUtility.checkDAVersion("edges", Constants.VERSION_EDGE, edgesVersion);
+        setEdgeLayout(edges.getHeader(3 * 4) == 0);
         edgeEntryBytes = edges.getHeader(1 * 4);
         edgeCount = edges.getHeader(2 * 4);
+
+        if (!withEdgeLinks) {
+            if (adjacency == null)
+                throw new IllegalStateException("The graph was stored with an adjacency array instead of the linked "
+                        + "lists of adjacent edges, so it can only be loaded with graph.adjacency_array: true");
+            if (!loadAdjacencyArray())
+                throw new IllegalStateException("The adjacency array is missing or does not match the graph. It cannot "
+                        + "be created again, because the graph was stored without the linked lists of adjacent edges");
+        } else if (adjacency != null && frozen) {
+            // the adjacency array is only created when the graph is frozen, because it replaces the linked lists.
+            // for a graph that was created without it we keep using the linked lists.
+            LOGGER.warn("The adjacency array is enabled, but the graph was created without it. The edges are iterated "
+                    + "using the linked lists. Import the graph again to use the adjacency array.");
+        }
+        return true;
+    }
+
+    private boolean loadAdjacencyArray() {
+        if (!adjacency.loadExisting() || adjacency.getHeader(0) != nodeCount || adjacency.getHeader(4) != edgeCount)
+            return false;
+        adjacencyBytes = BitUtil.LITTLE.toLong(adjacency.getHeader(2 * 4), adjacency.getHeader(3 * 4));
+        adjacencyCreated = true;
         return true;
     }
 
@@ -144,14 +205,24 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
         edges.setHeader(0 * 4, Constants.VERSION_EDGE);
         edges.setHeader(1 * 4, edgeEntryBytes);
         edges.setHeader(2 * 4, edgeCount);
+        edges.setHeader(3 * 4, withEdgeLinks ? 0 : 1);
 
         edges.flush();
         nodes.flush();
+        if (adjacencyCreated) {
+            adjacency.setHeader(0, nodeCount);
+            adjacency.setHeader(4, edgeCount);
+            adjacency.setHeader(2 * 4, (int) adjacencyBytes);
+            adjacency.setHeader(3 * 4, (int) (adjacencyBytes >>> 32));
+            adjacency.flush();
+        }
     }
 
     public void close() {
         edges.close();
         nodes.close();
+        if (adjacency != null)
+            adjacency.close();
     }
 
     public int getNodes() {
@@ -183,7 +254,7 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
     }
 
     public long getCapacity() {
-        return nodes.getCapacity() + edges.getCapacity();
+        return nodes.getCapacity() + edges.getCapacity() + (adjacencyCreated ? adjacency.getCapacity() : 0);
     }
 
     public boolean isClosed() {
@@ -196,6 +267,8 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
             throw new IllegalStateException("Maximum edge count exceeded: " + edgeCount);
         if (nodeA == nodeB)
             throw new IllegalArgumentException("Loop edges are not supported, got: " + nodeA + " - " + nodeB);
+        if (!withEdgeLinks && edgeCount >= Integer.MAX_VALUE >> 1)
+            throw new IllegalStateException("Too many edges for the adjacency array: " + edgeCount);
         ensureNodeCapacity(Math.max(nodeA, nodeB));
         final int edge = edgeCount;
         final long edgePointer = (long) edgeCount * edgeEntryBytes;
@@ -204,6 +277,12 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
 
         setNodeA(edgePointer, nodeA);
         setNodeB(edgePointer, nodeB);
+        if (!withEdgeLinks) {
+            // the linked lists were replaced by the adjacency array, see appendAdjacentEdge
+            appendAdjacentEdge(nodeA, edge << 1);
+            appendAdjacentEdge(nodeB, edge << 1 | 1);
+            return edge;
+        }
         // we keep a linked list of edges at each node. here we prepend the new edge at the already existing linked
         // list of edges.
         long nodePointerA = toNodePointer(nodeA);
@@ -455,10 +534,12 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
     }
 
     public int getLinkA(long edgePointer) {
+        assert withEdgeLinks : "the linked lists were replaced by the adjacency array";
         return edges.getInt(edgePointer + E_LINKA);
     }
 
     public int getLinkB(long edgePointer) {
+        assert withEdgeLinks : "the linked lists were replaced by the adjacency array";
         return edges.getInt(edgePointer + E_LINKB);
     }
 
@@ -527,6 +608,178 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
         return frozen;
     }
 
+    /**
+     * Creates the adjacency array from the linked lists of adjacent edges and removes the linked lists from the edge
+     * entries afterwards. The edges of each node are stored in the same order as they appear in the linked list, so
+     * iterating the edges of a node does not depend on whether the adjacency array is used or not. This requires that
+     * the graph is frozen. Edges that are still added afterwards are appended to the end of the array, see
+     * {@link #appendAdjacentEdge}.
+     */
+    public void createAdjacencyArray() {
+        if (adjacency == null)
+            throw new IllegalStateException("The adjacency array was not enabled for this graph");
+        if (!frozen)
+            throw new IllegalStateException("The adjacency array can only be created for a frozen graph");
+        if (!withEdgeLinks)
+            throw new IllegalStateException("The adjacency array was already created");
+        if (edgeCount > Integer.MAX_VALUE >> 1)
+            throw new IllegalStateException("Too many edges for the adjacency array: " + edgeCount);
+        if (adjacency.getCapacity() == 0)
+            adjacency.create(0);
+        // first we write the adjacent edges of all nodes, because the linked lists start at the nodes ...
+        IntArrayList edgeKeys = new IntArrayList();
+        long pointer = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            if (pointer > MAX_ADJACENCY_POINTER)
+                throw new IllegalStateException("The adjacency array is too large, the edges of node " + node
+                        + " would start at byte " + pointer);
+            edgeKeys.clear();
+            int edge = getEdgeRef(toNodePointer(node));
+            while (EdgeIterator.Edge.isValid(edge)) {
+                long edgePointer = toEdgePointer(edge);
+                boolean reverse = getNodeA(edgePointer) != node;
+                edgeKeys.add(edge << 1 | (reverse ? 1 : 0));
+                edge = reverse ? getLinkB(edgePointer) : getLinkA(edgePointer);
+            }
+            pointer = writeAdjacentEdges(pointer, edgeKeys);
+        }
+        adjacencyBytes = pointer;
+        // ... and only then we let every node point to its adjacent edges instead
+        pointer = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            setEdgeRef(toNodePointer(node), (int) pointer);
+            int count = readVInt(pointer);
+            pointer = skipVInt(pointer);
+            for (int i = 0; i < count; i++)
+                pointer = skipVInt(pointer);
+        }
+        removeEdgeLinks();
+        adjacencyCreated = true;
+    }
+
+    private long writeAdjacentEdges(long pointer, IntArrayList edgeKeys) {
+        adjacency.ensureCapacity(pointer + 5L * (edgeKeys.size() + 1));
+        pointer = writeVInt(pointer, edgeKeys.size());
+        int prevKey = 0;
+        for (int i = 0; i < edgeKeys.size(); i++) {
+            int key = edgeKeys.get(i);
+            pointer = writeVInt(pointer, zigZag(key - prevKey));
+            prevKey = key;
+        }
+        return pointer;
+    }
+
+    /**
+     * Writes the adjacent edges of the given node again at the end of the adjacency array, starting with the given
+     * edge key, just like new edges are prepended to the linked lists. The previous entry of the node is not used
+     * anymore, but its space is not reclaimed, so this should only be used for a few edges that are added to a frozen
+     * graph, see {@link BaseGraph#appendEdge}.
+     */
+    private void appendAdjacentEdge(int node, int edgeKey) {
+        if (adjacencyBytes > MAX_ADJACENCY_POINTER)
+            throw new IllegalStateException("The adjacency array is too large, the edges of node " + node
+                    + " would start at byte " + adjacencyBytes);
+        IntArrayList edgeKeys = new IntArrayList();
+        edgeKeys.add(edgeKey);
+        long pointer = getAdjacentEdgesPointer(node);
+        if (pointer >= 0) {
+            int count = readVInt(pointer);
+            pointer = skipVInt(pointer);
+            int key = 0;
+            for (int i = 0; i < count; i++) {
+                key += unZigZag(readVInt(pointer));
+                pointer = skipVInt(pointer);
+                edgeKeys.add(key);
+            }
+        }
+        setEdgeRef(toNodePointer(node), (int) adjacencyBytes);
+        adjacencyBytes = writeAdjacentEdges(adjacencyBytes, edgeKeys);
+    }
+
+    /**
+     * Copies the edge entries without the links of the linked lists into a new DataAccess that replaces the old one.
+     * This way the memory of the removed links is actually released, which would not be the case if we just moved
+     * the edge entries within the existing DataAccess.
+     */
+    private void removeEdgeLinks() {
+        final int oldEdgeEntryBytes = edgeEntryBytes;
+        final int linksEnd = E_LINKB + 4;
+        setEdgeLayout(false);
+        DataAccess tmpEdges = dir.create("edges_tmp", edges.getType(), edges.getSegmentSize());
+        tmpEdges.create((long) edgeCount * edgeEntryBytes);
+        byte[] bytes = new byte[oldEdgeEntryBytes];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            edges.getBytes((long) edge * oldEdgeEntryBytes, bytes, oldEdgeEntryBytes);
+            System.arraycopy(bytes, linksEnd, bytes, E_LINKA, oldEdgeEntryBytes - linksEnd);
+            tmpEdges.setBytes((long) edge * edgeEntryBytes, bytes, edgeEntryBytes);
+        }
+        dir.remove(edges.getName());
+
+        edges = dir.create("edges", tmpEdges.getType(), tmpEdges.getSegmentSize());
+        edges.create(tmpEdges.getCapacity());
+        bytes = new byte[tmpEdges.getSegmentSize()];
+        for (long pointer = 0; pointer < tmpEdges.getCapacity(); pointer += bytes.length) {
+            tmpEdges.getBytes(pointer, bytes, bytes.length);
+            edges.setBytes(pointer, bytes, bytes.length);
+        }
+        dir.remove(tmpEdges.getName());
+    }
+
+    public boolean hasAdjacencyArray() {
+        return adjacencyCreated;
+    }
+
+    /**
+     * @return the position of the adjacent edges of the given node in the adjacency array, or -1 if the node has no
+     * adjacent edges. At this position there is the number of adjacent edges followed by the differences of their
+     * edge keys, see {@link #getAdjacencyByte}.
+     */
+    public long getAdjacentEdgesPointer(int node) {
+        int edgeRef = getEdgeRef(toNodePointer(node));
+        return edgeRef == NO_EDGE ? -1 : edgeRef & 0xFFFF_FFFFL;
+    }
+
+    /**
+     * @return a single byte of the adjacency array. The values are stored as VInts, i.e. a negative byte means that
+     * the value continues in the next byte, see {@link #readVInt}.
+     */
+    public byte getAdjacencyByte(long pointer) {
+        return adjacency.getByte(pointer);
+    }
+
+    private long writeVInt(long pointer, int value) {
+        while ((value & ~0x7F) != 0) {
+            adjacency.setByte(pointer++, (byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        adjacency.setByte(pointer++, (byte) value);
+        return pointer;
+    }
+
+    private int readVInt(long pointer) {
+        byte b = adjacency.getByte(pointer);
+        int value = b & 0x7F;
+        for (int shift = 7; b < 0; shift += 7) {
+            b = adjacency.getByte(++pointer);
+            value |= (b & 0x7F) << shift;
+        }
+        return value;
+    }
+
+    private long skipVInt(long pointer) {
+        while (adjacency.getByte(pointer) < 0)
+            pointer++;
+        return pointer + 1;
+    }
+
+    static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
     public void debugPrint() {
         final int printMax = 100;
         System.out.println("nodes:");
@@ -549,8 +802,8 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
             System.out.format(Locale.ROOT, formatEdges, i,
                     getNodeA(edgePointer),
                     getNodeB(edgePointer),
-                    getLinkA(edgePointer),
-                    getLinkB(edgePointer),
+                    withEdgeLinks ? getLinkA(edgePointer) : "-",
+                    withEdgeLinks ? getLinkB(edgePointer) : "-",
                     edgeFlags,
                     getDist(edgePointer));
         }
@@ -573,6 +826,7 @@ class BaseGraphNodesAndEdges implements EdgeIntAccess {
     public String toDetailsString() {
         return "edges: " + nf(edgeCount) + "(" + edges.getCapacity() / Helper.MB + "MB), "
                 + "nodes: " + nf(nodeCount) + "(" + nodes.getCapacity() / Helper.MB + "MB), "
+                + (adjacencyCreated ? "adjacency: (" + adjacency.getCapacity() / Helper.MB + "MB), " : "")
                 + "bounds: " + bounds;
     }
 }
@@ -0,0 +1,185 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.Constants;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
+
+import static com.graphhopper.util.Helper.nf;
+
+/**
+ * DataAccess-based storage for the metric-independent part of a customizable contraction hierarchy (CCH): the level
+ * of every node and the (undirected) upward arcs of every node. Unlike {@link CHStorage} this does not contain any
+ * weights, so it can be used for arbitrary weightings, see {@link com.graphhopper.routing.ch.CustomizableCH}.
+ * <p>
+ * The arcs of each node are stored consecutively and refer to their target by its level, in increasing order.
+ * This way the arc between two nodes can be found using a binary search.
+ *
+ * @see com.graphhopper.routing.ch.PrepareCustomizableCH
+ */
+public class CCHStorage {
+    private final DataAccess nodesCCH;
+    private final DataAccess arcs;
+    // nodes are stored consecutively using this layout:
+    // LEVEL | FIRST_ARC | END_ARC
+    private static final int N_LEVEL = 0, N_FIRST_ARC = 4, N_END_ARC = 8, NODE_ENTRY_BYTES = 12;
+    private int nodeCount = -1;
+    private int arcCount = 0;
+
+    public CCHStorage(Directory dir, String name, int segmentSize) {
+        this.nodesCCH = dir.create("nodes_cch_" + name, dir.getDefaultType("nodes_cch_" + name, true), segmentSize);
+        this.arcs = dir.create("arcs_cch_" + name, dir.getDefaultType("arcs_cch_" + name, true), segmentSize);
+    }
+
+    /**
+     * Creates a new storage for the given number of nodes. Arcs are added with {@link #addArcs}.
+     */
+    public void create(int nodes, int expectedArcs) {
+        if (nodeCount >= 0)
+            throw new IllegalStateException("CCHStorage can only be created once");
+        if (nodes < 0)
+            throw new IllegalStateException("CCHStorage must be created with a positive number of nodes");
+        nodesCCH.create((long) nodes * NODE_ENTRY_BYTES);
+        nodeCount = nodes;
+        for (int node = 0; node < nodes; node++)
+            setLevel(node, -1);
+        arcs.create((long) expectedArcs * 4);
+    }
+
+    public void flush() {
+        nodesCCH.setHeader(0, Constants.VERSION_NODE_CCH);
+        nodesCCH.setHeader(4, nodeCount);
+        nodesCCH.flush();
+
+        arcs.setHeader(0, Constants.VERSION_NODE_CCH);
+        arcs.setHeader(4, arcCount);
+        arcs.flush();
+    }
+
+    public boolean loadExisting() {
+        if (!nodesCCH.loadExisting() || !arcs.loadExisting())
+            return false;
+
+        GHUtility.checkDAVersion(nodesCCH.getName(), Constants.VERSION_NODE_CCH, nodesCCH.getHeader(0));
+        nodeCount = nodesCCH.getHeader(4);
+        GHUtility.checkDAVersion(arcs.getName(), Constants.VERSION_NODE_CCH, arcs.getHeader(0));
+        arcCount = arcs.getHeader(4);
+        return true;
+    }
+
+    public void close() {
+        nodesCCH.close();
+        arcs.close();
+    }
+
+    public boolean isClosed() {
+        assert nodesCCH.isClosed() == arcs.isClosed();
+        return nodesCCH.isClosed();
+    }
+
+    /**
+     * The number of nodes of this storage.
+     */
+    public int getNodes() {
+        return nodeCount;
+    }
+
+    /**
+     * The number of (undirected) arcs of this storage
+     */
+    public int getArcs() {
+        return arcCount;
+    }
+
+    public int getLevel(int node) {
+        return nodesCCH.getInt(toNodePointer(node) + N_LEVEL);
+    }
+
+    public void setLevel(int node, int level) {
+        nodesCCH.setInt(toNodePointer(node) + N_LEVEL, level);
+    }
+
+    /**
+     * Adds the upward arcs of the given node. The targets must be given by their level and in increasing order.
+     */
+    public void addArcs(int node, int[] targetLevels, int count) {
+        if ((long) arcCount + count > Integer.MAX_VALUE)
+            throw new IllegalStateException("Maximum arc count exceeded: " + arcCount + " + " + count);
+        long nodePointer = toNodePointer(node);
+        nodesCCH.setInt(nodePointer + N_FIRST_ARC, arcCount);
+        arcs.ensureCapacity(((long) arcCount + count) * 4);
+        for (int i = 0; i < count; i++) {
+            assert i == 0 || targetLevels[i - 1] < targetLevels[i] : "arcs must be sorted by the level of their target";
+            arcs.setInt((long) (arcCount + i) * 4, targetLevels[i]);
+        }
+        arcCount += count;
+        nodesCCH.setInt(nodePointer + N_END_ARC, arcCount);
+    }
+
+    public int getFirstArc(int node) {
+        return nodesCCH.getInt(toNodePointer(node) + N_FIRST_ARC);
+    }
+
+    /**
+     * @return the index after the last arc of the given node
+     */
+    public int getEndArc(int node) {
+        return nodesCCH.getInt(toNodePointer(node) + N_END_ARC);
+    }
+
+    /**
+     * @return the level of the target node of the given arc
+     */
+    public int getArcTargetLevel(int arc) {
+        return arcs.getInt((long) arc * 4);
+    }
+
+    /**
+     * @return the arc from the given node to the node with the given (higher) level or -1 if there is no such arc
+     */
+    public int findArc(int node, int targetLevel) {
+        int low = getFirstArc(node);
+        int high = getEndArc(node) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midLevel = getArcTargetLevel(mid);
+            if (midLevel < targetLevel)
+                low = mid + 1;
+            else if (midLevel > targetLevel)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    private long toNodePointer(int node) {
+        assert node >= 0 && node < nodeCount : "node not in bounds: [0, " + nodeCount + "[";
+        return (long) node * NODE_ENTRY_BYTES;
+    }
+
+    public long getCapacity() {
+        return nodesCCH.getCapacity() + arcs.getCapacity();
+    }
+
+    public String toDetailsString() {
+        return "arcs:" + nf(arcCount) + " (" + nf(arcs.getCapacity() / Helper.MB) + "MB)" +
+                ", nodesCCH:" + nf(nodeCount) + " (" + nf(nodesCCH.getCapacity() / Helper.MB) + "MB)";
+    }
+}
@@ -53,6 +53,15 @@ public class DAType {
      * embedded data stores.
      */
     public static final DAType MMAP_RO = new DAType(MemRef.MMAP, true, false, false);
+    /**
+     * The DA object is hold entirely in memory, but outside of the JVM heap, so it does not increase garbage
+     * collection pauses. Loading and flushing is a no-op. See OffHeapDataAccess.
+     */
+    public static final DAType OFF_HEAP = new DAType(MemRef.OFF_HEAP, false, false, true);
+    /**
+     * Like OFF_HEAP, but it will load from disc and flush to it like RAM_STORE.
+     */
+    public static final DAType OFF_HEAP_STORE = new DAType(MemRef.OFF_HEAP, true, false, true);
     private final MemRef memRef;
     private final boolean storing;
     private final boolean integ;
@@ -78,6 +87,8 @@ public class DAType {
             type = DAType.MMAP_RO;
         else if (dataAccess.contains("MMAP"))
             type = DAType.MMAP;
+        else if (dataAccess.contains("OFF_HEAP"))
+            type = dataAccess.contains("STORE") ? DAType.OFF_HEAP_STORE : DAType.OFF_HEAP;
         else if (dataAccess.contains("UNSAFE"))
             throw new IllegalArgumentException("UNSAFE option is no longer supported, see #1620");
         else if (dataAccess.equals("RAM"))
@@ -88,7 +99,7 @@ public class DAType {
     }
 
     /**
-     * Memory mapped or purely in memory? default is HEAP
+     * Memory mapped, off-heap or purely in memory? default is HEAP
      */
     MemRef getMemRef() {
         return memRef;
@@ -109,6 +120,13 @@ public class DAType {
         return memRef == MemRef.MMAP;
     }
 
+    /**
+     * @return true if data resides in native memory outside of the JVM heap that is not backed by a file.
+     */
+    public boolean isOffHeap() {
+        return memRef == MemRef.OFF_HEAP;
+    }
+
     /**
      * Temporary data or store (with loading and storing)? default is false
      */
@@ -128,6 +146,8 @@ public class DAType {
         String str;
         if (getMemRef() == MemRef.MMAP)
             str = "MMAP";
+        else if (getMemRef() == MemRef.OFF_HEAP)
+            str = "OFF_HEAP";
         else
             str = "RAM";
 
@@ -164,6 +184,6 @@ public class DAType {
     }
 
     public enum MemRef {
-        HEAP, MMAP
+        HEAP, MMAP, OFF_HEAP
     }
 }
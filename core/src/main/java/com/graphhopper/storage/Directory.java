@@ -53,6 +53,12 @@ public interface Directory {
      */
     void remove(String name);
 
+    /**
+     * Removes the specified object from the directory and releases its resources without removing the backing files,
+     * such that it can be created and loaded again later.
+     */
+    void close(String name);
+
     /**
      * @return the default type of a newly created DataAccess object
      */
@@ -36,6 +36,7 @@ public class GHDirectory implements Directory {
     private final Map<String, DAType> defaultTypes = new LinkedHashMap<>();
     private final Map<String, Integer> mmapPreloads = new LinkedHashMap<>();
     private final Map<String, DataAccess> map = Collections.synchronizedMap(new HashMap<>());
+    private GraphArchive archive;
 
     public GHDirectory(String _location, DAType defaultType) {
         this.typeFallback = defaultType;
@@ -95,6 +96,30 @@ public class GHDirectory implements Directory {
         }
     }
 
+    /**
+     * Opens the {@link GraphArchive} of this directory if it exists. All DataAccess objects contained in the archive
+     * are then memory mapped read-only from the archive instead of being read from separate files, regardless of
+     * their configured DAType. Use the mmap preload configuration to load them into physical memory.
+     *
+     * @return true if the archive was found
+     */
+    public boolean openArchive() {
+        File file = new File(location + GraphArchive.FILE_NAME);
+        if (!file.exists())
+            return false;
+        if (archive != null)
+            throw new IllegalStateException("Graph archive " + archive + " is already open");
+        archive = GraphArchive.open(file);
+        return true;
+    }
+
+    /**
+     * @return the archive opened by {@link #openArchive()} or null
+     */
+    public GraphArchive getArchive() {
+        return archive;
+    }
+
     @Override
     public DataAccess create(String name) {
         return create(name, getDefault(name, typeFallback));
@@ -127,7 +152,9 @@ public class GHDirectory implements Directory {
             throw new IllegalStateException("DataAccess " + name + " has already been created");
 
         DataAccess da;
-        if (type.isInMemory()) {
+        if (archive != null && archive.contains(name)) {
+            da = new MMapDataAccess(name, location, archive, segmentSize);
+        } else if (type.isInMemory()) {
             if (type.isInteg()) {
                 if (type.isStoring())
                     da = new RAMIntDataAccess(name, location, true, segmentSize);
@@ -139,6 +166,8 @@ public class GHDirectory implements Directory {
                 da = new RAMDataAccess(name, location, false, segmentSize);
         } else if (type.isMMap()) {
             da = new MMapDataAccess(name, location, type.isAllowWrites(), segmentSize);
+        } else if (type.isOffHeap()) {
+            da = new OffHeapDataAccess(name, location, type.isStoring(), segmentSize);
         } else {
             throw new IllegalArgumentException("DAType not supported " + type);
         }
@@ -153,6 +182,14 @@ public class GHDirectory implements Directory {
             da.close();
         }
         map.clear();
+        closeArchive();
+    }
+
+    private void closeArchive() {
+        if (archive != null) {
+            archive.close();
+            archive = null;
+        }
     }
 
     @Override
@@ -162,6 +199,7 @@ public class GHDirectory implements Directory {
             removeBackingFile(da, da.getName());
         }
         map.clear();
+        closeArchive();
     }
 
     @Override
@@ -174,6 +212,15 @@ public class GHDirectory implements Directory {
         removeBackingFile(old, name);
     }
 
+    @Override
+    public void close(String name) {
+        DataAccess old = map.remove(name);
+        if (old == null)
+            throw new IllegalStateException("Couldn't close DataAccess: " + name);
+
+        old.close();
+    }
+
     private void removeBackingFile(DataAccess da, String name) {
         if (da.getType().isStoring())
             removeDir(new File(location + name));
@@ -0,0 +1,292 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.Helper;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * A single file that contains all DataAccess files of a graph folder. Every file is stored at an offset that is a
+ * multiple of the page size, so a {@link GHDirectory} can memory map its segments directly from the archive, see
+ * {@link GHDirectory#openArchive()}. This way loading a graph only needs to open and validate one file instead of
+ * dozens, and distributing a graph is a copy of a single file. The archive stores a CRC32 checksum for every file,
+ * which can be checked with {@link #verify()}.
+ * <p>
+ * The archive starts with a table of contents (marker, version, number of files and the name, offset, length and
+ * checksum of every file), followed by the files.
+ */
+public class GraphArchive implements Closeable {
+    public static final String FILE_NAME = "graph.archive";
+    private static final String MARKER = "GHARCHIVE";
+    private static final int VERSION = 1;
+    private static final int ALIGNMENT = 4096;
+    private final File file;
+    private final RandomAccessFile raFile;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private GraphArchive(File file) throws IOException {
+        this.file = file;
+        this.raFile = new RandomAccessFile(file, "r");
+        try {
+            String marker = raFile.readUTF();
+            if (!MARKER.equals(marker))
+                throw new IllegalStateException("Not a graph archive " + file + "! Expected '" + MARKER + "' as file marker but was " + marker);
+            int version = raFile.readInt();
+            if (version != VERSION)
+                throw new IllegalStateException("Unsupported graph archive version " + version + " in " + file + ", expected " + VERSION);
+            int count = raFile.readInt();
+            long fileLength = raFile.length();
+            for (int i = 0; i < count; i++) {
+                Entry entry = new Entry(raFile.readUTF(), raFile.readLong(), raFile.readLong(), raFile.readLong(), raFile.readLong());
+                if (entry.offset % ALIGNMENT != 0 || entry.offset + entry.mappedLength > fileLength)
+                    throw new IllegalStateException("Invalid entry " + entry.name + " in graph archive " + file + ", the file is probably truncated");
+                entries.put(entry.name, entry);
+            }
+        } catch (IOException | RuntimeException ex) {
+            Helper.close(raFile);
+            throw ex;
+        }
+    }
+
+    /**
+     * Opens the given archive and reads its table of contents. The contained files are not read.
+     */
+    public static GraphArchive open(File archiveFile) {
+        try {
+            return new GraphArchive(archiveFile);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not open graph archive " + archiveFile, ex);
+        }
+    }
+
+    /**
+     * Packs all DataAccess files of the given graph folder into the given archive file. Other files like the lock
+     * files or an existing archive are skipped. The archive is written to a temporary file first and then moved to
+     * the target location, so an existing archive is replaced atomically.
+     */
+    public static void pack(File graphFolder, File archiveFile) {
+        File[] files = graphFolder.listFiles();
+        if (files == null)
+            throw new IllegalArgumentException("Graph folder " + graphFolder + " does not exist");
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        List<Entry> entries = new ArrayList<>();
+        try {
+            for (File f : files) {
+                long mappedLength = getMappedLength(f);
+                if (mappedLength > 0)
+                    entries.add(new Entry(f.getName(), 0, f.length(), mappedLength, 0));
+            }
+            if (entries.isEmpty())
+                throw new IllegalArgumentException("Graph folder " + graphFolder + " does not contain any graph files");
+
+            ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+            writeTable(new DataOutputStream(tableBytes), entries);
+            long offset = align(tableBytes.size());
+            for (Entry entry : entries) {
+                entry.offset = offset;
+                offset = align(offset + entry.mappedLength);
+            }
+
+            File tmpFile = new File(archiveFile.getPath() + ".tmp");
+            try (RandomAccessFile out = new RandomAccessFile(tmpFile, "rw")) {
+                out.setLength(0);
+                byte[] buffer = new byte[1 << 20];
+                for (Entry entry : entries) {
+                    CRC32 crc = new CRC32();
+                    out.seek(entry.offset);
+                    try (InputStream in = new FileInputStream(new File(graphFolder, entry.name))) {
+                        int read;
+                        while ((read = in.read(buffer)) > 0) {
+                            crc.update(buffer, 0, read);
+                            out.write(buffer, 0, read);
+                        }
+                    }
+                    entry.checksum = crc.getValue();
+                }
+                // the segments of the last file are mapped completely, so the archive must not end before them
+                Entry last = entries.get(entries.size() - 1);
+                out.setLength(last.offset + last.mappedLength);
+                tableBytes.reset();
+                writeTable(new DataOutputStream(tableBytes), entries);
+                out.seek(0);
+                out.write(tableBytes.toByteArray());
+                out.getFD().sync();
+            }
+            Files.move(tmpFile.toPath(), archiveFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not pack " + graphFolder + " into " + archiveFile, ex);
+        }
+    }
+
+    /**
+     * @return the number of bytes that will be memory mapped when the given file is loaded, or 0 if it is not a
+     * DataAccess file
+     */
+    private static long getMappedLength(File f) throws IOException {
+        if (!f.isFile() || f.length() < AbstractDataAccess.HEADER_OFFSET)
+            return 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 64))) {
+            // see AbstractDataAccess.writeHeader
+            if (in.readUnsignedShort() != 2 || in.readByte() != 'G' || in.readByte() != 'H')
+                return 0;
+            long bytes = in.readLong();
+            int segmentSize = in.readInt();
+            if (segmentSize <= 0 || bytes < AbstractDataAccess.HEADER_OFFSET)
+                return 0;
+            long dataBytes = bytes - AbstractDataAccess.HEADER_OFFSET;
+            long segments = (dataBytes + segmentSize - 1) / segmentSize;
+            return Math.max(f.length(), AbstractDataAccess.HEADER_OFFSET + segments * segmentSize);
+        }
+    }
+
+    private static void writeTable(DataOutputStream out, List<Entry> entries) throws IOException {
+        out.writeUTF(MARKER);
+        out.writeInt(VERSION);
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+            out.writeUTF(entry.name);
+            out.writeLong(entry.offset);
+            out.writeLong(entry.length);
+            out.writeLong(entry.mappedLength);
+            out.writeLong(entry.checksum);
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    public boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    /**
+     * @return the position of the given file within the archive
+     */
+    long getOffset(String name) {
+        Entry entry = entries.get(name);
+        if (entry == null)
+            throw new IllegalArgumentException("Graph archive " + file + " does not contain " + name);
+        return entry.offset;
+    }
+
+    /**
+     * The archive file, which is shared by all DataAccess objects that are loaded from it. Reading the header of a
+     * DataAccess moves the file pointer, so this needs to be synchronized on the returned object.
+     */
+    RandomAccessFile getRandomAccessFile() {
+        return raFile;
+    }
+
+    /**
+     * Reads all files and compares their checksums with the ones that were stored when the archive was packed.
+     *
+     * @throws IllegalStateException if a file is corrupt
+     */
+    public void verify() {
+        for (Entry entry : entries.values()) {
+            if (entry.checksum != calcChecksum(entry))
+                throw new IllegalStateException("Checksum mismatch for " + entry.name + " in graph archive " + file);
+        }
+    }
+
+    private long calcChecksum(Entry entry) {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        FileChannel channel = raFile.getChannel();
+        try {
+            long position = entry.offset;
+            long end = entry.offset + entry.length;
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read <= 0)
+                    break;
+                buffer.flip();
+                crc.update(buffer);
+                position += read;
+            }
+            return crc.getValue();
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not read " + entry.name + " from graph archive " + file, ex);
+        }
+    }
+
+    /**
+     * Extracts all files into the given folder, which can then be loaded (and modified) like a graph folder that was
+     * created by an import. The checksums are verified while extracting.
+     */
+    public void unpack(File graphFolder) {
+        if (!graphFolder.exists() && !graphFolder.mkdirs())
+            throw new IllegalStateException("Could not create " + graphFolder);
+        FileChannel channel = raFile.getChannel();
+        for (Entry entry : entries.values()) {
+            if (entry.checksum != calcChecksum(entry))
+                throw new IllegalStateException("Checksum mismatch for " + entry.name + " in graph archive " + file);
+            try (FileChannel out = new FileOutputStream(new File(graphFolder, entry.name)).getChannel()) {
+                long position = 0;
+                while (position < entry.length)
+                    position += channel.transferTo(entry.offset + position, entry.length - position, out);
+            } catch (IOException ex) {
+                throw new RuntimeException("Could not extract " + entry.name + " from graph archive " + file, ex);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        Helper.close(raFile);
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+
+    private static class Entry {
+        final String name;
+        long offset;
+        final long length;
+        // the DataAccess maps complete segments, which can be more than the length of the file
+        final long mappedLength;
+        long checksum;
+
+        Entry(String name, long offset, long length, long mappedLength, long checksum) {
+            this.name = name;
+            this.offset = offset;
+            this.length = length;
+            this.mappedLength = mappedLength;
+            this.checksum = checksum;
+        }
+    }
+}
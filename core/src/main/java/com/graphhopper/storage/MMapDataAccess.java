@@ -51,10 +51,27 @@ public final class MMapDataAccess extends AbstractDataAccess {
     private final boolean allowWrites;
     private RandomAccessFile raFile;
     private final List<MappedByteBuffer> segments = new ArrayList<>();
+    // the archive this object is read from or null if it uses its own file
+    private final GraphArchive archive;
+    // the position of our file within the archive
+    private final long fileOffset;
 
     MMapDataAccess(String name, String location, boolean allowWrites, int segmentSize) {
         super(name, location, segmentSize);
         this.allowWrites = allowWrites;
+        this.archive = null;
+        this.fileOffset = 0;
+    }
+
+    /**
+     * Creates a read-only DataAccess whose segments are mapped directly from the given archive.
+     */
+    MMapDataAccess(String name, String location, GraphArchive archive, int segmentSize) {
+        super(name, location, segmentSize);
+        this.allowWrites = false;
+        this.archive = archive;
+        this.raFile = archive.getRandomAccessFile();
+        this.fileOffset = archive.getOffset(name);
     }
 
     public static void cleanMappedByteBuffer(final ByteBuffer buffer) {
@@ -94,6 +111,8 @@ public final class MMapDataAccess extends AbstractDataAccess {
         if (!segments.isEmpty()) {
             throw new IllegalThreadStateException("already created");
         }
+        if (archive != null)
+            throw new IllegalStateException("Cannot create " + name + ", it is read-only in graph archive " + archive);
         initRandomAccessFile();
         bytes = Math.max(10 * 4, bytes);
         ensureCapacity(bytes);
@@ -102,7 +121,7 @@ public final class MMapDataAccess extends AbstractDataAccess {
 
     @Override
     public boolean ensureCapacity(long bytes) {
-        return mapIt(HEADER_OFFSET, bytes);
+        return mapIt(fileOffset + HEADER_OFFSET, bytes);
     }
 
     private boolean mapIt(long offset, long byteCount) {
@@ -193,17 +212,23 @@ public final class MMapDataAccess extends AbstractDataAccess {
         if (isClosed())
             throw new IllegalStateException("already closed");
 
-        File file = new File(getFullName());
-        if (!file.exists() || file.length() == 0)
-            return false;
+        if (archive == null) {
+            File file = new File(getFullName());
+            if (!file.exists() || file.length() == 0)
+                return false;
+        }
 
         initRandomAccessFile();
         try {
-            long byteCount = readHeader(raFile);
+            long byteCount;
+            // the archive file is shared with other DataAccess objects that might be loaded concurrently
+            synchronized (raFile) {
+                byteCount = readHeader(raFile, fileOffset);
+            }
             if (byteCount < 0)
                 return false;
 
-            mapIt(HEADER_OFFSET, byteCount - HEADER_OFFSET);
+            mapIt(fileOffset + HEADER_OFFSET, byteCount - HEADER_OFFSET);
             return true;
         } catch (IOException ex) {
             throw new RuntimeException("Problem while loading " + getFullName(), ex);
@@ -214,6 +239,8 @@ public final class MMapDataAccess extends AbstractDataAccess {
     public void flush() {
         if (isClosed())
             throw new IllegalStateException("already closed");
+        if (archive != null)
+            throw new IllegalStateException("Cannot flush " + name + ", it is read-only in graph archive " + archive);
 
         try {
             for (MappedByteBuffer bb : segments) {
@@ -247,7 +274,9 @@ public final class MMapDataAccess extends AbstractDataAccess {
         super.close();
         clean(0, segments.size());
         segments.clear();
-        Helper.close(raFile);
+        // the archive is closed by the directory
+        if (archive == null)
+            Helper.close(raFile);
     }
 
     @Override
@@ -405,6 +434,6 @@ public final class MMapDataAccess extends AbstractDataAccess {
 
     @Override
     public DAType getType() {
-        return DAType.MMAP;
+        return allowWrites ? DAType.MMAP : DAType.MMAP_RO;
     }
 }
@@ -19,6 +19,10 @@ package com.graphhopper.storage.index;
 
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Provides a way to map real world data "lat,lon" to internal ids/indices of a memory efficient graph
@@ -46,6 +50,26 @@ public interface LocationIndex {
      */
     Snap findClosest(double lat, double lon, EdgeFilter edgeFilter);
 
+    /**
+     * Returns the closest Snap for every point of the given list, in the same order. Implementations can share the
+     * work between nearby points, so this is faster than calling {@link #findClosest(double, double, EdgeFilter)}
+     * for each point. The results are the same, which requires that the edgeFilter only depends on the edge and
+     * not on the queried point.
+     */
+    default List<Snap> findClosest(List<GHPoint> points, EdgeFilter edgeFilter) {
+        List<Snap> snaps = new ArrayList<>(points.size());
+        for (GHPoint point : points)
+            snaps.add(findClosest(point.lat, point.lon, edgeFilter));
+        return snaps;
+    }
+
+    /**
+     * Returns the Snaps onto the k closest edges that are accepted by the edgeFilter and that are not farther away
+     * from the specified location than the given radius (in meters). The result is ordered by the distance to the
+     * location and contains at most one Snap per edge, which is the closest one on this edge.
+     */
+    List<Snap> findKNearest(double lat, double lon, int k, double radius, EdgeFilter edgeFilter);
+
     /**
      * This method explores the LocationIndex with the specified Visitor. It visits only the stored edges (and only once)
      * and limited by the queryBBox. Also (a few) more edges slightly outside of queryBBox could be
@@ -17,7 +17,12 @@
  */
 package com.graphhopper.storage.index;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.LongHashSet;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.graphhopper.geohash.SpatialKeyAlgo;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.storage.Directory;
@@ -25,10 +30,14 @@ import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
 
@@ -56,6 +65,8 @@ public class LocationIndexTree implements LocationIndex {
     private final Graph graph;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final NodeAccess nodeAccess;
+    // the number of consecutive (spatially sorted) points of a batch query that share one BatchCache
+    private static final int BATCH_CHUNK_SIZE = 256;
     private int maxRegionSearch = 4;
     private int minResolutionInMeter = 300;
     private boolean initialized = false;
@@ -273,24 +284,81 @@ public class LocationIndexTree implements LocationIndex {
     public Snap findClosest(final double queryLat, final double queryLon, final EdgeFilter edgeFilter) {
         if (isClosed())
             throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        return findClosest(queryLat, queryLon, edgeFilter, null);
+    }
+
+    @Override
+    public List<Snap> findClosest(List<GHPoint> points, EdgeFilter edgeFilter) {
+        return findClosest(points, edgeFilter, 1);
+    }
+
+    /**
+     * Same as {@link #findClosest(List, EdgeFilter)}, but the batch is split into chunks of nearby points which are
+     * processed using the given number of threads. For threads > 1 the edgeFilter must be thread-safe.
+     */
+    public List<Snap> findClosest(List<GHPoint> points, EdgeFilter edgeFilter, int threads) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1, but was: " + threads);
+
+        // sorting the points by their spatial key makes sure that points within a chunk share most of their tiles
+        SpatialKeyAlgo keyAlgo = indexStructureInfo.getKeyAlgo();
+        long[] keys = new long[points.size()];
+        Integer[] order = new Integer[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            keys[i] = keyAlgo.encodeLatLon(points.get(i).lat, points.get(i).lon);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> keys[i]));
+
+        Snap[] snaps = new Snap[points.size()];
+        int chunks = (points.size() + BATCH_CHUNK_SIZE - 1) / BATCH_CHUNK_SIZE;
+        Stream<Runnable> runnables = IntStream.range(0, chunks).mapToObj(chunk -> () -> {
+            BatchCache cache = new BatchCache(edgeFilter);
+            int end = Math.min(points.size(), (chunk + 1) * BATCH_CHUNK_SIZE);
+            for (int i = chunk * BATCH_CHUNK_SIZE; i < end; i++) {
+                GHPoint point = points.get(order[i]);
+                snaps[order[i]] = findClosest(point.lat, point.lon, edgeFilter, cache);
+            }
+        });
+        if (threads == 1)
+            runnables.forEach(Runnable::run);
+        else
+            GHUtility.runConcurrently(runnables, threads);
+        return Arrays.asList(snaps);
+    }
 
+    /**
+     * @param cache if not null, the edge ids of the tiles and the edges accepted by the edgeFilter are read from and
+     *              stored in this cache, so they can be re-used for the next points of a batch
+     */
+    private Snap findClosest(double queryLat, double queryLon, EdgeFilter edgeFilter, BatchCache cache) {
         final Snap closestMatch = new Snap(queryLat, queryLon);
         IntHashSet seenEdges = new IntHashSet();
-        for (int iteration = 0; iteration < maxRegionSearch; iteration++) {
-            lineIntIndex.findEdgeIdsInNeighborhood(queryLat, queryLon, iteration, edgeId -> {
+        IntConsumer edgeConsumer = edgeId -> {
+            if (!seenEdges.add(edgeId))
+                return;
+            if (cache == null) {
                 EdgeIteratorState edgeIteratorState = graph.getEdgeIteratorStateForKey(edgeId * 2);
-                if (seenEdges.add(edgeId) && edgeFilter.accept(edgeIteratorState)) { // TODO: or reverse?
-                    traverseEdge(queryLat, queryLon, edgeIteratorState, (node, normedDist, wayIndex, pos) -> {
-                        if (normedDist < closestMatch.getQueryDistance()) {
-                            closestMatch.setQueryDistance(normedDist);
-                            closestMatch.setClosestNode(node);
-                            closestMatch.setClosestEdge(edgeIteratorState.detach(false));
-                            closestMatch.setWayIndex(wayIndex);
-                            closestMatch.setSnappedPosition(pos);
-                        }
-                    });
-                }
-            });
+                if (edgeFilter.accept(edgeIteratorState)) // TODO: or reverse?
+                    traverseEdge(queryLat, queryLon, edgeIteratorState.getBaseNode(), edgeIteratorState.getAdjNode(),
+                            edgeIteratorState.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ), updateClosestMatch(closestMatch, edgeIteratorState));
+            } else {
+                CachedEdge edge = cache.getEdge(edgeId);
+                if (edge != null)
+                    traverseEdge(queryLat, queryLon, edge.baseNode, edge.adjNode, edge.pillarAndAdj, updateClosestMatch(closestMatch, edge.state));
+            }
+        };
+        for (int iteration = 0; iteration < maxRegionSearch; iteration++) {
+            if (cache == null)
+                lineIntIndex.findEdgeIdsInNeighborhood(queryLat, queryLon, iteration, edgeConsumer);
+            else
+                lineIntIndex.findTilesInNeighborhood(queryLat, queryLon, iteration, tileKey -> {
+                    IntArrayList edgeIds = cache.getEdgeIds(tileKey);
+                    for (int i = 0; i < edgeIds.size(); i++)
+                        edgeConsumer.accept(edgeIds.get(i));
+                });
             if (closestMatch.isValid()) {
                 // Check if we can stop...
                 double rMin = calculateRMin(queryLat, queryLon, iteration);
@@ -308,6 +376,82 @@ public class LocationIndexTree implements LocationIndex {
         return closestMatch;
     }
 
+    /**
+     * Visits the tiles of the index in the order of their distance to the query point, starting with the tile that
+     * contains it. The search stops as soon as the next tile is farther away than the radius or than the k-th closest
+     * edge found so far.
+     */
+    @Override
+    public List<Snap> findKNearest(double queryLat, double queryLon, int k, double radius, EdgeFilter edgeFilter) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        if (k < 1)
+            throw new IllegalArgumentException("k must be at least 1, but was: " + k);
+
+        Comparator<Snap> byDistance = Comparator.<Snap>comparingDouble(Snap::getQueryDistance)
+                .thenComparingInt(snap -> snap.getClosestEdge().getEdge());
+        // the k closest snaps found so far, the farthest one is at the head of the queue
+        PriorityQueue<Snap> closest = new PriorityQueue<>(byDistance.reversed());
+        PriorityQueue<Tile> tiles = new PriorityQueue<>(Comparator.comparingDouble(tile -> tile.distance));
+        LongHashSet seenTiles = new LongHashSet();
+        IntHashSet seenEdges = new IntHashSet();
+        SpatialKeyAlgo keyAlgo = indexStructureInfo.getKeyAlgo();
+        addTile(tiles, seenTiles, queryLat, queryLon, keyAlgo.x(queryLon), keyAlgo.y(queryLat));
+        while (!tiles.isEmpty()) {
+            Tile tile = tiles.poll();
+            if (tile.distance > radius || closest.size() == k && tile.distance > closest.peek().getQueryDistance())
+                break;
+            lineIntIndex.findEdgeIdsInTile(tile.x, tile.y, edgeId -> {
+                if (!seenEdges.add(edgeId))
+                    return;
+                EdgeIteratorState edgeIteratorState = graph.getEdgeIteratorStateForKey(edgeId * 2);
+                if (!edgeFilter.accept(edgeIteratorState))
+                    return;
+                Snap snap = new Snap(queryLat, queryLon);
+                traverseEdge(queryLat, queryLon, edgeIteratorState, updateClosestMatch(snap, edgeIteratorState));
+                snap.calcSnappedPoint(DIST_PLANE);
+                snap.setQueryDistance(DIST_PLANE.calcDist(snap.getSnappedPoint().lat, snap.getSnappedPoint().lon, queryLat, queryLon));
+                if (snap.getQueryDistance() > radius)
+                    return;
+                closest.add(snap);
+                if (closest.size() > k)
+                    closest.poll();
+            });
+            addTile(tiles, seenTiles, queryLat, queryLon, tile.x - 1, tile.y);
+            addTile(tiles, seenTiles, queryLat, queryLon, tile.x + 1, tile.y);
+            addTile(tiles, seenTiles, queryLat, queryLon, tile.x, tile.y - 1);
+            addTile(tiles, seenTiles, queryLat, queryLon, tile.x, tile.y + 1);
+        }
+        List<Snap> result = new ArrayList<>(closest);
+        result.sort(byDistance);
+        return result;
+    }
+
+    private void addTile(PriorityQueue<Tile> tiles, LongHashSet seenTiles, double queryLat, double queryLon, int x, int y) {
+        int parts = indexStructureInfo.getParts();
+        if (x < 0 || y < 0 || x >= parts || y >= parts || !seenTiles.add((long) y * parts + x))
+            return;
+        // the distance from the query point to the closest point of the tile
+        BBox bounds = indexStructureInfo.getBounds();
+        double minLat = bounds.minLat + y * indexStructureInfo.getDeltaLat();
+        double minLon = bounds.minLon + x * indexStructureInfo.getDeltaLon();
+        double lat = Math.max(minLat, Math.min(minLat + indexStructureInfo.getDeltaLat(), queryLat));
+        double lon = Math.max(minLon, Math.min(minLon + indexStructureInfo.getDeltaLon(), queryLon));
+        tiles.add(new Tile(x, y, DIST_PLANE.calcDist(queryLat, queryLon, lat, lon)));
+    }
+
+    private static EdgeCheck updateClosestMatch(Snap closestMatch, EdgeIteratorState edgeIteratorState) {
+        return (node, normedDist, wayIndex, pos) -> {
+            if (normedDist < closestMatch.getQueryDistance()) {
+                closestMatch.setQueryDistance(normedDist);
+                closestMatch.setClosestNode(node);
+                closestMatch.setClosestEdge(edgeIteratorState.detach(false));
+                closestMatch.setWayIndex(wayIndex);
+                closestMatch.setSnappedPosition(pos);
+            }
+        };
+    }
+
     @Override
     public void query(TileFilter tileFilter, Visitor function) {
         lineIntIndex.query(tileFilter, function);
@@ -318,17 +462,19 @@ public class LocationIndexTree implements LocationIndex {
     }
 
     public void traverseEdge(double queryLat, double queryLon, EdgeIteratorState currEdge, EdgeCheck edgeCheck) {
-        int baseNode = currEdge.getBaseNode();
+        traverseEdge(queryLat, queryLon, currEdge.getBaseNode(), currEdge.getAdjNode(),
+                currEdge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ), edgeCheck);
+    }
+
+    private void traverseEdge(double queryLat, double queryLon, int baseNode, int adjNode, PointList pointList, EdgeCheck edgeCheck) {
         double baseLat = nodeAccess.getLat(baseNode);
         double baseLon = nodeAccess.getLon(baseNode);
         double baseDist = DIST_PLANE.calcNormalizedDist(queryLat, queryLon, baseLat, baseLon);
 
-        int adjNode = currEdge.getAdjNode();
         double adjLat = nodeAccess.getLat(adjNode);
         double adjLon = nodeAccess.getLon(adjNode);
         double adjDist = DIST_PLANE.calcNormalizedDist(queryLat, queryLon, adjLat, adjLon);
 
-        PointList pointList = currEdge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ);
         final int len = pointList.size();
 
         int closestTowerNode;
@@ -375,4 +521,65 @@ public class LocationIndexTree implements LocationIndex {
         }
     }
 
+    /**
+     * Caches the edge ids of the tiles and the decoded geometry of the accepted edges for a chunk of nearby points
+     * of a batch query. It is used by a single thread only.
+     */
+    private class BatchCache {
+        private final EdgeFilter edgeFilter;
+        private final LongObjectHashMap<IntArrayList> edgeIdsByTile = new LongObjectHashMap<>();
+        // null values mark edges that were rejected by the edge filter
+        private final IntObjectHashMap<CachedEdge> edges = new IntObjectHashMap<>();
+
+        BatchCache(EdgeFilter edgeFilter) {
+            this.edgeFilter = edgeFilter;
+        }
+
+        IntArrayList getEdgeIds(long tileKey) {
+            IntArrayList edgeIds = edgeIdsByTile.get(tileKey);
+            if (edgeIds == null) {
+                IntArrayList ids = new IntArrayList();
+                lineIntIndex.fillIDs(tileKey, ids::add);
+                edgeIdsByTile.put(tileKey, ids);
+                edgeIds = ids;
+            }
+            return edgeIds;
+        }
+
+        CachedEdge getEdge(int edgeId) {
+            int index = edges.indexOf(edgeId);
+            if (edges.indexExists(index))
+                return edges.indexGet(index);
+            EdgeIteratorState edgeIteratorState = graph.getEdgeIteratorStateForKey(edgeId * 2);
+            CachedEdge edge = edgeFilter.accept(edgeIteratorState) ? new CachedEdge(edgeIteratorState) : null;
+            edges.indexInsert(index, edgeId, edge);
+            return edge;
+        }
+    }
+
+    private static class Tile {
+        final int x;
+        final int y;
+        final double distance;
+
+        Tile(int x, int y, double distance) {
+            this.x = x;
+            this.y = y;
+            this.distance = distance;
+        }
+    }
+
+    private static class CachedEdge {
+        final EdgeIteratorState state;
+        final int baseNode;
+        final int adjNode;
+        final PointList pillarAndAdj;
+
+        CachedEdge(EdgeIteratorState state) {
+            this.state = state;
+            this.baseNode = state.getBaseNode();
+            this.adjNode = state.getAdjNode();
+            this.pillarAndAdj = state.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ);
+        }
+    }
 }
@@ -23,15 +23,22 @@ import com.graphhopper.config.Profile;
 import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.reader.dem.SRTMProvider;
 import com.graphhopper.reader.dem.SkadiProvider;
+import com.graphhopper.reader.osm.OSMChangeResult;
+import com.graphhopper.routing.SnapCache;
 import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.routing.ch.ManyToManyCH;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.DefaultSnapFilter;
 import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.TrafficSpeedUpdater;
 import com.graphhopper.routing.util.countryrules.CountryRuleFactory;
 import com.graphhopper.routing.util.parsers.OSMRoadEnvironmentParser;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphArchive;
 import com.graphhopper.storage.IntsRef;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
@@ -56,8 +63,11 @@ import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import static com.graphhopper.json.Statement.If;
 import static com.graphhopper.json.Statement.Op.LIMIT;
@@ -141,6 +151,464 @@ public class GraphHopperTest {
         assertTrue(rsp.getErrors().toString().contains("ConnectionNotFoundException"), rsp.getErrors().toString());
     }
 
+    @Test
+    public void testLoadFromArchive() {
+        GraphHopper hopper = createMonacoArchiveHopper();
+        hopper.importAndClose();
+        GraphArchive.pack(new File(GH_LOCATION), new File(GH_LOCATION, GraphArchive.FILE_NAME));
+        // only the archive is needed to load the graph
+        for (File file : new File(GH_LOCATION).listFiles())
+            if (!file.getName().equals(GraphArchive.FILE_NAME))
+                assertTrue(file.delete());
+
+        hopper = createMonacoArchiveHopper();
+        assertTrue(hopper.load());
+        for (boolean withCH : new boolean[]{true, false}) {
+            GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("profile");
+            req.putHint(CH.DISABLE, !withCH);
+            GHResponse rsp = hopper.route(req);
+            assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+            assertEquals(3587.6, rsp.getBest().getDistance(), .1);
+            assertEquals(105, rsp.getBest().getPoints().size());
+        }
+        hopper.close();
+    }
+
+    @Test
+    public void testArchiveIsReadOnly() throws IOException {
+        GraphHopper hopper = createMonacoArchiveHopper();
+        hopper.importAndClose();
+        GraphArchive.pack(new File(GH_LOCATION), new File(GH_LOCATION, GraphArchive.FILE_NAME));
+
+        GraphHopper archiveHopper = createMonacoArchiveHopper();
+        assertTrue(archiveHopper.load());
+        File changeFile = new File(GH_LOCATION, "changes.osc");
+        Files.writeString(changeFile.toPath(), "<osmChange version=\"0.6\">\n" +
+                "<create><way id=\"2000000000\"><nd ref=\"1\"/><nd ref=\"2\"/><tag k=\"highway\" v=\"primary\"/></way></create>\n" +
+                "</osmChange>");
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> archiveHopper.applyOSMChanges(changeFile));
+        assertTrue(ex.getMessage().contains("loaded from the read-only archive"), ex.getMessage());
+        ex = assertThrows(IllegalStateException.class, () -> archiveHopper.updateTrafficSpeeds(updater -> {
+        }));
+        assertTrue(ex.getMessage().contains("loaded from the read-only archive"), ex.getMessage());
+        archiveHopper.close();
+
+        // the adjacency array is missing in the archive and cannot be created
+        GraphHopper adjacencyHopper = createMonacoArchiveHopper().setAdjacencyArray(true);
+        ex = assertThrows(IllegalStateException.class, adjacencyHopper::load);
+        assertTrue(ex.getMessage().contains("missing in the read-only archive"), ex.getMessage());
+    }
+
+    @Test
+    public void testSnapCache() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("profile", "car"));
+        SnapCache snapCache = new SnapCache(10);
+        hopper.getRouterConfig().setSnapCache(snapCache);
+        hopper.importOrLoad();
+
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("profile");
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(2, snapCache.size());
+        // the cached snaps must lead to the same route
+        GHResponse cachedRsp = hopper.route(req);
+        assertFalse(cachedRsp.hasErrors(), cachedRsp.getErrors().toString());
+        assertEquals(2, snapCache.size());
+        assertEquals(rsp.getBest().getDistance(), cachedRsp.getBest().getDistance(), 1.e-6);
+        assertEquals(rsp.getBest().getPoints(), cachedRsp.getBest().getPoints());
+
+        // snap preventions and headings change the snapping, so they need their own entries
+        req.setSnapPreventions(Collections.singletonList("tunnel"));
+        assertFalse(hopper.route(req).hasErrors());
+        assertEquals(4, snapCache.size());
+        // the second point has no heading, so its snap is taken from the cache
+        req.setHeadings(Arrays.asList(90.0, Double.NaN));
+        assertFalse(hopper.route(req).hasErrors());
+        assertEquals(5, snapCache.size());
+
+        hopper.close();
+        assertEquals(0, snapCache.size());
+    }
+
+    @Test
+    public void testRouteMatrix() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed("profile", "car"));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("profile"));
+        hopper.importOrLoad();
+
+        GHPoint from = new GHPoint(43.727687, 7.418737);
+        GHPoint to = new GHPoint(43.74958, 7.436566);
+        GHRequest req = new GHRequest().setProfile("profile");
+        ManyToManyCH.Matrix matrix = hopper.routeMatrix(req, List.of(from), List.of(from, to), true);
+        // the points of the request are not used and must not be changed
+        assertTrue(req.getPoints().isEmpty());
+        assertEquals(0, matrix.getDistance(0, 0), 1.e-6);
+        GHResponse rsp = hopper.route(new GHRequest(from, to).setProfile("profile"));
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(rsp.getBest().getDistance(), matrix.getDistance(0, 1), .1);
+        hopper.close();
+    }
+
+    private static GraphHopper createMonacoArchiveHopper() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed, osm_way_id").
+                setProfiles(TestProfiles.accessAndSpeed("profile", "car")).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("profile"));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("profile"));
+        hopper.setMinNetworkSize(0);
+        return hopper;
+    }
+
+    @Test
+    public void testCustomizableCH() {
+        final String profile = "profile";
+        GraphHopper hopper = createCustomizableCHHopper(profile);
+        hopper.importOrLoad();
+        assertTrue(hopper.getCCHGraphs().containsKey(profile));
+
+        GHRequest req = new GHRequest(49.985272, 11.506151, 49.986107, 11.507202).setProfile(profile);
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(122, rsp.getBest().getDistance(), 1);
+
+        // block road at 49.985759,11.50687, this works with CH now because the profile is customizable
+        CustomModel customModel = new CustomModel().addToPriority(If("in_blocked_area", MULTIPLY, "0"));
+        customModel.getAreas().getFeatures().add(createCircle("blocked_area", 49.985759, 11.50687, 5));
+        req.setCustomModel(customModel);
+        rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(365, rsp.getBest().getDistance(), 1);
+
+        req.putHint(CH.DISABLE, true);
+        rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(365, rsp.getBest().getDistance(), 1);
+        hopper.close();
+
+        // the customizable CH is loaded from disk
+        hopper = createCustomizableCHHopper(profile);
+        hopper.importOrLoad();
+        req.putHint(CH.DISABLE, false);
+        rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(365, rsp.getBest().getDistance(), 1);
+        hopper.close();
+    }
+
+    private GraphHopper createCustomizableCHHopper(String profile) {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(BAYREUTH).
+                setEncodedValuesString("car_access, car_average_speed").
+                setProfiles(TestProfiles.accessAndSpeed(profile, "car")).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile).setCustomizable(true));
+        return hopper;
+    }
+
+    @Test
+    public void applyOSMChanges() throws IOException {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed, osm_way_id").
+                setProfiles(TestProfiles.accessAndSpeed("car"), TestProfiles.accessAndSpeed("car_cch", "car")).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("car"), new CHProfile("car_cch").setCustomizable(true));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("car"));
+        hopper.setMinNetworkSize(0);
+        hopper.importOrLoad();
+
+        Supplier<GHRequest> req = () -> new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car")
+                .setPathDetails(List.of(OSMWayID.KEY));
+        ResponsePath path = hopper.route(req.get()).getBest();
+        List<PathDetail> wayIds = path.getPathDetails().get(OSMWayID.KEY);
+        // we change two ways in the middle of the route, so the start and destination are not affected
+        int removedWay = (int) wayIds.get(wayIds.size() / 2).getValue();
+        int modifiedWay = (int) wayIds.get(wayIds.size() / 2 + 1).getValue();
+        File changeFile = new File(GH_LOCATION, "changes.osc");
+        Files.writeString(changeFile.toPath(), "<osmChange version=\"0.6\">\n" +
+                "<create><way id=\"2000000000\"><nd ref=\"1\"/><nd ref=\"2\"/><tag k=\"highway\" v=\"primary\"/></way></create>\n" +
+                "<modify><way id=\"" + modifiedWay + "\"><nd ref=\"1\"/><nd ref=\"2\"/>" +
+                "<tag k=\"highway\" v=\"primary\"/><tag k=\"motor_vehicle\" v=\"no\"/></way></modify>\n" +
+                "<delete><way id=\"" + removedWay + "\"/></delete>\n" +
+                "</osmChange>");
+        RoutingCHGraph chGraph = hopper.getCHGraphs().get("car");
+        Object landmarks = hopper.getLandmarks().get("car");
+
+        OSMChangeResult result = hopper.applyOSMChanges(changeFile);
+        assertEquals(1, result.getUpdatedWays());
+        assertEquals(1, result.getRemovedWays());
+        assertEquals(1, result.getMissingWays());
+        assertTrue(result.getChangedEdgeCount() >= 2);
+        // the CH was prepared again, but the weights only increased, so the landmarks are still valid
+        assertNotSame(chGraph, hopper.getCHGraphs().get("car"));
+        assertSame(landmarks, hopper.getLandmarks().get("car"));
+
+        List<ResponsePath> paths = new ArrayList<>();
+        paths.add(hopper.route(req.get()).getBest());
+        paths.add(hopper.route(req.get().setProfile("car_cch")).getBest());
+        paths.add(hopper.route(req.get().putHint(CH.DISABLE, true)).getBest());
+        paths.add(hopper.route(req.get().putHint(CH.DISABLE, true).putHint(Landmark.DISABLE, true)).getBest());
+        for (ResponsePath p : paths) {
+            assertFalse(p.hasErrors(), p.getErrors().toString());
+            assertTrue(p.getDistance() > path.getDistance());
+            assertEquals(paths.get(0).getRouteWeight(), p.getRouteWeight(), 1.e-2);
+            for (PathDetail detail : p.getPathDetails().get(OSMWayID.KEY)) {
+                assertNotEquals(removedWay, detail.getValue());
+                assertNotEquals(modifiedWay, detail.getValue());
+            }
+        }
+        hopper.close();
+    }
+
+    @Test
+    public void applyOSMChangesWithNodeIds() throws IOException {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setOSMNodeIds(true).
+                setEncodedValuesString("car_access, car_average_speed, osm_way_id").
+                setProfiles(TestProfiles.accessAndSpeed("car"), TestProfiles.accessAndSpeed("car_cch", "car")).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("car"), new CHProfile("car_cch").setCustomizable(true));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("car"));
+        hopper.setMinNetworkSize(0);
+        hopper.importOrLoad();
+
+        NodeAccess na = hopper.getBaseGraph().getNodeAccess();
+        int from = hopper.getLocationIndex().findClosest(43.727687, 7.418737, EdgeFilter.ALL_EDGES).getClosestNode();
+        int to = hopper.getLocationIndex().findClosest(43.74958, 7.436566, EdgeFilter.ALL_EDGES).getClosestNode();
+        long fromId = hopper.getOSMNodeIdStorage().getOSMNodeId(from);
+        long toId = hopper.getOSMNodeIdStorage().getOSMNodeId(to);
+        assertTrue(fromId > 0 && toId > 0);
+        GHPoint fromPoint = new GHPoint(na.getLat(from), na.getLon(from));
+        GHPoint toPoint = new GHPoint(na.getLat(to), na.getLon(to));
+        double midLat = (fromPoint.lat + toPoint.lat) / 2, midLon = (fromPoint.lon + toPoint.lon) / 2;
+        ResponsePath path = hopper.route(new GHRequest(fromPoint, toPoint).setProfile("car")).getBest();
+
+        // a created way between two tower nodes, its only other node becomes a pillar node
+        File changeFile = new File(GH_LOCATION, "changes.osc");
+        Files.writeString(changeFile.toPath(), "<osmChange version=\"0.6\">\n" +
+                "<create><node id=\"9000000001\" lat=\"" + midLat + "\" lon=\"" + (midLon + 0.002) + "\"/>\n" +
+                "<way id=\"2000000000\"><nd ref=\"" + fromId + "\"/><nd ref=\"9000000001\"/><nd ref=\"" + toId + "\"/>" +
+                "<tag k=\"highway\" v=\"primary\"/></way></create>\n" +
+                "</osmChange>");
+        OSMChangeResult result = hopper.applyOSMChanges(changeFile);
+        assertEquals(1, result.getAddedWays());
+        assertEquals(1, result.getAddedEdges());
+        assertEquals(0, result.getAddedNodes());
+        assertEquals(0, result.getMissingWays());
+        List<ResponsePath> paths = routeAll(hopper, fromPoint, toPoint);
+        assertTrue(paths.get(0).getRouteWeight() < path.getRouteWeight());
+        assertTrue(containsPoint(paths.get(0).getPoints(), midLat, midLon + 0.002));
+
+        // a created way that starts at a new node of the modified way, so the modified way is split at this node.
+        // the unchanged node of the modified way is taken from its previous geometry
+        double junctionLat = (fromPoint.lat + midLat) / 2, junctionLon = (fromPoint.lon + midLon + 0.002) / 2;
+        Files.writeString(changeFile.toPath(), "<osmChange version=\"0.6\">\n" +
+                "<create><node id=\"9000000002\" lat=\"" + junctionLat + "\" lon=\"" + junctionLon + "\"/>\n" +
+                "<node id=\"9000000003\" lat=\"" + (junctionLat + 0.001) + "\" lon=\"" + junctionLon + "\"/>\n" +
+                "<way id=\"2000000001\"><nd ref=\"9000000002\"/><nd ref=\"9000000003\"/><tag k=\"highway\" v=\"residential\"/></way></create>\n" +
+                "<modify><way id=\"2000000000\"><nd ref=\"" + fromId + "\"/><nd ref=\"9000000002\"/><nd ref=\"9000000001\"/>" +
+                "<nd ref=\"" + toId + "\"/><tag k=\"highway\" v=\"primary\"/></way></modify>\n" +
+                "</osmChange>");
+        result = hopper.applyOSMChanges(changeFile);
+        assertEquals(1, result.getAddedWays());
+        assertEquals(1, result.getRebuiltWays());
+        assertEquals(3, result.getAddedEdges());
+        assertEquals(2, result.getAddedNodes());
+        assertTrue(containsPoint(routeAll(hopper, fromPoint, toPoint).get(0).getPoints(), midLat, midLon + 0.002));
+        ResponsePath deadEnd = routeAll(hopper, fromPoint, new GHPoint(junctionLat + 0.001, junctionLon)).get(0);
+        assertTrue(deadEnd.getPathDetails().get(OSMWayID.KEY).stream().anyMatch(d -> d.getValue().equals(2000000001)));
+
+        // a moved tower node
+        GHPoint movedPoint = new GHPoint(fromPoint.lat + 0.0005, fromPoint.lon);
+        Files.writeString(changeFile.toPath(), "<osmChange version=\"0.6\">\n" +
+                "<modify><node id=\"" + fromId + "\" lat=\"" + movedPoint.lat + "\" lon=\"" + movedPoint.lon + "\"/></modify>\n" +
+                "</osmChange>");
+        result = hopper.applyOSMChanges(changeFile);
+        assertEquals(1, result.getMovedNodes());
+        assertEquals(movedPoint.lat, na.getLat(from), 1.e-6);
+        routeAll(hopper, movedPoint, toPoint);
+        hopper.close();
+    }
+
+    private List<ResponsePath> routeAll(GraphHopper hopper, GHPoint from, GHPoint to) {
+        Supplier<GHRequest> req = () -> new GHRequest(from, to).setProfile("car").setPathDetails(List.of(OSMWayID.KEY));
+        List<ResponsePath> paths = new ArrayList<>();
+        paths.add(hopper.route(req.get()).getBest());
+        paths.add(hopper.route(req.get().setProfile("car_cch")).getBest());
+        paths.add(hopper.route(req.get().putHint(CH.DISABLE, true)).getBest());
+        paths.add(hopper.route(req.get().putHint(CH.DISABLE, true).putHint(Landmark.DISABLE, true)).getBest());
+        for (ResponsePath p : paths) {
+            assertFalse(p.hasErrors(), p.getErrors().toString());
+            assertEquals(paths.get(0).getRouteWeight(), p.getRouteWeight(), 1.e-2);
+            assertTrue(p.getPathDetails().get(OSMWayID.KEY).stream().anyMatch(d -> d.getValue().equals(2000000000)));
+        }
+        return paths;
+    }
+
+    private static boolean containsPoint(PointList points, double lat, double lon) {
+        for (int i = 0; i < points.size(); i++)
+            if (Math.abs(points.getLat(i) - lat) < 1.e-6 && Math.abs(points.getLon(i) - lon) < 1.e-6)
+                return true;
+        return false;
+    }
+
+    @Test
+    public void applyOSMChangesKeepsRelationValues() throws IOException {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(BERLIN).
+                setEncodedValuesString("bike_access, bike_average_speed, bike_priority, bike_network, osm_way_id").
+                setProfiles(TestProfiles.accessSpeedAndPriority("bike"));
+        hopper.setMinNetworkSize(0);
+        hopper.importOrLoad();
+
+        EnumEncodedValue<RouteNetwork> bikeNetworkEnc = hopper.getEncodingManager().getEnumEncodedValue(BikeNetwork.KEY, RouteNetwork.class);
+        IntEncodedValue wayIdEnc = hopper.getEncodingManager().getIntEncodedValue(OSMWayID.KEY);
+        DecimalEncodedValue priorityEnc = hopper.getEncodingManager().getDecimalEncodedValue(VehiclePriority.key("bike"));
+        int edge = -1;
+        AllEdgesIterator iter = hopper.getBaseGraph().getAllEdges();
+        while (iter.next())
+            if (iter.get(bikeNetworkEnc) != RouteNetwork.MISSING) {
+                edge = iter.getEdge();
+                break;
+            }
+        assertTrue(edge >= 0, "Berlin should contain a bike route");
+        EdgeIteratorState state = hopper.getBaseGraph().getEdgeIteratorState(edge, Integer.MIN_VALUE);
+        RouteNetwork network = state.get(bikeNetworkEnc);
+        int wayId = state.get(wayIdEnc);
+
+        // the relation is not part of the change file, so the bike network of the way is kept and still used for the priority
+        File changeFile = new File(GH_LOCATION, "changes.osc");
+        Files.writeString(changeFile.toPath(), "<osmChange version=\"0.6\">\n" +
+                "<modify><way id=\"" + wayId + "\"><nd ref=\"1\"/><nd ref=\"2\"/><tag k=\"highway\" v=\"residential\"/></way></modify>\n" +
+                "</osmChange>");
+        assertEquals(1, hopper.applyOSMChanges(changeFile).getUpdatedWays());
+        state = hopper.getBaseGraph().getEdgeIteratorState(edge, Integer.MIN_VALUE);
+        assertEquals(network, state.get(bikeNetworkEnc));
+        double priority = state.get(priorityEnc);
+
+        // without the bike network the priority of a residential road is lower
+        ReaderWay way = new ReaderWay(wayId);
+        way.setTag("highway", "residential");
+        IntsRef flags = hopper.getBaseGraph().createEdgeFlags();
+        IntsRefEdgeIntAccess access = new IntsRefEdgeIntAccess(flags);
+        hopper.getOSMParsers().handleWayTags(0, access, way, hopper.getOSMParsers().createRelationFlags());
+        assertTrue(priority > priorityEnc.getDecimal(false, 0, access));
+        hopper.close();
+    }
+
+    @Test
+    public void updateTrafficSpeeds() {
+        Profile profile = TestProfiles.accessAndSpeed("car_cch", "car");
+        profile.getCustomModel().addToSpeed(If("true", LIMIT, TrafficSpeed.KEY));
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed, osm_way_id, traffic_speed").
+                setProfiles(profile).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("car_cch").setCustomizable(true));
+        hopper.setMinNetworkSize(0);
+        hopper.importOrLoad();
+
+        Supplier<GHRequest> req = () -> new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car_cch")
+                .setPathDetails(List.of(OSMWayID.KEY));
+        ResponsePath path = hopper.route(req.get()).getBest();
+        List<PathDetail> wayIds = path.getPathDetails().get(OSMWayID.KEY);
+        int closedWay = (int) wayIds.get(wayIds.size() / 2).getValue();
+        int slowWay = (int) wayIds.get(wayIds.size() / 2 + 1).getValue();
+        RoutingCHGraph chGraph = hopper.getCHGraphs().get("car_cch");
+
+        hopper.updateTrafficSpeeds(u -> {
+            assertTrue(u.setWaySpeed(closedWay, 0, 0) > 0);
+            assertTrue(u.setWaySpeed(slowWay, 5, 5) > 0);
+            // requests that run during the update still use the previous speeds and CH graphs
+            assertSame(chGraph, hopper.getCHGraphs().get("car_cch"));
+            assertEquals(path.getRouteWeight(), hopper.route(req.get()).getBest().getRouteWeight(), 1.e-2);
+            assertEquals(path.getRouteWeight(), hopper.route(req.get().putHint(CH.DISABLE, true)).getBest().getRouteWeight(), 1.e-2);
+        });
+        assertNotSame(chGraph, hopper.getCHGraphs().get("car_cch"));
+        ResponsePath chPath = hopper.route(req.get()).getBest();
+        ResponsePath flexPath = hopper.route(req.get().putHint(CH.DISABLE, true)).getBest();
+        for (ResponsePath p : List.of(chPath, flexPath)) {
+            assertFalse(p.hasErrors(), p.getErrors().toString());
+            assertTrue(p.getRouteWeight() > path.getRouteWeight());
+            for (PathDetail detail : p.getPathDetails().get(OSMWayID.KEY))
+                assertNotEquals(closedWay, detail.getValue());
+        }
+        assertEquals(flexPath.getRouteWeight(), chPath.getRouteWeight(), 1.e-2);
+
+        // the next update writes into the other buffer, which starts with the current speeds
+        hopper.updateTrafficSpeeds(u -> assertTrue(u.setWaySpeed(slowWay, 5, 5) > 0));
+        assertEquals(chPath.getRouteWeight(), hopper.route(req.get()).getBest().getRouteWeight(), 1.e-2);
+        assertEquals(chPath.getRouteWeight(), hopper.route(req.get().putHint(CH.DISABLE, true)).getBest().getRouteWeight(), 1.e-2);
+
+        // removing the traffic speeds restores the original route
+        hopper.updateTrafficSpeeds(TrafficSpeedUpdater::clear);
+        assertEquals(path.getRouteWeight(), hopper.route(req.get()).getBest().getRouteWeight(), 1.e-2);
+        hopper.close();
+    }
+
+    @Test
+    public void snapCacheIsClearedWhenEdgesChange() throws IOException {
+        Profile profile = TestProfiles.accessAndSpeed("car");
+        profile.getCustomModel().addToSpeed(If("true", LIMIT, TrafficSpeed.KEY));
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("car_access, car_average_speed, osm_way_id, traffic_speed").
+                setProfiles(profile).
+                setStoreOnFlush(true);
+        SnapCache snapCache = new SnapCache(10);
+        hopper.getRouterConfig().setSnapCache(snapCache);
+        hopper.setMinNetworkSize(0);
+        hopper.importOrLoad();
+
+        Supplier<GHRequest> req = () -> new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car")
+                .setPathDetails(List.of(OSMWayID.KEY));
+        ResponsePath path = hopper.route(req.get()).getBest();
+        assertEquals(2, snapCache.size());
+        int closedWay = (int) path.getPathDetails().get(OSMWayID.KEY).get(0).getValue();
+
+        // the start was snapped to the closed way, so it has to be snapped again
+        hopper.updateTrafficSpeeds(u -> assertTrue(u.setWaySpeed(closedWay, 0, 0) > 0));
+        assertEquals(0, snapCache.size());
+        ResponsePath closedPath = hopper.route(req.get()).getBest();
+        assertFalse(closedPath.hasErrors(), closedPath.getErrors().toString());
+        for (PathDetail detail : closedPath.getPathDetails().get(OSMWayID.KEY))
+            assertNotEquals(closedWay, detail.getValue());
+
+        // the same applies when the way is removed by OSM changes
+        hopper.updateTrafficSpeeds(TrafficSpeedUpdater::clear);
+        assertEquals(path.getRouteWeight(), hopper.route(req.get()).getBest().getRouteWeight(), 1.e-2);
+        File changeFile = new File(GH_LOCATION, "changes.osc");
+        Files.writeString(changeFile.toPath(), "<osmChange version=\"0.6\">\n" +
+                "<delete><way id=\"" + closedWay + "\"/></delete>\n" +
+                "</osmChange>");
+        assertEquals(1, hopper.applyOSMChanges(changeFile).getRemovedWays());
+        assertEquals(0, snapCache.size());
+        ResponsePath removedPath = hopper.route(req.get()).getBest();
+        assertFalse(removedPath.hasErrors(), removedPath.getErrors().toString());
+        for (PathDetail detail : removedPath.getPathDetails().get(OSMWayID.KEY))
+            assertNotEquals(closedWay, detail.getValue());
+        hopper.close();
+    }
+
     @Test
     public void testMonacoWithInstructions() {
         final String profile = "profile";
@@ -19,9 +19,7 @@ package com.graphhopper.coll;
 
 import org.junit.jupiter.api.Test;
 
-import java.util.LinkedHashSet;
-import java.util.Random;
-import java.util.Set;
+import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -251,4 +249,22 @@ public class GHLongLongBTreeTest {
             }
         }
     }
+
+    @Test
+    public void testForEach() {
+        GHLongLongBTree instance = new GHLongLongBTree(3, 4, -1);
+        Random rand = new Random(123);
+        TreeMap<Long, Long> expected = new TreeMap<>();
+        for (int i = 0; i < 1000; i++) {
+            long key = rand.nextInt(10_000) - 5_000;
+            instance.put(key, i);
+            expected.put(key, (long) i);
+        }
+        List<Long> keys = new ArrayList<>();
+        instance.forEach((key, value) -> {
+            assertEquals(expected.get(key), value);
+            keys.add(key);
+        });
+        assertEquals(new ArrayList<>(expected.keySet()), keys);
+    }
 }
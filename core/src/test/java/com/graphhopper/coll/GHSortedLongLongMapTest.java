@@ -0,0 +1,118 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.LongLongHashMap;
+import com.carrotsearch.hppc.procedures.LongLongProcedure;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GHSortedLongLongMapTest {
+    private static final String DIR = "./target/sorted-map-test";
+
+    @AfterEach
+    public void tearDown() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    private GHSortedLongLongMap create(int bytesPerValue) {
+        return new GHSortedLongLongMap(new GHDirectory("", DAType.RAM), "test", bytesPerValue, -1);
+    }
+
+    @Test
+    public void putAndGet() {
+        GHSortedLongLongMap map = create(5);
+        assertEquals(-1, map.get(3));
+        assertEquals(-1, map.put(3, 30));
+        assertEquals(-1, map.put(7, -30));
+        assertEquals(30, map.get(3));
+        assertEquals(-30, map.get(7));
+        assertEquals(-1, map.get(5));
+        assertEquals(30, map.put(3, 31));
+        assertEquals(31, map.get(3));
+        assertEquals(2, map.getSize());
+        assertEquals(0, map.getUnsortedSize());
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> map.put(8, -1));
+        assertTrue(ex.getMessage().contains("Value cannot be the 'empty value' -1"));
+        assertThrows(IllegalArgumentException.class, () -> map.put(8, map.getMaxValue() + 1));
+    }
+
+    @Test
+    public void compareWithHashMap() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        for (int bytesPerValue = 4; bytesPerValue <= 8; bytesPerValue++) {
+            GHSortedLongLongMap map = create(bytesPerValue);
+            LongLongHashMap reference = new LongLongHashMap();
+            long key = -Long.MAX_VALUE + rnd.nextInt(10);
+            long maxValue = map.getMaxValue();
+            for (int i = 0; i < 10 * GHSortedLongLongMap.BLOCK_SIZE + 17; i++) {
+                // mostly small gaps like for OSM node ids, but also some that need many bits
+                key += rnd.nextInt(20) < 1 ? (long) (rnd.nextDouble() * Long.MAX_VALUE / 10_000) : 1 + rnd.nextInt(20);
+                long value = rnd.nextBoolean() ? rnd.nextLong() % maxValue : rnd.nextInt(100);
+                if (value == -1)
+                    value = 0;
+                map.put(key, value);
+                reference.put(key, value);
+                // some keys are not inserted in increasing order
+                if (rnd.nextInt(100) < 2) {
+                    long otherKey = key - 1 - rnd.nextInt(1000);
+                    long otherValue = rnd.nextInt(1000);
+                    map.put(otherKey, otherValue);
+                    reference.put(otherKey, otherValue);
+                }
+            }
+            String msg = "seed: " + seed + ", bytesPerValue: " + bytesPerValue;
+            assertEquals(reference.size(), map.getSize(), msg);
+            reference.forEach((LongLongProcedure) (k, v) -> assertEquals(v, map.get(k), msg));
+            // update all values, the map size does not change
+            reference.forEach((LongLongProcedure) (k, v) -> assertEquals(v, map.put(k, v + 1), msg));
+            reference.forEach((LongLongProcedure) (k, v) -> assertEquals(v + 1, map.get(k), msg));
+            assertEquals(reference.size(), map.getSize(), msg);
+            for (int i = 0; i < 1000; i++) {
+                long k = rnd.nextLong();
+                if (!reference.containsKey(k))
+                    assertEquals(-1, map.get(k), msg);
+            }
+        }
+    }
+
+    @Test
+    public void offHeap() {
+        GHSortedLongLongMap map = new GHSortedLongLongMap(new GHDirectory(DIR, DAType.MMAP).create(), "test", 4, -1);
+        for (int i = 0; i < 3 * GHSortedLongLongMap.BLOCK_SIZE; i++)
+            map.put(1000 + 3L * i, i);
+        for (int i = 0; i < 3 * GHSortedLongLongMap.BLOCK_SIZE; i++)
+            assertEquals(i, map.get(1000 + 3L * i));
+        assertEquals(-1, map.get(1001));
+        map.clear();
+        assertEquals(0, map.getSize());
+        assertEquals(-1, map.get(1000));
+        map.put(5, 6);
+        assertEquals(6, map.get(5));
+        map.clear();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.graphhopper.routing.RoutingWorkspacePool;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.RoutingCHGraphImpl;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.graphhopper.util.GHUtility.createRandomSnaps;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PhastShortestPathTreeTest {
+
+    @Test
+    public void sortNodesByLevel() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager em = EncodingManager.start().add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        GHUtility.buildRandomGraph(graph, new Random(123), 30, 2.5, true, speedEnc, null, 0.9, 0);
+        graph.freeze();
+        CHConfig chConfig = CHConfig.nodeBased("p", new SpeedWeighting(speedEnc));
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, chConfig).doWork();
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+        int[] nodes = PhastShortestPathTree.sortNodesByLevel(chGraph);
+        assertEquals(graph.getNodes(), nodes.length);
+        for (int i = 1; i < nodes.length; i++)
+            assertTrue(chGraph.getLevel(nodes[i - 1]) >= chGraph.getLevel(nodes[i]));
+    }
+
+    @Test
+    public void edgeBasedNotSupported() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager em = EncodingManager.start().add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).withTurnCosts(true).create();
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.freeze();
+        CHConfig chConfig = CHConfig.edgeBased("p", new SpeedWeighting(speedEnc));
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, chConfig).doWork();
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+        assertThrows(IllegalArgumentException.class, () -> new PhastShortestPathTree(chGraph, new int[]{0, 1}, false));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void compareWithShortestPathTree(boolean reverseFlow) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager em = EncodingManager.start().add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, speedEnc, null, 0.9, 0.1);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, graph.getDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+        CHConfig chConfig = CHConfig.nodeBased("p", new SpeedWeighting(speedEnc));
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, chConfig).doWork();
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+        int[] nodesByLevel = PhastShortestPathTree.sortNodesByLevel(chGraph);
+
+        RoutingWorkspacePool pool = new RoutingWorkspacePool();
+        List<String> strictViolations = new ArrayList<>();
+        int numLabels = 0;
+        for (int run = 0; run < 20; run++) {
+            List<Snap> snaps = createRandomSnaps(graph.getBounds(), locationIndex, rnd, 1, false, EdgeFilter.ALL_EDGES);
+            QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+            int source = snaps.get(0).getClosestNode();
+            double timeLimit = 1000 * (50 + rnd.nextInt(500));
+            String msg = "seed: " + seed + ", source: " + source + ", time limit: " + timeLimit;
+
+            ShortestPathTree reference = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(chConfig.getWeighting()), reverseFlow, TraversalMode.NODE_BASED);
+            reference.setTimeLimit(timeLimit);
+            Map<Integer, ShortestPathTree.IsoLabel> expected = new HashMap<>();
+            reference.search(source, l -> expected.put(l.node, l));
+
+            PhastShortestPathTree phast = new PhastShortestPathTree(new QueryRoutingCHGraph(chGraph, queryGraph), nodesByLevel, reverseFlow);
+            // every second search re-uses the arrays of the previous pooled search
+            if (run % 2 == 0)
+                phast.setWorkspacePool(pool);
+            phast.setTimeLimit(timeLimit);
+            Map<Integer, ShortestPathTree.IsoLabel> actual = new HashMap<>();
+            phast.search(source, l -> {
+                assertNull(actual.put(l.node, l), msg + ", node " + l.node + " was reported twice");
+                assertTrue(l.time <= timeLimit, msg);
+                if (l.parent != null) {
+                    assertTrue(actual.containsKey(l.parent.node), msg + ", the parent of node " + l.node + " must be reported first");
+                    EdgeIteratorState edge = queryGraph.getEdgeIteratorState(l.edge, l.node);
+                    assertEquals(l.parent.node, edge.getBaseNode(), msg);
+                }
+            });
+
+            assertEquals(expected.keySet(), actual.keySet(), msg);
+            for (ShortestPathTree.IsoLabel label : expected.values()) {
+                ShortestPathTree.IsoLabel phastLabel = actual.get(label.node);
+                assertEquals(label.weight, phastLabel.weight, 1.e-6, msg);
+                numLabels++;
+                if (Math.abs(label.time - phastLabel.time) > 1 || Math.abs(label.distance - phastLabel.distance) > 1.e-1)
+                    strictViolations.add(msg + ", node: " + label.node + ", expected: " + label + ", actual: " + phastLabel);
+            }
+        }
+        // sometimes there are multiple shortest paths with different distance/time, if this happens too often
+        // something is wrong and we fail
+        if (strictViolations.size() > Math.max(1, 0.05 * numLabels))
+            fail("Too many strict violations, with seed: " + seed + " - " + strictViolations.size() + " / " + numLabels + ": " + strictViolations);
+    }
+}
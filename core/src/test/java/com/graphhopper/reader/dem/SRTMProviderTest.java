@@ -22,9 +22,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.io.IOException;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author Peter Karich
@@ -99,6 +100,26 @@ public class SRTMProviderTest {
         assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
     }
 
+    @Test
+    public void testBoundedTileCache() {
+        instance = new SRTMProvider("./files/");
+        HeightTileCache tileCache = new HeightTileCache(1);
+        instance.setTileCache(tileCache);
+        assertEquals(466, instance.getEle(49.968651, 11.574869), 1e-1);
+        assertEquals(1678, instance.getEle(-28.88316, -71.070557), 1e-1);
+        assertEquals(1, tileCache.size());
+        // the first tile was closed, but it can be loaded again
+        assertEquals(330, instance.getEle(49.958233, 11.558647), 1e-1);
+        assertEquals(1, tileCache.size());
+
+        // the files of the closed tiles are removed as well
+        File closedTile = new File("./files/dem" + instance.calcIntKey(-28.88316, -71.070557));
+        assertTrue(closedTile.exists());
+        instance.release();
+        assertEquals(0, tileCache.size());
+        assertFalse(closedTile.exists());
+    }
+
     @Disabled
     @Test
     public void testGetEle() {
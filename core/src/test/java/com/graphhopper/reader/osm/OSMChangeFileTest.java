@@ -0,0 +1,67 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OSMChangeFileTest {
+
+    @Test
+    void read() throws Exception {
+        String xml = "<?xml version='1.0' encoding='UTF-8'?>\n" +
+                "<osmChange version=\"0.6\" generator=\"test\">\n" +
+                "  <create>\n" +
+                "    <node id=\"10\" version=\"1\" lat=\"50.1\" lon=\"10.2\"><tag k=\"barrier\" v=\"gate\"/></node>\n" +
+                "    <way id=\"5\" version=\"1\"><nd ref=\"10\"/><nd ref=\"11\"/><tag k=\"highway\" v=\"primary\"/></way>\n" +
+                "  </create>\n" +
+                "  <modify>\n" +
+                "    <way id=\"6\" version=\"2\"><nd ref=\"12\"/><nd ref=\"13\"/><tag k=\"highway\" v=\"track\"/></way>\n" +
+                "    <relation id=\"3\" version=\"4\"><member type=\"way\" ref=\"6\" role=\"\"/><tag k=\"type\" v=\"route\"/></relation>\n" +
+                "  </modify>\n" +
+                "  <delete>\n" +
+                "    <way id=\"6\" version=\"3\"/>\n" +
+                "    <node id=\"14\" version=\"2\"/>\n" +
+                "  </delete>\n" +
+                "  <modify>\n" +
+                "    <node id=\"14\" version=\"3\" lat=\"50.3\" lon=\"10.4\"/>\n" +
+                "  </modify>\n" +
+                "</osmChange>";
+        OSMChangeFile changes = OSMChangeFile.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, changes.getNodes().size());
+        assertEquals("gate", changes.getNode(10).getTag("barrier"));
+        assertEquals(50.3, changes.getNode(14).getLat(), 1.e-6);
+        // the node was deleted and then created again
+        assertTrue(changes.getDeletedNodes().isEmpty());
+
+        // the way that was modified and then deleted only counts as deleted
+        assertEquals(1, changes.getWays().size());
+        assertEquals(5, changes.getWays().iterator().next().getId());
+        assertEquals(2, changes.getWays().iterator().next().getNodes().size());
+        assertEquals(1, changes.getDeletedWays().size());
+        assertTrue(changes.getDeletedWays().contains(6));
+
+        assertEquals(1, changes.getRelations().size());
+        assertEquals(1, changes.getRelations().iterator().next().getMembers().size());
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.ReaderNode;
+import com.graphhopper.reader.ReaderRelation;
+import com.graphhopper.reader.ReaderWay;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OSMElementBufferTest {
+
+    @Test
+    void roundTrip() {
+        OSMElementBuffer buffer = new OSMElementBuffer("elements");
+        buffer.addNode(new ReaderNode(5, 50.123456, 10.654321, Map.of("barrier", "gate")), true);
+        buffer.addNode(new ReaderNode(3, -33.5, -70.25, Map.of("name", "ignored")), false);
+        ReaderWay way = new ReaderWay(8_000_000_000L);
+        way.getNodes().add(5, 3, 1L << 40, 5);
+        way.setTag("highway", "primary");
+        way.setTag("name", "Straße ✓");
+        buffer.addWay(way);
+        ReaderRelation relation = new ReaderRelation(2);
+        relation.setTag("type", "restriction");
+        relation.add(new ReaderRelation.Member(ReaderElement.Type.WAY, 8_000_000_000L, "from"));
+        relation.add(new ReaderRelation.Member(ReaderElement.Type.NODE, 3, "via"));
+        buffer.addRelation(relation);
+        // many more nodes, so the elements do not fit into a single buffer
+        for (int i = 0; i < 100_000; i++)
+            buffer.addNode(new ReaderNode(10 + i * 3L, i * 1e-4, -i * 1e-4), false);
+        assertEquals(100_004, buffer.getElements());
+
+        List<ReaderElement> elements = new ArrayList<>();
+        buffer.forEach(elements::add);
+        assertEquals(100_004, elements.size());
+
+        ReaderNode node = (ReaderNode) elements.get(0);
+        assertEquals(5, node.getId());
+        assertEquals(50.123456, node.getLat(), 1.e-6);
+        assertEquals(10.654321, node.getLon(), 1.e-6);
+        assertEquals(Map.of("barrier", "gate"), node.getTags());
+        node = (ReaderNode) elements.get(1);
+        assertEquals(3, node.getId());
+        assertEquals(-33.5, node.getLat(), 1.e-6);
+        assertEquals(-70.25, node.getLon(), 1.e-6);
+        assertTrue(node.getTags().isEmpty());
+
+        ReaderWay readWay = (ReaderWay) elements.get(2);
+        assertEquals(8_000_000_000L, readWay.getId());
+        assertEquals(way.getNodes(), readWay.getNodes());
+        assertEquals(way.getTags(), readWay.getTags());
+
+        ReaderRelation readRelation = (ReaderRelation) elements.get(3);
+        assertEquals(2, readRelation.getId());
+        assertEquals(Map.of("type", "restriction"), readRelation.getTags());
+        assertEquals(2, readRelation.getMembers().size());
+        assertEquals(ReaderElement.Type.WAY, readRelation.getMembers().get(0).getType());
+        assertEquals(8_000_000_000L, readRelation.getMembers().get(0).getRef());
+        assertEquals("from", readRelation.getMembers().get(0).getRole());
+        assertEquals(ReaderElement.Type.NODE, readRelation.getMembers().get(1).getType());
+        assertEquals(3, readRelation.getMembers().get(1).getRef());
+        assertEquals("via", readRelation.getMembers().get(1).getRole());
+
+        for (int i = 0; i < 100_000; i++) {
+            node = (ReaderNode) elements.get(4 + i);
+            assertEquals(10 + i * 3L, node.getId());
+            assertEquals(i * 1e-4, node.getLat(), 1.e-6);
+            assertEquals(-i * 1e-4, node.getLon(), 1.e-6);
+        }
+
+        // the elements are always stored in a memory mapped file, even if the graph uses RAM
+        assertTrue(new File(buffer.getFolder(), "elements").exists());
+        buffer.clear();
+        assertFalse(buffer.getFolder().exists());
+    }
+}
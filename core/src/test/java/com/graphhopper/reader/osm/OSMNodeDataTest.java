@@ -0,0 +1,62 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.shapes.GHPoint3D;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.reader.osm.OSMNodeData.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OSMNodeDataTest {
+
+    @Test
+    void updateElevationsOrderedByLocation() {
+        BaseGraph graph = new BaseGraph.Builder(1).set3D(true).create();
+        OSMNodeData nodeData = new OSMNodeData(graph.getNodeAccess(), graph.getDirectory());
+        Random rnd = new Random(123);
+        int nodes = 1000;
+        for (long osmId = 0; osmId < nodes; osmId++) {
+            nodeData.setOrUpdateNodeType(osmId, rnd.nextBoolean() ? JUNCTION_NODE : INTERMEDIATE_NODE, t -> t);
+            // nodes in a few neighbouring cells, in random order
+            nodeData.addCoordinatesIfMapped(osmId, 45 + 3 * rnd.nextDouble(), 8 + 3 * rnd.nextDouble(), () -> 0);
+        }
+
+        List<Integer> cells = new ArrayList<>();
+        nodeData.updateElevationsOrderedByLocation((lat, lon) -> {
+            cells.add(getCell(lat, lon));
+            // the sorted ids are stored in a temporary memory mapped folder, not in the directory of the graph
+            assertFalse(graph.getDirectory().getDAs().containsKey("tmp_elevation_node_ids"));
+            return Math.round(lat + lon);
+        });
+        assertEquals(nodes, cells.size());
+        for (int i = 1; i < cells.size(); i++)
+            assertTrue(cells.get(i - 1) <= cells.get(i), "cells must be visited in order: " + cells);
+        assertTrue(cells.get(0) < cells.get(cells.size() - 1));
+
+        for (long osmId = 0; osmId < nodes; osmId++) {
+            GHPoint3D point = nodeData.getCoordinates(nodeData.getId(osmId));
+            assertEquals(Math.round(point.lat + point.lon), point.ele, 1.e-6);
+        }
+    }
+}
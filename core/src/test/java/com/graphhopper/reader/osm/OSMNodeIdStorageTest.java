@@ -0,0 +1,65 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OSMNodeIdStorageTest {
+    private final String location = "./target/osm-node-id-storage";
+
+    @AfterEach
+    public void tearDown() {
+        Helper.removeDir(new File(location));
+    }
+
+    @Test
+    public void setAndRelabel() {
+        OSMNodeIdStorage storage = new OSMNodeIdStorage(new RAMDirectory(location, true).create()).create(100);
+        storage.setOSMNodeId(0, 123);
+        storage.setOSMNodeId(1, 10_000_000_000L);
+        storage.setOSMNodeId(3, -5);
+        assertEquals(4, storage.getNodes());
+        assertEquals(0, storage.getOSMNodeId(2));
+        assertEquals(0, storage.getOSMNodeId(100));
+
+        // the graph has one more node without an id
+        int[] newNodes = {2, 4, 0, 1, 3};
+        storage.relabelNodes(5, n -> newNodes[n]);
+        assertEquals(5, storage.getNodes());
+        assertEquals(123, storage.getOSMNodeId(2));
+        assertEquals(10_000_000_000L, storage.getOSMNodeId(4));
+        assertEquals(0, storage.getOSMNodeId(0));
+        assertEquals(-5, storage.getOSMNodeId(1));
+        assertEquals(0, storage.getOSMNodeId(3));
+        storage.flush();
+        storage.close();
+
+        storage = new OSMNodeIdStorage(new RAMDirectory(location, true));
+        assertTrue(storage.loadExisting());
+        assertEquals(5, storage.getNodes());
+        assertEquals(10_000_000_000L, storage.getOSMNodeId(4));
+        storage.close();
+    }
+}
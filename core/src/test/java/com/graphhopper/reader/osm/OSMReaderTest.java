@@ -984,6 +984,37 @@ public class OSMReaderTest {
         assertEquals(Country.BGR, iter.get(countryEnc));
     }
 
+    @Test
+    public void testParallelEdgePreparation() {
+        BaseGraph graph = importAndorra(1).getBaseGraph();
+        // car_temporal_access uses a parser that is not thread-safe, so both code paths are used
+        BaseGraph parallelGraph = importAndorra(4).getBaseGraph();
+        assertTrue(graph.getEdges() > 1000);
+        assertEquals(graph.getNodes(), parallelGraph.getNodes());
+        assertEquals(graph.getEdges(), parallelGraph.getEdges());
+        for (int edge = 0; edge < graph.getEdges(); edge++) {
+            EdgeIteratorState expected = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            EdgeIteratorState actual = parallelGraph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            assertEquals(expected.getBaseNode(), actual.getBaseNode());
+            assertEquals(expected.getAdjNode(), actual.getAdjNode());
+            assertEquals(expected.getDistance(), actual.getDistance());
+            assertArrayEquals(expected.getFlags().ints, actual.getFlags().ints, "edge " + edge);
+            assertEquals(expected.fetchWayGeometry(FetchMode.ALL), actual.fetchWayGeometry(FetchMode.ALL));
+            assertEquals(expected.getKeyValues(), actual.getKeyValues());
+        }
+    }
+
+    private GraphHopper importAndorra(int edgeThreads) {
+        GraphHopper hopper = new GraphHopper();
+        hopper.setStoreOnFlush(false);
+        hopper.setOSMFile("../core/files/andorra.osm.pbf");
+        hopper.setGraphHopperLocation(dir + "/" + edgeThreads);
+        hopper.setEncodedValuesString("car_access, car_average_speed, road_class, max_speed, country, car_temporal_access");
+        hopper.setProfiles(TestProfiles.accessAndSpeed("car"));
+        hopper.getReaderConfig().setEdgeThreads(edgeThreads);
+        return hopper.importOrLoad();
+    }
+
     @Test
     public void testFixWayName() {
         assertEquals("B8, B12", OSMReader.fixWayName("B8;B12"));
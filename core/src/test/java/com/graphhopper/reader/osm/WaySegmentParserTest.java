@@ -0,0 +1,137 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.PointList;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WaySegmentParserTest {
+
+    @Test
+    public void sortedNodeIdMaps() {
+        // the file is sorted, but this is not declared in the header
+        List<String> edges = parse("../core/files/andorra.osm.pbf", false);
+        List<String> sortedEdges = parse("../core/files/andorra.osm.pbf", true);
+        assertTrue(edges.size() > 1000);
+        assertEquals(edges, sortedEdges);
+    }
+
+    @Test
+    public void parallelEdgeHandler() {
+        List<String> edges = parse("../core/files/andorra.osm.pbf", false);
+        BaseGraph graph = new BaseGraph.Builder(1).create();
+        List<String> parallelEdges = new ArrayList<>();
+        WaySegmentParser parser = createBuilder(graph, parallelEdges)
+                .setParallelEdgeHandler((from, to, pointList, way, nodeTags) -> {
+                    String edge = toString(from, to, pointList, way, nodeTags);
+                    return () -> parallelEdges.add(edge);
+                }, 4)
+                .build();
+        parser.readOSM(new File("../core/files/andorra.osm.pbf"));
+        // the edges must be added in the same order
+        assertEquals(edges, parallelEdges);
+    }
+
+    @Test
+    public void singlePass() {
+        BaseGraph graph = new BaseGraph.Builder(1).create();
+        List<String> edges = new ArrayList<>();
+        createBuilder(graph, edges)
+                .setRelationProcessor((relation, map) -> edges.add(relation.getId() + ":" + relation.getTags() + ":" + relation.getMembers().size()))
+                .build().readOSM(new File("../core/files/andorra.osm.pbf"));
+
+        BaseGraph singlePassGraph = new BaseGraph.Builder(1).create();
+        List<String> singlePassEdges = new ArrayList<>();
+        createBuilder(singlePassGraph, singlePassEdges)
+                .setRelationProcessor((relation, map) -> singlePassEdges.add(relation.getId() + ":" + relation.getTags() + ":" + relation.getMembers().size()))
+                .setSinglePass(true)
+                .build().readOSM(new File("../core/files/andorra.osm.pbf"));
+        assertTrue(edges.size() > 1000);
+        assertEquals(edges, singlePassEdges);
+        assertEquals(graph.getNodes(), singlePassGraph.getNodes());
+        // the temporary storage was removed
+        assertFalse(singlePassGraph.getDirectory().getDAs().containsKey("tmp_osm_elements"));
+    }
+
+    @Test
+    public void sortedElevationLookup() {
+        List<String> edges = parseWithElevation(false);
+        List<String> sortedLookupEdges = parseWithElevation(true);
+        assertTrue(edges.size() > 1000);
+        assertEquals(edges, sortedLookupEdges);
+    }
+
+    private static List<String> parseWithElevation(boolean sortedElevationLookup) {
+        BaseGraph graph = new BaseGraph.Builder(1).set3D(true).create();
+        List<String> edges = new ArrayList<>();
+        new WaySegmentParser.Builder(graph.getNodeAccess(), graph.getDirectory())
+                .setWayFilter(way -> way.hasTag("highway"))
+                .setSplitNodeFilter(node -> node.hasTag("barrier"))
+                .setElevationProvider(node -> Math.round(1000 * Math.abs(Math.sin(node.getLat() * 500) + Math.cos(node.getLon() * 500))))
+                .setSortedElevationLookup(sortedElevationLookup)
+                .setEdgeHandler((from, to, pointList, way, nodeTags) -> {
+                    StringBuilder sb = new StringBuilder(from + "-" + to + ":");
+                    for (int i = 0; i < pointList.size(); i++)
+                        sb.append(pointList.getLat(i)).append(',').append(pointList.getLon(i)).append(',').append(pointList.getEle(i)).append(' ');
+                    edges.add(sb.toString());
+                })
+                .build().readOSM(new File("../core/files/andorra.osm.pbf"));
+        for (int node = 0; node < graph.getNodes(); node++)
+            edges.add(node + ":" + graph.getNodeAccess().getEle(node));
+        return edges;
+    }
+
+    private static List<String> parse(String file, boolean sortedInput) {
+        BaseGraph graph = new BaseGraph.Builder(1).create();
+        List<String> edges = new ArrayList<>();
+        WaySegmentParser parser = createBuilder(graph, edges)
+                .setSortedInput(sortedInput)
+                .build();
+        parser.readOSM(new File(file));
+        return edges;
+    }
+
+    private static WaySegmentParser.Builder createBuilder(BaseGraph graph, List<String> edges) {
+        return new WaySegmentParser.Builder(graph.getNodeAccess(), graph.getDirectory())
+                .setWayFilter(way -> way.hasTag("highway"))
+                .setSplitNodeFilter(node -> node.hasTag("barrier"))
+                .setEdgeHandler((from, to, pointList, way, nodeTags) -> edges.add(toString(from, to, pointList, way, nodeTags)));
+    }
+
+    private static String toString(int from, int to, PointList pointList, ReaderWay way, List<Map<String, Object>> nodeTags) {
+        return from + "-" + to + ":" + way.getId() + ":" + way.hasTag("gh:barrier_edge") + ":" + toString(pointList) + ":" + nodeTags;
+    }
+
+    private static String toString(PointList pointList) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pointList.size(); i++)
+            sb.append(pointList.getLat(i)).append(',').append(pointList.getLon(i)).append(' ');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.util.GHUtility.createRandomSnaps;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Run some tests specific for {@link AbstractNonCHBidirArrayAlgo}
+ *
+ * @see RoutingAlgorithmTest for test cases covering standard routing with this algorithm
+ * @see RandomizedRoutingTest
+ */
+public class DijkstraBidirectionArrayTest {
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final EncodingManager encodingManager = EncodingManager.start().add(speedEnc).build();
+
+    @ParameterizedTest
+    @EnumSource(value = TraversalMode.class, names = {"NODE_BASED", "EDGE_BASED"})
+    public void reuseForMultipleSearches(TraversalMode traversalMode) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).withTurnCosts(true).create();
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.2, true, speedEnc, null, 0.8, 0.8);
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        DijkstraBidirectionArray algo = new DijkstraBidirectionArray(graph, weighting, traversalMode);
+        AStarBidirectionArray aStar = new AStarBidirectionArray(graph, weighting, traversalMode);
+        for (int i = 0; i < 50; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            Path refPath = new DijkstraBidirectionRef(graph, weighting, traversalMode).calcPath(from, to);
+            String msg = "seed: " + seed + ", from: " + from + ", to: " + to;
+            for (AbstractNonCHBidirArrayAlgo a : new AbstractNonCHBidirArrayAlgo[]{algo, aStar}) {
+                Path path = a.calcPath(from, to);
+                assertEquals(refPath.isFound(), path.isFound(), msg);
+                assertEquals(refPath.getWeight(), path.getWeight(), 1.e-3, msg);
+                assertEquals(refPath.getDistance(), path.getDistance(), 1.e-3, msg);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = TraversalMode.class, names = {"NODE_BASED", "EDGE_BASED"})
+    public void shareArraysBetweenQueryGraphs(TraversalMode traversalMode) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).withTurnCosts(true).create();
+        GHUtility.buildRandomGraph(graph, rnd, 50, 2.2, true, speedEnc, null, 0.8, 0);
+        LocationIndexTree index = new LocationIndexTree(graph, graph.getDirectory());
+        index.prepareIndex();
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        // start with arrays that are too small, they need to grow for the query graphs
+        SPTArrays sptFrom = new SPTArrays(1);
+        SPTArrays sptTo = new SPTArrays(1);
+        for (int i = 0; i < 50; i++) {
+            List<Snap> snaps = createRandomSnaps(graph.getBounds(), index, rnd, 2, true, EdgeFilter.ALL_EDGES);
+            QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+            int from = snaps.get(0).getClosestNode();
+            int to = snaps.get(1).getClosestNode();
+            Weighting queryWeighting = queryGraph.wrapWeighting(weighting);
+            Path refPath = new DijkstraBidirectionRef(queryGraph, queryWeighting, traversalMode).calcPath(from, to);
+            Path path = new DijkstraBidirectionArray(queryGraph, queryWeighting, traversalMode, sptFrom, sptTo).calcPath(from, to);
+            String msg = "seed: " + seed + ", from: " + from + ", to: " + to;
+            assertEquals(refPath.isFound(), path.isFound(), msg);
+            assertEquals(refPath.getWeight(), path.getWeight(), 1.e-3, msg);
+            assertEquals(refPath.getDistance(), path.getDistance(), 1.e-3, msg);
+        }
+        assertTrue(sptFrom.getCapacity() >= AbstractNonCHBidirArrayAlgo.getRequiredCapacity(graph, traversalMode));
+    }
+}
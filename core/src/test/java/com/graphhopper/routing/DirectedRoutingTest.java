@@ -152,6 +152,8 @@ public class DirectedRoutingTest {
                     return new AStar(graph, graph.wrapWeighting(weighting), TraversalMode.EDGE_BASED);
                 case ASTAR_BI_BEELINE:
                     return new AStarBidirection(graph, graph.wrapWeighting(weighting), TraversalMode.EDGE_BASED);
+                case ASTAR_BI_ARRAY:
+                    return new AStarBidirectionArray(graph, graph.wrapWeighting(weighting), TraversalMode.EDGE_BASED);
                 case CH_DIJKSTRA: {
                     CHRoutingAlgorithmFactory algoFactory = graph instanceof QueryGraph
                             ? new CHRoutingAlgorithmFactory(new QueryRoutingCHGraph(routingCHGraph, (QueryGraph) graph))
@@ -182,12 +184,14 @@ public class DirectedRoutingTest {
             return Stream.of(
                     new Fixture(Algo.ASTAR_UNI_BEELINE, Double.POSITIVE_INFINITY, false, false),
                     new Fixture(Algo.ASTAR_BI_BEELINE, Double.POSITIVE_INFINITY, false, false),
+                    new Fixture(Algo.ASTAR_BI_ARRAY, Double.POSITIVE_INFINITY, false, false),
                     new Fixture(Algo.CH_ASTAR, Double.POSITIVE_INFINITY, true, false),
                     new Fixture(Algo.CH_DIJKSTRA, Double.POSITIVE_INFINITY, true, false),
                     // todo: LM+directed still fails sometimes, #1971,
 //                    new Fixture(Algo.LM, Double.POSITIVE_INFINITY, false, true),
                     new Fixture(Algo.ASTAR_UNI_BEELINE, 40, false, false),
                     new Fixture(Algo.ASTAR_BI_BEELINE, 40, false, false),
+                    new Fixture(Algo.ASTAR_BI_ARRAY, 40, false, false),
                     new Fixture(Algo.CH_ASTAR, 40, true, false),
                     new Fixture(Algo.CH_DIJKSTRA, 40, true, false)
                     // todo: LM+directed still fails sometimes, #1971,
@@ -206,6 +210,7 @@ public class DirectedRoutingTest {
     private enum Algo {
         ASTAR_UNI_BEELINE,
         ASTAR_BI_BEELINE,
+        ASTAR_BI_ARRAY,
         CH_ASTAR,
         CH_DIJKSTRA,
         LM
@@ -44,16 +44,18 @@ public class RandomCHRoutingTest {
         private final TraversalMode traversalMode;
         private final int maxTurnCosts;
         private final double uTurnCosts;
+        private final int contractionThreads;
         private final DecimalEncodedValue speedEnc;
         private final DecimalEncodedValue turnCostEnc;
         private Weighting weighting;
         private final BaseGraph graph;
         private CHConfig chConfig;
 
-        Fixture(TraversalMode traversalMode, double uTurnCosts) {
+        Fixture(TraversalMode traversalMode, double uTurnCosts, int contractionThreads) {
             this.traversalMode = traversalMode;
             this.maxTurnCosts = 10;
             this.uTurnCosts = uTurnCosts;
+            this.contractionThreads = contractionThreads;
             speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
             turnCostEnc = TurnCost.create("car", maxTurnCosts);
             EncodingManager encodingManager = EncodingManager.start().add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
@@ -70,7 +72,7 @@ public class RandomCHRoutingTest {
 
         @Override
         public String toString() {
-            return traversalMode + ", u-turn-costs=" + uTurnCosts;
+            return traversalMode + ", u-turn-costs=" + uTurnCosts + ", contraction-threads=" + contractionThreads;
         }
     }
 
@@ -78,9 +80,11 @@ public class RandomCHRoutingTest {
         @Override
         public Stream<? extends Arguments> provideArguments(ExtensionContext context) {
             return Stream.of(
-                            new Fixture(TraversalMode.NODE_BASED, Double.POSITIVE_INFINITY),
-                            new Fixture(TraversalMode.EDGE_BASED, 40),
-                            new Fixture(TraversalMode.EDGE_BASED, Double.POSITIVE_INFINITY)
+                            new Fixture(TraversalMode.NODE_BASED, Double.POSITIVE_INFINITY, 1),
+                            new Fixture(TraversalMode.EDGE_BASED, 40, 1),
+                            new Fixture(TraversalMode.EDGE_BASED, Double.POSITIVE_INFINITY, 1),
+                            new Fixture(TraversalMode.NODE_BASED, Double.POSITIVE_INFINITY, 4),
+                            new Fixture(TraversalMode.EDGE_BASED, 40, 4)
                     )
                     .map(Arguments::of);
         }
@@ -114,7 +118,8 @@ public class RandomCHRoutingTest {
         locationIndex.prepareIndex();
 
         f.freeze();
-        PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraph(f.graph, f.chConfig);
+        PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraph(f.graph, f.chConfig)
+                .setContractionThreads(f.contractionThreads);
         PrepareContractionHierarchies.Result res = pch.doWork();
         RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(f.graph, res.getCHStorage(), res.getCHConfig());
 
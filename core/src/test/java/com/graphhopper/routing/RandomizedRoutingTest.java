@@ -53,6 +53,7 @@ import static com.graphhopper.routing.util.TraversalMode.NODE_BASED;
 import static com.graphhopper.util.GHUtility.createRandomSnaps;
 import static com.graphhopper.util.Parameters.Algorithms.*;
 import static com.graphhopper.util.Parameters.Routing.ALGORITHM;
+import static com.graphhopper.util.Parameters.Routing.ARRAY_BASED;
 import static org.junit.jupiter.api.Assertions.fail;
 
 /**
@@ -73,17 +74,23 @@ public class RandomizedRoutingTest {
                     FixtureSupplier.create(Algo.DIJKSTRA, false, false, NODE_BASED),
                     FixtureSupplier.create(Algo.ASTAR_UNIDIR, false, false, NODE_BASED),
                     FixtureSupplier.create(Algo.ASTAR_BIDIR, false, false, NODE_BASED),
+                    FixtureSupplier.create(Algo.DIJKSTRA_BIDIR_ARRAY, false, false, NODE_BASED),
+                    FixtureSupplier.create(Algo.ASTAR_BIDIR_ARRAY, false, false, NODE_BASED),
                     FixtureSupplier.create(Algo.CH_ASTAR, true, false, NODE_BASED),
                     FixtureSupplier.create(Algo.CH_DIJKSTRA, true, false, NODE_BASED),
                     FixtureSupplier.create(Algo.LM_UNIDIR, false, true, NODE_BASED),
                     FixtureSupplier.create(Algo.LM_BIDIR, false, true, NODE_BASED),
+                    FixtureSupplier.create(Algo.LM_BIDIR_ARRAY, false, true, NODE_BASED),
                     FixtureSupplier.create(Algo.DIJKSTRA, false, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.ASTAR_UNIDIR, false, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.ASTAR_BIDIR, false, false, EDGE_BASED),
+                    FixtureSupplier.create(Algo.DIJKSTRA_BIDIR_ARRAY, false, false, EDGE_BASED),
+                    FixtureSupplier.create(Algo.ASTAR_BIDIR_ARRAY, false, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.CH_ASTAR, true, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.CH_DIJKSTRA, true, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.LM_UNIDIR, false, true, EDGE_BASED),
                     FixtureSupplier.create(Algo.LM_BIDIR, false, true, EDGE_BASED),
+                    FixtureSupplier.create(Algo.LM_BIDIR_ARRAY, false, true, EDGE_BASED),
                     FixtureSupplier.create(Algo.PERFECT_ASTAR, false, false, NODE_BASED)
             ).map(Arguments::of);
         }
@@ -177,6 +184,10 @@ public class RandomizedRoutingTest {
                     return new AStar(graph, graph.wrapWeighting(weighting), traversalMode);
                 case ASTAR_BIDIR:
                     return new AStarBidirection(graph, graph.wrapWeighting(weighting), traversalMode);
+                case DIJKSTRA_BIDIR_ARRAY:
+                    return new DijkstraBidirectionArray(graph, graph.wrapWeighting(weighting), traversalMode);
+                case ASTAR_BIDIR_ARRAY:
+                    return new AStarBidirectionArray(graph, graph.wrapWeighting(weighting), traversalMode);
                 case CH_DIJKSTRA: {
                     CHRoutingAlgorithmFactory algoFactory = graph instanceof QueryGraph
                             ? new CHRoutingAlgorithmFactory(new QueryRoutingCHGraph(routingCHGraph, (QueryGraph) graph))
@@ -191,6 +202,9 @@ public class RandomizedRoutingTest {
                 }
                 case LM_BIDIR:
                     return new LMRoutingAlgorithmFactory(lm).createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm(ASTAR_BI).setTraversalMode(traversalMode));
+                case LM_BIDIR_ARRAY:
+                    return new LMRoutingAlgorithmFactory(lm).createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm(ASTAR_BI).setTraversalMode(traversalMode)
+                            .setHints(new PMap().putObject(ARRAY_BASED, true)));
                 case LM_UNIDIR:
                     return new LMRoutingAlgorithmFactory(lm).createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm(ASTAR).setTraversalMode(traversalMode));
                 case PERFECT_ASTAR: {
@@ -209,9 +223,12 @@ public class RandomizedRoutingTest {
         DIJKSTRA,
         ASTAR_BIDIR,
         ASTAR_UNIDIR,
+        DIJKSTRA_BIDIR_ARRAY,
+        ASTAR_BIDIR_ARRAY,
         CH_ASTAR,
         CH_DIJKSTRA,
         LM_BIDIR,
+        LM_BIDIR_ARRAY,
         LM_UNIDIR,
         PERFECT_ASTAR
     }
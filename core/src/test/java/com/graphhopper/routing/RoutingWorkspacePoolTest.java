@@ -0,0 +1,121 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.RoutingCHGraphImpl;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoutingWorkspacePoolTest {
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final EncodingManager encodingManager = EncodingManager.start().add(speedEnc).build();
+
+    @Test
+    public void nestedAcquireCreatesTemporaryWorkspace() {
+        RoutingWorkspacePool pool = new RoutingWorkspacePool();
+        RoutingWorkspace workspace = pool.acquire();
+        RoutingWorkspace nested = pool.acquire();
+        assertNotSame(workspace, nested);
+        pool.release(nested);
+        pool.release(workspace);
+        assertSame(workspace, pool.acquire());
+    }
+
+    @Test
+    public void clearRemovesOnlyTouchedKeys() {
+        RoutingWorkspace workspace = new RoutingWorkspace();
+        GHIntObjectHashMap<SPTEntry> map = workspace.getMapFrom();
+        for (int i = 0; i < 10_000; i++)
+            map.put(i, new SPTEntry(i, i));
+        workspace.clear();
+        assertTrue(map.isEmpty());
+
+        // a sparse search afterwards only removes its own keys, including keys that are inserted via indexInsert
+        map.put(0, new SPTEntry(0, 0));
+        map.put(5_000, new SPTEntry(5_000, 1));
+        map.put(5_000, new SPTEntry(5_000, 2));
+        int index = map.indexOf(7_000);
+        map.indexInsert(index, 7_000, new SPTEntry(7_000, 3));
+        assertEquals(3, map.size());
+        workspace.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(0));
+        assertFalse(map.containsKey(5_000));
+        assertFalse(map.containsKey(7_000));
+    }
+
+    @Test
+    public void workspaceIsSharedBetweenSearches() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.2, true, speedEnc, null, 0.8, 0.8);
+        graph.freeze();
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        CHConfig chConfig = CHConfig.nodeBased("p", weighting);
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, chConfig).doWork();
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+        RoutingWorkspacePool pool = new RoutingWorkspacePool();
+        AlgorithmOptions opts = new AlgorithmOptions().setAlgorithm("dijkstrabi").setTraversalMode(TraversalMode.NODE_BASED);
+        RoutingAlgorithmFactory factory = new RoutingAlgorithmFactorySimple().setWorkspacePool(pool);
+        CHRoutingAlgorithmFactory chFactory = new CHRoutingAlgorithmFactory(chGraph).setWorkspacePool(pool);
+        for (int i = 0; i < 50; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            Path refPath = new DijkstraBidirectionRef(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+            RoutingAlgorithm algo = factory.createAlgo(graph, weighting, opts);
+            assertTrue(algo instanceof DijkstraBidirectionArray);
+            Path path = algo.calcPath(from, to);
+            Path chPath = chFactory.createAlgo(new PMap()).calcPath(from, to);
+            Path freshCHPath = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(from, to);
+            String msg = "seed: " + seed + ", from: " + from + ", to: " + to;
+            assertEquals(refPath.isFound(), path.isFound(), msg);
+            assertEquals(refPath.getWeight(), path.getWeight(), 1.e-3, msg);
+            assertEquals(refPath.getDistance(), path.getDistance(), 1.e-3, msg);
+            // the pooled CH search must give exactly the same result as a CH search with fresh collections
+            assertEquals(freshCHPath.isFound(), chPath.isFound(), msg);
+            assertEquals(freshCHPath.getWeight(), chPath.getWeight(), 1.e-9, msg);
+            assertEquals(freshCHPath.calcNodes(), chPath.calcNodes(), msg);
+            // the shortcut weights are rounded, so compared to Dijkstra the CH weight can be slightly different
+            assertEquals(refPath.isFound(), chPath.isFound(), msg);
+            assertEquals(refPath.getWeight(), chPath.getWeight(), 1.e-1, msg);
+        }
+        // all searches ran on this thread and gave the workspace back, so it is still the same one
+        RoutingWorkspace workspace = pool.acquire();
+        assertTrue(workspace.getSPTFrom(1).getCapacity() >= graph.getNodes());
+        assertTrue(workspace.getPQFrom().isEmpty());
+        assertTrue(workspace.getMapFrom().isEmpty());
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CustomizableCHTest {
+    private static final String DIR = "./target/cch-test";
+    private final DecimalEncodedValue speedEnc1 = new DecimalEncodedValueImpl("speed1", 5, 5, true);
+    private final DecimalEncodedValue speedEnc2 = new DecimalEncodedValueImpl("speed2", 5, 5, true);
+    private final EncodingManager encodingManager = EncodingManager.start().add(speedEnc1).add(speedEnc2).build();
+
+    @BeforeEach
+    @AfterEach
+    public void setUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void nestedDissectionLevelsArePermutation() {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        GHUtility.buildRandomGraph(graph, new Random(123), 500, 2.2, true, speedEnc1, null, 0.8, 0.8);
+        graph.freeze();
+        CCHStorage storage = PrepareCustomizableCH.fromGraph(graph, "c").doWork();
+        boolean[] used = new boolean[graph.getNodes()];
+        for (int node = 0; node < graph.getNodes(); node++) {
+            int level = storage.getLevel(node);
+            assertFalse(used[level], "level " + level + " was assigned twice");
+            used[level] = true;
+            for (int arc = storage.getFirstArc(node); arc < storage.getEndArc(node); arc++)
+                assertTrue(storage.getArcTargetLevel(arc) > level);
+        }
+    }
+
+    @Test
+    public void compareWithDijkstra() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        int numNodes = 1_000;
+        GHUtility.buildRandomGraph(graph, rnd, numNodes, 2.2, true, null, null, 0.8, 0.8);
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            // the second speed is completely unrelated to the first, some edges are blocked or one-way
+            iter.set(speedEnc1, 10 + rnd.nextInt(100), 10 + rnd.nextInt(100));
+            iter.set(speedEnc2, rnd.nextDouble() < 0.1 ? 0 : rnd.nextInt(150), rnd.nextDouble() < 0.1 ? 0 : rnd.nextInt(150));
+        }
+        graph.freeze();
+        CCHStorage storage = PrepareCustomizableCH.fromGraph(graph, "c").doWork();
+        CustomizableCH cch = new CustomizableCH(graph, storage, 2);
+        // the same (metric-independent) preparation is used for two different weightings
+        for (DecimalEncodedValue speedEnc : new DecimalEncodedValue[]{speedEnc1, speedEnc2}) {
+            Weighting weighting = new SpeedWeighting(speedEnc);
+            RoutingCHGraph chGraph = cch.customize(CHConfig.nodeBased("c", weighting));
+            for (int i = 0; i < 100; i++) {
+                int from = rnd.nextInt(numNodes);
+                int to = rnd.nextInt(numNodes);
+                Path refPath = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+                Path path = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(from, to);
+                String msg = "seed: " + seed + ", from: " + from + ", to: " + to + ", speed: " + speedEnc.getName();
+                assertEquals(refPath.isFound(), path.isFound(), msg);
+                if (refPath.isFound()) {
+                    assertEquals(refPath.getWeight(), path.getWeight(), 1.e-1, msg);
+                    // the shortcuts must unpack to a path from the start to the end
+                    assertEquals(from, path.calcNodes().get(0), msg);
+                    assertEquals(to, path.calcNodes().get(path.calcNodes().size() - 1), msg);
+                    assertEquals(refPath.getDistance(), path.getDistance(), 1.e-1, msg);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void customizedGraphsAreCached() {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        GHUtility.buildRandomGraph(graph, new Random(123), 100, 2.2, true, speedEnc1, null, 0.8, 0.8);
+        graph.freeze();
+        CustomizableCH cch = new CustomizableCH(graph, PrepareCustomizableCH.fromGraph(graph, "c").doWork(), 1);
+        RoutingCHGraph chGraph1 = cch.getCustomized("1", () -> CHConfig.nodeBased("c", new SpeedWeighting(speedEnc1)));
+        assertSame(chGraph1, cch.getCustomized("1", () -> fail("should be cached")));
+        RoutingCHGraph chGraph2 = cch.getCustomized("2", () -> CHConfig.nodeBased("c", new SpeedWeighting(speedEnc2)));
+        assertNotSame(chGraph1, chGraph2);
+        assertSame(chGraph2, cch.getCustomized("2", () -> fail("should be cached")));
+        // the cache size is one, so the first graph was evicted
+        assertNotSame(chGraph1, cch.getCustomized("1", () -> CHConfig.nodeBased("c", new SpeedWeighting(speedEnc1))));
+    }
+
+    @Test
+    public void concurrentRequestsCustomizeOnce() throws Exception {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        GHUtility.buildRandomGraph(graph, new Random(123), 500, 2.2, true, speedEnc1, null, 0.8, 0.8);
+        graph.freeze();
+        CustomizableCH cch = new CustomizableCH(graph, PrepareCustomizableCH.fromGraph(graph, "c").doWork(), 2);
+        AtomicInteger customizations = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<RoutingCHGraph>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                futures.add(executorService.submit(() -> cch.getCustomized("1", () -> {
+                    customizations.incrementAndGet();
+                    return CHConfig.nodeBased("c", new SpeedWeighting(speedEnc1));
+                })));
+            RoutingCHGraph chGraph = futures.get(0).get();
+            for (Future<RoutingCHGraph> future : futures)
+                assertSame(chGraph, future.get());
+        } finally {
+            executorService.shutdown();
+        }
+        assertEquals(1, customizations.get());
+    }
+
+    @Test
+    public void failedCustomizationIsNotCached() {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        GHUtility.buildRandomGraph(graph, new Random(123), 100, 2.2, true, speedEnc1, null, 0.8, 0.8);
+        graph.freeze();
+        CustomizableCH cch = new CustomizableCH(graph, PrepareCustomizableCH.fromGraph(graph, "c").doWork(), 1);
+        assertThrows(IllegalArgumentException.class, () -> cch.getCustomized("1", () -> {
+            throw new IllegalArgumentException("invalid custom model");
+        }));
+        assertNotNull(cch.getCustomized("1", () -> CHConfig.nodeBased("c", new SpeedWeighting(speedEnc1))));
+    }
+
+    @Test
+    public void storeAndLoad() {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).setDir(new GHDirectory(DIR, DAType.RAM_STORE)).create();
+        GHUtility.buildRandomGraph(graph, new Random(123), 200, 2.2, true, speedEnc1, null, 0.8, 0.8);
+        graph.freeze();
+        CCHStorage storage = PrepareCustomizableCH.fromGraph(graph, "c").doWork();
+        storage.flush();
+        storage.close();
+
+        CCHStorage loaded = new CCHStorage(new GHDirectory(DIR, DAType.RAM_STORE), "c", graph.getSegmentSize());
+        assertTrue(loaded.loadExisting());
+        CCHStorage expected = PrepareCustomizableCH.fromGraph(graph, "d").doWork();
+        assertEquals(expected.getNodes(), loaded.getNodes());
+        assertEquals(expected.getArcs(), loaded.getArcs());
+        for (int node = 0; node < graph.getNodes(); node++) {
+            assertEquals(expected.getLevel(node), loaded.getLevel(node));
+            assertEquals(expected.getFirstArc(node), loaded.getFirstArc(node));
+            assertEquals(expected.getEndArc(node), loaded.getEndArc(node));
+        }
+        for (int arc = 0; arc < loaded.getArcs(); arc++)
+            assertEquals(expected.getArcTargetLevel(arc), loaded.getArcTargetLevel(arc));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.TurnCost;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.RoutingCHGraphImpl;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.util.GHUtility.createRandomSnaps;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ManyToManyCHTest {
+
+    @Test
+    public void simpleMatrix() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager em = EncodingManager.start().add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        // 0-1-2-3
+        //   |
+        //   4   5-6
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(200).set(speedEnc, 10, 10);
+        graph.edge(2, 3).setDistance(300).set(speedEnc, 10, 0);
+        graph.edge(1, 4).setDistance(400).set(speedEnc, 10, 10);
+        graph.edge(5, 6).setDistance(100).set(speedEnc, 10, 10);
+        graph.freeze();
+        CHConfig chConfig = CHConfig.nodeBased("p", new SpeedWeighting(speedEnc));
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, chConfig).doWork();
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+
+        ManyToManyCH.Matrix matrix = new ManyToManyCH(chGraph).calcMatrix(new int[]{0, 3, 4}, new int[]{3, 0, 4, 5});
+        assertEquals(3, matrix.getRows());
+        assertEquals(4, matrix.getCols());
+        assertEquals(600, matrix.getDistance(0, 0), 1.e-6);
+        assertEquals(0, matrix.getDistance(1, 0), 1.e-6);
+        // the edge 2-3 is a one-way
+        assertFalse(matrix.isConnected(1, 1));
+        assertEquals(Double.MAX_VALUE, matrix.getDistance(1, 1));
+        assertEquals(Long.MAX_VALUE, matrix.getTime(1, 1));
+        assertEquals(500, matrix.getDistance(0, 2), 1.e-6);
+        assertEquals(900, matrix.getDistance(2, 0), 1.e-6);
+        assertEquals(500, matrix.getDistance(2, 1), 1.e-6);
+        // node 5 is not connected at all
+        for (int i = 0; i < 3; i++)
+            assertFalse(matrix.isConnected(i, 3));
+
+        ManyToManyCH.Matrix weightsOnly = new ManyToManyCH(chGraph).setCalcPaths(false).calcMatrix(new int[]{0}, new int[]{3});
+        assertEquals(matrix.getWeight(0, 0), weightsOnly.getWeight(0, 0), 1.e-6);
+        assertFalse(weightsOnly.hasTimesAndDistances());
+        assertThrows(IllegalStateException.class, () -> weightsOnly.getTime(0, 0));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = TraversalMode.class)
+    public void randomMatrices(TraversalMode traversalMode) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        DecimalEncodedValue turnCostEnc = TurnCost.create("car", 10);
+        EncodingManager em = EncodingManager.start().add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).withTurnCosts(true).create();
+        GHUtility.buildRandomGraph(graph, rnd, 50, 2.5, true, speedEnc, null, 0.9, 0);
+        if (traversalMode.isEdgeBased())
+            GHUtility.addRandomTurnCosts(graph, seed, null, turnCostEnc, 10, graph.getTurnCostStorage());
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, graph.getDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+
+        CHConfig chConfig = traversalMode.isEdgeBased()
+                ? CHConfig.edgeBased("p", new SpeedWeighting(speedEnc, turnCostEnc, graph.getTurnCostStorage(), 40))
+                : CHConfig.nodeBased("p", new SpeedWeighting(speedEnc));
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, chConfig).doWork();
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+
+        List<String> strictViolations = new ArrayList<>();
+        int numQueries = 0;
+        for (int run = 0; run < 10; run++) {
+            List<Snap> snaps = createRandomSnaps(graph.getBounds(), locationIndex, rnd, 10, false, EdgeFilter.ALL_EDGES);
+            QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+            Weighting weighting = queryGraph.wrapWeighting(chConfig.getWeighting());
+            int[] sources = new int[8];
+            int[] targets = new int[5];
+            for (int i = 0; i < sources.length; i++)
+                sources[i] = rnd.nextInt(queryGraph.getNodes());
+            for (int j = 0; j < targets.length; j++)
+                targets[j] = rnd.nextInt(queryGraph.getNodes());
+
+            ManyToManyCH.Matrix matrix = new ManyToManyCH(new QueryRoutingCHGraph(chGraph, queryGraph)).calcMatrix(sources, targets);
+            for (int i = 0; i < sources.length; i++) {
+                for (int j = 0; j < targets.length; j++) {
+                    Path refPath = new Dijkstra(queryGraph, weighting, traversalMode).calcPath(sources[i], targets[j]);
+                    String msg = "seed: " + seed + ", " + sources[i] + "->" + targets[j];
+                    assertEquals(refPath.isFound(), matrix.isConnected(i, j), msg);
+                    if (!refPath.isFound())
+                        continue;
+                    assertEquals(refPath.getWeight(), matrix.getWeight(i, j), 1.e-2, msg);
+                    numQueries++;
+                    if (Math.abs(refPath.getDistance() - matrix.getDistance(i, j)) > 1.e-1)
+                        strictViolations.add(msg + ", wrong distance: " + matrix.getDistance(i, j) + ", expected: " + refPath.getDistance());
+                }
+            }
+        }
+        // sometimes there are multiple best paths with different distances, if this happens too often something
+        // is wrong and we fail
+        if (strictViolations.size() > Math.max(1, 0.05 * numQueries))
+            fail("Too many strict violations, with seed: " + seed + " - " + strictViolations.size() + " / " + numQueries + ": " + strictViolations);
+    }
+}
@@ -576,6 +576,66 @@ public class PrepareContractionHierarchiesTest {
         }
     }
 
+    @Test
+    public void testParallelContraction() {
+        BaseGraph graph = createGraph();
+        int numNodes = 2_000;
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, numNodes, 1.3, true, speedEnc, null, 0.9, 0.8);
+        graph.freeze();
+
+        PrepareContractionHierarchies.Result res1 = PrepareContractionHierarchies.fromGraph(graph, chConfig)
+                .setContractionThreads(4).doWork();
+        PrepareContractionHierarchies.Result res2 = PrepareContractionHierarchies.fromGraph(graph, CHConfig.nodeBased("c2", weighting))
+                .setContractionThreads(4).doWork();
+        // the result must not depend on the thread scheduling
+        assertEquals(res1.getShortcuts(), res2.getShortcuts(), "seed: " + seed);
+        for (int node = 0; node < numNodes; node++)
+            assertEquals(res1.getCHStorage().getLevel(res1.getCHStorage().toNodePointer(node)),
+                    res2.getCHStorage().getLevel(res2.getCHStorage().toNodePointer(node)), "seed: " + seed);
+
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, res1.getCHStorage(), res1.getCHConfig());
+        for (int i = 0; i < 100; ++i) {
+            int from = rnd.nextInt(numNodes);
+            int to = rnd.nextInt(numNodes);
+            double dijkstraWeight = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to).getWeight();
+            double chWeight = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(from, to).getWeight();
+            assertEquals(dijkstraWeight, chWeight, 1.e-1, "seed: " + seed);
+        }
+    }
+
+    @Test
+    public void testParallelContractionEqualWeightGrid() {
+        // in a grid with equal weights there are many equal-weight paths between the neighbors of a node, so the
+        // witness searches must not use other nodes that are contracted in the same batch
+        BaseGraph graph = createGraph();
+        int size = 30;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int node = row * size + col;
+                graph.getNodeAccess().setNode(node, 0.001 * row, 0.001 * col);
+                if (col > 0)
+                    graph.edge(node - 1, node).setDistance(100).set(speedEnc, 10, 10);
+                if (row > 0)
+                    graph.edge(node - size, node).setDistance(100).set(speedEnc, 10, 10);
+            }
+        }
+        graph.freeze();
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, chConfig)
+                .setContractionThreads(4).doWork();
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+        int numNodes = size * size;
+        for (int from = 0; from < numNodes; from += 7) {
+            for (int to = 0; to < numNodes; to += 11) {
+                Path dijkstraPath = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+                Path chPath = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(from, to);
+                assertTrue(chPath.isFound(), "from: " + from + ", to: " + to);
+                assertEquals(dijkstraPath.getWeight(), chPath.getWeight(), 1.e-3, "from: " + from + ", to: " + to);
+            }
+        }
+    }
+
     private void checkPath(BaseGraph g, CHConfig c, int expShortcuts, double expDistance, IntIndexedContainer expNodes, int[] nodeOrdering) {
         PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(g, c);
         useNodeOrdering(prepare, nodeOrdering);
@@ -132,6 +132,28 @@ public class IntEncodedValueImplTest {
         }
     }
 
+    @Test
+    public void copy() {
+        EncodedValue.InitializerConfig config = new EncodedValue.InitializerConfig();
+        SimpleBooleanEncodedValue boolEnc = new SimpleBooleanEncodedValue("bool", true);
+        boolEnc.init(config);
+        DecimalEncodedValueImpl decimalEnc = new DecimalEncodedValueImpl("decimal", 20, 0.5, true);
+        decimalEnc.init(config);
+        EdgeIntAccess from = createIntAccess(4);
+        EdgeIntAccess to = createIntAccess(4);
+        boolEnc.setBool(true, 1, from, true);
+        decimalEnc.setDecimal(false, 1, from, 12.5);
+        decimalEnc.setDecimal(true, 1, from, 3);
+        decimalEnc.setDecimal(false, 0, to, 7);
+
+        boolEnc.copy(1, from, 0, to);
+        decimalEnc.copy(1, from, 0, to);
+        assertFalse(boolEnc.getBool(false, 0, to));
+        assertTrue(boolEnc.getBool(true, 0, to));
+        assertEquals(12.5, decimalEnc.getDecimal(false, 0, to));
+        assertEquals(3, decimalEnc.getDecimal(true, 0, to));
+    }
+
     private static ArrayEdgeIntAccess createIntAccess(int ints) {
         return new ArrayEdgeIntAccess(ints);
     }
@@ -33,6 +33,7 @@ import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.RAMDirectory;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.Parameters;
@@ -48,8 +49,7 @@ import java.util.Random;
 import static com.graphhopper.util.GHUtility.updateDistancesFor;
 import static com.graphhopper.util.Parameters.Algorithms.ASTAR;
 import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author Peter Karich
@@ -180,6 +180,31 @@ public class PrepareLandmarksTest {
         assertEquals(expectedAlgo.getVisitedNodes() - 136, qGraphOneDirAlgo.getVisitedNodes());
     }
 
+    @Test
+    public void testParallelLandmarkWeights() {
+        GHUtility.buildRandomGraph(graph, new Random(42), 500, 2.2, true, speedEnc, null, 0.8, 0.8);
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        LMConfig lmConfig = new LMConfig("car", weighting);
+        LandmarkStorage sequential = new LandmarkStorage(graph, encodingManager, new RAMDirectory(), lmConfig, 8);
+        sequential.setMinimumNodes(2);
+        sequential.createLandmarks();
+        LandmarkStorage parallel = new LandmarkStorage(graph, encodingManager, new RAMDirectory(), lmConfig, 8);
+        parallel.setMinimumNodes(2);
+        parallel.setLandmarkThreads(4);
+        parallel.createLandmarks();
+
+        assertEquals(sequential.getFactor(), parallel.getFactor());
+        assertEquals(sequential.getSubnetworksWithLandmarks(), parallel.getSubnetworksWithLandmarks());
+        for (int subnetwork = 1; subnetwork < sequential.getSubnetworksWithLandmarks(); subnetwork++)
+            assertArrayEquals(sequential.getLandmarks(subnetwork), parallel.getLandmarks(subnetwork));
+        for (int node = 0; node < graph.getNodes(); node++) {
+            for (int lmIdx = 0; lmIdx < sequential.getLandmarkCount(); lmIdx++) {
+                assertEquals(sequential.getFromWeight(lmIdx, node), parallel.getFromWeight(lmIdx, node));
+                assertEquals(sequential.getToWeight(lmIdx, node), parallel.getToWeight(lmIdx, node));
+            }
+        }
+    }
+
     @Test
     public void testStoreAndLoad() {
         graph.edge(0, 1).setDistance(80_000).set(speedEnc, 60);
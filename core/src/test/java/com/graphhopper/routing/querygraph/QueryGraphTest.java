@@ -1067,6 +1067,36 @@ public class QueryGraphTest {
         assertNull(edge0ToSnap.getValue("b"));
     }
 
+    @Test
+    public void virtualEdgeGeometry() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(g, rnd, 50, 2.2, true, speedEnc, null, 0.8, 0.8);
+        NodeAccess na = g.getNodeAccess();
+        for (int edge = 0; edge < g.getEdges(); edge++) {
+            EdgeIteratorState state = g.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            PointList pillars = new PointList();
+            for (int i = 0; i < rnd.nextInt(4); i++)
+                pillars.add(na.getLat(state.getBaseNode()) + (rnd.nextDouble() - 0.5) * 0.001, na.getLon(state.getBaseNode()) + (rnd.nextDouble() - 0.5) * 0.001);
+            state.setWayGeometry(pillars);
+        }
+        LocationIndexTree index = new LocationIndexTree(g, new RAMDirectory());
+        index.prepareIndex();
+        List<Snap> snaps = GHUtility.createRandomSnaps(g.getBounds(), index, rnd, 20, true, EdgeFilter.ALL_EDGES);
+        QueryGraph queryGraph = QueryGraph.create(g, snaps);
+        NodeAccess queryNodeAccess = queryGraph.getNodeAccess();
+        for (int edge = g.getEdges(); edge < queryGraph.getEdges(); edge++) {
+            String msg = "seed: " + seed + ", edge: " + edge;
+            // the geometry is created lazily, but it still has to match the distance and the nodes of the edge
+            EdgeIteratorState state = queryGraph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            PointList points = state.fetchWayGeometry(FetchMode.ALL);
+            assertEquals(DIST_PLANE.calcDistance(points), state.getDistance(), 1.e-9, msg);
+            assertEquals(queryNodeAccess.getLat(state.getBaseNode()), points.getLat(0), 1.e-9, msg);
+            assertEquals(queryNodeAccess.getLon(state.getAdjNode()), points.getLon(points.size() - 1), 1.e-9, msg);
+            assertEquals(points.clone(true).toString(), state.detach(true).fetchWayGeometry(FetchMode.ALL).toString(), msg);
+        }
+    }
+
     @Test
     void veryShortEdge() {
         EdgeIteratorState e = g.edge(0, 1);
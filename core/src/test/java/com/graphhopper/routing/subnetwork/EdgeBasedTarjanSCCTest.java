@@ -31,12 +31,13 @@ import com.graphhopper.util.GHUtility;
 import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
 
 import static com.graphhopper.routing.subnetwork.TarjanSCCTest.buildComponentSet;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 class EdgeBasedTarjanSCCTest {
 
@@ -239,6 +240,28 @@ class EdgeBasedTarjanSCCTest {
         }
     }
 
+    @Test
+    public void withoutUTurns_backwardEdgeKey() {
+        // the edges 1->0, 0->2 and 2->1 form a circle, but without u-turns the backward edge key 1->0 cannot be reached
+        // from the forward edge key 0->1, so a separate search must be started for it at node 1
+        // 0 - 1
+        //  \ /
+        //   2
+        g.edge(0, 1).setDistance(1).set(speedEnc, 10, 10); // edge-keys 0,1
+        g.edge(0, 2).setDistance(1).set(speedEnc, 10, 0); // edge-keys 2,3
+        g.edge(2, 1).setDistance(1).set(speedEnc, 10, 0); // edge-keys 4,5
+        EdgeBasedTarjanSCC.EdgeTransitionFilter noUTurnsFilter = (prev, edge) -> prev != edge.getEdge() && fwdAccessFilter.accept(prev, edge);
+        for (ConnectedComponents result : List.of(
+                EdgeBasedTarjanSCC.findComponentsRecursive(g, noUTurnsFilter, false),
+                EdgeBasedTarjanSCC.findComponents(g, noUTurnsFilter, false),
+                EdgeBasedTarjanSCC.findComponentsForStartEdges(g, noUTurnsFilter, IntArrayList.from(0, 1, 2)))) {
+            assertEquals(1, result.getComponents().size());
+            int[] component = result.getBiggestComponent().toArray();
+            Arrays.sort(component);
+            assertArrayEquals(new int[]{1, 2, 4}, component);
+        }
+    }
+
     @RepeatedTest(20)
     public void implicitVsExplicitRecursion() {
         doImplicitVsExplicit(true);
@@ -0,0 +1,104 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.subnetwork;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.EncodedValue;
+import com.graphhopper.routing.subnetwork.TarjanSCCTest.IntWithArray;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static com.graphhopper.routing.subnetwork.TarjanSCCTest.buildComponentSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelSCCTest {
+    private final DecimalEncodedValue speedEnc;
+    private final BaseGraph graph;
+
+    public ParallelSCCTest() {
+        speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodedValue.InitializerConfig evConf = new EncodedValue.InitializerConfig();
+        speedEnc.init(evConf);
+        graph = new BaseGraph.Builder(evConf.getRequiredBytes()).create();
+    }
+
+    @Test
+    public void simple() {
+        // 0 - 1 - 2 -> 3 - 4   5
+        graph.getNodeAccess().setNode(5, 0, 0);
+        graph.edge(0, 1).setDistance(1).set(speedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(1).set(speedEnc, 10, 10);
+        graph.edge(2, 3).setDistance(1).set(speedEnc, 10, 0);
+        graph.edge(3, 4).setDistance(1).set(speedEnc, 10, 10);
+        TarjanSCC.ConnectedComponents components = ParallelSCC.findComponents(graph, edge -> edge.get(speedEnc) > 0, false, 2);
+        assertEquals(6, components.getNodes());
+        assertEquals(3, components.getTotalComponents());
+        assertEquals(2, components.getComponents().size());
+        assertEquals(3, components.getBiggestComponent().size());
+        assertEquals(1, components.getSingleNodeComponents().cardinality());
+        assertEquals(true, components.getSingleNodeComponents().get(5));
+
+        // u-turns are not allowed, so there are only single edge components
+        EdgeBasedTarjanSCC.ConnectedComponents edgeComponents = ParallelSCC.findEdgeBasedComponents(graph,
+                (prev, edge) -> edge.get(speedEnc) > 0 && prev != edge.getEdge(), false, 2);
+        assertEquals(8, edgeComponents.getEdgeKeys());
+        assertEquals(8, edgeComponents.getTotalComponents());
+        assertEquals(8, edgeComponents.getSingleEdgeComponents().cardinality());
+    }
+
+    @RepeatedTest(20)
+    public void compareWithTarjan() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        // with few bidirectional edges there are many small components, otherwise there is one big component
+        double pBothDir = rnd.nextBoolean() ? 0.2 : 0.8;
+        GHUtility.buildRandomGraph(graph, rnd, 1_000, 2.2, true, speedEnc, 60d, pBothDir, 0);
+        EdgeFilter edgeFilter = edge -> edge.get(speedEnc) > 0;
+        // forbid some turns and all u-turns, but in a deterministic way
+        EdgeBasedTarjanSCC.EdgeTransitionFilter transitionFilter = (prev, edge) -> edge.get(speedEnc) > 0
+                && prev != edge.getEdge() && (prev < 0 || (31 * prev + edge.getEdge()) % 7 != 0);
+        for (int threads : new int[]{1, 4}) {
+            for (boolean excludeSingle : new boolean[]{true, false}) {
+                String msg = "seed: " + seed + ", threads: " + threads + ", excludeSingle: " + excludeSingle;
+                TarjanSCC.ConnectedComponents expected = TarjanSCC.findComponents(graph, edgeFilter, excludeSingle);
+                TarjanSCC.ConnectedComponents given = ParallelSCC.findComponents(graph, edgeFilter, excludeSingle, threads);
+                assertEquals(expected.getNodes(), given.getNodes(), msg);
+                assertEquals(expected.getTotalComponents(), given.getTotalComponents(), msg);
+                assertEquals(expected.getBiggestComponent().size(), given.getBiggestComponent().size(), msg);
+                assertEquals(expected.getSingleNodeComponents(), given.getSingleNodeComponents(), msg);
+                assertEquals(buildComponentSet(expected.getComponents()), buildComponentSet(given.getComponents()), msg);
+
+                EdgeBasedTarjanSCC.ConnectedComponents expectedEdges = EdgeBasedTarjanSCC.findComponents(graph, transitionFilter, excludeSingle);
+                EdgeBasedTarjanSCC.ConnectedComponents givenEdges = ParallelSCC.findEdgeBasedComponents(graph, transitionFilter, excludeSingle, threads);
+                assertEquals(expectedEdges.getEdgeKeys(), givenEdges.getEdgeKeys(), msg);
+                assertEquals(expectedEdges.getTotalComponents(), givenEdges.getTotalComponents(), msg);
+                assertEquals(expectedEdges.getBiggestComponent().size(), givenEdges.getBiggestComponent().size(), msg);
+                assertEquals(expectedEdges.getSingleEdgeComponents(), givenEdges.getSingleEdgeComponents(), msg);
+                Set<IntWithArray> expectedSet = buildComponentSet(expectedEdges.getComponents());
+                assertEquals(expectedSet, buildComponentSet(givenEdges.getComponents()), msg);
+            }
+        }
+    }
+}
@@ -26,11 +26,10 @@ import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.TurnCostStorage;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.RepeatedTest;
 import org.junit.jupiter.api.Test;
 
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -169,6 +168,51 @@ public class PrepareRoutingSubnetworksTest {
         assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, subnetworkEnc));
     }
 
+    @RepeatedTest(5)
+    public void testPrepareSubnetworks_sharedComponentSearch() {
+        DecimalEncodedValue speedEnc1 = new DecimalEncodedValueImpl("speed1", 5, 5, true);
+        DecimalEncodedValue speedEnc2 = new DecimalEncodedValueImpl("speed2", 5, 5, true);
+        DecimalEncodedValue speedEnc3 = new DecimalEncodedValueImpl("speed3", 5, 5, true);
+        List<BooleanEncodedValue> subnetworkEncs = Arrays.asList(Subnetwork.create("a"), Subnetwork.create("b"), Subnetwork.create("c"));
+        EncodingManager.Builder builder = EncodingManager.start().add(speedEnc1).add(speedEnc2).add(speedEnc3);
+        subnetworkEncs.forEach(builder::add);
+        EncodingManager em = builder.build();
+        long seed = System.nanoTime();
+        List<IntArrayList> expected = null;
+        // the first two jobs allow the same edges, so their components are only searched once when they run together,
+        // and with four threads the component search itself uses multiple threads
+        for (int threads : new int[]{1, 4}) {
+            List<IntArrayList> subnetworkEdges = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                BaseGraph g = new BaseGraph.Builder(em).create();
+                Random rnd = new Random(seed);
+                GHUtility.buildRandomGraph(g, rnd, 500, 2.2, true, speedEnc1, 30d, 0.7, 0);
+                AllEdgesIterator iter = g.getAllEdges();
+                while (iter.next()) {
+                    iter.set(speedEnc2, iter.get(speedEnc1) > 0 ? 5 : 0, iter.getReverse(speedEnc1) > 0 ? 5 : 0);
+                    iter.set(speedEnc3, rnd.nextDouble() < 0.8 ? 10 : 0, rnd.nextDouble() < 0.8 ? 10 : 0);
+                }
+                List<DecimalEncodedValue> speedEncs = Arrays.asList(speedEnc1, speedEnc2, speedEnc3);
+                List<PrepareRoutingSubnetworks.PrepareJob> jobs = new ArrayList<>();
+                for (int i = 0; i < 3; i++)
+                    if (threads > 1 || i == j)
+                        jobs.add(createJob(subnetworkEncs.get(i), speedEncs.get(i)));
+                new PrepareRoutingSubnetworks(g, jobs).setMinNetworkSize(10).setThreads(threads).doWork();
+                subnetworkEdges.add(getSubnetworkEdges(g, subnetworkEncs.get(j)));
+                if (threads > 1) {
+                    subnetworkEdges.add(getSubnetworkEdges(g, subnetworkEncs.get(1)));
+                    subnetworkEdges.add(getSubnetworkEdges(g, subnetworkEncs.get(2)));
+                    break;
+                }
+            }
+            if (expected == null)
+                expected = subnetworkEdges;
+            else
+                assertEquals(expected, subnetworkEdges, "seed: " + seed);
+        }
+        assertEquals(expected.get(0), expected.get(1), "seed: " + seed);
+    }
+
     private BaseGraph createSubnetworkTestStorageWithOneWays(EncodingManager em, DecimalEncodedValue speedEnc) {
         BaseGraph g = new BaseGraph.Builder(em).create();
         // 0 - 1 - 2 - 3 - 4 <- 5 - 6
@@ -0,0 +1,93 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util;
+
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.EdgeIteratorState;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrafficSpeedUpdaterTest {
+    private final DecimalEncodedValue trafficSpeedEnc = TrafficSpeed.create();
+    private final IntEncodedValue osmWayIdEnc = OSMWayID.create();
+    private final EncodingManager em = EncodingManager.start().add(trafficSpeedEnc).add(osmWayIdEnc).build();
+
+    @Test
+    public void setSpeeds() {
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        // edges 0 and 2 belong to way 5, edge 1 belongs to way 3
+        EdgeIteratorState edge0 = graph.edge(0, 1).set(osmWayIdEnc, 5);
+        EdgeIteratorState edge1 = graph.edge(1, 2).set(osmWayIdEnc, 3);
+        EdgeIteratorState edge2 = graph.edge(2, 3).set(osmWayIdEnc, 5);
+        for (EdgeIteratorState edge : new EdgeIteratorState[]{edge0, edge1, edge2})
+            edge.set(trafficSpeedEnc, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+        TrafficSpeedUpdater updater = new TrafficSpeedUpdater(graph, em);
+        assertEquals(2, updater.setWaySpeed(5, 20, 0));
+        assertEquals(0, updater.setWaySpeed(4, 20, 20));
+        updater.setEdgeSpeed(1, 300, 36);
+        assertEquals(3, updater.getUpdatedEdges());
+        assertEquals(20, edge0.get(trafficSpeedEnc));
+        assertEquals(0, edge0.getReverse(trafficSpeedEnc));
+        assertEquals(20, edge2.get(trafficSpeedEnc));
+        // speeds that are too large for the encoded value are stored as the maximum finite value
+        assertEquals(252, edge1.get(trafficSpeedEnc));
+        assertEquals(36, edge1.getReverse(trafficSpeedEnc));
+
+        updater.clear();
+        for (EdgeIteratorState edge : new EdgeIteratorState[]{edge0, edge1, edge2}) {
+            assertEquals(Double.POSITIVE_INFINITY, edge.get(trafficSpeedEnc));
+            assertEquals(Double.POSITIVE_INFINITY, edge.getReverse(trafficSpeedEnc));
+        }
+        assertThrows(IllegalArgumentException.class, () -> updater.setEdgeSpeed(3, 10, 10));
+        assertThrows(IllegalArgumentException.class, () -> updater.setEdgeSpeed(0, -1, 10));
+    }
+
+    @Test
+    public void startUpdateCopiesSpeeds() {
+        DecimalEncodedValue trafficSpeedEnc = TrafficSpeed.create();
+        DecimalEncodedValue bufferEnc = TrafficSpeed.createBuffer();
+        EncodingManager em = EncodingManager.start().add(trafficSpeedEnc).add(bufferEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        EdgeIteratorState edge0 = graph.edge(0, 1).set(trafficSpeedEnc, 20, Double.POSITIVE_INFINITY);
+        EdgeIteratorState edge1 = graph.edge(1, 2).set(trafficSpeedEnc, 30, 40);
+
+        TrafficSpeedUpdater updater = new TrafficSpeedUpdater(graph, em);
+        updater.startUpdate(trafficSpeedEnc, bufferEnc).setEdgeSpeed(1, 0, 0);
+        assertEquals(20, edge0.get(bufferEnc));
+        assertEquals(Double.POSITIVE_INFINITY, edge0.getReverse(bufferEnc));
+        assertEquals(0, edge1.get(bufferEnc));
+        assertEquals(0, edge1.getReverse(bufferEnc));
+        // the previous speeds are not changed
+        assertEquals(30, edge1.get(trafficSpeedEnc));
+        assertEquals(40, edge1.getReverse(trafficSpeedEnc));
+
+        updater.clear();
+        assertEquals(Double.POSITIVE_INFINITY, edge0.get(bufferEnc));
+        assertEquals(20, edge0.get(trafficSpeedEnc));
+    }
+
+    @Test
+    public void requiresOSMWayIdForWaySpeeds() {
+        EncodingManager em = EncodingManager.start().add(TrafficSpeed.create()).build();
+        TrafficSpeedUpdater updater = new TrafficSpeedUpdater(new BaseGraph.Builder(em).create(), em);
+        assertThrows(IllegalStateException.class, () -> updater.setWaySpeed(1, 10, 10));
+    }
+}
@@ -20,6 +20,7 @@ package com.graphhopper.storage;
 import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.routing.ev.EnumEncodedValue;
 import com.graphhopper.routing.ev.RoadClass;
+import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.search.KVStorage.KValue;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
@@ -27,8 +28,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.io.File;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Random;
 
 import static com.graphhopper.util.EdgeIteratorState.REVERSE_STATE;
 import static com.graphhopper.util.FetchMode.*;
@@ -407,4 +410,271 @@ public class BaseGraphTest extends AbstractGraphStorageTester {
         assertThrows(IllegalArgumentException.class, () -> ne.setGeoRef(0, 1L << 39));
         graph.close();
     }
+
+    @Test
+    public void adjacencyArray() {
+        long seed = System.nanoTime();
+        BaseGraph reference = newGHStorage(new RAMDirectory(), false, defaultSize / 2).create(defaultSize);
+        GHUtility.buildRandomGraph(reference, new Random(seed), 200, 2.5, true, footSpeedEnc, 10.0, 0.8, 0.1);
+        reference.freeze();
+
+        graph = new BaseGraph.Builder(encodingManager).setDir(new RAMDirectory(defaultGraphLoc, true))
+                .setSegmentSize(defaultSize / 2).withAdjacencyArray(true).build().create(defaultSize);
+        GHUtility.buildRandomGraph(graph, new Random(seed), 200, 2.5, true, footSpeedEnc, 10.0, 0.8, 0.1);
+        assertFalse(graph.getStore().hasAdjacencyArray());
+        graph.freeze();
+        assertTrue(graph.getStore().hasAdjacencyArray());
+        assertSameAdjacentEdges(reference, graph, seed);
+        // the adjacency array needs less memory than the linked lists it replaces
+        assertTrue(graph.getStore().getCapacity() < reference.getStore().getCapacity(),
+                graph.getStore().toDetailsString() + " vs. " + reference.getStore().toDetailsString());
+        assertFalse(graph.getDirectory().getDAs().containsKey("edges_tmp"));
+        graph.flush();
+        graph.close();
+
+        // the adjacency array is stored and loaded again
+        graph = new BaseGraph.Builder(encodingManager).setDir(new RAMDirectory(defaultGraphLoc, true))
+                .withAdjacencyArray(true).build();
+        assertTrue(graph.loadExisting());
+        assertTrue(graph.getStore().hasAdjacencyArray());
+        assertSameAdjacentEdges(reference, graph, seed);
+        assertThrows(IllegalArgumentException.class, () -> graph.createEdgeExplorer().setBaseNode(graph.getNodes()));
+        graph.close();
+        reference.close();
+
+        // the linked lists were removed, so the graph cannot be used without the adjacency array
+        graph = new BaseGraph.Builder(encodingManager).setDir(new RAMDirectory(defaultGraphLoc, true)).build();
+        IllegalStateException e = assertThrows(IllegalStateException.class, graph::loadExisting);
+        assertTrue(e.getMessage().contains("graph.adjacency_array: true"), e.getMessage());
+    }
+
+    @Test
+    public void adjacencyArrayIteration() {
+        graph = new BaseGraph.Builder(encodingManager).setDir(new RAMDirectory(defaultGraphLoc, true))
+                .withAdjacencyArray(true).create();
+        graph.edge(0, 1).setDistance(100).set(footSpeedEnc, 10, 5);
+        graph.edge(1, 2).setDistance(200).setWayGeometry(Helper.createPointList(0.5, 0.5, 0.6, 0.6));
+        graph.edge(3, 1).setDistance(300).setKeyValues(Map.of(STREET_NAME, new KValue("main")));
+        // node 4 has no edges
+        graph.getNodeAccess().setNode(4, 1, 1);
+        // large differences between the adjacent edges need multiple bytes
+        for (int i = 0; i < 1000; i++)
+            graph.edge(5 + i, 6 + i);
+        graph.edge(5, 1).setDistance(500);
+        graph.freeze();
+        assertThrows(IllegalStateException.class, () -> graph.getStore().createAdjacencyArray());
+
+        EdgeIterator iter = graph.createEdgeExplorer().setBaseNode(1);
+        assertTrue(iter.next());
+        assertEquals(1003, iter.getEdge());
+        assertEquals(5, iter.getAdjNode());
+        assertTrue(iter.get(REVERSE_STATE));
+        assertTrue(iter.next());
+        assertEquals(2, iter.getEdge());
+        assertEquals(3, iter.getAdjNode());
+        assertEquals("main", iter.getName());
+        assertEquals(3, iter.detach(false).getAdjNode());
+        assertEquals(1, iter.detach(true).getAdjNode());
+        assertTrue(iter.next());
+        assertEquals(1, iter.getEdge());
+        assertEquals(2, iter.getAdjNode());
+        assertEquals(200, iter.getDistance());
+        assertEquals(Helper.createPointList(0.5, 0.5, 0.6, 0.6), iter.fetchWayGeometry(PILLAR_ONLY));
+        assertTrue(iter.next());
+        assertEquals(0, iter.getEdge());
+        assertEquals(0, iter.getAdjNode());
+        assertEquals(10, iter.getReverse(footSpeedEnc));
+        assertEquals(5, iter.get(footSpeedEnc));
+        assertFalse(iter.next());
+        assertEquals(0, GHUtility.count(graph.createEdgeExplorer().setBaseNode(4)));
+        assertEquals(2, GHUtility.count(graph.createEdgeExplorer().setBaseNode(5)));
+        assertEquals(1, GHUtility.count(graph.createEdgeExplorer().setBaseNode(1005)));
+    }
+
+    @Test
+    public void adjacencyArrayNotCreatedForReadOnlyGraph() {
+        graph = new BaseGraph.Builder(encodingManager).setDir(new GHDirectory(defaultGraphLoc, DAType.MMAP)).create();
+        graph.edge(0, 1).setDistance(100);
+        graph.edge(1, 2).setDistance(100);
+        graph.freeze();
+        graph.flush();
+        graph.close();
+
+        // the adjacency array is not created for a graph that was frozen without it, so we use the linked lists
+        graph = new BaseGraph.Builder(encodingManager).setDir(new GHDirectory(defaultGraphLoc, DAType.MMAP_RO))
+                .withAdjacencyArray(true).build();
+        assertTrue(graph.loadExisting());
+        assertFalse(graph.getStore().hasAdjacencyArray());
+        assertEquals(2, GHUtility.count(graph.createEdgeExplorer().setBaseNode(1)));
+        assertFalse(new File(defaultGraphLoc, "adjacency").exists());
+    }
+
+    @Test
+    public void adjacencyArrayMissing() {
+        graph = new BaseGraph.Builder(encodingManager).setDir(new RAMDirectory(defaultGraphLoc, true))
+                .withAdjacencyArray(true).create();
+        graph.edge(0, 1).setDistance(100);
+        graph.freeze();
+        graph.flush();
+        graph.close();
+        assertTrue(new File(defaultGraphLoc, "adjacency").delete());
+
+        // the linked lists were removed, so the adjacency array cannot be created again
+        graph = new BaseGraph.Builder(encodingManager).setDir(new RAMDirectory(defaultGraphLoc, true))
+                .withAdjacencyArray(true).build();
+        IllegalStateException e = assertThrows(IllegalStateException.class, graph::loadExisting);
+        assertTrue(e.getMessage().contains("The adjacency array is missing"), e.getMessage());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void appendEdgeToFrozenGraph(boolean adjacencyArray) {
+        graph = new BaseGraph.Builder(encodingManager).setDir(new RAMDirectory(defaultGraphLoc, true))
+                .withAdjacencyArray(adjacencyArray).create();
+        graph.edge(0, 1).setDistance(100);
+        graph.edge(1, 2).setDistance(200);
+        graph.freeze();
+        assertThrows(IllegalStateException.class, () -> graph.edge(2, 3));
+
+        graph.getNodeAccess().setNode(3, 1, 1);
+        assertEquals(2, graph.appendEdge(1, 3).setDistance(300).getEdge());
+        assertEquals(3, graph.appendEdge(3, 0).setDistance(400).getEdge());
+        assertEquals(adjacencyArray, graph.getStore().hasAdjacencyArray());
+        IntArrayList edges = new IntArrayList();
+        EdgeIterator iter = graph.createEdgeExplorer().setBaseNode(1);
+        while (iter.next())
+            edges.add(iter.getEdge());
+        // the new edges come first, just like for the linked lists
+        assertEquals(IntArrayList.from(2, 1, 0), edges);
+        iter = graph.createEdgeExplorer().setBaseNode(3);
+        assertTrue(iter.next());
+        assertEquals(3, iter.getEdge());
+        assertEquals(0, iter.getAdjNode());
+        assertTrue(iter.next());
+        assertEquals(2, iter.getEdge());
+        assertEquals(1, iter.getAdjNode());
+        assertTrue(iter.get(REVERSE_STATE));
+        assertFalse(iter.next());
+        graph.flush();
+        graph.close();
+
+        graph = new BaseGraph.Builder(encodingManager).setDir(new RAMDirectory(defaultGraphLoc, true))
+                .withAdjacencyArray(adjacencyArray).build();
+        assertTrue(graph.loadExisting());
+        assertEquals(4, graph.getEdges());
+        assertEquals(3, GHUtility.count(graph.createEdgeExplorer().setBaseNode(1)));
+        assertEquals(2, GHUtility.count(graph.createEdgeExplorer().setBaseNode(0)));
+        assertEquals(400, graph.getEdgeIteratorState(3, 0).getDistance());
+    }
+
+    @Test
+    public void zigZag() {
+        for (int value : new int[]{0, 1, -1, 63, -64, 1000, Integer.MAX_VALUE, Integer.MIN_VALUE})
+            assertEquals(value, BaseGraphNodesAndEdges.unZigZag(BaseGraphNodesAndEdges.zigZag(value)));
+        assertEquals(1, BaseGraphNodesAndEdges.zigZag(-1));
+        assertEquals(2, BaseGraphNodesAndEdges.zigZag(1));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void compactGeometry(boolean is3D) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        BaseGraph expected = newGHStorage(new RAMDirectory(), is3D).create(defaultSize);
+        graph = new BaseGraph.Builder(encodingManager).setDir(new RAMDirectory(defaultGraphLoc, true)).set3D(is3D)
+                .withCompactGeometry(true).create();
+        for (BaseGraph g : new BaseGraph[]{expected, graph}) {
+            Random nodeRnd = new Random(seed);
+            for (int node = 0; node < 20; node++)
+                // coordinates that are far away from each other, also across the antimeridian
+                g.getNodeAccess().setNode(node, -80 + 160 * nodeRnd.nextDouble(), -180 + 360 * nodeRnd.nextDouble(), 100 * nodeRnd.nextDouble());
+        }
+        for (int i = 0; i < 100; i++) {
+            int from = rnd.nextInt(20);
+            int to = (from + 1 + rnd.nextInt(19)) % 20;
+            PointList pillars = new PointList(5, is3D);
+            double lat = expected.getNodeAccess().getLat(from), lon = expected.getNodeAccess().getLon(from);
+            for (int j = rnd.nextInt(5); j > 0; j--) {
+                lat += rnd.nextDouble() < 0.1 ? 10 * rnd.nextGaussian() : 1.e-4 * rnd.nextGaussian();
+                lon += rnd.nextDouble() < 0.1 ? 10 * rnd.nextGaussian() : 1.e-4 * rnd.nextGaussian();
+                lat = Math.max(-89, Math.min(89, lat));
+                lon = Math.max(-179, Math.min(179, lon));
+                if (is3D)
+                    pillars.add(lat, lon, rnd.nextDouble() * 1000);
+                else
+                    pillars.add(lat, lon);
+            }
+            // set the geometry of some edges in reverse direction
+            boolean reverse = rnd.nextBoolean();
+            expected.edge(from, to).setDistance(10);
+            graph.edge(from, to).setDistance(10);
+            expected.getEdgeIteratorState(i, reverse ? from : to).setWayGeometry(pillars.clone(false));
+            graph.getEdgeIteratorState(i, reverse ? from : to).setWayGeometry(pillars.clone(false));
+        }
+        assertSameGeometries(expected, graph, seed);
+        assertTrue(graph.getMaxGeoRef() < expected.getMaxGeoRef(), "seed: " + seed);
+        // the same iterator re-uses its buffer for geometries of different lengths
+        AllEdgesIterator expectedIter = expected.getAllEdges();
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (expectedIter.next() && iter.next())
+            assertEquals(expectedIter.fetchWayGeometry(ALL).toString(), iter.fetchWayGeometry(ALL).toString(), "seed: " + seed);
+
+        // the geometry can be overwritten as long as it does not need more space
+        PointList pillars = graph.getEdgeIteratorState(0, Integer.MIN_VALUE).fetchWayGeometry(PILLAR_ONLY);
+        if (!pillars.isEmpty()) {
+            for (int i = 0; i < pillars.size(); i++)
+                pillars.set(i, pillars.getLat(i), pillars.getLon(i), is3D ? 42 : Double.NaN);
+            expected.getEdgeIteratorState(0, Integer.MIN_VALUE).setWayGeometry(pillars.clone(false));
+            graph.getEdgeIteratorState(0, Integer.MIN_VALUE).setWayGeometry(pillars.clone(false));
+            assertSameGeometries(expected, graph, seed);
+        }
+
+        graph.flush();
+        graph.close();
+        // the format is stored in the graph folder
+        graph = new BaseGraph.Builder(encodingManager).setDir(new RAMDirectory(defaultGraphLoc, true)).set3D(is3D).build();
+        assertTrue(graph.loadExisting());
+        assertTrue(graph.isCompactGeometry());
+        assertSameGeometries(expected, graph, seed);
+        expected.close();
+    }
+
+    private static void assertSameGeometries(BaseGraph expected, BaseGraph actual, long seed) {
+        for (int edge = 0; edge < expected.getEdges(); edge++) {
+            for (FetchMode mode : FetchMode.values()) {
+                for (boolean reverse : new boolean[]{false, true}) {
+                    EdgeIteratorState expectedEdge = expected.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+                    EdgeIteratorState actualEdge = actual.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+                    if (reverse) {
+                        expectedEdge = expectedEdge.detach(true);
+                        actualEdge = actualEdge.detach(true);
+                    }
+                    // the coordinates must be exactly the same, so we do not use PointList#equals
+                    assertEquals(expectedEdge.fetchWayGeometry(mode).toString(), actualEdge.fetchWayGeometry(mode).toString(),
+                            "seed: " + seed + ", edge: " + edge + ", mode: " + mode + ", reverse: " + reverse);
+                }
+            }
+        }
+    }
+
+    private void assertSameAdjacentEdges(BaseGraph expected, BaseGraph actual, long seed) {
+        assertEquals(expected.getNodes(), actual.getNodes());
+        EdgeExplorer expectedExplorer = expected.createEdgeExplorer();
+        EdgeExplorer actualExplorer = actual.createEdgeExplorer();
+        for (int node = 0; node < expected.getNodes(); node++) {
+            EdgeIterator expectedIter = expectedExplorer.setBaseNode(node);
+            EdgeIterator actualIter = actualExplorer.setBaseNode(node);
+            while (expectedIter.next()) {
+                assertTrue(actualIter.next(), "seed: " + seed + ", node: " + node);
+                assertEquals(expectedIter.getEdge(), actualIter.getEdge(), "seed: " + seed + ", node: " + node);
+                assertEquals(expectedIter.getBaseNode(), actualIter.getBaseNode());
+                assertEquals(expectedIter.getAdjNode(), actualIter.getAdjNode());
+                assertEquals(expectedIter.get(EdgeIteratorState.REVERSE_STATE), actualIter.get(EdgeIteratorState.REVERSE_STATE));
+                assertEquals(expectedIter.getDistance(), actualIter.getDistance());
+                assertEquals(expectedIter.get(footSpeedEnc), actualIter.get(footSpeedEnc));
+                assertEquals(expectedIter.fetchWayGeometry(ALL), actualIter.fetchWayGeometry(ALL));
+            }
+            assertFalse(actualIter.next(), "seed: " + seed + ", node: " + node);
+        }
+    }
 }
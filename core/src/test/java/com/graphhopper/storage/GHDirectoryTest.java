@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import java.util.LinkedHashMap;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class GHDirectoryTest {
 
@@ -33,4 +34,20 @@ class GHDirectoryTest {
         assertEquals(DAType.MMAP, dir.getDefaultType("nodes_ch_car", false));
     }
 
+    @Test
+    public void testOffHeap() {
+        GHDirectory dir = new GHDirectory("", DAType.RAM_STORE);
+        LinkedHashMap<String, String> map = new LinkedHashMap<>();
+        map.put("nodes", "OFF_HEAP_STORE");
+        map.put("edges", "off_heap");
+        dir.configure(map);
+        assertEquals(DAType.OFF_HEAP_STORE, dir.getDefaultType("nodes", true));
+        assertEquals(DAType.OFF_HEAP, dir.getDefaultType("edges", false));
+        DataAccess da = dir.create("edges");
+        assertTrue(da instanceof OffHeapDataAccess);
+        assertEquals(DAType.OFF_HEAP, da.getType());
+        assertEquals("OFF_HEAP", da.getType().toString());
+        dir.close();
+    }
+
 }
\ No newline at end of file
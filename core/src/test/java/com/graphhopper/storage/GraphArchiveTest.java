@@ -0,0 +1,134 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphArchiveTest {
+    private static final String DIR = "./target/graph-archive-test/";
+
+    @BeforeEach
+    @AfterEach
+    public void setUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    private void createFiles(String location) {
+        GHDirectory dir = new GHDirectory(location, DAType.RAM_STORE);
+        dir.create();
+        // a file with several segments, written using memory mapping
+        DataAccess big = dir.create("big", DAType.MMAP, 1 << 10).create(10_000);
+        for (int i = 0; i < 2500; i++)
+            big.setInt(4L * i, i);
+        big.setHeader(0, 42);
+        // a small file, which is not a multiple of the page size
+        DataAccess small = dir.create("small", 128).create(100);
+        small.setInt(0, 7);
+        small.setHeader(4, 13);
+        big.flush();
+        small.flush();
+        dir.close();
+    }
+
+    @Test
+    public void packAndLoad() throws IOException {
+        String location = DIR + "graph/";
+        createFiles(location);
+        // files that are not DataAccess files are skipped
+        Files.writeString(Paths.get(location + "gh.lock"), "lock");
+        File archiveFile = new File(location, GraphArchive.FILE_NAME);
+        GraphArchive.pack(new File(location), archiveFile);
+        assertTrue(archiveFile.exists());
+        assertFalse(new File(location, GraphArchive.FILE_NAME + ".tmp").exists());
+
+        // the archive is used even if the other files are gone
+        Helper.removeDir(new File(location + "big"));
+        Helper.removeDir(new File(location + "small"));
+        GHDirectory dir = new GHDirectory(location, DAType.RAM_STORE);
+        assertTrue(dir.openArchive());
+        assertEquals(2, dir.getArchive().getNames().size());
+        dir.getArchive().verify();
+        DataAccess big = dir.create("big");
+        assertTrue(big instanceof MMapDataAccess);
+        assertTrue(big.loadExisting());
+        assertEquals(42, big.getHeader(0));
+        assertEquals(1 << 10, big.getSegmentSize());
+        for (int i = 0; i < 2500; i++)
+            assertEquals(i, big.getInt(4L * i));
+        DataAccess small = dir.create("small");
+        assertTrue(small.loadExisting());
+        assertEquals(7, small.getInt(0));
+        assertEquals(13, small.getHeader(4));
+        // the archive is read-only
+        assertThrows(IllegalStateException.class, small::flush);
+        // DataAccess objects that are not in the archive are created as usual
+        assertFalse(dir.create("other").loadExisting());
+        dir.close();
+        assertNull(dir.getArchive());
+    }
+
+    @Test
+    public void unpack() {
+        String location = DIR + "graph/";
+        createFiles(location);
+        File archiveFile = new File(DIR, GraphArchive.FILE_NAME);
+        GraphArchive.pack(new File(location), archiveFile);
+        try (GraphArchive archive = GraphArchive.open(archiveFile)) {
+            archive.unpack(new File(DIR + "unpacked"));
+        }
+        GHDirectory dir = new GHDirectory(DIR + "unpacked", DAType.RAM_STORE);
+        assertFalse(dir.openArchive());
+        DataAccess big = dir.create("big");
+        assertTrue(big.loadExisting());
+        assertEquals(2499, big.getInt(4L * 2499));
+        dir.close();
+    }
+
+    @Test
+    public void detectCorruption() throws IOException {
+        String location = DIR + "graph/";
+        createFiles(location);
+        File archiveFile = new File(DIR, GraphArchive.FILE_NAME);
+        GraphArchive.pack(new File(location), archiveFile);
+        long length = archiveFile.length();
+        try (RandomAccessFile raFile = new RandomAccessFile(archiveFile, "rw")) {
+            raFile.seek(length - 1);
+            raFile.write(1);
+        }
+        try (GraphArchive archive = GraphArchive.open(archiveFile)) {
+            assertThrows(IllegalStateException.class, archive::verify);
+        }
+
+        // a truncated archive is rejected when it is opened
+        try (RandomAccessFile raFile = new RandomAccessFile(archiveFile, "rw")) {
+            raFile.setLength(length / 2);
+        }
+        assertThrows(IllegalStateException.class, () -> GraphArchive.open(archiveFile));
+    }
+}
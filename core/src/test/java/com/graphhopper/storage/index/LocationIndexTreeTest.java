@@ -35,6 +35,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -594,6 +595,108 @@ public class LocationIndexTreeTest {
         return graph;
     }
 
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    public void findClosestBatch(int threads) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        GHUtility.buildRandomGraph(graph, rnd, 300, 2.2, true, speedEnc, null, 0.8, 0.8);
+        NodeAccess na = graph.getNodeAccess();
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (rnd.nextBoolean())
+                continue;
+            // add a pillar node next to the middle of the edge
+            PointList pillars = new PointList();
+            pillars.add((na.getLat(iter.getBaseNode()) + na.getLat(iter.getAdjNode())) / 2 + (rnd.nextDouble() - 0.5) * 0.001,
+                    (na.getLon(iter.getBaseNode()) + na.getLon(iter.getAdjNode())) / 2 + (rnd.nextDouble() - 0.5) * 0.001);
+            iter.setWayGeometry(pillars);
+        }
+        LocationIndexTree index = createIndexNoPrepare(graph, 50);
+        index.prepareIndex();
+
+        BBox bounds = graph.getBounds();
+        List<GHPoint> points = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            // some points are outside the graph bounds and some are repeated
+            if (i > 0 && rnd.nextDouble() < 0.05)
+                points.add(points.get(rnd.nextInt(i)));
+            else
+                points.add(new GHPoint(bounds.minLat - 0.001 + rnd.nextDouble() * (bounds.maxLat - bounds.minLat + 0.002),
+                        bounds.minLon - 0.001 + rnd.nextDouble() * (bounds.maxLon - bounds.minLon + 0.002)));
+        }
+        // the filter must only depend on the edge
+        EdgeFilter edgeFilter = edge -> edge.getEdge() % 5 != 0;
+        List<Snap> snaps = index.findClosest(points, edgeFilter, threads);
+        assertEquals(points.size(), snaps.size());
+        for (int i = 0; i < points.size(); i++) {
+            Snap expected = index.findClosest(points.get(i).lat, points.get(i).lon, edgeFilter);
+            Snap snap = snaps.get(i);
+            String msg = "seed: " + seed + ", point: " + points.get(i);
+            assertEquals(points.get(i), snap.getQueryPoint(), msg);
+            assertEquals(expected.isValid(), snap.isValid(), msg);
+            if (!expected.isValid())
+                continue;
+            assertEquals(expected.getClosestEdge().getEdgeKey(), snap.getClosestEdge().getEdgeKey(), msg);
+            assertEquals(expected.getClosestNode(), snap.getClosestNode(), msg);
+            assertEquals(expected.getWayIndex(), snap.getWayIndex(), msg);
+            assertEquals(expected.getSnappedPosition(), snap.getSnappedPosition(), msg);
+            assertEquals(expected.getQueryDistance(), snap.getQueryDistance(), msg);
+            assertEquals(expected.getSnappedPoint(), snap.getSnappedPoint(), msg);
+        }
+    }
+
+    @Test
+    public void findKNearest() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        GHUtility.buildRandomGraph(graph, rnd, 300, 2.2, true, speedEnc, null, 0.8, 0.8);
+        LocationIndexTree index = createIndexNoPrepare(graph, 50);
+        index.prepareIndex();
+        EdgeFilter edgeFilter = edge -> edge.getEdge() % 5 != 0;
+        BBox bounds = graph.getBounds();
+        for (int i = 0; i < 100; i++) {
+            double lat = bounds.minLat + rnd.nextDouble() * (bounds.maxLat - bounds.minLat);
+            double lon = bounds.minLon + rnd.nextDouble() * (bounds.maxLon - bounds.minLon);
+            // compare with the closest snaps onto all edges
+            List<Snap> allSnaps = new ArrayList<>();
+            AllEdgesIterator iter = graph.getAllEdges();
+            while (iter.next()) {
+                if (!edgeFilter.accept(iter))
+                    continue;
+                Snap snap = new Snap(lat, lon);
+                EdgeIteratorState edge = iter.detach(false);
+                index.traverseEdge(lat, lon, edge, (node, normedDist, wayIndex, pos) -> {
+                    if (normedDist < snap.getQueryDistance()) {
+                        snap.setQueryDistance(normedDist);
+                        snap.setClosestNode(node);
+                        snap.setClosestEdge(edge);
+                        snap.setWayIndex(wayIndex);
+                        snap.setSnappedPosition(pos);
+                    }
+                });
+                snap.calcSnappedPoint(DistancePlaneProjection.DIST_PLANE);
+                snap.setQueryDistance(DistancePlaneProjection.DIST_PLANE.calcDist(snap.getSnappedPoint().lat, snap.getSnappedPoint().lon, lat, lon));
+                allSnaps.add(snap);
+            }
+            allSnaps.sort(Comparator.comparingDouble(Snap::getQueryDistance));
+            for (int k : new int[]{1, 3, Integer.MAX_VALUE}) {
+                double radius = 20 + rnd.nextDouble() * 200;
+                List<Snap> expected = allSnaps.stream().filter(s -> s.getQueryDistance() <= radius).limit(k).collect(Collectors.toList());
+                List<Snap> snaps = index.findKNearest(lat, lon, k, radius, edgeFilter);
+                String msg = "seed: " + seed + ", point: " + lat + "," + lon + ", k: " + k + ", radius: " + radius;
+                assertEquals(expected.size(), snaps.size(), msg);
+                for (int j = 0; j < snaps.size(); j++) {
+                    assertEquals(expected.get(j).getQueryDistance(), snaps.get(j).getQueryDistance(), 1.e-6, msg);
+                    assertEquals(expected.get(j).getSnappedPoint().lat, snaps.get(j).getSnappedPoint().lat, 1.e-9, msg);
+                    assertEquals(expected.get(j).getSnappedPoint().lon, snaps.get(j).getSnappedPoint().lon, 1.e-9, msg);
+                }
+            }
+        }
+    }
+
     @Test
     public void testDifferentVehicles() {
         BooleanEncodedValue carAccessEnc = new SimpleBooleanEncodedValue("car_access", true);
@@ -18,6 +18,10 @@
 
 package com.graphhopper.jackson;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -26,7 +30,9 @@ import com.graphhopper.ResponsePath;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
 
+import java.io.IOException;
 import java.text.NumberFormat;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 
@@ -43,42 +49,64 @@ import java.util.Locale;
 public class ResponsePathSerializer {
 
     public static String encodePolyline(PointList poly, boolean includeElevation, double multiplier) {
-        if (multiplier < 1)
-            throw new IllegalArgumentException("multiplier cannot be smaller than 1 but was " + multiplier + " for polyline");
-
-        StringBuilder sb = new StringBuilder(Math.max(20, poly.size() * 3));
-        int size = poly.size();
-        int prevLat = 0;
-        int prevLon = 0;
-        int prevEle = 0;
-        for (int i = 0; i < size; i++) {
-            int num = (int) Math.round(poly.getLat(i) * multiplier);
-            encodeNumber(sb, num - prevLat);
-            prevLat = num;
-            num = (int) Math.round(poly.getLon(i) * multiplier);
-            encodeNumber(sb, num - prevLon);
-            prevLon = num;
-            if (includeElevation) {
-                num = (int) Math.round(poly.getEle(i) * 100);
-                encodeNumber(sb, num - prevEle);
-                prevEle = num;
+        PolylineBuffer buffer = new PolylineBuffer();
+        buffer.encode(poly, includeElevation, multiplier);
+        return new String(buffer.chars, 0, buffer.length);
+    }
+
+    /**
+     * Collects the characters of an encoded polyline. The buffer can be reused for multiple polylines, which allows
+     * writing them to a {@link JsonGenerator} without creating an intermediate String for every polyline.
+     */
+    private static class PolylineBuffer {
+        // a 32 bit number is encoded into at most 7 characters
+        private static final int MAX_NUMBER_LENGTH = 7;
+        char[] chars = new char[64];
+        int length;
+
+        void encode(PointList poly, boolean includeElevation, double multiplier) {
+            if (multiplier < 1)
+                throw new IllegalArgumentException("multiplier cannot be smaller than 1 but was " + multiplier + " for polyline");
+
+            length = 0;
+            int size = poly.size();
+            int prevLat = 0;
+            int prevLon = 0;
+            int prevEle = 0;
+            for (int i = 0; i < size; i++) {
+                ensureCapacity(length + 3 * MAX_NUMBER_LENGTH);
+                int num = (int) Math.round(poly.getLat(i) * multiplier);
+                encodeNumber(num - prevLat);
+                prevLat = num;
+                num = (int) Math.round(poly.getLon(i) * multiplier);
+                encodeNumber(num - prevLon);
+                prevLon = num;
+                if (includeElevation) {
+                    num = (int) Math.round(poly.getEle(i) * 100);
+                    encodeNumber(num - prevEle);
+                    prevEle = num;
+                }
             }
         }
-        return sb.toString();
-    }
 
-    private static void encodeNumber(StringBuilder sb, int num) {
-        num = num << 1;
-        if (num < 0) {
-            num = ~num;
+        private void ensureCapacity(int capacity) {
+            if (capacity > chars.length)
+                chars = Arrays.copyOf(chars, Math.max(capacity, 2 * chars.length));
         }
-        while (num >= 0x20) {
-            int nextValue = (0x20 | (num & 0x1f)) + 63;
-            sb.append((char) (nextValue));
-            num >>= 5;
+
+        private void encodeNumber(int num) {
+            num = num << 1;
+            if (num < 0) {
+                num = ~num;
+            }
+            while (num >= 0x20) {
+                int nextValue = (0x20 | (num & 0x1f)) + 63;
+                chars[length++] = (char) nextValue;
+                num >>= 5;
+            }
+            num += 63;
+            chars[length++] = (char) num;
         }
-        num += 63;
-        sb.append((char) (num));
     }
 
     public record Info(List<String> copyrights, long took, String roadDataTimestamp) {
@@ -122,4 +150,80 @@ public class ResponsePathSerializer {
         }
         return json;
     }
+
+    /**
+     * Creates the same JSON as {@link #jsonObject} but the returned object writes the response directly to the
+     * {@link JsonGenerator} when it is serialized, e.g. by the ObjectMapper of the web resources. This avoids
+     * building an ObjectNode tree and the intermediate Strings of the encoded polylines.
+     */
+    public static JsonSerializable jsonStreaming(GHResponse ghRsp, Info info, boolean enableInstructions,
+                                                 boolean calcPoints, boolean enableElevation, boolean pointsEncoded, double pointsMultiplier) {
+        // fail before anything is written to the response
+        if (pointsEncoded && pointsMultiplier < 1)
+            throw new IllegalArgumentException("multiplier cannot be smaller than 1 but was " + pointsMultiplier + " for polyline");
+        return new JsonSerializable() {
+            @Override
+            public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+                writeJson(gen, serializers, ghRsp, info, enableInstructions, calcPoints, enableElevation, pointsEncoded, pointsMultiplier);
+            }
+
+            @Override
+            public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+                serialize(gen, serializers);
+            }
+        };
+    }
+
+    private static void writeJson(JsonGenerator gen, SerializerProvider serializers, GHResponse ghRsp, Info info, boolean enableInstructions,
+                                  boolean calcPoints, boolean enableElevation, boolean pointsEncoded, double pointsMultiplier) throws IOException {
+        PolylineBuffer polylineBuffer = pointsEncoded ? new PolylineBuffer() : null;
+        gen.writeStartObject();
+        serializers.defaultSerializeField("hints", ghRsp.getHints().toMap(), gen);
+        serializers.defaultSerializeField("info", info, gen);
+        gen.writeArrayFieldStart("paths");
+        for (ResponsePath p : ghRsp.getAll()) {
+            gen.writeStartObject();
+            gen.writeNumberField("distance", Helper.round(p.getDistance(), 3));
+            gen.writeNumberField("weight", Helper.round6(p.getRouteWeight()));
+            gen.writeNumberField("time", p.getTime());
+            gen.writeNumberField("transfers", p.getNumChanges());
+            serializers.defaultSerializeField("legs", p.getLegs(), gen);
+            if (!p.getDescription().isEmpty()) {
+                serializers.defaultSerializeField("description", p.getDescription(), gen);
+            }
+
+            // for points and snapped_waypoints:
+            gen.writeBooleanField("points_encoded", pointsEncoded);
+            if (pointsEncoded) gen.writeNumberField("points_encoded_multiplier", pointsMultiplier);
+
+            if (calcPoints) {
+                serializers.defaultSerializeField("bbox", p.calcBBox2D(), gen);
+                writePoints(gen, serializers, "points", p.getPoints(), polylineBuffer, enableElevation, pointsMultiplier);
+                if (enableInstructions) {
+                    serializers.defaultSerializeField("instructions", p.getInstructions(), gen);
+                }
+                serializers.defaultSerializeField("details", p.getPathDetails(), gen);
+                gen.writeNumberField("ascend", p.getAscend());
+                gen.writeNumberField("descend", p.getDescend());
+            }
+            writePoints(gen, serializers, "snapped_waypoints", p.getWaypoints(), polylineBuffer, enableElevation, pointsMultiplier);
+            if (p.getFare() != null) {
+                gen.writeStringField("fare", NumberFormat.getCurrencyInstance(Locale.ROOT).format(p.getFare()));
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writePoints(JsonGenerator gen, SerializerProvider serializers, String fieldName, PointList points,
+                                    PolylineBuffer polylineBuffer, boolean enableElevation, double pointsMultiplier) throws IOException {
+        if (polylineBuffer == null) {
+            serializers.defaultSerializeField(fieldName, points.toLineString(enableElevation), gen);
+        } else {
+            polylineBuffer.encode(points, enableElevation, pointsMultiplier);
+            gen.writeFieldName(fieldName);
+            gen.writeString(polylineBuffer.chars, 0, polylineBuffer.length);
+        }
+    }
 }
@@ -92,6 +92,11 @@ public class Parameters {
      */
     public static final class Routing {
         public static final String ALGORITHM = "algorithm";
+        /**
+         * true or false. If true the bidirectional (non-CH) algorithms store their shortest path trees in arrays as
+         * large as the graph instead of hash maps, which avoids creating objects for every visited node.
+         */
+        public static final String ARRAY_BASED = "array_based";
         public static final String EDGE_BASED = "edge_based";
         public static final String TURN_COSTS = "turn_costs";
         public static final String U_TURN_COSTS = "u_turn_costs";
@@ -149,6 +154,11 @@ public class Parameters {
          * This property name in HintsMap configures at runtime if CH routing should be ignored.
          */
         public static final String DISABLE = "ch.disable";
+        /**
+         * This property name in HintsMap enables the one-to-all CH search (PHAST) for isochrones and shortest path
+         * trees, which only pays off for limits that cover a large part of the graph.
+         */
+        public static final String PHAST = "ch.phast";
     }
 
     /**
@@ -17,11 +17,20 @@
  */
 package com.graphhopper.jackson;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
+import com.graphhopper.util.details.PathDetail;
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author Peter Karich
@@ -79,4 +88,35 @@ public class ResponsePathRepresentationTest {
     public void testEncode1e6() {
         assertEquals("ohdfzAgt}bVoEL", ResponsePathSerializer.encodePolyline(Helper.createPointList(47.827608, 12.123476, 47.827712, 12.123469), false, 1e6));
     }
+
+    @Test
+    public void testJsonStreaming() throws Exception {
+        // the latitude difference of the last point is encoded as backslash, which needs to be escaped
+        PointList points = Helper.createPointList3D(52.5, 13.4, 10, 52.51, 13.41, 20.5, 52.50985, 13.41, 15);
+        PathDetail detail = new PathDetail("main street");
+        detail.setFirst(0);
+        detail.setLast(2);
+        ResponsePath path = new ResponsePath().setPoints(points).setWaypoints(Helper.createPointList3D(52.5, 13.4, 10, 52.50985, 13.41, 15)).
+                setDistance(1234.56789).setTime(98765).setRouteWeight(123.4567891).setAscend(10.5).setDescend(5.5).
+                setDescription(List.of("first", "second"));
+        path.addPathDetails(Map.of("street_name", List.of(detail)));
+        path.setFare(new BigDecimal("2.5"));
+        GHResponse rsp = new GHResponse();
+        rsp.add(path);
+        rsp.add(new ResponsePath().setPoints(Helper.createPointList(52.5, 13.4)).setWaypoints(Helper.createPointList(52.5, 13.4)));
+        rsp.getHints().putObject("visited_nodes.sum", 42);
+        ResponsePathSerializer.Info info = new ResponsePathSerializer.Info(List.of("GraphHopper"), 12, "2024-01-01");
+
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        for (boolean pointsEncoded : new boolean[]{true, false}) {
+            for (boolean enableElevation : new boolean[]{true, false}) {
+                for (boolean calcPoints : new boolean[]{true, false}) {
+                    String expected = objectMapper.writeValueAsString(ResponsePathSerializer.jsonObject(rsp, info, false, calcPoints, enableElevation, pointsEncoded, 1e5));
+                    String streamed = objectMapper.writeValueAsString(ResponsePathSerializer.jsonStreaming(rsp, info, false, calcPoints, enableElevation, pointsEncoded, 1e5));
+                    assertEquals(expected, streamed);
+                }
+            }
+        }
+        assertTrue(objectMapper.writeValueAsString(ResponsePathSerializer.jsonStreaming(rsp, info, false, true, false, true, 1e5)).contains("\\\\"));
+    }
 }
@@ -44,9 +44,49 @@ import jakarta.inject.Singleton;
 import org.apache.hc.client5.http.classic.HttpClient;
 import org.glassfish.hk2.api.Factory;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
+import org.glassfish.jersey.process.internal.RequestScoped;
 
 public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConfiguration> {
 
+    /**
+     * Provides the current GraphHopper instance for each request and releases it when the request is finished, such
+     * that the instance is not closed while the request uses it, see {@link GraphHopperManaged#reload}.
+     */
+    static class GraphHopperFactory implements Factory<GraphHopper> {
+
+        private final GraphHopperManaged graphHopperManaged;
+
+        GraphHopperFactory(GraphHopperManaged graphHopperManaged) {
+            this.graphHopperManaged = graphHopperManaged;
+        }
+
+        @Override
+        public GraphHopper provide() {
+            return graphHopperManaged.acquire();
+        }
+
+        @Override
+        public void dispose(GraphHopper instance) {
+            graphHopperManaged.release(instance);
+        }
+    }
+
+    static class TriangulatorFactory implements Factory<Triangulator> {
+
+        @Inject
+        GraphHopper graphHopper;
+
+        @Override
+        public Triangulator provide() {
+            return new JTSTriangulator(graphHopper.getRouterConfig());
+        }
+
+        @Override
+        public void dispose(Triangulator instance) {
+
+        }
+    }
+
     static class TranslationMapFactory implements Factory<TranslationMap> {
 
         @Inject
@@ -279,9 +319,13 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
             @Override
             protected void configure() {
                 bind(configuration.getGraphHopperConfiguration()).to(GraphHopperConfig.class);
-                bind(graphHopper).to(GraphHopper.class);
+                if (configuration.getGraphHopperConfiguration().has("gtfs.file"))
+                    // the public transit resources keep the instance, so it cannot be reloaded
+                    bind(graphHopper).to(GraphHopper.class);
+                else
+                    bindFactory(new GraphHopperFactory(graphHopperManaged)).to(GraphHopper.class).in(RequestScoped.class);
 
-                bind(new JTSTriangulator(graphHopper.getRouterConfig())).to(Triangulator.class);
+                bindFactory(TriangulatorFactory.class).to(Triangulator.class);
                 bindFactory(MapMatchingRouterFactoryFactory.class).to(MapMatchingResource.MapMatchingRouterFactory.class);
                 bindFactory(PathDetailsBuilderFactoryFactory.class).to(PathDetailsBuilderFactory.class);
                 bindFactory(ProfileResolverFactory.class).to(ProfileResolver.class);
@@ -298,6 +342,7 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(MVTResource.class);
         environment.jersey().register(NearestResource.class);
         environment.jersey().register(RouteResource.class);
+        environment.jersey().register(MatrixResource.class);
         environment.jersey().register(IsochroneResource.class);
         environment.jersey().register(MapMatchingResource.class);
 
@@ -328,7 +373,9 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(SPTResource.class);
         environment.jersey().register(I18NResource.class);
         environment.jersey().register(InfoResource.class);
-        environment.healthChecks().register("graphhopper", new GraphHopperHealthCheck(graphHopper));
+        environment.healthChecks().register("graphhopper", new GraphHopperHealthCheck(graphHopperManaged::getGraphHopper));
+        if (!configuration.getGraphHopperConfiguration().has("gtfs.file"))
+            environment.admin().addTask(new ReloadGraphTask(graphHopperManaged));
         environment.jersey().register(environment.healthChecks());
         environment.jersey().register(HealthCheckResource.class);
 
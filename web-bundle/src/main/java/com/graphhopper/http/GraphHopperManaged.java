@@ -18,30 +18,72 @@
 
 package com.graphhopper.http;
 
+import com.graphhopper.GHRequest;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.config.Profile;
 import com.graphhopper.gtfs.GraphHopperGtfs;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.StopWatch;
 import io.dropwizard.lifecycle.Managed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Manages the GraphHopper instance of the server. The instance can be replaced by a new one using {@link #reload}
+ * without a restart. Requests use {@link #acquire} and {@link #release} such that an instance is only closed once all
+ * requests that use it are finished.
+ */
 public class GraphHopperManaged implements Managed {
 
     private final static Logger logger = LoggerFactory.getLogger(GraphHopperManaged.class);
-    private final GraphHopper graphHopper;
+    private final GraphHopperConfig configuration;
+    private final int warmUpQueries;
+    private final long warmUpSeed;
+    private final long drainTimeoutMillis;
+    private volatile GraphHopper graphHopper;
+    // the number of running requests per instance
+    private final Map<GraphHopper, AtomicInteger> requests = new ConcurrentHashMap<>();
+    // previous instances that are closed when their last request is finished or when the server is stopped
+    private final Set<GraphHopper> retired = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean reloading = new AtomicBoolean();
+    private boolean stopped;
 
     public GraphHopperManaged(GraphHopperConfig configuration) {
+        this.configuration = configuration;
+        warmUpQueries = configuration.getInt("graph.reload.warm_up_queries", 100);
+        warmUpSeed = configuration.getLong("graph.reload.warm_up_seed", 123);
+        drainTimeoutMillis = configuration.getLong("graph.reload.drain_timeout_ms", 60_000);
+        graphHopper = createGraphHopper(configuration);
+        requests.put(graphHopper, new AtomicInteger());
+    }
+
+    private static GraphHopper createGraphHopper(GraphHopperConfig configuration) {
+        GraphHopper graphHopper;
         if (configuration.has("gtfs.file")) {
             graphHopper = new GraphHopperGtfs(configuration);
         } else {
             graphHopper = new GraphHopper();
         }
         graphHopper.init(configuration);
+        return graphHopper;
     }
 
     @Override
     public void start() {
         graphHopper.importOrLoad();
+        logLoaded(graphHopper);
+    }
+
+    private static void logLoaded(GraphHopper graphHopper) {
         logger.info("loaded graph at:{}, data_reader_file:{}, encoded values:{}, {} bytes for edge flags, {}",
                 graphHopper.getGraphHopperLocation(), graphHopper.getOSMFile(),
                 graphHopper.getEncodingManager().toEncodedValuesAsString(),
@@ -49,14 +91,155 @@ public class GraphHopperManaged implements Managed {
                 graphHopper.getBaseGraph().toDetailsString());
     }
 
+    /**
+     * @return the instance that is used for new requests. Use {@link #acquire} if it must not be closed while it is
+     * used.
+     */
     public GraphHopper getGraphHopper() {
         return graphHopper;
     }
 
+    /**
+     * @return the instance that is used for new requests. It will not be closed by a reload before {@link #release}
+     * is called for it.
+     */
+    public GraphHopper acquire() {
+        while (true) {
+            GraphHopper hopper = graphHopper;
+            AtomicInteger counter = requests.get(hopper);
+            if (counter != null) {
+                counter.incrementAndGet();
+                // if the instance was replaced in the meantime it might already be closed
+                if (hopper == graphHopper)
+                    return hopper;
+                release(hopper);
+            }
+        }
+    }
+
+    /**
+     * Releases an instance returned by {@link #acquire}. If it was replaced by a reload and this was its last request
+     * it is closed.
+     */
+    public void release(GraphHopper hopper) {
+        AtomicInteger counter = requests.get(hopper);
+        if (counter != null && counter.decrementAndGet() == 0)
+            closeIfRetired(hopper);
+    }
+
+    private void closeIfRetired(GraphHopper hopper) {
+        // only one thread can remove the instance, so it is closed only once
+        if (!retired.remove(hopper))
+            return;
+        requests.remove(hopper);
+        hopper.close();
+        logger.info("closed graph at:{}", hopper.getGraphHopperLocation());
+    }
+
+    /**
+     * Creates a new instance for the server configuration with the given changes, usually a different graph.location,
+     * and runs importOrLoad for it in a background thread while the current instance keeps serving requests. The new
+     * instance is warmed up with graph.reload.warm_up_queries random queries per profile and then replaces the current
+     * instance for all new requests. The queries are created from graph.reload.warm_up_seed, so the same graph is
+     * always warmed up with the same queries. The previous instance is closed when all requests that use it are
+     * finished, or at the latest when the server is stopped.
+     *
+     * @return a future that completes with the new instance after the previous instance was closed, or after
+     * graph.reload.drain_timeout_ms if requests still use the previous instance. In this case it is closed when the
+     * last of these requests is finished.
+     */
+    public CompletableFuture<GraphHopper> reload(Map<String, String> changes) {
+        if (configuration.has("gtfs.file"))
+            throw new IllegalStateException("Reloading the graph is not supported for public transit");
+        if (!reloading.compareAndSet(false, true))
+            throw new IllegalStateException("The graph is already being reloaded");
+        GraphHopperConfig newConfiguration = new GraphHopperConfig(configuration);
+        changes.forEach(newConfiguration::putObject);
+        CompletableFuture<GraphHopper> future = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                future.complete(doReload(newConfiguration));
+            } catch (Throwable t) {
+                logger.error("Could not reload graph", t);
+                future.completeExceptionally(t);
+            } finally {
+                reloading.set(false);
+            }
+        }, "graph-reload");
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    private GraphHopper doReload(GraphHopperConfig newConfiguration) throws InterruptedException {
+        GraphHopper newHopper = createGraphHopper(newConfiguration);
+        GraphHopper oldHopper;
+        try {
+            newHopper.importOrLoad();
+            logLoaded(newHopper);
+            warmUp(newHopper);
+        } catch (RuntimeException ex) {
+            newHopper.close();
+            throw ex;
+        }
+        synchronized (this) {
+            if (stopped) {
+                newHopper.close();
+                throw new IllegalStateException("Server was stopped while reloading the graph");
+            }
+            requests.put(newHopper, new AtomicInteger());
+            oldHopper = graphHopper;
+            graphHopper = newHopper;
+            // from now on the last release closes the previous instance. closing it earlier could crash requests that
+            // still read from memory mapped files
+            retired.add(oldHopper);
+        }
+        logger.info("switched from graph at:{} to graph at:{}", oldHopper.getGraphHopperLocation(), newHopper.getGraphHopperLocation());
+
+        AtomicInteger counter = requests.get(oldHopper);
+        long deadline = System.currentTimeMillis() + drainTimeoutMillis;
+        while (counter.get() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(50);
+        if (counter.get() > 0)
+            logger.warn("{} requests still use the graph at:{} after {}ms, it will be closed when they are finished",
+                    counter.get(), oldHopper.getGraphHopperLocation(), drainTimeoutMillis);
+        else
+            closeIfRetired(oldHopper);
+        return newHopper;
+    }
+
+    private void warmUp(GraphHopper hopper) {
+        if (warmUpQueries <= 0 || hopper.getBaseGraph().getNodes() == 0)
+            return;
+        StopWatch sw = StopWatch.started();
+        NodeAccess na = hopper.getBaseGraph().getNodeAccess();
+        int nodes = hopper.getBaseGraph().getNodes();
+        Random rnd = new Random(warmUpSeed);
+        int queries = 0, errors = 0;
+        for (Profile profile : hopper.getProfiles()) {
+            for (int i = 0; i < warmUpQueries; i++) {
+                int from = rnd.nextInt(nodes);
+                int to = rnd.nextInt(nodes);
+                GHRequest request = new GHRequest(na.getLat(from), na.getLon(from), na.getLat(to), na.getLon(to)).
+                        setProfile(profile.getName());
+                queries++;
+                if (hopper.route(request).hasErrors())
+                    errors++;
+            }
+        }
+        logger.info("warmed up graph at:{} with {} queries ({} failed) in {}s", hopper.getGraphHopperLocation(),
+                queries, errors, sw.stop().getSeconds());
+    }
+
     @Override
     public void stop() {
+        synchronized (this) {
+            stopped = true;
+        }
         graphHopper.close();
+        // previous instances that still wait for their requests must be closed as well, otherwise their memory
+        // mapped files and locks would be left open
+        for (GraphHopper hopper : retired)
+            closeIfRetired(hopper);
     }
-
-
 }
@@ -0,0 +1,55 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http;
+
+import io.dropwizard.servlets.tasks.Task;
+
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin task that replaces the graph of the running server, e.g. POST /tasks/reload-graph?graph.location=new-gh. All
+ * parameters override the according values of the server configuration. The graph is loaded in the background, see
+ * {@link GraphHopperManaged#reload}.
+ */
+public class ReloadGraphTask extends Task {
+
+    private final GraphHopperManaged graphHopperManaged;
+
+    public ReloadGraphTask(GraphHopperManaged graphHopperManaged) {
+        super("reload-graph");
+        this.graphHopperManaged = graphHopperManaged;
+    }
+
+    @Override
+    public void execute(Map<String, List<String>> parameters, PrintWriter output) {
+        Map<String, String> changes = new HashMap<>();
+        parameters.forEach((key, values) -> {
+            if (values.size() != 1)
+                throw new IllegalArgumentException("Parameter " + key + " must be given exactly once");
+            changes.put(key, values.get(0));
+        });
+        if (!changes.containsKey("graph.location"))
+            throw new IllegalArgumentException("Parameter graph.location is required");
+        graphHopperManaged.reload(changes);
+        output.println("Started reloading graph at " + changes.get("graph.location"));
+    }
+}
@@ -21,16 +21,26 @@ package com.graphhopper.http.health;
 import com.codahale.metrics.health.HealthCheck;
 import com.graphhopper.GraphHopper;
 
+import java.util.function.Supplier;
+
 public class GraphHopperHealthCheck extends HealthCheck {
 
-    private final GraphHopper graphHopper;
+    private final Supplier<GraphHopper> graphHopperSupplier;
 
     public GraphHopperHealthCheck(GraphHopper graphHopper) {
-        this.graphHopper = graphHopper;
+        this(() -> graphHopper);
+    }
+
+    /**
+     * @param graphHopperSupplier supplies the instance that is checked, which can change when the graph is reloaded
+     */
+    public GraphHopperHealthCheck(Supplier<GraphHopper> graphHopperSupplier) {
+        this.graphHopperSupplier = graphHopperSupplier;
     }
 
     @Override
     protected Result check() {
+        GraphHopper graphHopper = graphHopperSupplier.get();
         if (!graphHopper.getBaseGraph().getBounds().isValid()) {
             return Result.unhealthy("BaseGraph has invalid bounds.");
         }
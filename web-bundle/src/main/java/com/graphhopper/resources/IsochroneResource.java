@@ -8,15 +8,18 @@ import com.graphhopper.config.Profile;
 import com.graphhopper.http.GHPointParam;
 import com.graphhopper.http.ProfileResolver;
 import com.graphhopper.isochrone.algorithm.ContourBuilder;
+import com.graphhopper.isochrone.algorithm.PhastShortestPathTree;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
 import com.graphhopper.isochrone.algorithm.Triangulator;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.Subnetwork;
 import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
 import com.graphhopper.routing.util.DefaultSnapFilter;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
@@ -82,6 +85,7 @@ public class IsochroneResource {
         StopWatch sw = new StopWatch().start();
         PMap hintsMap = new PMap();
         RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
+        boolean phast = isPhastRequested(hintsMap);
         hintsMap.putObject(Parameters.CH.DISABLE, true);
         hintsMap.putObject(Parameters.Landmark.DISABLE, true);
 
@@ -101,8 +105,7 @@ public class IsochroneResource {
         if (!snap.isValid())
             throw new IllegalArgumentException("Point not found:" + point);
         QueryGraph queryGraph = QueryGraph.create(graph, snap);
-        TraversalMode traversalMode = profile.hasTurnCosts() ? EDGE_BASED : NODE_BASED;
-        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode);
+        ShortestPathTree shortestPathTree = createShortestPathTree(graphHopper, profile, weighting, queryGraph, reverseFlow, phast);
 
         double limit;
         ToDoubleFunction<ShortestPathTree.IsoLabel> fz;
@@ -173,6 +176,29 @@ public class IsochroneResource {
                 build();
     }
 
+    /**
+     * PHAST always sweeps all nodes of the graph, while Dijkstra stops at the limit. PHAST is therefore only faster
+     * if the limit covers a large part of the graph, so it has to be requested explicitly with ch.phast=true.
+     */
+    static boolean isPhastRequested(PMap hints) {
+        return hints.getBool(Parameters.CH.PHAST, false) && !hints.getBool(Parameters.CH.DISABLE, false);
+    }
+
+    /**
+     * Uses the PHAST algorithm if it was requested and there is a node-based CH preparation for the given profile.
+     * Otherwise the shortest path tree is calculated using Dijkstra, which only explores the nodes within the limit.
+     */
+    static ShortestPathTree createShortestPathTree(GraphHopper graphHopper, Profile profile, Weighting weighting,
+                                                   QueryGraph queryGraph, boolean reverseFlow, boolean phast) {
+        RoutingCHGraph chGraph = phast ? graphHopper.getCHGraphs().get(profile.getName()) : null;
+        if (chGraph != null && !chGraph.isEdgeBased())
+            return new PhastShortestPathTree(new QueryRoutingCHGraph(chGraph, queryGraph),
+                    graphHopper.getCHNodesByLevel(profile.getName()), reverseFlow).
+                    setWorkspacePool(graphHopper.getRouterConfig().getWorkspacePool());
+        TraversalMode traversalMode = profile.hasTurnCosts() ? EDGE_BASED : NODE_BASED;
+        return new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode);
+    }
+
     private Polygon heuristicallyFindMainConnectedComponent(MultiPolygon multiPolygon, Point point) {
         int maxPoints = 0;
         Polygon maxPolygon = null;
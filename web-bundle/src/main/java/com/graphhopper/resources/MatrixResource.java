@@ -0,0 +1,183 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.http.GHPointParam;
+import com.graphhopper.http.ProfileResolver;
+import com.graphhopper.routing.ch.ManyToManyCH;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.exceptions.ConnectionNotFoundException;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.jersey.params.AbstractParam;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.inject.Inject;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.graphhopper.resources.RouteResource.removeLegacyParameters;
+import static com.graphhopper.util.Parameters.Routing.SNAP_PREVENTION;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Calculates the travel times, distances and weights between many locations in one request using the many-to-many
+ * CH algorithm, see {@link ManyToManyCH}. The response uses the same format as the hosted Matrix API, i.e. times are
+ * given in seconds, distances in meters and disconnected pairs are null (or an error if fail_fast=true).
+ */
+@Path("matrix")
+public class MatrixResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixResource.class);
+
+    private final GraphHopperConfig config;
+    private final GraphHopper graphHopper;
+    private final ProfileResolver profileResolver;
+    private final List<String> snapPreventionsDefault;
+    private final int maxMatrixSize;
+
+    @Inject
+    public MatrixResource(GraphHopperConfig config, GraphHopper graphHopper, ProfileResolver profileResolver) {
+        this.config = config;
+        this.graphHopper = graphHopper;
+        this.profileResolver = profileResolver;
+        this.snapPreventionsDefault = Arrays.stream(config.getString("routing.snap_preventions_default", "")
+                .split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+        this.maxMatrixSize = config.getInt("routing.max_matrix_size", 250_000);
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doGet(
+            @Context HttpServletRequest httpReq,
+            @Context UriInfo uriInfo,
+            @QueryParam("point") List<GHPointParam> pointParams,
+            @QueryParam("from_point") List<GHPointParam> fromPointParams,
+            @QueryParam("to_point") List<GHPointParam> toPointParams,
+            @QueryParam("profile") String profileName,
+            @QueryParam("out_array") List<String> outArrays,
+            @QueryParam("fail_fast") @DefaultValue("true") boolean failFast,
+            @QueryParam(SNAP_PREVENTION) List<String> snapPreventions) {
+        StopWatch sw = new StopWatch().start();
+        List<GHPoint> fromPoints;
+        List<GHPoint> toPoints;
+        if (!pointParams.isEmpty()) {
+            if (!fromPointParams.isEmpty() || !toPointParams.isEmpty())
+                throw new IllegalArgumentException("Either use the point parameter or the from_point and to_point parameters, but not both");
+            fromPoints = pointParams.stream().map(AbstractParam::get).collect(toList());
+            toPoints = fromPoints;
+        } else {
+            fromPoints = fromPointParams.stream().map(AbstractParam::get).collect(toList());
+            toPoints = toPointParams.stream().map(AbstractParam::get).collect(toList());
+        }
+        if ((long) fromPoints.size() * toPoints.size() > maxMatrixSize)
+            throw new IllegalArgumentException("The matrix size " + fromPoints.size() + "x" + toPoints.size() + " is too large, the maximum number of entries is " + maxMatrixSize);
+        if (outArrays.isEmpty())
+            outArrays = List.of("weights");
+        for (String outArray : outArrays)
+            if (!List.of("weights", "times", "distances").contains(outArray))
+                throw new IllegalArgumentException("Unknown out_array '" + outArray + "', possible values are: weights, times, distances");
+
+        GHRequest request = new GHRequest();
+        RouteResource.initHints(request.getHints(), uriInfo.getQueryParameters());
+        if (uriInfo.getQueryParameters().containsKey(SNAP_PREVENTION)) {
+            if (snapPreventions.size() == 1 && snapPreventions.contains(""))
+                request.setSnapPreventions(List.of()); // e.g. "&snap_prevention=&" to force empty list
+            else
+                request.setSnapPreventions(snapPreventions);
+        } else {
+            request.setSnapPreventions(snapPreventionsDefault);
+        }
+        PMap profileResolverHints = new PMap(request.getHints());
+        profileResolverHints.putObject("profile", profileName);
+        profileName = profileResolver.resolveProfile(profileResolverHints);
+        removeLegacyParameters(request.getHints());
+        request.setProfile(profileName);
+
+        boolean calcTimesAndDistances = outArrays.contains("times") || outArrays.contains("distances");
+        ManyToManyCH.Matrix matrix = graphHopper.routeMatrix(request, fromPoints, toPoints, calcTimesAndDistances);
+        if (failFast)
+            checkConnected(matrix);
+
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        if (outArrays.contains("weights"))
+            json.set("weights", createArray(matrix, (i, j) -> json.numberNode(matrix.getWeight(i, j))));
+        if (outArrays.contains("times"))
+            json.set("times", createArray(matrix, (i, j) -> json.numberNode(Math.round(matrix.getTime(i, j) / 1000.0))));
+        if (outArrays.contains("distances"))
+            json.set("distances", createArray(matrix, (i, j) -> json.numberNode(Math.round(matrix.getDistance(i, j)))));
+
+        double took = sw.stop().getMillisDouble();
+        ObjectNode info = json.putObject("info");
+        info.putPOJO("copyrights", config.getCopyrights());
+        info.put("took", Math.round(took));
+        logger.info(httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent") + " "
+                + fromPoints.size() + "x" + toPoints.size() + ", took: " + String.format("%.1f", took) + "ms, profile: " + profileName);
+        return Response.ok(json).
+                header("X-GH-Took", "" + Math.round(took)).
+                type(MediaType.APPLICATION_JSON).
+                build();
+    }
+
+    private static void checkConnected(ManyToManyCH.Matrix matrix) {
+        for (int i = 0; i < matrix.getRows(); i++) {
+            for (int j = 0; j < matrix.getCols(); j++) {
+                if (!matrix.isConnected(i, j)) {
+                    Map<String, Object> details = new HashMap<>(2);
+                    details.put("from", i);
+                    details.put("to", j);
+                    throw new ConnectionNotFoundException("Connection between locations not found: from_point " + i + " -> to_point " + j, details);
+                }
+            }
+        }
+    }
+
+    private static ArrayNode createArray(ManyToManyCH.Matrix matrix, EntrySerializer serializer) {
+        ArrayNode rows = JsonNodeFactory.instance.arrayNode(matrix.getRows());
+        for (int i = 0; i < matrix.getRows(); i++) {
+            ArrayNode row = rows.addArray();
+            for (int j = 0; j < matrix.getCols(); j++) {
+                if (matrix.isConnected(i, j))
+                    row.add(serializer.serialize(i, j));
+                else
+                    row.addNull();
+            }
+        }
+        return rows;
+    }
+
+    private interface EntrySerializer {
+        JsonNode serialize(int from, int to);
+    }
+}
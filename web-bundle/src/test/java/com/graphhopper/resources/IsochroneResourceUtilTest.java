@@ -19,10 +19,11 @@
 package com.graphhopper.resources;
 
 import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.PMap;
 import org.junit.jupiter.api.Test;
 import org.locationtech.jts.geom.Coordinate;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class IsochroneResourceUtilTest {
 
@@ -50,4 +51,13 @@ public class IsochroneResourceUtilTest {
         assertEquals(sanFranciscoToLosAngelesInDegrees, sanFranciscoToLosAngelesInDegreesAccordingToTestee, sanFranciscoToLosAngelesInDegrees * 0.5);
     }
 
+    @Test
+    public void testPhastOnlyIfRequested() {
+        // by default the bounded Dijkstra is used, even if there is a CH preparation, because PHAST visits all nodes
+        assertFalse(IsochroneResource.isPhastRequested(new PMap()));
+        assertFalse(IsochroneResource.isPhastRequested(new PMap().putObject("ch.disable", false)));
+        assertTrue(IsochroneResource.isPhastRequested(new PMap().putObject("ch.phast", true)));
+        assertFalse(IsochroneResource.isPhastRequested(new PMap().putObject("ch.phast", true).putObject("ch.disable", true)));
+    }
+
 }
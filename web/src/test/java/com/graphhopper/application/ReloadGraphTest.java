@@ -0,0 +1,151 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.http.GraphHopperManaged;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class ReloadGraphTest {
+    private static final String DIR = "./target/reload-gh/";
+    private static final String ANDORRA = "/route?profile=car&point=42.554851,1.536198&point=42.510071,1.548128";
+    private static final String MONACO = "/route?profile=car&point=43.727687,7.418737&point=43.74958,7.436566";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR + "andorra").
+                putObject("import.osm.ignored_highways", "").
+                putObject("graph.reload.warm_up_queries", 10).
+                setProfiles(List.of(TestProfiles.constantSpeed("car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void reloadTask() throws InterruptedException {
+        assertEquals(200, clientTarget(app, ANDORRA).request().get().getStatus());
+        assertEquals(400, clientTarget(app, MONACO).request().get().getStatus());
+
+        Response response = app.client().target("http://localhost:" + app.getAdminPort() + "/tasks/reload-graph").
+                queryParam("graph.location", DIR + "monaco").
+                queryParam("datareader.file", "../core/files/monaco.osm.gz").
+                request().post(Entity.text(""));
+        assertEquals(200, response.getStatus());
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (clientTarget(app, MONACO).request().get().getStatus() != 200) {
+            assertTrue(System.currentTimeMillis() < deadline, "graph was not reloaded");
+            Thread.sleep(100);
+        }
+        assertEquals(400, clientTarget(app, ANDORRA).request().get().getStatus());
+        assertEquals(200, clientTarget(app, "/health").request().get().getStatus());
+    }
+
+    @Test
+    public void closeAfterRequestsFinished() throws Exception {
+        GraphHopperConfig config = new GraphHopperConfig(createConfig().getGraphHopperConfiguration()).
+                putObject("graph.location", DIR + "managed1");
+        GraphHopperManaged managed = new GraphHopperManaged(config);
+        managed.start();
+        GraphHopper previous = managed.acquire();
+        CompletableFuture<GraphHopper> future = managed.reload(Map.of("graph.location", DIR + "managed2"));
+        assertThrows(IllegalStateException.class, () -> managed.reload(Map.of("graph.location", DIR + "managed3")));
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (managed.getGraphHopper() == previous) {
+            assertTrue(System.currentTimeMillis() < deadline, "graph was not reloaded");
+            Thread.sleep(100);
+        }
+        // new requests use the new instance, but the previous one is still in use
+        GraphHopper current = managed.acquire();
+        assertNotSame(previous, current);
+        managed.release(current);
+        Thread.sleep(200);
+        assertFalse(future.isDone());
+        assertFalse(previous.getBaseGraph().isClosed());
+
+        managed.release(previous);
+        assertSame(current, future.get(10, TimeUnit.SECONDS));
+        assertTrue(previous.getBaseGraph().isClosed());
+        managed.stop();
+    }
+
+    @Test
+    public void closeOnLastReleaseAfterDrainTimeout() throws Exception {
+        GraphHopperConfig config = new GraphHopperConfig(createConfig().getGraphHopperConfiguration()).
+                putObject("graph.location", DIR + "managed4").
+                putObject("graph.reload.drain_timeout_ms", 0);
+        GraphHopperManaged managed = new GraphHopperManaged(config);
+        managed.start();
+        GraphHopper previous = managed.acquire();
+        GraphHopper current = managed.reload(Map.of("graph.location", DIR + "managed5")).get(60, TimeUnit.SECONDS);
+        // the reload did not wait for the running request, so the previous instance is still open
+        assertNotSame(previous, current);
+        assertFalse(previous.getBaseGraph().isClosed());
+
+        managed.release(previous);
+        assertTrue(previous.getBaseGraph().isClosed());
+        assertFalse(current.getBaseGraph().isClosed());
+        managed.stop();
+    }
+
+    @Test
+    public void closeRetiredInstancesOnStop() throws Exception {
+        GraphHopperConfig config = new GraphHopperConfig(createConfig().getGraphHopperConfiguration()).
+                putObject("graph.location", DIR + "managed6").
+                putObject("graph.reload.drain_timeout_ms", 0);
+        GraphHopperManaged managed = new GraphHopperManaged(config);
+        managed.start();
+        GraphHopper previous = managed.acquire();
+        GraphHopper current = managed.reload(Map.of("graph.location", DIR + "managed7")).get(60, TimeUnit.SECONDS);
+        assertFalse(previous.getBaseGraph().isClosed());
+
+        // the request on the previous instance never finished, but stopping the server closes it anyway
+        managed.stop();
+        assertTrue(previous.getBaseGraph().isClosed());
+        assertTrue(current.getBaseGraph().isClosed());
+        managed.release(previous);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.routing.TestProfiles;
+import com.graphhopper.util.BodyAndStatus;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.TurnCostsConfig;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static com.graphhopper.application.resources.Util.getWithStatus;
+import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class MatrixResourceTest {
+    private static final String DIR = "./target/matrix-resource-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("prepare.min_network_size", 0).
+                putObject("datareader.file", "../core/files/moscow.osm.gz").
+                putObject("import.osm.ignored_highways", "").
+                putObject("graph.location", DIR).
+                putObject("graph.encoded_values", "car_access, car_average_speed").
+                setProfiles(Arrays.asList(
+                        TestProfiles.accessAndSpeed("my_car_turn_costs", "car").setTurnCostsConfig(TurnCostsConfig.car()),
+                        TestProfiles.accessAndSpeed("my_car_no_turn_costs", "car")
+                )).
+                setCHProfiles(Arrays.asList(
+                        new CHProfile("my_car_turn_costs"),
+                        new CHProfile("my_car_no_turn_costs")
+                ));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"my_car_turn_costs", "my_car_no_turn_costs"})
+    public void matrixMatchesRoutes(String profile) {
+        String[] points = {"55.813357,37.5958585", "55.811042,37.594689", "55.818994,37.595354"};
+        String url = "/matrix?profile=" + profile + "&out_array=weights&out_array=times&out_array=distances";
+        for (String point : points)
+            url += "&point=" + point;
+        BodyAndStatus response = getWithStatus(clientTarget(app, url));
+        JsonNode json = response.getBody();
+        assertEquals(200, response.getStatus(), json.toString());
+        assertEquals(3, json.get("distances").size());
+        for (int i = 0; i < points.length; i++) {
+            assertEquals(3, json.get("distances").get(i).size());
+            for (int j = 0; j < points.length; j++) {
+                JsonNode route = clientTarget(app, "/route?profile=" + profile + "&point=" + points[i] + "&point=" + points[j]
+                        + "&calc_points=false&instructions=false").request().get(JsonNode.class);
+                JsonNode path = route.get("paths").get(0);
+                assertEquals(path.get("distance").asDouble(), json.get("distances").get(i).get(j).asDouble(), 1, "distance " + i + "->" + j);
+                assertEquals(path.get("time").asLong() / 1000.0, json.get("times").get(i).get(j).asDouble(), 1, "time " + i + "->" + j);
+                assertEquals(path.get("weight").asDouble(), json.get("weights").get(i).get(j).asDouble(), 1.e-2, "weight " + i + "->" + j);
+            }
+        }
+    }
+
+    @Test
+    public void fromAndToPoints() {
+        BodyAndStatus response = getWithStatus(clientTarget(app, "/matrix?profile=my_car_turn_costs&out_array=distances" +
+                "&from_point=55.813357,37.5958585&to_point=55.811042,37.594689&to_point=55.818994,37.595354"));
+        JsonNode json = response.getBody();
+        assertEquals(200, response.getStatus(), json.toString());
+        assertEquals(1, json.get("distances").size());
+        assertEquals(2, json.get("distances").get(0).size());
+        assertEquals(1044, json.get("distances").get(0).get(0).asDouble(), 1);
+        assertFalse(json.has("weights"));
+        assertTrue(json.get("info").has("took"));
+    }
+
+    @Test
+    public void errors() {
+        BodyAndStatus response = getWithStatus(clientTarget(app, "/matrix?profile=my_car_turn_costs&out_array=distances" +
+                "&from_point=55.813357,37.5958585"));
+        assertEquals(400, response.getStatus());
+        assertTrue(response.getBody().get("message").asText().contains("at least one from_point and one to_point"), response.getBody().toString());
+
+        response = getWithStatus(clientTarget(app, "/matrix?profile=my_car_turn_costs&out_array=speeds" +
+                "&point=55.813357,37.5958585&point=55.811042,37.594689"));
+        assertEquals(400, response.getStatus());
+        assertTrue(response.getBody().get("message").asText().contains("Unknown out_array 'speeds'"), response.getBody().toString());
+
+        response = getWithStatus(clientTarget(app, "/matrix?profile=my_car_turn_costs&ch.disable=true" +
+                "&point=55.813357,37.5958585&point=55.811042,37.594689"));
+        assertEquals(400, response.getStatus());
+        assertTrue(response.getBody().get("message").asText().contains("requires a CH preparation"), response.getBody().toString());
+    }
+}
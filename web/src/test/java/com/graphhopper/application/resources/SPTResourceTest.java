@@ -22,6 +22,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.application.GraphHopperApplication;
 import com.graphhopper.application.GraphHopperServerConfiguration;
 import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.config.CHProfile;
 import com.graphhopper.routing.TestProfiles;
 import com.graphhopper.util.BodyAndStatus;
 import com.graphhopper.util.Helper;
@@ -35,7 +36,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.graphhopper.application.resources.Util.getWithStatus;
 import static com.graphhopper.application.util.TestUtils.clientTarget;
@@ -56,8 +59,10 @@ public class SPTResourceTest {
                 putObject("graph.encoded_values", "car_access, car_average_speed").
                 setProfiles(List.of(
                         TestProfiles.accessAndSpeed("car_without_turncosts", "car"),
-                        TestProfiles.accessAndSpeed("car_with_turncosts", "car").setTurnCostsConfig(TurnCostsConfig.car())
-                ));
+                        TestProfiles.accessAndSpeed("car_with_turncosts", "car").setTurnCostsConfig(TurnCostsConfig.car()),
+                        TestProfiles.accessAndSpeed("car_ch", "car")
+                )).
+                setCHProfiles(List.of(new CHProfile("car_ch")));
         return config;
     }
 
@@ -101,6 +106,29 @@ public class SPTResourceTest {
         assertEquals("2385,2821,1234,13121,262", lines[3]);
     }
 
+    @Test
+    public void requestSPTWithCH() {
+        String query = "/spt?profile=car_ch&point=42.531073,1.573792&time_limit=300&columns=node_id,time,distance";
+        Map<String, String> phastRows = readRows(clientTarget(app, query + "&ch.phast=true").request().get(String.class));
+        Map<String, String> dijkstraRows = readRows(clientTarget(app, query).request().get(String.class));
+        assertTrue(phastRows.size() > 300);
+        assertEquals(dijkstraRows.keySet(), phastRows.keySet());
+        for (Map.Entry<String, String> row : dijkstraRows.entrySet()) {
+            String[] expected = row.getValue().split(",");
+            String[] actual = phastRows.get(row.getKey()).split(",");
+            assertEquals(Integer.parseInt(expected[1]), Integer.parseInt(actual[1]), 1, "node " + row.getKey());
+        }
+    }
+
+    private static Map<String, String> readRows(String csv) {
+        String[] lines = csv.split("\n");
+        assertEquals("node_id,time,distance", lines[0]);
+        Map<String, String> rows = new HashMap<>();
+        for (int i = 1; i < lines.length; i++)
+            rows.put(lines[i].split(",")[0], lines[i]);
+        return rows;
+    }
+
     @Test
     public void requestDetails() {
         String rspCsvString = clientTarget(app, "/spt?profile=car_without_turncosts&point=42.531073,1.573792&time_limit=300&columns=street_name,road_class,max_speed").request().get(String.class);